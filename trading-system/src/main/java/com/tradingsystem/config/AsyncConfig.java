@@ -2,6 +2,7 @@ package com.tradingsystem.config;
 
 import java.util.concurrent.Executor;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -21,4 +22,22 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Пул для потоковых ответов (выгрузки, NDJSON). Каждый поток держит соединение с базой данных
+     * на все время выгрузки, поэтому число одновременных выгрузок ограничено и они не забирают
+     * соединения и потоки у остальных запросов; сверх очереди запрос отклоняется
+     */
+    @Bean(name = "streamingTaskExecutor")
+    public ThreadPoolTaskExecutor streamingTaskExecutor(
+            @Value("${app.export.max-concurrent:4}") int maxConcurrent,
+            @Value("${app.export.queue-capacity:16}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("TradingSystem-stream-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -1,12 +1,34 @@
 package com.tradingsystem.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final ThreadPoolTaskExecutor streamingTaskExecutor;
+
+    @Value("${app.export.timeout:1800000}")
+    private long streamingTimeout;
+
+    @Autowired
+    public WebConfig(@Qualifier("streamingTaskExecutor") ThreadPoolTaskExecutor streamingTaskExecutor) {
+        this.streamingTaskExecutor = streamingTaskExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Потоковые ответы выполняются в отдельном ограниченном пуле
+        configurer.setTaskExecutor(streamingTaskExecutor);
+        configurer.setDefaultTimeout(streamingTimeout);
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -83,6 +83,16 @@ public class AnalysisController {
         return ResponseEntity.ok(analysisDTOs);
     }
 
+    @GetMapping("/latest-per-stock")
+    @Operation(summary = "Получить последний анализ по каждой акции", description = "Возвращает последнюю рекомендацию для каждой акции")
+    public ResponseEntity<List<AnalysisDTO>> getLatestAnalysesPerStock() {
+        List<Analysis> analyses = analysisService.getLatestAnalysesForAllStocks();
+        List<AnalysisDTO> analysisDTOs = analyses.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(analysisDTOs);
+    }
+
     @GetMapping("/stock/{stockId}")
     @Operation(summary = "Получить анализы по акции", description = "Возвращает список анализов для конкретной акции")
     public ResponseEntity<List<AnalysisDTO>> getAnalysesByStock(
@@ -0,0 +1,46 @@
+package com.tradingsystem.controller;
+
+import java.util.Map;
+
+import jakarta.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tradingsystem.model.dto.BacktestRequestDTO;
+import com.tradingsystem.model.dto.BacktestResultDTO;
+import com.tradingsystem.service.interfaces.BacktestService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/backtests")
+@Tag(name = "Backtests", description = "API для проверки стратегий на исторических котировках")
+public class BacktestController {
+
+    private final BacktestService backtestService;
+
+    @Autowired
+    public BacktestController(BacktestService backtestService) {
+        this.backtestService = backtestService;
+    }
+
+    @GetMapping("/strategies")
+    @Operation(summary = "Получить стратегии", description = "Возвращает доступные стратегии и их параметры по умолчанию")
+    public ResponseEntity<Map<String, Map<String, Double>>> getStrategies() {
+        return ResponseEntity.ok(backtestService.getStrategies());
+    }
+
+    @PostMapping
+    @Operation(summary = "Запустить бэктестинг", description = "Прогоняет стратегию по дневным котировкам каждой акции для всех сочетаний " +
+            "параметров из сетки. Заявки исполняются по цене открытия следующего дня с проскальзыванием и комиссией")
+    public ResponseEntity<BacktestResultDTO> runBacktest(@RequestBody @Valid BacktestRequestDTO request) {
+        return ResponseEntity.ok(backtestService.runBacktest(request));
+    }
+}
@@ -0,0 +1,103 @@
+package com.tradingsystem.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.entity.User;
+import com.tradingsystem.model.enums.ExportFormat;
+import com.tradingsystem.service.interfaces.ExportService;
+import com.tradingsystem.service.interfaces.PortfolioService;
+import com.tradingsystem.service.interfaces.UserService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/export")
+@Tag(name = "Export", description = "API для выгрузки сделок, позиций и истории оценок портфеля")
+public class ExportController {
+
+    private final ExportService exportService;
+    private final PortfolioService portfolioService;
+    private final UserService userService;
+
+    @Autowired
+    public ExportController(
+            ExportService exportService,
+            PortfolioService portfolioService,
+            UserService userService) {
+        this.exportService = exportService;
+        this.portfolioService = portfolioService;
+        this.userService = userService;
+    }
+
+    @GetMapping("/portfolio/{portfolioId}/trades")
+    @Operation(summary = "Выгрузить сделки портфеля", description = "Выгружает все сделки портфеля в хронологическом порядке " +
+            "в CSV (gzip) или колоночном формате TSCF по мере чтения из базы данных")
+    public ResponseEntity<StreamingResponseBody> exportTrades(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long portfolioId,
+            @RequestParam(defaultValue = "CSV") @Parameter(description = "Формат (CSV, COLUMNAR)", example = "CSV") ExportFormat format,
+            Authentication authentication) {
+        if (!isOwnedByUser(portfolioId, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return attachment("trades-" + portfolioId, format,
+                output -> exportService.exportTrades(portfolioId, format, output));
+    }
+
+    @GetMapping("/portfolio/{portfolioId}/holdings")
+    @Operation(summary = "Выгрузить позиции портфеля", description = "Выгружает текущие позиции портфеля в CSV (gzip) или колоночном формате TSCF")
+    public ResponseEntity<StreamingResponseBody> exportHoldings(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long portfolioId,
+            @RequestParam(defaultValue = "CSV") @Parameter(description = "Формат (CSV, COLUMNAR)", example = "CSV") ExportFormat format,
+            Authentication authentication) {
+        if (!isOwnedByUser(portfolioId, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return attachment("holdings-" + portfolioId, format,
+                output -> exportService.exportHoldings(portfolioId, format, output));
+    }
+
+    @GetMapping("/portfolio/{portfolioId}/performance")
+    @Operation(summary = "Выгрузить историю оценок портфеля", description = "Выгружает рассчитанные дневные оценки и доходности портфеля " +
+            "в CSV (gzip) или колоночном формате TSCF")
+    public ResponseEntity<StreamingResponseBody> exportPerformance(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long portfolioId,
+            @RequestParam(defaultValue = "CSV") @Parameter(description = "Формат (CSV, COLUMNAR)", example = "CSV") ExportFormat format,
+            Authentication authentication) {
+        if (!isOwnedByUser(portfolioId, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return attachment("performance-" + portfolioId, format,
+                output -> exportService.exportPerformance(portfolioId, format, output));
+    }
+
+    private boolean isOwnedByUser(Long portfolioId, Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(portfolioId);
+        return portfolio.getUser().getId().equals(user.getId());
+    }
+
+    private ResponseEntity<StreamingResponseBody> attachment(String name, ExportFormat format, StreamingResponseBody body) {
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(name + "." + format.getFileExtension())
+                .build();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
+    }
+}
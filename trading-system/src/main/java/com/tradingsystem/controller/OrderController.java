@@ -0,0 +1,162 @@
+package com.tradingsystem.controller;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jakarta.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tradingsystem.model.dto.OrderBookDTO;
+import com.tradingsystem.model.dto.OrderDTO;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.entity.TradeOrder;
+import com.tradingsystem.model.entity.User;
+import com.tradingsystem.model.enums.OrderType;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.service.interfaces.OrderService;
+import com.tradingsystem.service.interfaces.PortfolioService;
+import com.tradingsystem.service.interfaces.StockService;
+import com.tradingsystem.service.interfaces.UserService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/orders")
+@Tag(name = "Orders", description = "API для работы с заявками и книгой заявок")
+public class OrderController {
+
+    private final OrderService orderService;
+    private final PortfolioService portfolioService;
+    private final StockService stockService;
+    private final UserService userService;
+
+    @Autowired
+    public OrderController(
+            OrderService orderService,
+            PortfolioService portfolioService,
+            StockService stockService,
+            UserService userService) {
+        this.orderService = orderService;
+        this.portfolioService = portfolioService;
+        this.stockService = stockService;
+        this.userService = userService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Выставить заявку", description = "Принимает лимитную или рыночную заявку и передает ее на сведение. " +
+            "Исполнения проводятся как сделки портфеля асинхронно; состояние заявки доступно по ее ID")
+    public ResponseEntity<OrderDTO> placeOrder(
+            @RequestBody @Valid OrderDTO orderDTO,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+
+        // Получаем портфель и проверяем его принадлежность пользователю
+        Portfolio portfolio = portfolioService.getPortfolioById(orderDTO.getPortfolioId());
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        TradeOrder order = new TradeOrder();
+        order.setPortfolio(portfolio);
+        order.setStock(stockService.getStockById(orderDTO.getStockId()));
+        order.setSide(TradeType.valueOf(orderDTO.getSide()));
+        order.setOrderType(OrderType.valueOf(orderDTO.getOrderType()));
+        order.setQuantity(orderDTO.getQuantity());
+        order.setLimitPrice(orderDTO.getLimitPrice());
+
+        TradeOrder placed = orderService.placeOrder(order);
+        return new ResponseEntity<>(convertToDTO(placed), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить заявку по ID", description = "Возвращает заявку с исполненным количеством и состоянием")
+    public ResponseEntity<OrderDTO> getOrderById(
+            @PathVariable @Parameter(description = "ID заявки", example = "1") Long id,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        TradeOrder order = orderService.getOrderById(id);
+
+        // Проверка, принадлежит ли заявка портфелю пользователя
+        if (!order.getPortfolio().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(convertToDTO(order));
+    }
+
+    @GetMapping("/portfolio/{portfolioId}")
+    @Operation(summary = "Получить заявки портфеля", description = "Возвращает заявки портфеля от новых к старым")
+    public ResponseEntity<List<OrderDTO>> getOrdersByPortfolio(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long portfolioId,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(portfolioId);
+
+        // Проверка, принадлежит ли портфель пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        List<OrderDTO> orders = orderService.getOrdersByPortfolioId(portfolioId).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(orders);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Снять заявку", description = "Снимает неисполненный остаток заявки из книги заявок")
+    public ResponseEntity<OrderDTO> cancelOrder(
+            @PathVariable @Parameter(description = "ID заявки", example = "1") Long id,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        TradeOrder order = orderService.getOrderById(id);
+
+        // Проверка, принадлежит ли заявка портфелю пользователя
+        if (!order.getPortfolio().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(convertToDTO(orderService.cancelOrder(id)));
+    }
+
+    @GetMapping("/book/{stockId}")
+    @Operation(summary = "Получить книгу заявок", description = "Возвращает лучшие уровни цен покупки и продажи акции")
+    public ResponseEntity<OrderBookDTO> getOrderBook(
+            @PathVariable @Parameter(description = "ID акции", example = "1") Long stockId,
+            @RequestParam(defaultValue = "10") @Parameter(description = "Количество уровней с каждой стороны", example = "10") int depth) {
+        return ResponseEntity.ok(orderService.getOrderBook(stockId, Math.min(Math.max(depth, 1), 100)));
+    }
+
+    private OrderDTO convertToDTO(TradeOrder order) {
+        OrderDTO dto = new OrderDTO();
+        dto.setId(order.getId());
+        dto.setPortfolioId(order.getPortfolio().getId());
+        dto.setStockId(order.getStock().getId());
+        dto.setStockSymbol(order.getStock().getSymbol());
+        dto.setSide(order.getSide().name());
+        dto.setOrderType(order.getOrderType().name());
+        dto.setQuantity(order.getQuantity());
+        dto.setLimitPrice(order.getLimitPrice());
+        dto.setFilledQuantity(order.getFilledQuantity());
+        dto.setAverageFillPrice(order.getAverageFillPrice());
+        dto.setStatus(order.getStatus().name());
+        dto.setCreatedDate(order.getCreatedDate());
+        dto.setUpdatedDate(order.getUpdatedDate());
+        dto.setMessage(order.getMessage());
+        return dto;
+    }
+}
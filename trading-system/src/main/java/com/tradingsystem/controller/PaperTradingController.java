@@ -0,0 +1,137 @@
+package com.tradingsystem.controller;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tradingsystem.model.dto.PaperOrderDTO;
+import com.tradingsystem.model.dto.PaperSessionDTO;
+import com.tradingsystem.model.dto.PaperSessionRequestDTO;
+import com.tradingsystem.model.entity.User;
+import com.tradingsystem.service.interfaces.PaperTradingService;
+import com.tradingsystem.service.interfaces.UserService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/paper/sessions")
+@Tag(name = "Paper Trading", description = "API для бумажной торговли по историческим котировкам с ускоренным воспроизведением")
+public class PaperTradingController {
+
+    private final PaperTradingService paperTradingService;
+    private final UserService userService;
+
+    @Autowired
+    public PaperTradingController(PaperTradingService paperTradingService, UserService userService) {
+        this.paperTradingService = paperTradingService;
+        this.userService = userService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Открыть сессию", description = "Создает учебный портфель и запускает воспроизведение исторических торговых дней " +
+            "с ускорением от 10 до 1000 раз")
+    public ResponseEntity<PaperSessionDTO> createSession(
+            @RequestBody @Valid PaperSessionRequestDTO request,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        return new ResponseEntity<>(paperTradingService.createSession(user, request), HttpStatus.CREATED);
+    }
+
+    @GetMapping
+    @Operation(summary = "Получить сессии пользователя", description = "Возвращает открытые сессии текущего пользователя")
+    public ResponseEntity<List<PaperSessionDTO>> getSessions(Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        return ResponseEntity.ok(paperTradingService.getSessionsByUserId(user.getId()));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить состояние сессии", description = "Возвращает виртуальное время, котировки и позиции на текущий момент воспроизведения")
+    public ResponseEntity<PaperSessionDTO> getSession(
+            @PathVariable @Parameter(description = "ID сессии", example = "1") Long id,
+            Authentication authentication) {
+        if (!isOwner(id, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(paperTradingService.getSession(id));
+    }
+
+    @PostMapping("/{id}/pause")
+    @Operation(summary = "Приостановить воспроизведение", description = "Останавливает виртуальное время сессии")
+    public ResponseEntity<PaperSessionDTO> pauseSession(
+            @PathVariable @Parameter(description = "ID сессии", example = "1") Long id,
+            Authentication authentication) {
+        if (!isOwner(id, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(paperTradingService.pauseSession(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    @Operation(summary = "Продолжить воспроизведение", description = "Продолжает виртуальное время сессии с момента паузы")
+    public ResponseEntity<PaperSessionDTO> resumeSession(
+            @PathVariable @Parameter(description = "ID сессии", example = "1") Long id,
+            Authentication authentication) {
+        if (!isOwner(id, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(paperTradingService.resumeSession(id));
+    }
+
+    @PutMapping("/{id}/speed")
+    @Operation(summary = "Изменить ускорение", description = "Меняет ускорение воспроизведения без скачка виртуального времени")
+    public ResponseEntity<PaperSessionDTO> setSpeed(
+            @PathVariable @Parameter(description = "ID сессии", example = "1") Long id,
+            @RequestParam @Parameter(description = "Ускорение от 10 до 1000", example = "500") double speed,
+            Authentication authentication) {
+        if (!isOwner(id, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(paperTradingService.setSpeed(id, speed));
+    }
+
+    @PostMapping("/{id}/orders")
+    @Operation(summary = "Провести сделку", description = "Покупает или продает акцию сессии по текущей котировке воспроизведения; " +
+            "сделка сохраняется в учебном портфеле с виртуальным временем")
+    public ResponseEntity<PaperOrderDTO> placeOrder(
+            @PathVariable @Parameter(description = "ID сессии", example = "1") Long id,
+            @RequestBody @Valid PaperOrderDTO order,
+            Authentication authentication) {
+        if (!isOwner(id, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return new ResponseEntity<>(paperTradingService.placeOrder(id, order), HttpStatus.CREATED);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Закрыть сессию", description = "Останавливает воспроизведение; учебный портфель со сделками сохраняется")
+    public ResponseEntity<Void> closeSession(
+            @PathVariable @Parameter(description = "ID сессии", example = "1") Long id,
+            Authentication authentication) {
+        if (!isOwner(id, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        paperTradingService.closeSession(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private boolean isOwner(Long sessionId, Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        return paperTradingService.isSessionOwnedByUser(sessionId, user.getId());
+    }
+}
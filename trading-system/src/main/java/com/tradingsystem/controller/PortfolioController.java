@@ -17,14 +17,26 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.tradingsystem.model.dto.LeaderboardEntryDTO;
 import com.tradingsystem.model.dto.PortfolioDTO;
 import com.tradingsystem.model.dto.PortfolioPerformanceDTO;
+import com.tradingsystem.model.dto.PortfolioRiskDTO;
+import com.tradingsystem.model.dto.ProfitLossReportDTO;
+import com.tradingsystem.model.dto.TaxLotDTO;
+import com.tradingsystem.model.dto.WhatIfResultDTO;
+import com.tradingsystem.model.dto.WhatIfScenarioDTO;
 import com.tradingsystem.model.entity.Portfolio;
 import com.tradingsystem.model.entity.User;
+import com.tradingsystem.model.enums.LeaderboardPeriod;
+import com.tradingsystem.service.interfaces.LeaderboardService;
 import com.tradingsystem.service.interfaces.PortfolioService;
+import com.tradingsystem.service.interfaces.RiskAnalyticsService;
+import com.tradingsystem.service.interfaces.TaxLotService;
 import com.tradingsystem.service.interfaces.UserService;
+import com.tradingsystem.service.interfaces.WhatIfService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -37,11 +49,21 @@ public class PortfolioController {
 
     private final PortfolioService portfolioService;
     private final UserService userService;
+    private final RiskAnalyticsService riskAnalyticsService;
+    private final WhatIfService whatIfService;
+    private final LeaderboardService leaderboardService;
+    private final TaxLotService taxLotService;
 
     @Autowired
-    public PortfolioController(PortfolioService portfolioService, UserService userService) {
+    public PortfolioController(PortfolioService portfolioService, UserService userService,
+                               RiskAnalyticsService riskAnalyticsService, WhatIfService whatIfService,
+                               LeaderboardService leaderboardService, TaxLotService taxLotService) {
         this.portfolioService = portfolioService;
         this.userService = userService;
+        this.riskAnalyticsService = riskAnalyticsService;
+        this.whatIfService = whatIfService;
+        this.leaderboardService = leaderboardService;
+        this.taxLotService = taxLotService;
     }
 
     @GetMapping
@@ -55,6 +77,14 @@ public class PortfolioController {
         return ResponseEntity.ok(portfolioDTOs);
     }
 
+    @GetMapping("/leaderboard")
+    @Operation(summary = "Получить рейтинг портфелей", description = "Возвращает портфели всех пользователей с наибольшей доходностью за день или с начала года")
+    public ResponseEntity<List<LeaderboardEntryDTO>> getLeaderboard(
+            @RequestParam(defaultValue = "DAY") @Parameter(description = "Период (DAY, YTD)", example = "DAY") LeaderboardPeriod period,
+            @RequestParam(defaultValue = "10") @Parameter(description = "Количество портфелей", example = "10") int limit) {
+        return ResponseEntity.ok(leaderboardService.getTopPortfolios(period, limit));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Получить портфель по ID", description = "Возвращает детальную информацию о портфеле")
     public ResponseEntity<PortfolioDTO> getPortfolioById(
@@ -142,6 +172,89 @@ public class PortfolioController {
         return ResponseEntity.ok(performance);
     }
 
+    @GetMapping("/{id}/risk")
+    @Operation(summary = "Получить показатели риска портфеля", description = "Рассчитывает волатильность, бету, VaR/CVaR, коэффициенты Шарпа и Сортино и максимальную просадку")
+    public ResponseEntity<PortfolioRiskDTO> getPortfolioRisk(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long id,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(id);
+
+        // Проверка, принадлежит ли портфель текущему пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        PortfolioRiskDTO risk = riskAnalyticsService.calculateRisk(id);
+        return ResponseEntity.ok(risk);
+    }
+
+    @PostMapping("/{id}/what-if")
+    @Operation(summary = "Смоделировать сделки", description = "Применяет гипотетические сделки или целевые веса к копии позиций и возвращает распределение, прибыль/убыток и изменение риска без сохранения")
+    public ResponseEntity<WhatIfResultDTO> simulateScenario(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long id,
+            @RequestBody @Valid WhatIfScenarioDTO scenario,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(id);
+
+        // Проверка, принадлежит ли портфель текущему пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(whatIfService.simulate(id, scenario));
+    }
+
+    @GetMapping("/{id}/rank")
+    @Operation(summary = "Получить место портфеля в рейтинге", description = "Возвращает место портфеля в рейтинге доходности за день или с начала года")
+    public ResponseEntity<LeaderboardEntryDTO> getPortfolioRank(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long id,
+            @RequestParam(defaultValue = "DAY") @Parameter(description = "Период (DAY, YTD)", example = "DAY") LeaderboardPeriod period,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(id);
+
+        // Проверка, принадлежит ли портфель текущему пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(leaderboardService.getPortfolioRank(id, period));
+    }
+
+    @GetMapping("/{id}/lots")
+    @Operation(summary = "Получить открытые налоговые лоты", description = "Возвращает непроданные остатки покупок с ценой покупки и нереализованным результатом")
+    public ResponseEntity<List<TaxLotDTO>> getOpenLots(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long id,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(id);
+
+        // Проверка, принадлежит ли портфель текущему пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(taxLotService.getOpenLots(id));
+    }
+
+    @GetMapping("/{id}/profit-loss")
+    @Operation(summary = "Получить реализованную и нереализованную прибыль", description = "Возвращает результат по открытым позициям и накопленный результат продаж, включая закрытые позиции")
+    public ResponseEntity<ProfitLossReportDTO> getProfitLossReport(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long id,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(id);
+
+        // Проверка, принадлежит ли портфель текущему пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(taxLotService.getProfitLossReport(id));
+    }
+
     @GetMapping("/{id}/holdings")
     @Operation(summary = "Получить содержимое портфеля", description = "Возвращает список всех позиций в портфеле")
     public ResponseEntity<?> getPortfolioHoldings(
@@ -165,6 +278,7 @@ public class PortfolioController {
         dto.setDescription(portfolio.getDescription());
         dto.setCreationDate(portfolio.getCreationDate());
         dto.setTotalValue(portfolio.getTotalValue());
+        dto.setSandbox(portfolio.isSandbox());
         dto.setUserId(portfolio.getUser().getId());
         return dto;
     }
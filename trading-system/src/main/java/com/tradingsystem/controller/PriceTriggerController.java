@@ -0,0 +1,149 @@
+package com.tradingsystem.controller;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jakarta.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tradingsystem.model.dto.PriceTriggerDTO;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.entity.PriceTrigger;
+import com.tradingsystem.model.entity.User;
+import com.tradingsystem.model.enums.TriggerType;
+import com.tradingsystem.service.interfaces.PortfolioService;
+import com.tradingsystem.service.interfaces.PriceTriggerService;
+import com.tradingsystem.service.interfaces.StockService;
+import com.tradingsystem.service.interfaces.UserService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/triggers")
+@Tag(name = "Price triggers", description = "API для работы со стоп-лоссами и тейк-профитами")
+public class PriceTriggerController {
+
+    private final PriceTriggerService priceTriggerService;
+    private final PortfolioService portfolioService;
+    private final StockService stockService;
+    private final UserService userService;
+
+    @Autowired
+    public PriceTriggerController(
+            PriceTriggerService priceTriggerService,
+            PortfolioService portfolioService,
+            StockService stockService,
+            UserService userService) {
+        this.priceTriggerService = priceTriggerService;
+        this.portfolioService = portfolioService;
+        this.stockService = stockService;
+        this.userService = userService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Создать триггер", description = "Создает стоп-лосс или тейк-профит по позиции. " +
+            "Когда обновленная цена пересекает порог, акции продаются по этой цене")
+    public ResponseEntity<PriceTriggerDTO> createTrigger(
+            @RequestBody @Valid PriceTriggerDTO triggerDTO,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+
+        // Получаем портфель и проверяем его принадлежность пользователю
+        Portfolio portfolio = portfolioService.getPortfolioById(triggerDTO.getPortfolioId());
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        PriceTrigger trigger = new PriceTrigger();
+        trigger.setPortfolio(portfolio);
+        trigger.setStock(stockService.getStockById(triggerDTO.getStockId()));
+        trigger.setTriggerType(TriggerType.valueOf(triggerDTO.getTriggerType()));
+        trigger.setQuantity(triggerDTO.getQuantity());
+        trigger.setTriggerPrice(triggerDTO.getTriggerPrice());
+
+        PriceTrigger created = priceTriggerService.createTrigger(trigger);
+        return new ResponseEntity<>(convertToDTO(created), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить триггер по ID", description = "Возвращает триггер и результат срабатывания")
+    public ResponseEntity<PriceTriggerDTO> getTriggerById(
+            @PathVariable @Parameter(description = "ID триггера", example = "1") Long id,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        PriceTrigger trigger = priceTriggerService.getTriggerById(id);
+
+        // Проверка, принадлежит ли триггер портфелю пользователя
+        if (!trigger.getPortfolio().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(convertToDTO(trigger));
+    }
+
+    @GetMapping("/portfolio/{portfolioId}")
+    @Operation(summary = "Получить триггеры портфеля", description = "Возвращает триггеры портфеля от новых к старым")
+    public ResponseEntity<List<PriceTriggerDTO>> getTriggersByPortfolio(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long portfolioId,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(portfolioId);
+
+        // Проверка, принадлежит ли портфель пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        List<PriceTriggerDTO> triggers = priceTriggerService.getTriggersByPortfolioId(portfolioId).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(triggers);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Снять триггер", description = "Снимает активный триггер")
+    public ResponseEntity<PriceTriggerDTO> cancelTrigger(
+            @PathVariable @Parameter(description = "ID триггера", example = "1") Long id,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        PriceTrigger trigger = priceTriggerService.getTriggerById(id);
+
+        // Проверка, принадлежит ли триггер портфелю пользователя
+        if (!trigger.getPortfolio().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(convertToDTO(priceTriggerService.cancelTrigger(id)));
+    }
+
+    private PriceTriggerDTO convertToDTO(PriceTrigger trigger) {
+        PriceTriggerDTO dto = new PriceTriggerDTO();
+        dto.setId(trigger.getId());
+        dto.setPortfolioId(trigger.getPortfolio().getId());
+        dto.setStockId(trigger.getStock().getId());
+        dto.setStockSymbol(trigger.getStock().getSymbol());
+        dto.setTriggerType(trigger.getTriggerType().name());
+        dto.setQuantity(trigger.getQuantity());
+        dto.setTriggerPrice(trigger.getTriggerPrice());
+        dto.setStatus(trigger.getStatus().name());
+        dto.setTradeId(trigger.getTradeId());
+        dto.setExecutionPrice(trigger.getExecutionPrice());
+        dto.setMessage(trigger.getMessage());
+        dto.setCreatedDate(trigger.getCreatedDate());
+        dto.setTriggeredDate(trigger.getTriggeredDate());
+        return dto;
+    }
+}
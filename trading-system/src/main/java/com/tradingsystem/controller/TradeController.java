@@ -1,14 +1,18 @@
 package com.tradingsystem.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,20 +20,32 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.tradingsystem.model.dto.TradeDTO;
+import com.tradingsystem.model.dto.TradeImportResultDTO;
+import com.tradingsystem.model.dto.TradePageDTO;
 import com.tradingsystem.model.entity.Portfolio;
 import com.tradingsystem.model.entity.Stock;
 import com.tradingsystem.model.entity.Trade;
 import com.tradingsystem.model.entity.User;
+import com.tradingsystem.model.enums.LotMethod;
+import com.tradingsystem.model.enums.TradeImportFormat;
 import com.tradingsystem.model.enums.TradeType;
 import com.tradingsystem.service.interfaces.PortfolioService;
 import com.tradingsystem.service.interfaces.StockService;
+import com.tradingsystem.service.interfaces.TradeHistoryService;
+import com.tradingsystem.service.interfaces.TradeImportService;
 import com.tradingsystem.service.interfaces.TradeService;
 import com.tradingsystem.service.interfaces.UserService;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -43,28 +59,54 @@ public class TradeController {
     private final PortfolioService portfolioService;
     private final StockService stockService;
     private final UserService userService;
+    private final TradeImportService tradeImportService;
+    private final TradeHistoryService tradeHistoryService;
+    private final ObjectWriter tradeWriter;
 
     @Autowired
     public TradeController(
             TradeService tradeService,
             PortfolioService portfolioService,
             StockService stockService,
-            UserService userService) {
+            UserService userService,
+            TradeImportService tradeImportService,
+            TradeHistoryService tradeHistoryService,
+            ObjectMapper objectMapper) {
         this.tradeService = tradeService;
         this.portfolioService = portfolioService;
         this.stockService = stockService;
         this.userService = userService;
+        this.tradeImportService = tradeImportService;
+        this.tradeHistoryService = tradeHistoryService;
+        this.tradeWriter = objectMapper.writerFor(TradeDTO.class);
     }
 
     @GetMapping
-    @Operation(summary = "Получить все сделки пользователя", description = "Возвращает список всех торговых операций текущего пользователя")
+    @Operation(summary = "Получить все сделки пользователя", description = "Возвращает список всех торговых операций текущего пользователя. " +
+            "Для больших историй используйте /page или /stream")
     public ResponseEntity<List<TradeDTO>> getUserTrades(Authentication authentication) {
         User user = userService.getUserByUsername(authentication.getName());
-        List<Trade> trades = tradeService.getTradesByUserId(user.getId());
-        List<TradeDTO> tradeDTOs = trades.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(tradeDTOs);
+        return ResponseEntity.ok(tradeHistoryService.getUserTrades(user.getId()));
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "Получить страницу сделок пользователя", description = "Возвращает сделки от новых к старым по курсору: " +
+            "курсор следующей страницы передается в параметре cursor")
+    public ResponseEntity<TradePageDTO> getUserTradePage(
+            @RequestParam(required = false) @Parameter(description = "Курсор из предыдущей страницы") String cursor,
+            @RequestParam(defaultValue = "50") @Parameter(description = "Размер страницы (не более 500)", example = "50") int limit,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        return ResponseEntity.ok(tradeHistoryService.getUserTradePage(user.getId(), cursor, clampLimit(limit)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Выгрузить сделки пользователя потоком", description = "Возвращает все сделки от новых к старым в формате NDJSON " +
+            "(одна сделка в строке) по мере чтения из базы данных")
+    public ResponseEntity<StreamingResponseBody> streamUserTrades(Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        StreamingResponseBody body = output -> tradeHistoryService.streamUserTrades(user.getId(), trade -> writeLine(output, trade));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
@@ -96,17 +138,53 @@ public class TradeController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<Trade> trades = tradeService.getTradesByPortfolioId(portfolioId);
-        List<TradeDTO> tradeDTOs = trades.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(tradeDTOs);
+        return ResponseEntity.ok(tradeHistoryService.getPortfolioTrades(portfolioId));
+    }
+
+    @GetMapping("/portfolio/{portfolioId}/page")
+    @Operation(summary = "Получить страницу сделок портфеля", description = "Возвращает сделки портфеля от новых к старым по курсору: " +
+            "курсор следующей страницы передается в параметре cursor")
+    public ResponseEntity<TradePageDTO> getPortfolioTradePage(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long portfolioId,
+            @RequestParam(required = false) @Parameter(description = "Курсор из предыдущей страницы") String cursor,
+            @RequestParam(defaultValue = "50") @Parameter(description = "Размер страницы (не более 500)", example = "50") int limit,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(portfolioId);
+
+        // Проверка, принадлежит ли портфель пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(tradeHistoryService.getPortfolioTradePage(portfolioId, cursor, clampLimit(limit)));
+    }
+
+    @GetMapping(value = "/portfolio/{portfolioId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Выгрузить сделки портфеля потоком", description = "Возвращает все сделки портфеля от новых к старым в формате NDJSON " +
+            "(одна сделка в строке) по мере чтения из базы данных")
+    public ResponseEntity<StreamingResponseBody> streamPortfolioTrades(
+            @PathVariable @Parameter(description = "ID портфеля", example = "1") Long portfolioId,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        Portfolio portfolio = portfolioService.getPortfolioById(portfolioId);
+
+        // Проверка, принадлежит ли портфель пользователю
+        if (!portfolio.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        StreamingResponseBody body = output -> tradeHistoryService.streamPortfolioTrades(portfolioId, trade -> writeLine(output, trade));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @PostMapping
-    @Operation(summary = "Создать новую сделку", description = "Регистрирует новую торговую операцию в системе")
+    @Operation(summary = "Создать новую сделку", description = "Регистрирует новую торговую операцию в системе. " +
+            "Повтор запроса с тем же заголовком Idempotency-Key возвращает исходную сделку, не проводя ее повторно")
     public ResponseEntity<TradeDTO> createTrade(
             @RequestBody @Valid TradeDTO tradeDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false)
+            @Parameter(description = "Ключ идемпотентности запроса (не длиннее 100 символов)", example = "9f1c2a7e-3b4d-4e8f-a1b2-c3d4e5f60718") String idempotencyKey,
             Authentication authentication) {
         User user = userService.getUserByUsername(authentication.getName());
 
@@ -127,13 +205,35 @@ public class TradeController {
         trade.setTimestamp(LocalDateTime.now());
         trade.setPortfolio(portfolio);
         trade.setStock(stock);
+        trade.setIdempotencyKey(normalizeIdempotencyKey(idempotencyKey));
 
         // Сохраняем сделку и обновляем портфель
-        Trade createdTrade = tradeService.createTrade(trade);
+        LotMethod lotMethod = tradeDTO.getLotMethod() != null ? LotMethod.valueOf(tradeDTO.getLotMethod()) : null;
+        Trade createdTrade = tradeService.createTrade(trade, lotMethod, tradeDTO.getLotIds());
 
         return new ResponseEntity<>(convertToDTO(createdTrade), HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Импортировать сделки", description = "Принимает поток CSV (с заголовком) или NDJSON с полями portfolioId, symbol, type, quantity, price, timestamp. " +
+            "Строки проверяются по одной, ошибочные пропускаются и перечисляются в ответе; остальные сохраняются пакетно одной транзакцией")
+    public ResponseEntity<TradeImportResultDTO> importTrades(
+            @RequestParam(required = false) @Parameter(description = "Портфель для строк без portfolioId", example = "1") Long portfolioId,
+            @RequestParam(required = false) @Parameter(description = "Способ списания лотов при продажах (FIFO, LIFO)", example = "FIFO") LotMethod lotMethod,
+            @RequestParam(defaultValue = "false") @Parameter(description = "Только проверить строки без сохранения") boolean dryRun,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        User user = userService.getUserByUsername(authentication.getName());
+
+        TradeImportFormat format = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? TradeImportFormat.NDJSON
+                : TradeImportFormat.CSV;
+        TradeImportResultDTO result = tradeImportService.importTrades(
+                user.getId(), portfolioId, request.getInputStream(), format, lotMethod, dryRun);
+
+        return ResponseEntity.ok(result);
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Удалить сделку", description = "Удаляет существующую торговую операцию")
     public ResponseEntity<Void> deleteTrade(
@@ -151,6 +251,31 @@ public class TradeController {
         return ResponseEntity.noContent().build();
     }
 
+    private String normalizeIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > 100) {
+            throw new IllegalArgumentException("Idempotency-Key must not be longer than 100 characters");
+        }
+        return key;
+    }
+
+    private int clampLimit(int limit) {
+        return Math.min(Math.max(limit, 1), 500);
+    }
+
+    private void writeLine(OutputStream output, TradeDTO trade) {
+        try {
+            output.write(tradeWriter.writeValueAsBytes(trade));
+            output.write('\n');
+        } catch (IOException e) {
+            // Клиент отключился: прерываем чтение из базы данных
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private TradeDTO convertToDTO(Trade trade) {
         TradeDTO dto = new TradeDTO();
         dto.setId(trade.getId());
@@ -5,19 +5,25 @@ import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.tradingsystem.model.dto.StockDTO;
+import com.tradingsystem.model.dto.WatchlistItemDTO;
 import com.tradingsystem.model.entity.Stock;
 import com.tradingsystem.model.entity.User;
 import com.tradingsystem.model.entity.WatchlistItem;
+import com.tradingsystem.service.interfaces.QuoteStreamService;
 import com.tradingsystem.service.interfaces.StockService;
 import com.tradingsystem.service.interfaces.UserService;
 import com.tradingsystem.service.interfaces.WatchlistService;
@@ -34,15 +40,18 @@ public class WatchlistController {
     private final WatchlistService watchlistService;
     private final UserService userService;
     private final StockService stockService;
+    private final QuoteStreamService quoteStreamService;
 
     @Autowired
     public WatchlistController(
             WatchlistService watchlistService,
             UserService userService,
-            StockService stockService) {
+            StockService stockService,
+            QuoteStreamService quoteStreamService) {
         this.watchlistService = watchlistService;
         this.userService = userService;
         this.stockService = stockService;
+        this.quoteStreamService = quoteStreamService;
     }
 
     @GetMapping
@@ -108,6 +117,71 @@ public class WatchlistController {
         return ResponseEntity.ok(isInWatchlist);
     }
 
+    @PutMapping("/alert/{stockId}")
+    @Operation(summary = "Установить целевую цену", description = "Задает целевую цену акции из вотчлиста и включает оповещение: " +
+            "оно сработает один раз, когда цена пересечет целевую в направлении от текущей")
+    public ResponseEntity<WatchlistItemDTO> setPriceTarget(
+            @PathVariable @Parameter(description = "ID акции", example = "1") Long stockId,
+            @RequestParam @Parameter(description = "Целевая цена", example = "180.00") Double priceTarget,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        WatchlistItem item = watchlistService.getWatchlistItem(user.getId(), stockId);
+
+        WatchlistItem updated = watchlistService.updateWatchlistItem(user.getId(), stockId, item.getNotes(), priceTarget);
+        return ResponseEntity.ok(convertToDTO(updated));
+    }
+
+    @DeleteMapping("/alert/{stockId}")
+    @Operation(summary = "Снять целевую цену", description = "Удаляет целевую цену акции из вотчлиста вместе с оповещением")
+    public ResponseEntity<WatchlistItemDTO> removePriceTarget(
+            @PathVariable @Parameter(description = "ID акции", example = "1") Long stockId,
+            Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        WatchlistItem item = watchlistService.getWatchlistItem(user.getId(), stockId);
+
+        WatchlistItem updated = watchlistService.updateWatchlistItem(user.getId(), stockId, item.getNotes(), null);
+        return ResponseEntity.ok(convertToDTO(updated));
+    }
+
+    @GetMapping("/alerts")
+    @Operation(summary = "Получить сработавшие оповещения", description = "Возвращает акции вотчлиста, цена которых достигла целевой, от последних сработавших")
+    public ResponseEntity<List<WatchlistItemDTO>> getTriggeredAlerts(Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+
+        List<WatchlistItemDTO> alerts = watchlistService.getTriggeredAlerts(user.getId()).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(alerts);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Поток котировок вотчлиста", description = "Server-Sent Events с ценами акций вотчлиста на момент подключения. " +
+            "Первое событие snapshot - JSON со списками stockIds, symbols и prices (цены в единицах 10^-scale). " +
+            "События q - текст \"номер:изменение,...\", где номер - позиция акции в снимке, изменение - разница с предыдущей " +
+            "отправленной ценой в тех же единицах (\"номер=цена\" - первая известная цена). Изменения одной акции между " +
+            "кадрами сливаются в последнее значение. События alert - JSON сработавшего оповещения о целевой цене. " +
+            "После изменения вотчлиста поток нужно открыть заново")
+    public SseEmitter streamQuotes(Authentication authentication) {
+        User user = userService.getUserByUsername(authentication.getName());
+        return quoteStreamService.subscribe(user.getId(), watchlistService.getWatchlistStocks(user.getId()));
+    }
+
+    private WatchlistItemDTO convertToDTO(WatchlistItem item) {
+        WatchlistItemDTO dto = new WatchlistItemDTO();
+        dto.setId(item.getId());
+        dto.setUserId(item.getUser().getId());
+        dto.setStockId(item.getStock().getId());
+        dto.setStockSymbol(item.getStock().getSymbol());
+        dto.setStockName(item.getStock().getName());
+        dto.setAddedAt(item.getAddedAt());
+        dto.setNotes(item.getNotes());
+        dto.setPriceTarget(item.getPriceTarget());
+        dto.setAlertDirection(item.getAlertDirection() != null ? item.getAlertDirection().name() : null);
+        dto.setAlertTriggeredAt(item.getAlertTriggeredAt());
+        dto.setAlertTriggeredPrice(item.getAlertTriggeredPrice());
+        return dto;
+    }
+
     private StockDTO convertToDTO(Stock stock) {
         StockDTO dto = new StockDTO();
         dto.setId(stock.getId());
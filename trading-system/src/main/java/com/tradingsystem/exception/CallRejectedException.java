@@ -0,0 +1,21 @@
+package com.tradingsystem.exception;
+
+/**
+ * Исключение, возникающее, когда планировщик вызовов внешнего сервиса отклоняет запрос
+ * (очередь переполнена, бюджет зарезервирован для более приоритетных запросов или истекло
+ * время ожидания). В отличие от ошибок самого сервиса, означает, что повторять запросы
+ * той же очереди сейчас бесполезно
+ */
+public class CallRejectedException extends ExternalServiceException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Создает новое исключение с указанным сообщением
+     *
+     * @param message Сообщение об ошибке
+     */
+    public CallRejectedException(String message) {
+        super(message);
+    }
+}
@@ -6,6 +6,8 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -58,6 +60,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorDetails, HttpStatus.SERVICE_UNAVAILABLE);
     }
 
+    /**
+     * Обрабатывает отказ пула потоковых ответов (все места для выгрузок заняты)
+     * @param ex Исключение
+     * @param request Запрос
+     * @return Структурированный ответ об ошибке
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<?> taskRejectedException(TaskRejectedException ex, WebRequest request) {
+        logger.warn("TaskRejectedException: {}", ex.getMessage());
+
+        ErrorDetails errorDetails = new ErrorDetails(
+                new Date(),
+                "Too many concurrent exports, please retry later",
+                request.getDescription(false));
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Обрабатывает исключение при валидации аргументов
      * @param ex Исключение
@@ -120,6 +140,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
     }
 
+    /**
+     * Обрабатывает конфликт оптимистической блокировки (запись изменена параллельно)
+     * @param ex Исключение
+     * @param request Запрос
+     * @return Структурированный ответ об ошибке
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<?> optimisticLockingFailureException(OptimisticLockingFailureException ex, WebRequest request) {
+        logger.error("OptimisticLockingFailureException: {}", ex.getMessage());
+
+        ErrorDetails errorDetails = new ErrorDetails(
+                new Date(),
+                "The record was modified concurrently, please retry",
+                request.getDescription(false));
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
+    }
+
     /**
      * Обрабатывает все остальные исключения
      * @param ex Исключение
@@ -0,0 +1,57 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO запроса бэктестинга стратегии
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Запрос бэктестинга стратегии по сохраненным дневным котировкам")
+public class BacktestRequestDTO {
+
+    @NotBlank
+    @Schema(description = "Имя стратегии", example = "trend-rsi")
+    private String strategy;
+
+    @NotEmpty
+    @Schema(description = "Символы акций; каждая акция моделируется отдельным счетом", example = "[\"AAPL\", \"MSFT\"]")
+    private List<String> symbols;
+
+    @Schema(description = "Начало периода (по умолчанию - пять лет назад)", example = "2019-01-01")
+    private LocalDate startDate;
+
+    @Schema(description = "Конец периода (по умолчанию - сегодня)", example = "2023-12-31")
+    private LocalDate endDate;
+
+    @Schema(description = "Сетка параметров: для каждого параметра - список значений. Прогоняются все сочетания; "
+            + "отсутствующие параметры берутся по умолчанию", example = "{\"rsiEntry\": [30, 35, 40], \"rsiExit\": [65, 70]}")
+    private Map<String, List<Double>> parameterGrid;
+
+    @Schema(description = "Начальный капитал на каждый прогон", example = "10000.00")
+    private BigDecimal initialCash;
+
+    @Schema(description = "Комиссия в долях оборота (по умолчанию из настроек)", example = "0.0005")
+    private BigDecimal commissionRate;
+
+    @Schema(description = "Минимальная комиссия за сделку (по умолчанию из настроек)", example = "1.00")
+    private BigDecimal minCommission;
+
+    @Schema(description = "Проскальзывание в базисных пунктах (по умолчанию из настроек)", example = "5")
+    private BigDecimal slippageBps;
+
+    @Schema(description = "Возвращать кривую капитала для всех прогонов (по умолчанию - только для лучшего прогона каждой акции)", example = "false")
+    private Boolean allEquityCurves;
+}
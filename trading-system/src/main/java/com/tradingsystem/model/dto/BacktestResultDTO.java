@@ -0,0 +1,68 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи результатов бэктестинга
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результаты бэктестинга: прогоны по акциям и сочетаниям параметров")
+public class BacktestResultDTO {
+
+    @Schema(description = "Имя стратегии", example = "trend-rsi")
+    private String strategy;
+
+    @Schema(description = "Начало периода", example = "2019-01-01")
+    private LocalDate startDate;
+
+    @Schema(description = "Конец периода", example = "2023-12-31")
+    private LocalDate endDate;
+
+    @Schema(description = "Количество прогонов", example = "12")
+    private Integer runCount;
+
+    @Schema(description = "Время расчета в миллисекундах", example = "85")
+    private Long elapsedMillis;
+
+    @Schema(description = "Прогоны, от самого доходного к наименее доходному")
+    private List<Run> runs;
+
+    /**
+     * Результат одного прогона (акция и набор параметров)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Run {
+        @Schema(description = "Символ акции", example = "AAPL")
+        private String symbol;
+
+        @Schema(description = "Параметры стратегии")
+        private Map<String, Double> parameters;
+
+        @Schema(description = "Показатели счета в формате эффективности портфеля; historicalValues - кривая капитала")
+        private PortfolioPerformanceDTO performance;
+
+        @Schema(description = "Максимальная просадка в процентах", example = "12.35")
+        private BigDecimal maxDrawdownPercent;
+
+        @Schema(description = "Количество исполненных сделок", example = "14")
+        private Integer tradeCount;
+
+        @Schema(description = "Уплаченная комиссия", example = "35.20")
+        private BigDecimal totalCommission;
+
+        @Schema(description = "Позиция на конец периода", example = "0")
+        private Integer finalPosition;
+    }
+}
@@ -0,0 +1,39 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи позиции портфеля в рейтинге доходности
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Позиция портфеля в рейтинге доходности")
+public class LeaderboardEntryDTO {
+
+    @Schema(description = "Место в рейтинге", example = "1")
+    private Integer rank;
+
+    @Schema(description = "Количество портфелей в рейтинге", example = "1250")
+    private Integer totalRanked;
+
+    @Schema(description = "Идентификатор портфеля", example = "1")
+    private Long portfolioId;
+
+    @Schema(description = "Название портфеля", example = "Технологический портфель")
+    private String portfolioName;
+
+    @Schema(description = "Имя владельца портфеля", example = "investor")
+    private String username;
+
+    @Schema(description = "Период рейтинга (DAY, YTD)", example = "YTD")
+    private String period;
+
+    @Schema(description = "Доходность за период (%)", example = "12.35")
+    private BigDecimal returnPercent;
+}
@@ -0,0 +1,50 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи лучших уровней книги заявок акции
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Книга заявок акции")
+public class OrderBookDTO {
+
+    @Schema(description = "Идентификатор акции", example = "1")
+    private Long stockId;
+
+    @Schema(description = "Символ акции", example = "AAPL")
+    private String stockSymbol;
+
+    @Schema(description = "Уровни покупки от лучшей цены")
+    private List<Level> bids;
+
+    @Schema(description = "Уровни продажи от лучшей цены")
+    private List<Level> asks;
+
+    /**
+     * Уровень цены книги заявок
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Уровень цены")
+    public static class Level {
+
+        @Schema(description = "Цена", example = "150.25")
+        private BigDecimal price;
+
+        @Schema(description = "Суммарный неисполненный остаток", example = "300")
+        private Long quantity;
+
+        @Schema(description = "Количество заявок на уровне", example = "4")
+        private Integer orders;
+    }
+}
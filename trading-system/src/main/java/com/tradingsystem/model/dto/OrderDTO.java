@@ -0,0 +1,74 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи данных о заявке
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Заявка на покупку или продажу")
+public class OrderDTO {
+
+    @Schema(description = "Идентификатор заявки", example = "1")
+    private Long id;
+
+    @NotNull
+    @Schema(description = "Идентификатор портфеля", example = "1")
+    private Long portfolioId;
+
+    @NotNull
+    @Schema(description = "Идентификатор акции", example = "1")
+    private Long stockId;
+
+    @Schema(description = "Символ акции", example = "AAPL")
+    private String stockSymbol;
+
+    @NotNull
+    @Schema(description = "Направление заявки (BUY, SELL)", example = "BUY")
+    private String side;
+
+    @NotNull
+    @Schema(description = "Тип заявки (LIMIT, MARKET)", example = "LIMIT")
+    private String orderType;
+
+    @NotNull
+    @Min(1)
+    @Schema(description = "Количество акций", example = "10")
+    private Integer quantity;
+
+    @Schema(description = "Предельная цена (обязательна для LIMIT)", example = "150.25")
+    private BigDecimal limitPrice;
+
+    @Schema(description = "Исполненное количество", example = "4")
+    private Integer filledQuantity;
+
+    @Schema(description = "Средняя цена исполнения", example = "150.10")
+    private BigDecimal averageFillPrice;
+
+    @Schema(description = "Состояние заявки (NEW, PARTIALLY_FILLED, FILLED, CANCELLED, FAILED)", example = "PARTIALLY_FILLED")
+    private String status;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Время создания заявки", example = "2023-06-15 14:30:00")
+    private LocalDateTime createdDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Время последнего изменения заявки", example = "2023-06-15 14:30:05")
+    private LocalDateTime updatedDate;
+
+    @Schema(description = "Причина неудачного проведения исполнения", example = "Settlement failed: could not serialize access")
+    private String message;
+}
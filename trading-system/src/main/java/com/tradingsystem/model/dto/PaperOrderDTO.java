@@ -0,0 +1,50 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи сделки сессии бумажной торговли
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Сделка сессии бумажной торговли по текущей котировке воспроизведения")
+public class PaperOrderDTO {
+
+    @NotNull
+    @Schema(description = "Символ акции сессии", example = "AAPL")
+    private String symbol;
+
+    @NotNull
+    @Schema(description = "Тип сделки (BUY, SELL)", example = "BUY")
+    private String type;
+
+    @NotNull
+    @Min(1)
+    @Schema(description = "Количество акций", example = "100")
+    private Integer quantity;
+
+    @Schema(description = "Идентификатор созданной сделки", example = "501")
+    private Long tradeId;
+
+    @Schema(description = "Цена исполнения", example = "151.3000")
+    private BigDecimal price;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Виртуальное время сделки", example = "2023-03-10 11:42:30")
+    private LocalDateTime timestamp;
+
+    @Schema(description = "Денежные средства после сделки", example = "84870.00")
+    private BigDecimal cash;
+}
@@ -0,0 +1,85 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи состояния сессии бумажной торговли
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Состояние сессии бумажной торговли")
+public class PaperSessionDTO {
+
+    @Schema(description = "Идентификатор сессии", example = "1")
+    private Long id;
+
+    @Schema(description = "Идентификатор учебного портфеля сессии", example = "12")
+    private Long portfolioId;
+
+    @Schema(description = "Первый воспроизводимый день", example = "2023-03-10")
+    private LocalDate startDate;
+
+    @Schema(description = "Последний воспроизводимый день", example = "2023-03-10")
+    private LocalDate endDate;
+
+    @Schema(description = "Состояние воспроизведения (RUNNING, PAUSED, FINISHED)", example = "RUNNING")
+    private String status;
+
+    @Schema(description = "Ускорение виртуального времени", example = "100")
+    private Double speed;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Виртуальное время воспроизведения", example = "2023-03-10 11:42:30")
+    private LocalDateTime virtualTime;
+
+    @Schema(description = "Пройденная доля воспроизведения в процентах", example = "33.85")
+    private BigDecimal progressPercent;
+
+    @Schema(description = "Начальные денежные средства", example = "100000.00")
+    private BigDecimal initialCash;
+
+    @Schema(description = "Свободные денежные средства", example = "84870.00")
+    private BigDecimal cash;
+
+    @Schema(description = "Стоимость позиций по текущим котировкам воспроизведения", example = "15210.00")
+    private BigDecimal marketValue;
+
+    @Schema(description = "Прибыль или убыток относительно начальных средств", example = "80.00")
+    private BigDecimal profitLoss;
+
+    @Schema(description = "Котировки и позиции по акциям сессии")
+    private List<Quote> quotes;
+
+    /**
+     * Котировка акции в момент воспроизведения
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Котировка акции и позиция сессии")
+    public static class Quote {
+
+        @Schema(description = "Идентификатор акции", example = "1")
+        private Long stockId;
+
+        @Schema(description = "Символ акции", example = "AAPL")
+        private String symbol;
+
+        @Schema(description = "Цена (отсутствует, если акция еще не торговалась)", example = "151.3000")
+        private BigDecimal price;
+
+        @Schema(description = "Количество акций в учебном портфеле", example = "100")
+        private Integer quantity;
+    }
+}
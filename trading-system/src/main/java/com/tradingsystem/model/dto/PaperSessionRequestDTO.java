@@ -0,0 +1,40 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO запроса на открытие сессии бумажной торговли
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Запрос на открытие сессии бумажной торговли по историческим котировкам")
+public class PaperSessionRequestDTO {
+
+    @NotEmpty
+    @Schema(description = "Символы акций, котировки которых воспроизводятся", example = "[\"AAPL\", \"MSFT\"]")
+    private List<String> symbols;
+
+    @NotNull
+    @Schema(description = "Первый воспроизводимый день", example = "2023-03-10")
+    private LocalDate startDate;
+
+    @Schema(description = "Последний воспроизводимый день (по умолчанию - первый день)", example = "2023-03-10")
+    private LocalDate endDate;
+
+    @Schema(description = "Ускорение виртуального времени, от 10 до 1000 (по умолчанию из настроек)", example = "100")
+    private Double speed;
+
+    @Schema(description = "Начальные денежные средства учебного портфеля", example = "100000.00")
+    private BigDecimal initialCash;
+}
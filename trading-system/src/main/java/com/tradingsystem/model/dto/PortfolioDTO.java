@@ -42,4 +42,7 @@ public class PortfolioDTO {
 
     @Schema(description = "Общая стоимость портфеля", example = "10000.00")
     private BigDecimal totalValue;
+
+    @Schema(description = "Учебный портфель сессии бумажной торговли", example = "false")
+    private boolean sandbox;
 }
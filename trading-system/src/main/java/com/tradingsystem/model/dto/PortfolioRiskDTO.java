@@ -0,0 +1,70 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи показателей риска портфеля
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Показатели риска портфеля")
+public class PortfolioRiskDTO {
+
+    @Schema(description = "Идентификатор портфеля", example = "1")
+    private Long portfolioId;
+
+    @Schema(description = "Последняя дата котировок, использованных в расчете", example = "2023-06-15")
+    private LocalDate asOfDate;
+
+    @Schema(description = "Количество дневных доходностей в выборке", example = "252")
+    private Integer observations;
+
+    @Schema(description = "Текущая стоимость позиций", example = "10500.25")
+    private BigDecimal portfolioValue;
+
+    @Schema(description = "Уровень доверия для VaR/CVaR", example = "0.95")
+    private BigDecimal confidenceLevel;
+
+    @Schema(description = "Годовая волатильность (%)", example = "18.42")
+    private BigDecimal annualizedVolatility;
+
+    @Schema(description = "Бета относительно индекса (null, если нет данных по индексу)", example = "1.12")
+    private BigDecimal beta;
+
+    @Schema(description = "Символ индекса для расчета беты", example = "SPY")
+    private String benchmarkSymbol;
+
+    @Schema(description = "Исторический однодневный VaR", example = "312.40")
+    private BigDecimal historicalVar;
+
+    @Schema(description = "Исторический однодневный CVaR (expected shortfall)", example = "455.10")
+    private BigDecimal historicalCvar;
+
+    @Schema(description = "Параметрический (нормальный) однодневный VaR", example = "298.75")
+    private BigDecimal parametricVar;
+
+    @Schema(description = "Параметрический (нормальный) однодневный CVaR", example = "374.60")
+    private BigDecimal parametricCvar;
+
+    @Schema(description = "Однодневный VaR по методу Монте-Карло", example = "305.20")
+    private BigDecimal monteCarloVar;
+
+    @Schema(description = "Однодневный CVaR по методу Монте-Карло", example = "381.90")
+    private BigDecimal monteCarloCvar;
+
+    @Schema(description = "Коэффициент Шарпа (годовой)", example = "1.05")
+    private BigDecimal sharpeRatio;
+
+    @Schema(description = "Коэффициент Сортино (годовой)", example = "1.48")
+    private BigDecimal sortinoRatio;
+
+    @Schema(description = "Максимальная просадка (%)", example = "12.35")
+    private BigDecimal maxDrawdown;
+}
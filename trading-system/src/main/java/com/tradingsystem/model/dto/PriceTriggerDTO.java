@@ -0,0 +1,71 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи данных о ценовом триггере
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Ценовой триггер на продажу позиции (стоп-лосс или тейк-профит)")
+public class PriceTriggerDTO {
+
+    @Schema(description = "Идентификатор триггера", example = "1")
+    private Long id;
+
+    @NotNull
+    @Schema(description = "Идентификатор портфеля", example = "1")
+    private Long portfolioId;
+
+    @NotNull
+    @Schema(description = "Идентификатор акции", example = "1")
+    private Long stockId;
+
+    @Schema(description = "Символ акции", example = "AAPL")
+    private String stockSymbol;
+
+    @NotNull
+    @Schema(description = "Тип триггера (STOP_LOSS, TAKE_PROFIT)", example = "STOP_LOSS")
+    private String triggerType;
+
+    @NotNull
+    @Min(1)
+    @Schema(description = "Количество акций к продаже", example = "10")
+    private Integer quantity;
+
+    @NotNull
+    @Schema(description = "Пороговая цена", example = "140.00")
+    private BigDecimal triggerPrice;
+
+    @Schema(description = "Состояние (ACTIVE, TRIGGERED, CANCELLED, FAILED)", example = "ACTIVE")
+    private String status;
+
+    @Schema(description = "Идентификатор сделки продажи после срабатывания", example = "42")
+    private Long tradeId;
+
+    @Schema(description = "Цена котировки при срабатывании", example = "139.85")
+    private BigDecimal executionPrice;
+
+    @Schema(description = "Причина неудачного срабатывания", example = "Not enough stocks to sell. Available: 0, requested: 10")
+    private String message;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Время создания", example = "2023-06-15 14:30:00")
+    private LocalDateTime createdDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Время срабатывания", example = "2023-06-16 10:05:00")
+    private LocalDateTime triggeredDate;
+}
@@ -0,0 +1,81 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи отчета о реализованной и нереализованной прибыли портфеля
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Отчет о реализованной и нереализованной прибыли портфеля")
+public class ProfitLossReportDTO {
+
+    @Schema(description = "Идентификатор портфеля", example = "1")
+    private Long portfolioId;
+
+    @Schema(description = "Себестоимость открытых позиций", example = "9800.00")
+    private BigDecimal costBasis;
+
+    @Schema(description = "Текущая стоимость открытых позиций", example = "10500.25")
+    private BigDecimal marketValue;
+
+    @Schema(description = "Нереализованная прибыль/убыток", example = "700.25")
+    private BigDecimal unrealizedProfitLoss;
+
+    @Schema(description = "Реализованная прибыль/убыток за все время", example = "315.40")
+    private BigDecimal realizedProfitLoss;
+
+    @Schema(description = "Итоговая прибыль/убыток", example = "1015.65")
+    private BigDecimal totalProfitLoss;
+
+    @Schema(description = "Результат по акциям, включая закрытые позиции")
+    private List<PositionProfitLoss> positions;
+
+    /**
+     * Результат по одной акции портфеля
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PositionProfitLoss {
+        @Schema(description = "Идентификатор акции", example = "1")
+        private Long stockId;
+
+        @Schema(description = "Символ акции", example = "AAPL")
+        private String stockSymbol;
+
+        @Schema(description = "Количество акций в позиции (0 для закрытых)", example = "40")
+        private Integer quantity;
+
+        @Schema(description = "Средняя цена открытых лотов", example = "140.10")
+        private BigDecimal averageCost;
+
+        @Schema(description = "Текущая цена акции", example = "150.25")
+        private BigDecimal currentPrice;
+
+        @Schema(description = "Себестоимость открытых лотов", example = "5604.00")
+        private BigDecimal costBasis;
+
+        @Schema(description = "Текущая стоимость позиции", example = "6010.00")
+        private BigDecimal marketValue;
+
+        @Schema(description = "Нереализованная прибыль/убыток", example = "406.00")
+        private BigDecimal unrealizedProfitLoss;
+
+        @Schema(description = "Всего продано акций", example = "10")
+        private Long quantitySold;
+
+        @Schema(description = "Выручка от продаж", example = "1520.00")
+        private BigDecimal proceeds;
+
+        @Schema(description = "Реализованная прибыль/убыток", example = "119.00")
+        private BigDecimal realizedProfitLoss;
+    }
+}
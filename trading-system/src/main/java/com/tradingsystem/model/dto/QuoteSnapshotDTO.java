@@ -0,0 +1,30 @@
+package com.tradingsystem.model.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO первого кадра потока котировок: символы подписки и исходные цены
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Снимок котировок подписки. Номер символа в списке - его номер в кадрах изменений")
+public class QuoteSnapshotDTO {
+
+    @Schema(description = "Количество знаков после запятой в ценах и изменениях", example = "4")
+    private Integer scale;
+
+    @Schema(description = "Идентификаторы акций подписки", example = "[1, 2]")
+    private List<Long> stockIds;
+
+    @Schema(description = "Символы акций подписки", example = "[\"AAPL\", \"MSFT\"]")
+    private List<String> symbols;
+
+    @Schema(description = "Цены в единицах 10^-scale (null, если цена неизвестна)", example = "[1502500, 3301200]")
+    private List<Long> prices;
+}
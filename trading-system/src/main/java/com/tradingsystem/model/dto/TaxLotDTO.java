@@ -0,0 +1,55 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи данных об открытом налоговом лоте
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Открытый налоговый лот")
+public class TaxLotDTO {
+
+    @Schema(description = "Идентификатор лота", example = "1")
+    private Long id;
+
+    @Schema(description = "Идентификатор портфеля", example = "1")
+    private Long portfolioId;
+
+    @Schema(description = "Идентификатор акции", example = "1")
+    private Long stockId;
+
+    @Schema(description = "Символ акции", example = "AAPL")
+    private String stockSymbol;
+
+    @Schema(description = "Идентификатор сделки покупки (null для лотов по позициям, открытым до учета лотов)", example = "15")
+    private Long tradeId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Дата открытия лота", example = "2023-06-15 14:30:00")
+    private LocalDateTime openDate;
+
+    @Schema(description = "Количество купленных акций", example = "20")
+    private Integer quantity;
+
+    @Schema(description = "Количество непроданных акций", example = "12")
+    private Integer remainingQuantity;
+
+    @Schema(description = "Цена покупки", example = "140.10")
+    private BigDecimal costPrice;
+
+    @Schema(description = "Текущая цена акции", example = "150.25")
+    private BigDecimal currentPrice;
+
+    @Schema(description = "Нереализованная прибыль/убыток по остатку лота", example = "121.80")
+    private BigDecimal unrealizedProfitLoss;
+}
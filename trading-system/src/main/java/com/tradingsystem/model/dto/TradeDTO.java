@@ -2,6 +2,7 @@ package com.tradingsystem.model.dto;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -55,4 +56,10 @@ public class TradeDTO {
 
     @Schema(description = "Общая стоимость сделки", example = "1502.50")
     private BigDecimal totalValue;
+
+    @Schema(description = "Способ списания налоговых лотов при продаже (FIFO, LIFO, SPECIFIC_LOT); по умолчанию из настроек", example = "FIFO")
+    private String lotMethod;
+
+    @Schema(description = "Идентификаторы лотов для способа SPECIFIC_LOT в порядке списания", example = "[3, 7]")
+    private List<Long> lotIds;
 }
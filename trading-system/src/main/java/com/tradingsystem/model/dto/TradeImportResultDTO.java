@@ -0,0 +1,53 @@
+package com.tradingsystem.model.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи результата пакетного импорта сделок
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат пакетного импорта сделок")
+public class TradeImportResultDTO {
+
+    @Schema(description = "Только проверка без сохранения", example = "false")
+    private Boolean dryRun;
+
+    @Schema(description = "Количество строк с данными", example = "25000")
+    private Integer totalRows;
+
+    @Schema(description = "Количество импортированных (при проверке - допустимых) сделок", example = "24990")
+    private Integer importedRows;
+
+    @Schema(description = "Количество отклоненных строк", example = "10")
+    private Integer failedRows;
+
+    @Schema(description = "Количество затронутых портфелей", example = "3")
+    private Integer portfoliosUpdated;
+
+    @Schema(description = "Количество затронутых позиций (портфель и акция)", example = "120")
+    private Integer positionsUpdated;
+
+    @Schema(description = "Ошибки по строкам (не более 1000 первых)")
+    private List<RowError> errors;
+
+    /**
+     * Ошибка в строке файла
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        @Schema(description = "Номер строки в файле", example = "42")
+        private Long line;
+
+        @Schema(description = "Описание ошибки", example = "Unknown stock symbol: XYZ")
+        private String message;
+    }
+}
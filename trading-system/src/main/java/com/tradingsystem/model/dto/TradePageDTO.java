@@ -0,0 +1,24 @@
+package com.tradingsystem.model.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для передачи страницы истории сделок
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница истории сделок (от новых к старым)")
+public class TradePageDTO {
+
+    @Schema(description = "Сделки страницы")
+    private List<TradeDTO> items;
+
+    @Schema(description = "Курсор следующей страницы; отсутствует на последней странице", example = "MjAyMy0wNi0xNVQxNDozMDo0Mg")
+    private String nextCursor;
+}
@@ -1,5 +1,6 @@
 package com.tradingsystem.model.dto;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -42,4 +43,14 @@ public class WatchlistItemDTO {
 
     @Schema(description = "Целевая цена", example = "180.00")
     private Double priceTarget;
+
+    @Schema(description = "Направление оповещения по целевой цене (ABOVE, BELOW)", example = "ABOVE")
+    private String alertDirection;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Время срабатывания оповещения (отсутствует, пока оповещение активно)", example = "2023-06-20 15:42:10")
+    private LocalDateTime alertTriggeredAt;
+
+    @Schema(description = "Цена, при которой сработало оповещение", example = "180.1200")
+    private BigDecimal alertTriggeredPrice;
 }
@@ -0,0 +1,97 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO результата моделирования сценария "что если"
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат моделирования сценария")
+public class WhatIfResultDTO {
+
+    @Schema(description = "Идентификатор портфеля", example = "1")
+    private Long portfolioId;
+
+    @Schema(description = "Стоимость позиций до сценария (по текущим ценам)", example = "10500.25")
+    private BigDecimal valueBefore;
+
+    @Schema(description = "Стоимость позиций после сценария (по текущим ценам)", example = "10320.75")
+    private BigDecimal valueAfter;
+
+    @Schema(description = "Денежный поток сценария: выручка от продаж минус затраты на покупки", example = "180.50")
+    private BigDecimal cashFlow;
+
+    @Schema(description = "Реализованная прибыль/убыток по продажам", example = "95.40")
+    private BigDecimal realizedProfitLoss;
+
+    @Schema(description = "Нереализованная прибыль/убыток до сценария", example = "500.25")
+    private BigDecimal unrealizedProfitLossBefore;
+
+    @Schema(description = "Нереализованная прибыль/убыток после сценария", example = "404.85")
+    private BigDecimal unrealizedProfitLossAfter;
+
+    @Schema(description = "Распределение по секторам до сценария (ключ - сектор, значение - процент)")
+    private Map<String, BigDecimal> sectorAllocationBefore;
+
+    @Schema(description = "Распределение по секторам после сценария (ключ - сектор, значение - процент)")
+    private Map<String, BigDecimal> sectorAllocationAfter;
+
+    @Schema(description = "Позиции до и после сценария")
+    private List<PositionChange> positions;
+
+    @Schema(description = "Параметрический риск до сценария (null, если недостаточно истории цен)")
+    private PortfolioRiskDTO riskBefore;
+
+    @Schema(description = "Параметрический риск после сценария (null, если недостаточно истории цен)")
+    private PortfolioRiskDTO riskAfter;
+
+    @Schema(description = "Изменение годовой волатильности (п.п.)", example = "-1.35")
+    private BigDecimal volatilityChange;
+
+    @Schema(description = "Изменение параметрического однодневного VaR", example = "-42.10")
+    private BigDecimal varChange;
+
+    /**
+     * Изменение отдельной позиции
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PositionChange {
+        @Schema(description = "Символ акции", example = "AAPL")
+        private String symbol;
+
+        @Schema(description = "Сектор", example = "Technology")
+        private String sector;
+
+        @Schema(description = "Текущая цена", example = "150.25")
+        private BigDecimal price;
+
+        @Schema(description = "Количество до сценария", example = "50")
+        private Integer quantityBefore;
+
+        @Schema(description = "Количество после сценария", example = "40")
+        private Integer quantityAfter;
+
+        @Schema(description = "Средняя цена покупки после сценария", example = "140.10")
+        private BigDecimal averagePriceAfter;
+
+        @Schema(description = "Стоимость после сценария", example = "6010.00")
+        private BigDecimal valueAfter;
+
+        @Schema(description = "Доля в портфеле до сценария (%)", example = "71.55")
+        private BigDecimal weightBefore;
+
+        @Schema(description = "Доля в портфеле после сценария (%)", example = "58.23")
+        private BigDecimal weightAfter;
+    }
+}
@@ -0,0 +1,61 @@
+package com.tradingsystem.model.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO сценария "что если": гипотетические сделки и/или целевые веса портфеля
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Сценарий моделирования сделок без их исполнения")
+public class WhatIfScenarioDTO {
+
+    @Valid
+    @Schema(description = "Гипотетические сделки, применяются по порядку")
+    private List<HypotheticalTrade> trades = new ArrayList<>();
+
+    @Schema(description = "Целевые веса после ребалансировки (ключ - символ акции, значение - процент). "
+            + "Применяются после сделок; позиции без веса продаются полностью")
+    private Map<String, BigDecimal> targetWeights;
+
+    /**
+     * Гипотетическая сделка. Объем задается ровно одним из полей: quantity, percentOfPosition или amount
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HypotheticalTrade {
+        @NotBlank
+        @Schema(description = "Символ акции", example = "AAPL")
+        private String symbol;
+
+        @NotNull
+        @Schema(description = "Тип операции (BUY, SELL)", example = "SELL")
+        private String type;
+
+        @Schema(description = "Количество акций", example = "10")
+        private Integer quantity;
+
+        @Schema(description = "Доля текущей позиции в процентах", example = "20")
+        private BigDecimal percentOfPosition;
+
+        @Schema(description = "Сумма сделки (количество округляется вниз до целого)", example = "5000.00")
+        private BigDecimal amount;
+
+        @Schema(description = "Цена исполнения (по умолчанию текущая цена акции)", example = "150.25")
+        private BigDecimal price;
+    }
+}
@@ -11,12 +11,17 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+
+import org.hibernate.annotations.ColumnDefault;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import com.tradingsystem.util.FixedPoint;
+
 /**
  * Сущность позиции в портфеле (холдинг)
  */
@@ -60,13 +65,22 @@ public class Holding {
     @Column(name = "average_price", precision = 19, scale = 4, nullable = false)
     private BigDecimal averagePrice;
 
+    /**
+     * Версия строки для оптимистической блокировки (страховка на случай изменения позиции
+     * в обход очереди портфеля)
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     /**
      * Получение текущей стоимости позиции
      * @return Текущая стоимость позиции
      */
     public BigDecimal getCurrentValue() {
         if (stock != null && stock.getCurrentPrice() != null) {
-            return stock.getCurrentPrice().multiply(new BigDecimal(quantity));
+            return FixedPoint.toBigDecimal(FixedPoint.multiply(FixedPoint.of(stock.getCurrentPrice()), quantity));
         }
         return BigDecimal.ZERO;
     }
@@ -77,7 +91,8 @@ public class Holding {
      */
     public BigDecimal getProfitLoss() {
         if (stock != null && stock.getCurrentPrice() != null) {
-            return getCurrentValue().subtract(averagePrice.multiply(new BigDecimal(quantity)));
+            long priceDelta = FixedPoint.of(stock.getCurrentPrice()) - FixedPoint.of(averagePrice);
+            return FixedPoint.toBigDecimal(FixedPoint.multiply(priceDelta, quantity));
         }
         return BigDecimal.ZERO;
     }
@@ -87,10 +102,10 @@ public class Holding {
      * @return Процент прибыли/убытка
      */
     public BigDecimal getProfitLossPercent() {
-        if (averagePrice != null && averagePrice.compareTo(BigDecimal.ZERO) > 0 && stock != null && stock.getCurrentPrice() != null) {
-            return stock.getCurrentPrice().subtract(averagePrice)
-                    .divide(averagePrice, 4, BigDecimal.ROUND_HALF_UP)
-                    .multiply(new BigDecimal("100"));
+        if (averagePrice != null && averagePrice.signum() > 0 && stock != null && stock.getCurrentPrice() != null) {
+            long average = FixedPoint.of(averagePrice);
+            long percent = FixedPoint.percentOf(FixedPoint.of(stock.getCurrentPrice()) - average, average);
+            return BigDecimal.valueOf(percent * 100, 4);
         }
         return BigDecimal.ZERO;
     }
@@ -0,0 +1,52 @@
+package com.tradingsystem.model.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
+import jakarta.persistence.Entity;
+import jakarta.persistence.ForeignKey;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Проекция "последний анализ по акции" (одна строка на акцию),
+ * обновляется при сохранении каждого нового анализа
+ */
+@Entity
+@Table(name = "latest_analyses")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"stockId"})
+public class LatestAnalysis {
+
+    /**
+     * ID акции
+     */
+    @Id
+    @Column(name = "stock_id")
+    private Long stockId;
+
+    /**
+     * Последний анализ по акции.
+     * Внешний ключ не создается: таблица analyses секционирована по дате (см. V4)
+     */
+    @OneToOne
+    @JoinColumn(name = "analysis_id", nullable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Analysis analysis;
+
+    /**
+     * Дата последнего анализа (дублируется для условного обновления)
+     */
+    @Column(name = "analysis_date", nullable = false)
+    private LocalDateTime analysisDate;
+}
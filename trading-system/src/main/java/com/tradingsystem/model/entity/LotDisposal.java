@@ -0,0 +1,78 @@
+package com.tradingsystem.model.entity;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Сущность списания части налогового лота продажей
+ */
+@Entity
+@Table(name = "lot_disposals", indexes = {
+        @Index(name = "idx_lot_disposal_trade_id", columnList = "trade_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class LotDisposal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Списанный лот
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "lot_id", nullable = false)
+    @ToString.Exclude
+    private TaxLot lot;
+
+    /**
+     * Сделка продажи
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "trade_id", nullable = false)
+    @ToString.Exclude
+    private Trade trade;
+
+    /**
+     * Количество списанных акций
+     */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * Цена покупки лота
+     */
+    @Column(name = "cost_price", precision = 19, scale = 4, nullable = false)
+    private BigDecimal costPrice;
+
+    /**
+     * Цена продажи
+     */
+    @Column(name = "sale_price", precision = 19, scale = 4, nullable = false)
+    private BigDecimal salePrice;
+
+    /**
+     * Реализованная прибыль/убыток по списанию
+     */
+    @Column(name = "realized_profit_loss", precision = 19, scale = 4, nullable = false)
+    private BigDecimal realizedProfitLoss;
+}
@@ -62,11 +62,19 @@ public class Portfolio {
     private LocalDateTime creationDate;
 
     /**
-     * Общая стоимость портфеля
+     * Общая стоимость портфеля.
+     * Обновляется только отдельным запросом (пакетное сохранение из книги позиций, пересчет стоимости):
+     * сохранение сущности с устаревшим значением не перезаписывает итог
      */
-    @Column(name = "total_value", precision = 19, scale = 4, nullable = false)
+    @Column(name = "total_value", precision = 19, scale = 4, nullable = false, updatable = false)
     private BigDecimal totalValue = BigDecimal.ZERO;
 
+    /**
+     * Учебный портфель сессии бумажной торговли: не участвует в рейтинге и ежедневной истории
+     */
+    @Column(nullable = false)
+    private boolean sandbox;
+
     /**
      * Связь с торговыми операциями (один ко многим)
      */
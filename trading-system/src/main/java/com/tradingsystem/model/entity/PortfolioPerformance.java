@@ -0,0 +1,96 @@
+package com.tradingsystem.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Сущность дневной оценки портфеля (стоимость по ценам закрытия и доходности в процентах)
+ */
+@Entity
+@Table(name = "portfolio_performance", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"portfolio_id", "date"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class PortfolioPerformance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Портфель
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    @ToString.Exclude
+    private Portfolio portfolio;
+
+    /**
+     * Торговый день
+     */
+    @Column(nullable = false)
+    private LocalDate date;
+
+    /**
+     * Стоимость портфеля по ценам закрытия
+     */
+    @Column(precision = 19, scale = 2, nullable = false)
+    private BigDecimal value;
+
+    /**
+     * Доходность за день (%)
+     */
+    @Column(name = "daily_return", precision = 8, scale = 4)
+    private BigDecimal dailyReturn;
+
+    /**
+     * Доходность за неделю (%)
+     */
+    @Column(name = "weekly_return", precision = 8, scale = 4)
+    private BigDecimal weeklyReturn;
+
+    /**
+     * Доходность за месяц (%)
+     */
+    @Column(name = "monthly_return", precision = 8, scale = 4)
+    private BigDecimal monthlyReturn;
+
+    /**
+     * Доходность за год (%)
+     */
+    @Column(name = "yearly_return", precision = 8, scale = 4)
+    private BigDecimal yearlyReturn;
+
+    /**
+     * Доходность относительно вложенных средств (%)
+     */
+    @Column(name = "total_return", precision = 8, scale = 4)
+    private BigDecimal totalReturn;
+
+    /**
+     * Дата расчета
+     */
+    @Column(name = "created_date", nullable = false)
+    private LocalDateTime createdDate = LocalDateTime.now();
+}
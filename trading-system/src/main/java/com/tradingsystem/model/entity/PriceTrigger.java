@@ -0,0 +1,116 @@
+package com.tradingsystem.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import com.tradingsystem.model.enums.TriggerStatus;
+import com.tradingsystem.model.enums.TriggerType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Сущность ценового триггера: продажа части позиции при пересечении ценой порога
+ */
+@Entity
+@Table(name = "price_triggers", indexes = {
+        @Index(name = "idx_price_trigger_portfolio", columnList = "portfolio_id, created_date")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class PriceTrigger {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Портфель с позицией
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    @ToString.Exclude
+    private Portfolio portfolio;
+
+    /**
+     * Акция
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @ToString.Exclude
+    private Stock stock;
+
+    /**
+     * Тип триггера (STOP_LOSS, TAKE_PROFIT)
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "trigger_type", nullable = false, length = 20)
+    private TriggerType triggerType;
+
+    /**
+     * Количество акций к продаже
+     */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * Пороговая цена
+     */
+    @Column(name = "trigger_price", precision = 19, scale = 4, nullable = false)
+    private BigDecimal triggerPrice;
+
+    /**
+     * Состояние триггера
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TriggerStatus status;
+
+    /**
+     * ID сделки продажи, проведенной при срабатывании
+     */
+    @Column(name = "trade_id")
+    private Long tradeId;
+
+    /**
+     * Цена котировки, на которой сработал триггер
+     */
+    @Column(name = "execution_price", precision = 19, scale = 4)
+    private BigDecimal executionPrice;
+
+    /**
+     * Причина неудачного срабатывания
+     */
+    @Column(length = 255)
+    private String message;
+
+    /**
+     * Дата создания
+     */
+    @Column(name = "created_date", nullable = false)
+    private LocalDateTime createdDate;
+
+    /**
+     * Дата срабатывания
+     */
+    @Column(name = "triggered_date")
+    private LocalDateTime triggeredDate;
+}
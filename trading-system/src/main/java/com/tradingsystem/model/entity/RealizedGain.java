@@ -0,0 +1,86 @@
+package com.tradingsystem.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Сущность накопленного реализованного результата по акции в портфеле.
+ * Обновляется каждой продажей и сохраняется после закрытия позиции
+ */
+@Entity
+@Table(name = "realized_gains", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"portfolio_id", "stock_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class RealizedGain {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Портфель
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    @ToString.Exclude
+    private Portfolio portfolio;
+
+    /**
+     * Акция
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @ToString.Exclude
+    private Stock stock;
+
+    /**
+     * Всего продано акций
+     */
+    @Column(name = "quantity_sold", nullable = false)
+    private Long quantitySold = 0L;
+
+    /**
+     * Выручка от продаж
+     */
+    @Column(precision = 19, scale = 4, nullable = false)
+    private BigDecimal proceeds = BigDecimal.ZERO;
+
+    /**
+     * Себестоимость проданных лотов
+     */
+    @Column(name = "cost_basis", precision = 19, scale = 4, nullable = false)
+    private BigDecimal costBasis = BigDecimal.ZERO;
+
+    /**
+     * Реализованная прибыль/убыток
+     */
+    @Column(name = "realized_profit_loss", precision = 19, scale = 4, nullable = false)
+    private BigDecimal realizedProfitLoss = BigDecimal.ZERO;
+
+    /**
+     * Дата последнего изменения
+     */
+    @Column(name = "updated_date", nullable = false)
+    private LocalDateTime updatedDate;
+}
@@ -0,0 +1,77 @@
+package com.tradingsystem.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Сущность дневных исторических котировок акции
+ */
+@Entity
+@Table(name = "stock_historical_data", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"stock_id", "date"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class StockHistoricalData {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Акция
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @ToString.Exclude
+    private Stock stock;
+
+    /**
+     * Торговый день
+     */
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Column(name = "open_price", precision = 19, scale = 4, nullable = false)
+    private BigDecimal openPrice;
+
+    @Column(name = "high_price", precision = 19, scale = 4, nullable = false)
+    private BigDecimal highPrice;
+
+    @Column(name = "low_price", precision = 19, scale = 4, nullable = false)
+    private BigDecimal lowPrice;
+
+    /**
+     * Цена закрытия
+     */
+    @Column(name = "close_price", precision = 19, scale = 4, nullable = false)
+    private BigDecimal closePrice;
+
+    /**
+     * Цена закрытия с учетом сплитов и дивидендов
+     */
+    @Column(name = "adjusted_close", precision = 19, scale = 4, nullable = false)
+    private BigDecimal adjustedClose;
+
+    @Column(nullable = false)
+    private Long volume;
+}
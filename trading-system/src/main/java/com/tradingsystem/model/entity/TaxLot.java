@@ -0,0 +1,87 @@
+package com.tradingsystem.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Сущность налогового лота: акции одной покупки и их непроданный остаток
+ */
+@Entity
+@Table(name = "tax_lots", indexes = {
+        @Index(name = "idx_tax_lot_trade_id", columnList = "trade_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class TaxLot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Портфель
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    @ToString.Exclude
+    private Portfolio portfolio;
+
+    /**
+     * Акция
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @ToString.Exclude
+    private Stock stock;
+
+    /**
+     * Сделка покупки (null для лотов, открытых по уже существовавшим позициям)
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "trade_id")
+    @ToString.Exclude
+    private Trade trade;
+
+    /**
+     * Дата открытия лота
+     */
+    @Column(name = "open_date", nullable = false)
+    private LocalDateTime openDate;
+
+    /**
+     * Количество купленных акций
+     */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * Количество непроданных акций
+     */
+    @Column(name = "remaining_quantity", nullable = false)
+    private Integer remainingQuantity;
+
+    /**
+     * Цена покупки
+     */
+    @Column(name = "cost_price", precision = 19, scale = 4, nullable = false)
+    private BigDecimal costPrice;
+}
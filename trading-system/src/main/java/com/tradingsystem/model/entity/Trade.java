@@ -13,6 +13,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 import com.tradingsystem.model.enums.TradeType;
 
@@ -25,7 +26,9 @@ import lombok.NoArgsConstructor;
  * Сущность торговой операции (сделки)
  */
 @Entity
-@Table(name = "trades")
+@Table(name = "trades", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"portfolio_id", "idempotency_key"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -43,6 +46,12 @@ public class Trade {
     @JoinColumn(name = "portfolio_id", nullable = false)
     private Portfolio portfolio;
 
+    /**
+     * Владелец портфеля сделки (копия для постраничной истории пользователя по одному индексу)
+     */
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
     /**
      * Акция, с которой совершена сделка
      */
@@ -74,4 +83,10 @@ public class Trade {
      */
     @Column(nullable = false)
     private LocalDateTime timestamp;
-}
\ No newline at end of file
+
+    /**
+     * Ключ идемпотентности запроса клиента (заголовок Idempotency-Key), уникален в пределах портфеля
+     */
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+}
@@ -0,0 +1,132 @@
+package com.tradingsystem.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import com.tradingsystem.model.enums.OrderStatus;
+import com.tradingsystem.model.enums.OrderType;
+import com.tradingsystem.model.enums.TradeType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Сущность заявки на покупку или продажу акции.
+ * Активные заявки хранятся в книге заявок в памяти; исполнения проводятся как сделки
+ */
+@Entity
+@Table(name = "trade_orders", indexes = {
+        @Index(name = "idx_trade_order_portfolio", columnList = "portfolio_id, created_date")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class TradeOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Портфель, для которого выставлена заявка
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    @ToString.Exclude
+    private Portfolio portfolio;
+
+    /**
+     * Акция
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @ToString.Exclude
+    private Stock stock;
+
+    /**
+     * Направление заявки (BUY, SELL)
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private TradeType side;
+
+    /**
+     * Тип заявки (LIMIT, MARKET)
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_type", nullable = false, length = 10)
+    private OrderType orderType;
+
+    /**
+     * Количество акций в заявке
+     */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * Исполненное количество
+     */
+    @Column(name = "filled_quantity", nullable = false)
+    private Integer filledQuantity = 0;
+
+    /**
+     * Предельная цена (null для рыночной заявки)
+     */
+    @Column(name = "limit_price", precision = 19, scale = 4)
+    private BigDecimal limitPrice;
+
+    /**
+     * Средняя цена исполнения
+     */
+    @Column(name = "average_fill_price", precision = 19, scale = 4)
+    private BigDecimal averageFillPrice;
+
+    /**
+     * Состояние заявки
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OrderStatus status;
+
+    /**
+     * Дата создания
+     */
+    @Column(name = "created_date", nullable = false)
+    private LocalDateTime createdDate;
+
+    /**
+     * Дата последнего изменения
+     */
+    @Column(name = "updated_date", nullable = false)
+    private LocalDateTime updatedDate;
+
+    /**
+     * Причина неудачного проведения исполнения
+     */
+    @Column(length = 255)
+    private String message;
+
+    /**
+     * Неисполненный остаток заявки
+     */
+    public int getRemainingQuantity() {
+        return quantity - filledQuantity;
+    }
+}
@@ -1,9 +1,12 @@
 package com.tradingsystem.model.entity;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -12,6 +15,8 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
+import com.tradingsystem.model.enums.AlertDirection;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -65,4 +70,23 @@ public class WatchlistItem {
      */
     @Column(name = "price_target")
     private Double priceTarget;
+
+    /**
+     * Направление пересечения целевой цены, при котором срабатывает оповещение
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "alert_direction", length = 10)
+    private AlertDirection alertDirection;
+
+    /**
+     * Время срабатывания оповещения (null - оповещение активно)
+     */
+    @Column(name = "alert_triggered_at")
+    private LocalDateTime alertTriggeredAt;
+
+    /**
+     * Цена, при которой сработало оповещение
+     */
+    @Column(name = "alert_triggered_price", precision = 19, scale = 4)
+    private BigDecimal alertTriggeredPrice;
 }
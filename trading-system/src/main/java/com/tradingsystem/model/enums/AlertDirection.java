@@ -0,0 +1,16 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление направлений ценового оповещения по целевой цене
+ */
+public enum AlertDirection {
+    /**
+     * Оповещение, когда цена поднимается до целевой или выше
+     */
+    ABOVE,
+
+    /**
+     * Оповещение, когда цена опускается до целевой или ниже
+     */
+    BELOW
+}
@@ -0,0 +1,22 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Приоритет запроса на генерацию анализа (очередь вызовов ChatGPT).
+ * Порядок объявления совпадает с порядком обслуживания
+ */
+public enum AnalysisPriority {
+    /**
+     * Интерактивный запрос пользователя
+     */
+    INTERACTIVE,
+
+    /**
+     * Автоматический анализ при значительном изменении цены
+     */
+    SIGNIFICANT_MOVE,
+
+    /**
+     * Ночная пакетная обработка
+     */
+    NIGHTLY_BATCH
+}
@@ -0,0 +1,32 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление форматов выгрузки данных
+ */
+public enum ExportFormat {
+    /**
+     * CSV с заголовком, сжатый gzip
+     */
+    CSV("csv.gz", "application/gzip"),
+
+    /**
+     * Компактный колоночный двоичный формат (группы строк, столбцы с дельта- и словарным кодированием)
+     */
+    COLUMNAR("tscf", "application/octet-stream");
+
+    private final String fileExtension;
+    private final String contentType;
+
+    ExportFormat(String fileExtension, String contentType) {
+        this.fileExtension = fileExtension;
+        this.contentType = contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
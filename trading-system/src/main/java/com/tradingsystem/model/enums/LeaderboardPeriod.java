@@ -0,0 +1,16 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление периодов рейтинга портфелей по доходности
+ */
+public enum LeaderboardPeriod {
+    /**
+     * С закрытия предыдущего торгового дня
+     */
+    DAY,
+
+    /**
+     * С начала года
+     */
+    YTD
+}
@@ -0,0 +1,21 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление способов списания налоговых лотов при продаже
+ */
+public enum LotMethod {
+    /**
+     * Первыми списываются самые старые лоты
+     */
+    FIFO,
+
+    /**
+     * Первыми списываются самые новые лоты
+     */
+    LIFO,
+
+    /**
+     * Списываются лоты, указанные в сделке, в указанном порядке
+     */
+    SPECIFIC_LOT
+}
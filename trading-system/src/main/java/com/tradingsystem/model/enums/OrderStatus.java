@@ -0,0 +1,39 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление состояний заявки
+ */
+public enum OrderStatus {
+    /**
+     * Заявка принята и ожидает исполнения
+     */
+    NEW,
+
+    /**
+     * Заявка исполнена частично и ожидает исполнения остатка
+     */
+    PARTIALLY_FILLED,
+
+    /**
+     * Заявка исполнена полностью
+     */
+    FILLED,
+
+    /**
+     * Заявка снята (пользователем или как неисполненный остаток рыночной заявки)
+     */
+    CANCELLED,
+
+    /**
+     * Исполнение, сведенное движком, не удалось провести в базе данных:
+     * остаток снят из книги заявок, резерв освобожден
+     */
+    FAILED;
+
+    /**
+     * Может ли заявка еще исполняться
+     */
+    public boolean isOpen() {
+        return this == NEW || this == PARTIALLY_FILLED;
+    }
+}
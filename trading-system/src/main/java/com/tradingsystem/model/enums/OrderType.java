@@ -0,0 +1,16 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление типов заявок
+ */
+public enum OrderType {
+    /**
+     * Заявка с предельной ценой: неисполненный остаток встает в книгу заявок
+     */
+    LIMIT,
+
+    /**
+     * Рыночная заявка: исполняется по лучшим ценам книги, неисполненный остаток снимается
+     */
+    MARKET
+}
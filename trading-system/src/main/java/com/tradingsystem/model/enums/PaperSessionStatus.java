@@ -0,0 +1,21 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление состояний сессии бумажной торговли
+ */
+public enum PaperSessionStatus {
+    /**
+     * Виртуальное время идет
+     */
+    RUNNING,
+
+    /**
+     * Воспроизведение приостановлено пользователем
+     */
+    PAUSED,
+
+    /**
+     * Воспроизведение дошло до закрытия последнего торгового дня
+     */
+    FINISHED
+}
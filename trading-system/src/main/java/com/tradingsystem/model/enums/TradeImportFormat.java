@@ -0,0 +1,16 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление форматов пакетного импорта сделок
+ */
+public enum TradeImportFormat {
+    /**
+     * CSV с заголовком (text/csv)
+     */
+    CSV,
+
+    /**
+     * JSON-объект на строку (application/x-ndjson)
+     */
+    NDJSON
+}
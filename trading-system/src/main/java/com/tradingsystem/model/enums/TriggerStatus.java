@@ -0,0 +1,26 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление состояний ценового триггера
+ */
+public enum TriggerStatus {
+    /**
+     * Триггер ожидает пересечения порога
+     */
+    ACTIVE,
+
+    /**
+     * Порог пересечен, продажа проведена
+     */
+    TRIGGERED,
+
+    /**
+     * Триггер снят пользователем
+     */
+    CANCELLED,
+
+    /**
+     * Порог пересечен, но продажу провести не удалось (например, позиция уже продана)
+     */
+    FAILED
+}
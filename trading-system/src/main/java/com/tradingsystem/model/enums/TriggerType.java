@@ -0,0 +1,16 @@
+package com.tradingsystem.model.enums;
+
+/**
+ * Перечисление типов ценовых триггеров на продажу позиции
+ */
+public enum TriggerType {
+    /**
+     * Стоп-лосс: продажа, когда цена опускается до порога или ниже
+     */
+    STOP_LOSS,
+
+    /**
+     * Тейк-профит: продажа, когда цена поднимается до порога или выше
+     */
+    TAKE_PROFIT
+}
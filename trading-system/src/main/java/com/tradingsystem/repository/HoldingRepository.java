@@ -3,9 +3,17 @@ package com.tradingsystem.repository;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -36,6 +44,16 @@ public interface HoldingRepository extends JpaRepository<Holding, Long> {
      */
     Optional<Holding> findByPortfolioIdAndStockId(Long portfolioId, Long stockId);
 
+    /**
+     * Находит позицию по портфелю и акции с блокировкой строки до конца транзакции
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @return Optional с позицией, если найдена
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM Holding h WHERE h.portfolio.id = :portfolioId AND h.stock.id = :stockId")
+    Optional<Holding> findForUpdate(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId);
+
     /**
      * Находит позиции с количеством больше указанного
      * @param quantity Количество
@@ -135,4 +153,25 @@ public interface HoldingRepository extends JpaRepository<Holding, Long> {
      */
     @Query("SELECT SUM(h.quantity * (s.currentPrice - h.averagePrice)) FROM Holding h JOIN h.stock s WHERE h.portfolio.id = :portfolioId")
     BigDecimal calculateTotalProfitLoss(@Param("portfolioId") Long portfolioId);
+
+    /**
+     * Получает состояние всех позиций для построения книги позиций
+     * @return Список строк [portfolioId, stockId, quantity, averagePrice, currentPrice]
+     */
+    @Query("SELECT h.portfolio.id, s.id, h.quantity, h.averagePrice, s.currentPrice FROM Holding h JOIN h.stock s")
+    List<Object[]> findAllPositionStates();
+
+    /**
+     * Читает позиции портфеля потоком, упорядоченные по символу акции.
+     * Вызывать в транзакции и закрывать поток
+     * @param portfolioId ID портфеля
+     * @return Поток строк [символ, название, количество, средняя цена, текущая цена]
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s.symbol, s.name, h.quantity, h.averagePrice, s.currentPrice " +
+           "FROM Holding h JOIN h.stock s WHERE h.portfolio.id = :portfolioId ORDER BY s.symbol")
+    Stream<Object[]> streamPositionRows(@Param("portfolioId") Long portfolioId);
 }
@@ -0,0 +1,40 @@
+package com.tradingsystem.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tradingsystem.model.entity.Analysis;
+import com.tradingsystem.model.entity.LatestAnalysis;
+
+@Repository
+public interface LatestAnalysisRepository extends JpaRepository<LatestAnalysis, Long> {
+
+    /**
+     * Записывает анализ как последний для акции, если он не старше уже сохраненного
+     * @param stockId ID акции
+     * @param analysisId ID анализа
+     * @param analysisDate Дата анализа
+     * @return Количество измененных строк
+     */
+    @Modifying
+    @Query(value = "INSERT INTO latest_analyses (stock_id, analysis_id, analysis_date) " +
+            "VALUES (:stockId, :analysisId, :analysisDate) " +
+            "ON CONFLICT (stock_id) DO UPDATE SET analysis_id = EXCLUDED.analysis_id, analysis_date = EXCLUDED.analysis_date " +
+            "WHERE latest_analyses.analysis_date <= EXCLUDED.analysis_date", nativeQuery = true)
+    int upsertIfNewer(@Param("stockId") Long stockId,
+                      @Param("analysisId") Long analysisId,
+                      @Param("analysisDate") LocalDateTime analysisDate);
+
+    /**
+     * Получает последние анализы по всем акциям (без сортировки)
+     * @return Список последних анализов
+     */
+    @Query("SELECT a FROM LatestAnalysis l JOIN l.analysis a JOIN FETCH a.stock")
+    List<Analysis> findAllLatestAnalyses();
+}
@@ -0,0 +1,22 @@
+package com.tradingsystem.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tradingsystem.model.entity.LotDisposal;
+
+@Repository
+public interface LotDisposalRepository extends JpaRepository<LotDisposal, Long> {
+
+    /**
+     * Находит списания лотов сделкой продажи вместе с лотами
+     * @param tradeId ID сделки
+     * @return Список списаний
+     */
+    @Query("SELECT d FROM LotDisposal d JOIN FETCH d.lot WHERE d.trade.id = :tradeId ORDER BY d.id ASC")
+    List<LotDisposal> findByTradeId(@Param("tradeId") Long tradeId);
+}
@@ -0,0 +1,114 @@
+package com.tradingsystem.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tradingsystem.model.entity.PortfolioPerformance;
+
+@Repository
+public interface PortfolioPerformanceRepository extends JpaRepository<PortfolioPerformance, Long> {
+
+    /**
+     * Находит историю оценок портфеля в хронологическом порядке
+     * @param portfolioId ID портфеля
+     * @return Список дневных оценок
+     */
+    List<PortfolioPerformance> findByPortfolioIdOrderByDateAsc(Long portfolioId);
+
+    /**
+     * Находит оценки портфеля начиная с указанной даты
+     * @param portfolioId ID портфеля
+     * @param date Начальная дата (включительно)
+     * @return Список дневных оценок
+     */
+    List<PortfolioPerformance> findByPortfolioIdAndDateGreaterThanEqualOrderByDateAsc(Long portfolioId, LocalDate date);
+
+    /**
+     * Находит последнюю рассчитанную оценку портфеля
+     * @param portfolioId ID портфеля
+     * @return Последняя оценка
+     */
+    Optional<PortfolioPerformance> findTopByPortfolioIdOrderByDateDesc(Long portfolioId);
+
+    /**
+     * Находит первую рассчитанную оценку портфеля
+     * @param portfolioId ID портфеля
+     * @return Первая оценка
+     */
+    Optional<PortfolioPerformance> findTopByPortfolioIdOrderByDateAsc(Long portfolioId);
+
+    /**
+     * Удаляет оценки портфеля начиная с указанной даты (для пересчета)
+     * @param portfolioId ID портфеля
+     * @param date Начальная дата (включительно)
+     * @return Количество удаленных строк
+     */
+    @Modifying
+    @Query("DELETE FROM PortfolioPerformance p WHERE p.portfolio.id = :portfolioId AND p.date >= :date")
+    int deleteFromDate(@Param("portfolioId") Long portfolioId, @Param("date") LocalDate date);
+
+    /**
+     * Записывает дневную оценку портфеля (вставка или обновление по портфелю и дате)
+     * @return Количество измененных строк
+     */
+    @Modifying
+    @Query(value = "INSERT INTO portfolio_performance " +
+            "(portfolio_id, date, value, daily_return, weekly_return, monthly_return, yearly_return, total_return, created_date) " +
+            "VALUES (:portfolioId, :date, :value, :dailyReturn, :weeklyReturn, :monthlyReturn, :yearlyReturn, :totalReturn, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (portfolio_id, date) DO UPDATE SET value = EXCLUDED.value, " +
+            "daily_return = EXCLUDED.daily_return, weekly_return = EXCLUDED.weekly_return, " +
+            "monthly_return = EXCLUDED.monthly_return, yearly_return = EXCLUDED.yearly_return, " +
+            "total_return = EXCLUDED.total_return, created_date = EXCLUDED.created_date", nativeQuery = true)
+    int upsert(@Param("portfolioId") Long portfolioId,
+               @Param("date") LocalDate date,
+               @Param("value") BigDecimal value,
+               @Param("dailyReturn") BigDecimal dailyReturn,
+               @Param("weeklyReturn") BigDecimal weeklyReturn,
+               @Param("monthlyReturn") BigDecimal monthlyReturn,
+               @Param("yearlyReturn") BigDecimal yearlyReturn,
+               @Param("totalReturn") BigDecimal totalReturn);
+
+    /**
+     * Находит последнюю дату оценки до указанной
+     * @param date Дата (не включительно)
+     * @return Дата или null, если оценок нет
+     */
+    @Query("SELECT MAX(p.date) FROM PortfolioPerformance p WHERE p.date < :date")
+    LocalDate findLatestDateBefore(@Param("date") LocalDate date);
+
+    /**
+     * Находит оценки всех портфелей на дату
+     * @param date Дата
+     * @return Список пар [ID портфеля, стоимость]
+     */
+    @Query("SELECT p.portfolio.id, p.value FROM PortfolioPerformance p WHERE p.date = :date")
+    List<Object[]> findValuesOn(@Param("date") LocalDate date);
+
+    /**
+     * Читает историю оценок портфеля потоком в хронологическом порядке.
+     * Вызывать в транзакции и закрывать поток
+     * @param portfolioId ID портфеля
+     * @return Поток строк [дата, стоимость, доходность за день, неделю, месяц, год, общая доходность]
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.date, p.value, p.dailyReturn, p.weeklyReturn, p.monthlyReturn, p.yearlyReturn, p.totalReturn " +
+           "FROM PortfolioPerformance p WHERE p.portfolio.id = :portfolioId ORDER BY p.date")
+    Stream<Object[]> streamSeries(@Param("portfolioId") Long portfolioId);
+}
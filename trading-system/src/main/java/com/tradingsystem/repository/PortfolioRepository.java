@@ -4,11 +4,13 @@ import java.math.BigDecimal;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.repository.projection.PortfolioPerformanceRow;
 
 @Repository
 public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
@@ -87,4 +89,47 @@ public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
      * @return Список портфелей, в названии которых содержится указанная строка
      */
     List<Portfolio> findByNameContainingIgnoreCase(String name);
+
+    /**
+     * Получает ID всех портфелей, кроме учебных портфелей бумажной торговли
+     * @return Список ID портфелей
+     */
+    @Query("SELECT p.id FROM Portfolio p WHERE p.sandbox = false ORDER BY p.id")
+    List<Long> findAllIds();
+
+    /**
+     * Записывает общую стоимость портфеля (сущность не обновляет это поле при сохранении)
+     * @param portfolioId ID портфеля
+     * @param totalValue Общая стоимость
+     * @return Количество измененных строк
+     */
+    @Modifying
+    @Query("UPDATE Portfolio p SET p.totalValue = :totalValue WHERE p.id = :portfolioId")
+    int updateTotalValue(@Param("portfolioId") Long portfolioId, @Param("totalValue") BigDecimal totalValue);
+
+    /**
+     * Рассчитывает данные для эффективности портфеля за один запрос:
+     * итоги сделок, стоимость позиций и места позиций по доходности (оконные функции)
+     * @param portfolioId ID портфеля
+     * @return Строки по позициям портфеля; пустой список, если портфель не найден
+     */
+    @Query(value = "WITH trade_totals AS (" +
+            "  SELECT COALESCE(SUM(t.price * t.quantity) FILTER (WHERE t.type = 'BUY'), 0) AS total_buy," +
+            "         COALESCE(SUM(t.price * t.quantity) FILTER (WHERE t.type = 'SELL'), 0) AS total_sell" +
+            "  FROM trades t WHERE t.portfolio_id = :portfolioId" +
+            "), positions AS (" +
+            "  SELECT s.symbol, s.name, s.sector, h.quantity, h.average_price, s.current_price," +
+            "         h.quantity * COALESCE(s.current_price, 0) AS current_value," +
+            "         ROW_NUMBER() OVER (ORDER BY (s.current_price - h.average_price) / NULLIF(h.average_price, 0) DESC NULLS LAST) AS gain_rank," +
+            "         ROW_NUMBER() OVER (ORDER BY (s.current_price - h.average_price) / NULLIF(h.average_price, 0) ASC NULLS LAST) AS loss_rank" +
+            "  FROM holdings h JOIN stocks s ON s.id = h.stock_id" +
+            "  WHERE h.portfolio_id = :portfolioId" +
+            ") " +
+            "SELECT p.total_value AS \"portfolioValue\", tt.total_buy AS \"totalBuy\", tt.total_sell AS \"totalSell\"," +
+            "       pos.symbol AS \"symbol\", pos.name AS \"name\", pos.sector AS \"sector\", pos.quantity AS \"quantity\"," +
+            "       pos.average_price AS \"averagePrice\", pos.current_price AS \"currentPrice\", pos.current_value AS \"currentValue\"," +
+            "       pos.gain_rank AS \"gainRank\", pos.loss_rank AS \"lossRank\" " +
+            "FROM portfolios p CROSS JOIN trade_totals tt LEFT JOIN positions pos ON TRUE " +
+            "WHERE p.id = :portfolioId", nativeQuery = true)
+    List<PortfolioPerformanceRow> findPerformanceRows(@Param("portfolioId") Long portfolioId);
 }
@@ -0,0 +1,30 @@
+package com.tradingsystem.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tradingsystem.model.entity.PriceTrigger;
+
+@Repository
+public interface PriceTriggerRepository extends JpaRepository<PriceTrigger, Long> {
+
+    /**
+     * Находит триггеры портфеля от новых к старым
+     * @param portfolioId ID портфеля
+     * @return Список триггеров
+     */
+    @Query("SELECT t FROM PriceTrigger t JOIN FETCH t.stock WHERE t.portfolio.id = :portfolioId ORDER BY t.createdDate DESC, t.id DESC")
+    List<PriceTrigger> findByPortfolioId(@Param("portfolioId") Long portfolioId);
+
+    /**
+     * Получает пороги активных триггеров для построения индекса
+     * @return Список строк [triggerId, stockId, triggerType, triggerPrice]
+     */
+    @Query("SELECT t.id, t.stock.id, t.triggerType, t.triggerPrice FROM PriceTrigger t " +
+            "WHERE t.status = com.tradingsystem.model.enums.TriggerStatus.ACTIVE")
+    List<Object[]> findActiveTriggerStates();
+}
@@ -0,0 +1,31 @@
+package com.tradingsystem.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tradingsystem.model.entity.RealizedGain;
+
+@Repository
+public interface RealizedGainRepository extends JpaRepository<RealizedGain, Long> {
+
+    /**
+     * Находит накопленный результат по акции в портфеле
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @return Optional с результатом, если продажи были
+     */
+    Optional<RealizedGain> findByPortfolioIdAndStockId(Long portfolioId, Long stockId);
+
+    /**
+     * Находит накопленные результаты портфеля вместе с акциями
+     * @param portfolioId ID портфеля
+     * @return Список результатов по акциям
+     */
+    @Query("SELECT g FROM RealizedGain g JOIN FETCH g.stock WHERE g.portfolio.id = :portfolioId")
+    List<RealizedGain> findByPortfolioId(@Param("portfolioId") Long portfolioId);
+}
@@ -0,0 +1,62 @@
+package com.tradingsystem.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tradingsystem.model.entity.StockHistoricalData;
+
+@Repository
+public interface StockHistoricalDataRepository extends JpaRepository<StockHistoricalData, Long> {
+
+    /**
+     * Получает цены закрытия акций за период
+     * @param stockIds ID акций
+     * @param startDate Начальная дата (включительно)
+     * @param endDate Конечная дата (включительно)
+     * @return Список строк [stockId, date, closePrice] в хронологическом порядке
+     */
+    @Query("SELECT h.stock.id, h.date, h.closePrice FROM StockHistoricalData h " +
+            "WHERE h.stock.id IN :stockIds AND h.date BETWEEN :startDate AND :endDate ORDER BY h.date")
+    List<Object[]> findClosePrices(@Param("stockIds") Collection<Long> stockIds,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate);
+
+    /**
+     * Находит последнюю котировку акции до указанной даты
+     * @param stockId ID акции
+     * @param date Дата (не включительно)
+     * @return Котировка
+     */
+    Optional<StockHistoricalData> findTopByStockIdAndDateLessThanOrderByDateDesc(Long stockId, LocalDate date);
+
+    /**
+     * Получает скорректированные цены закрытия акций начиная с даты
+     * @param stockIds ID акций
+     * @param startDate Начальная дата (включительно)
+     * @return Список строк [stockId, date, adjustedClose] в хронологическом порядке
+     */
+    @Query("SELECT h.stock.id, h.date, h.adjustedClose FROM StockHistoricalData h " +
+            "WHERE h.stock.id IN :stockIds AND h.date >= :startDate ORDER BY h.date")
+    List<Object[]> findAdjustedClosePrices(@Param("stockIds") Collection<Long> stockIds,
+                                           @Param("startDate") LocalDate startDate);
+
+    /**
+     * Получает дневные бары акции за период
+     * @param stockId ID акции
+     * @param startDate Начальная дата (включительно)
+     * @param endDate Конечная дата (включительно)
+     * @return Список строк [date, open, high, low, close, volume] в хронологическом порядке
+     */
+    @Query("SELECT h.date, h.openPrice, h.highPrice, h.lowPrice, h.closePrice, h.volume FROM StockHistoricalData h " +
+            "WHERE h.stock.id = :stockId AND h.date BETWEEN :startDate AND :endDate ORDER BY h.date")
+    List<Object[]> findBars(@Param("stockId") Long stockId,
+                            @Param("startDate") LocalDate startDate,
+                            @Param("endDate") LocalDate endDate);
+}
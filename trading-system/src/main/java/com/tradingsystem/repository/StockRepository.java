@@ -1,6 +1,7 @@
 package com.tradingsystem.repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -115,4 +116,18 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
      */
     @Query("SELECT DISTINCT s.industry FROM Stock s WHERE s.sector = :sector ORDER BY s.industry")
     List<String> findAllIndustriesBySector(@Param("sector") String sector);
+
+    /**
+     * Находит символы акций из позиций портфелей и списков отслеживания, у которых нет анализа
+     * новее указанного момента, начиная с давно не анализировавшихся
+     * @param before Момент, после которого анализ считается свежим
+     * @param pageable Размер выборки
+     * @return Список символов
+     */
+    @Query("SELECT s.symbol FROM Stock s LEFT JOIN LatestAnalysis l ON l.stockId = s.id " +
+           "WHERE (l.analysisDate IS NULL OR l.analysisDate < :before) " +
+           "AND (EXISTS (SELECT 1 FROM Holding h WHERE h.stock = s AND h.quantity > 0) " +
+           "OR EXISTS (SELECT 1 FROM WatchlistItem w WHERE w.stock = s)) " +
+           "ORDER BY l.analysisDate ASC NULLS FIRST, s.id")
+    List<String> findTrackedSymbolsWithoutAnalysisSince(@Param("before") LocalDateTime before, Pageable pageable);
 }
\ No newline at end of file
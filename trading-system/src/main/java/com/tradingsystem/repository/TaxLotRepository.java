@@ -0,0 +1,46 @@
+package com.tradingsystem.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tradingsystem.model.entity.TaxLot;
+
+@Repository
+public interface TaxLotRepository extends JpaRepository<TaxLot, Long> {
+
+    /**
+     * Находит открытые лоты позиции от старых к новым с блокировкой строк до конца транзакции,
+     * чтобы параллельные продажи одной позиции не списали один и тот же остаток
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @return Список открытых лотов
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM TaxLot l WHERE l.portfolio.id = :portfolioId AND l.stock.id = :stockId " +
+            "AND l.remainingQuantity > 0 ORDER BY l.openDate ASC, l.id ASC")
+    List<TaxLot> findOpenLotsForUpdate(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId);
+
+    /**
+     * Находит открытые лоты портфеля вместе с акциями
+     * @param portfolioId ID портфеля
+     * @return Список открытых лотов
+     */
+    @Query("SELECT l FROM TaxLot l JOIN FETCH l.stock WHERE l.portfolio.id = :portfolioId " +
+            "AND l.remainingQuantity > 0 ORDER BY l.stock.symbol ASC, l.openDate ASC, l.id ASC")
+    List<TaxLot> findOpenLotsByPortfolioId(@Param("portfolioId") Long portfolioId);
+
+    /**
+     * Находит лот, открытый сделкой покупки
+     * @param tradeId ID сделки
+     * @return Optional с лотом, если найден
+     */
+    Optional<TaxLot> findByTradeId(Long tradeId);
+}
@@ -0,0 +1,44 @@
+package com.tradingsystem.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tradingsystem.model.entity.TradeOrder;
+import com.tradingsystem.model.enums.TradeType;
+
+@Repository
+public interface TradeOrderRepository extends JpaRepository<TradeOrder, Long> {
+
+    /**
+     * Находит заявки портфеля от новых к старым
+     * @param portfolioId ID портфеля
+     * @return Список заявок
+     */
+    @Query("SELECT o FROM TradeOrder o JOIN FETCH o.stock WHERE o.portfolio.id = :portfolioId ORDER BY o.createdDate DESC, o.id DESC")
+    List<TradeOrder> findByPortfolioId(@Param("portfolioId") Long portfolioId);
+
+    /**
+     * Находит активные заявки в порядке поступления (для загрузки книги заявок при старте)
+     * @return Список активных заявок
+     */
+    @Query("SELECT o FROM TradeOrder o WHERE o.status IN (com.tradingsystem.model.enums.OrderStatus.NEW, " +
+            "com.tradingsystem.model.enums.OrderStatus.PARTIALLY_FILLED) ORDER BY o.createdDate ASC, o.id ASC")
+    List<TradeOrder> findOpenOrders();
+
+    /**
+     * Считает неисполненный остаток активных заявок позиции в одном направлении.
+     * Для продаж это количество акций, зарезервированное под заявки
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @param side Направление заявок
+     * @return Неисполненное количество
+     */
+    @Query("SELECT COALESCE(SUM(o.quantity - o.filledQuantity), 0) FROM TradeOrder o " +
+            "WHERE o.portfolio.id = :portfolioId AND o.stock.id = :stockId AND o.side = :side " +
+            "AND o.status IN (com.tradingsystem.model.enums.OrderStatus.NEW, com.tradingsystem.model.enums.OrderStatus.PARTIALLY_FILLED)")
+    long sumOpenQuantity(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId, @Param("side") TradeType side);
+}
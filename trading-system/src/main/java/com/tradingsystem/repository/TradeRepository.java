@@ -2,20 +2,50 @@ package com.tradingsystem.repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.tradingsystem.model.entity.Trade;
 import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.projection.TradeHistoryRow;
 
 @Repository
 public interface TradeRepository extends JpaRepository<Trade, Long> {
 
+    /**
+     * Размер порции строк, которую драйвер читает из курсора базы данных при потоковой выдаче
+     */
+    String HISTORY_FETCH_SIZE = "500";
+
+    String HISTORY_COLUMNS = "SELECT t.id AS id, t.portfolio.id AS portfolioId, s.id AS stockId, s.symbol AS stockSymbol, " +
+            "t.type AS type, t.quantity AS quantity, t.price AS price, t.timestamp AS timestamp " +
+            "FROM Trade t JOIN t.stock s ";
+
+    String HISTORY_SELECT = HISTORY_COLUMNS + "WHERE t.portfolio.id IN :portfolioIds ";
+
+    /**
+     * История всех портфелей пользователя по денормализованному владельцу сделки:
+     * страница читается одним проходом по индексу (user_id, timestamp, id) без слияния и сортировки портфелей
+     */
+    String USER_HISTORY_SELECT = HISTORY_COLUMNS + "WHERE t.userId = :userId ";
+
+    String HISTORY_KEYSET = "AND t.timestamp <= :timestamp AND (t.timestamp < :timestamp OR t.id < :id) ";
+
+    String HISTORY_ORDER = "ORDER BY t.timestamp DESC, t.id DESC";
+
     /**
      * Находит все сделки для указанного портфеля
      * @param portfolioId ID портфеля
@@ -23,6 +53,13 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
      */
     List<Trade> findByPortfolioId(Long portfolioId);
 
+    /**
+     * Находит все сделки портфеля в хронологическом порядке
+     * @param portfolioId ID портфеля
+     * @return Список сделок, отсортированный по времени
+     */
+    List<Trade> findByPortfolioIdOrderByTimestampAsc(Long portfolioId);
+
     /**
      * Находит все сделки для указанного портфеля, отсортированные по дате
      * @param portfolioId ID портфеля
@@ -137,4 +174,163 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
      */
     @Query("SELECT SUM(t.quantity) FROM Trade t WHERE t.portfolio.id = :portfolioId AND t.stock.id = :stockId AND t.type = 'SELL'")
     Integer calculateTotalSellQuantity(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId);
+
+    /**
+     * Рассчитывает чистый денежный поток (покупки минус продажи) по портфелям начиная с момента времени
+     * @param since Начало периода (включительно)
+     * @return Список пар [ID портфеля, поток]
+     */
+    @Query("SELECT t.portfolio.id, SUM(CASE WHEN t.type = 'BUY' THEN t.price * t.quantity ELSE -(t.price * t.quantity) END) " +
+           "FROM Trade t WHERE t.timestamp >= :since GROUP BY t.portfolio.id")
+    List<Object[]> sumNetFlowsByPortfolioSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Время первой сделки портфеля
+     * @param portfolioId ID портфеля
+     * @return Время или null, если сделок нет
+     */
+    @Query("SELECT MIN(t.timestamp) FROM Trade t WHERE t.portfolio.id = :portfolioId")
+    LocalDateTime findFirstTradeTimestamp(@Param("portfolioId") Long portfolioId);
+
+    /**
+     * Время первой сделки портфеля по акции
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @return Время или null, если сделок нет
+     */
+    @Query("SELECT MIN(t.timestamp) FROM Trade t WHERE t.portfolio.id = :portfolioId AND t.stock.id = :stockId")
+    LocalDateTime findFirstTradeTimestamp(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId);
+
+    /**
+     * Сводит сделки портфеля до момента времени по акциям, не загружая сами сделки
+     * @param portfolioId ID портфеля
+     * @param before Момент времени (не включительно)
+     * @return Список [ID акции, количество, чистые вложения, цена последней сделки]
+     */
+    @Query(value = "SELECT t.stock_id, " +
+            "SUM(CASE WHEN t.type = 'BUY' THEN t.quantity ELSE -t.quantity END), " +
+            "SUM(CASE WHEN t.type = 'BUY' THEN t.price * t.quantity ELSE -(t.price * t.quantity) END), " +
+            "(ARRAY_AGG(t.price ORDER BY t.timestamp DESC, t.id DESC))[1] " +
+            "FROM trades t WHERE t.portfolio_id = :portfolioId AND t.timestamp < :before " +
+            "GROUP BY t.stock_id", nativeQuery = true)
+    List<Object[]> sumPositionsBefore(@Param("portfolioId") Long portfolioId, @Param("before") LocalDateTime before);
+
+    /**
+     * Находит первую страницу истории сделок портфелей (от новых к старым)
+     * @param portfolioIds ID портфелей
+     * @param pageable Размер страницы
+     * @return Строки истории
+     */
+    @Query(HISTORY_SELECT + HISTORY_ORDER)
+    List<TradeHistoryRow> findHistoryPage(@Param("portfolioIds") Collection<Long> portfolioIds, Pageable pageable);
+
+    /**
+     * Находит страницу истории сделок портфелей после курсора (timestamp, id).
+     * Условие {@code timestamp <= :timestamp} ограничивает диапазон индекса, второе отсекает
+     * уже выданные сделки с тем же временем
+     * @param portfolioIds ID портфелей
+     * @param timestamp Время последней выданной сделки
+     * @param id ID последней выданной сделки
+     * @param pageable Размер страницы
+     * @return Строки истории
+     */
+    @Query(HISTORY_SELECT + HISTORY_KEYSET + HISTORY_ORDER)
+    List<TradeHistoryRow> findHistoryPageAfter(@Param("portfolioIds") Collection<Long> portfolioIds,
+                                               @Param("timestamp") LocalDateTime timestamp,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    /**
+     * Читает всю историю сделок портфелей потоком (от новых к старым) порциями по
+     * {@link #HISTORY_FETCH_SIZE} строк. Вызывать в транзакции и закрывать поток
+     * @param portfolioIds ID портфелей
+     * @return Поток строк истории
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = HISTORY_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(HISTORY_SELECT + HISTORY_ORDER)
+    Stream<TradeHistoryRow> streamHistory(@Param("portfolioIds") Collection<Long> portfolioIds);
+
+    /**
+     * Находит первую страницу истории сделок всех портфелей пользователя (от новых к старым)
+     * @param userId ID пользователя
+     * @param pageable Размер страницы
+     * @return Строки истории
+     */
+    @Query(USER_HISTORY_SELECT + HISTORY_ORDER)
+    List<TradeHistoryRow> findUserHistoryPage(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Находит страницу истории сделок всех портфелей пользователя после курсора (timestamp, id)
+     * @param userId ID пользователя
+     * @param timestamp Время последней выданной сделки
+     * @param id ID последней выданной сделки
+     * @param pageable Размер страницы
+     * @return Строки истории
+     */
+    @Query(USER_HISTORY_SELECT + HISTORY_KEYSET + HISTORY_ORDER)
+    List<TradeHistoryRow> findUserHistoryPageAfter(@Param("userId") Long userId,
+                                                   @Param("timestamp") LocalDateTime timestamp,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
+
+    /**
+     * Читает всю историю сделок пользователя потоком (от новых к старым) порциями по
+     * {@link #HISTORY_FETCH_SIZE} строк. Вызывать в транзакции и закрывать поток
+     * @param userId ID пользователя
+     * @return Поток строк истории
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = HISTORY_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(USER_HISTORY_SELECT + HISTORY_ORDER)
+    Stream<TradeHistoryRow> streamUserHistory(@Param("userId") Long userId);
+
+    /**
+     * Читает всю историю сделок портфелей потоком в хронологическом порядке
+     * порциями по {@link #HISTORY_FETCH_SIZE} строк. Вызывать в транзакции и закрывать поток
+     * @param portfolioIds ID портфелей
+     * @return Поток строк истории
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = HISTORY_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(HISTORY_SELECT + "ORDER BY t.timestamp, t.id")
+    Stream<TradeHistoryRow> streamChronologicalHistory(@Param("portfolioIds") Collection<Long> portfolioIds);
+
+    /**
+     * Читает сделки портфелей начиная с момента времени потоком в хронологическом порядке
+     * порциями по {@link #HISTORY_FETCH_SIZE} строк. Вызывать в транзакции и закрывать поток
+     * @param portfolioIds ID портфелей
+     * @param since Начало периода (включительно)
+     * @return Поток строк истории
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = HISTORY_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(HISTORY_SELECT + "AND t.timestamp >= :since ORDER BY t.timestamp, t.id")
+    Stream<TradeHistoryRow> streamChronologicalHistorySince(@Param("portfolioIds") Collection<Long> portfolioIds,
+                                                            @Param("since") LocalDateTime since);
+
+    /**
+     * Находит сделку портфеля по ключу идемпотентности
+     * @param portfolioId ID портфеля
+     * @param idempotencyKey Ключ идемпотентности
+     * @return Сделка, если найдена
+     */
+    Optional<Trade> findByPortfolioIdAndIdempotencyKey(Long portfolioId, String idempotencyKey);
+
+    /**
+     * Находит ключи идемпотентности сделок начиная с момента времени
+     * @param since Начало периода (включительно)
+     * @return Список [ID портфеля, ключ, ID сделки]
+     */
+    @Query("SELECT t.portfolio.id, t.idempotencyKey, t.id FROM Trade t " +
+           "WHERE t.idempotencyKey IS NOT NULL AND t.timestamp >= :since ORDER BY t.timestamp")
+    List<Object[]> findIdempotencyKeysSince(@Param("since") LocalDateTime since);
 }
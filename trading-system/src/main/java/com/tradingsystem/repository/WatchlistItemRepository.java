@@ -3,10 +3,15 @@ package com.tradingsystem.repository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -15,6 +20,11 @@ import com.tradingsystem.model.entity.WatchlistItem;
 @Repository
 public interface WatchlistItemRepository extends JpaRepository<WatchlistItem, Long> {
 
+    /**
+     * Размер порции при потоковой загрузке активных оповещений
+     */
+    String ALERT_FETCH_SIZE = "10000";
+
     /**
      * Находит все элементы списка отслеживания пользователя
      * @param userId ID пользователя
@@ -105,4 +115,43 @@ public interface WatchlistItemRepository extends JpaRepository<WatchlistItem, Lo
     @Query("SELECT w1.stock.id FROM WatchlistItem w1 JOIN WatchlistItem w2 ON w1.stock.id = w2.stock.id " +
             "WHERE w1.user.id = :userId1 AND w2.user.id = :userId2")
     List<Long> findCommonStocksBetweenUsers(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
+
+    /**
+     * Читает активные оповещения на рост потоком: по акциям, от больших целевых цен к меньшим.
+     * Вызывать в транзакции и закрывать поток
+     * @return Поток строк [id, stockId, priceTarget]
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ALERT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT w.id, w.stock.id, w.priceTarget FROM WatchlistItem w " +
+            "WHERE w.priceTarget IS NOT NULL AND w.alertTriggeredAt IS NULL " +
+            "AND w.alertDirection = com.tradingsystem.model.enums.AlertDirection.ABOVE " +
+            "ORDER BY w.stock.id, w.priceTarget DESC, w.id")
+    Stream<Object[]> streamActiveAboveAlerts();
+
+    /**
+     * Читает активные оповещения на падение потоком: по акциям, от меньших целевых цен к большим.
+     * Вызывать в транзакции и закрывать поток
+     * @return Поток строк [id, stockId, priceTarget]
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ALERT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT w.id, w.stock.id, w.priceTarget FROM WatchlistItem w " +
+            "WHERE w.priceTarget IS NOT NULL AND w.alertTriggeredAt IS NULL " +
+            "AND w.alertDirection = com.tradingsystem.model.enums.AlertDirection.BELOW " +
+            "ORDER BY w.stock.id, w.priceTarget, w.id")
+    Stream<Object[]> streamActiveBelowAlerts();
+
+    /**
+     * Находит сработавшие оповещения пользователя
+     * @param userId ID пользователя
+     * @return Элементы списка отслеживания от последних сработавших
+     */
+    @Query("SELECT w FROM WatchlistItem w WHERE w.user.id = :userId AND w.alertTriggeredAt IS NOT NULL " +
+            "ORDER BY w.alertTriggeredAt DESC")
+    List<WatchlistItem> findTriggeredAlerts(@Param("userId") Long userId);
 }
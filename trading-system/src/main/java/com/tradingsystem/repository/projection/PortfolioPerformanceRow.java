@@ -0,0 +1,41 @@
+package com.tradingsystem.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка агрегированного расчета эффективности портфеля (одна строка на позицию).
+ * Итоги портфеля и сделок повторяются в каждой строке; если позиций нет,
+ * возвращается одна строка с пустыми полями позиции
+ */
+public interface PortfolioPerformanceRow {
+
+    BigDecimal getPortfolioValue();
+
+    BigDecimal getTotalBuy();
+
+    BigDecimal getTotalSell();
+
+    String getSymbol();
+
+    String getName();
+
+    String getSector();
+
+    Integer getQuantity();
+
+    BigDecimal getAveragePrice();
+
+    BigDecimal getCurrentPrice();
+
+    BigDecimal getCurrentValue();
+
+    /**
+     * Место позиции по доходности (1 - самая прибыльная)
+     */
+    Long getGainRank();
+
+    /**
+     * Место позиции по убыточности (1 - самая убыточная)
+     */
+    Long getLossRank();
+}
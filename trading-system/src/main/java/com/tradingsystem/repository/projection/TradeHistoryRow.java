@@ -0,0 +1,29 @@
+package com.tradingsystem.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.tradingsystem.model.enums.TradeType;
+
+/**
+ * Строка истории сделок: только поля, которые отдаются клиенту.
+ * Читается без загрузки сущностей портфеля и акции и не попадает в контекст персистентности
+ */
+public interface TradeHistoryRow {
+
+    Long getId();
+
+    Long getPortfolioId();
+
+    Long getStockId();
+
+    String getStockSymbol();
+
+    TradeType getType();
+
+    Integer getQuantity();
+
+    BigDecimal getPrice();
+
+    LocalDateTime getTimestamp();
+}
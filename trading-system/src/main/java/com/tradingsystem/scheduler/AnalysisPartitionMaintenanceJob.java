@@ -0,0 +1,246 @@
+package com.tradingsystem.scheduler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradingsystem.service.index.LatestAnalysisIndex;
+
+/**
+ * Обслуживание помесячных секций таблицы analyses:
+ * заранее создает секции на будущие месяцы, а секции старше срока хранения
+ * выгружает в сжатый архив (CSV + gzip), отсоединяет и удаляет.
+ * Строки, попавшие в секцию по умолчанию, переносятся в созданную для их месяца секцию
+ */
+@Component
+public class AnalysisPartitionMaintenanceJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisPartitionMaintenanceJob.class);
+    private static final Pattern PARTITION_NAME = Pattern.compile("analyses_y(\\d{4})m(\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+    private static final String DEFAULT_PARTITION = "analyses_default";
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LatestAnalysisIndex latestAnalysisIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.analyses.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${app.analyses.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    @Value("${app.analyses.archive-dir:archive/analyses}")
+    private String archiveDir;
+
+    @Autowired
+    public AnalysisPartitionMaintenanceJob(
+            JdbcTemplate jdbcTemplate,
+            LatestAnalysisIndex latestAnalysisIndex,
+            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.latestAnalysisIndex = latestAnalysisIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Ежедневное обслуживание секций (по умолчанию в 02:30)
+     */
+    @Scheduled(cron = "${app.analyses.maintenance-cron:0 30 2 * * *}")
+    public void maintainPartitions() {
+        createUpcomingPartitions();
+        archiveExpiredPartitions();
+    }
+
+    /**
+     * Создает секции на текущий и следующие месяцы, если их еще нет
+     */
+    public void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                createPartition(month);
+            } catch (Exception e) {
+                // Строки месяца остаются в секции по умолчанию до следующего запуска
+                logger.error("Failed to create analyses partition {}", partitionName(month), e);
+            }
+        }
+    }
+
+    /**
+     * Создает секцию месяца в одной транзакции. Секцию нельзя создать, пока строки ее диапазона
+     * лежат в секции по умолчанию, поэтому она создается отдельной таблицей, строки переносятся
+     * в нее из секции по умолчанию, и только затем таблица присоединяется к analyses
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+
+        Integer moved = transactionTemplate.execute(status -> {
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+            if (Boolean.TRUE.equals(exists)) {
+                return null;
+            }
+
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE analyses INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int rows = jdbcTemplate.update(
+                    "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE analysis_date >= ? AND analysis_date < ? RETURNING *) " +
+                            "INSERT INTO " + partition + " SELECT * FROM moved",
+                    from.atStartOfDay(), to.atStartOfDay());
+            jdbcTemplate.execute(String.format(
+                    "ALTER TABLE analyses ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')", partition, from, to));
+            return rows;
+        });
+
+        if (moved != null) {
+            logger.info("Analyses partition {} created, {} rows moved from the default partition", partition, moved);
+        }
+    }
+
+    /**
+     * Архивирует и отсоединяет секции, целиком вышедшие за срок хранения
+     */
+    public void archiveExpiredPartitions() {
+        YearMonth oldestRetained = YearMonth.now().minusMonths(retentionMonths);
+
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'analyses' ORDER BY c.relname",
+                String.class);
+
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue; // секция по умолчанию и посторонние таблицы не трогаем
+            }
+
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(oldestRetained)) {
+                continue;
+            }
+
+            try {
+                archivePartition(partition, month.plusMonths(1).atDay(1));
+            } catch (Exception e) {
+                // Секция остается на месте и будет обработана при следующем запуске
+                logger.error("Failed to archive analyses partition {}", partition, e);
+            }
+        }
+    }
+
+    private void archivePartition(String partition, LocalDate upperBound) {
+        Path archive = exportPartition(partition);
+
+        // Проекция последних анализов очищается вместе с удалением секции: при ошибке
+        // откатываются все шаги, и секция с проекцией остаются согласованными
+        List<Long> affectedStocks = transactionTemplate.execute(status -> {
+            List<Long> stockIds = jdbcTemplate.queryForList(
+                    "DELETE FROM latest_analyses WHERE analysis_date < ? RETURNING stock_id",
+                    Long.class, upperBound.atStartOfDay());
+            jdbcTemplate.execute("ALTER TABLE analyses DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            return stockIds;
+        });
+
+        // Индекс в памяти обновляется только после фиксации
+        affectedStocks.forEach(stockId -> latestAnalysisIndex.replace(stockId, null));
+
+        logger.info("Analyses partition {} archived to {} and detached", partition, archive);
+    }
+
+    /**
+     * Выгружает секцию курсором в файл CSV, сжатый gzip
+     * @param partition Имя секции
+     * @return Путь к архиву
+     */
+    private Path exportPartition(String partition) {
+        try {
+            Path directory = Paths.get(archiveDir);
+            Files.createDirectories(directory);
+
+            Path target = directory.resolve(partition + ".csv.gz");
+            Path temp = directory.resolve(partition + ".csv.gz.tmp");
+
+            boolean[] headerWritten = {false};
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+                jdbcTemplate.query(connection -> {
+                    // Потоковое чтение курсором требует отключенного автокоммита
+                    connection.setAutoCommit(false);
+                    var statement = connection.prepareStatement("SELECT * FROM " + partition + " ORDER BY id");
+                    statement.setFetchSize(EXPORT_FETCH_SIZE);
+                    return statement;
+                }, rs -> {
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    int columns = metaData.getColumnCount();
+                    try {
+                        if (!headerWritten[0]) {
+                            for (int i = 1; i <= columns; i++) {
+                                writer.write(i > 1 ? "," : "");
+                                writer.write(metaData.getColumnName(i));
+                            }
+                            writer.write('\n');
+                            headerWritten[0] = true;
+                        }
+                        for (int i = 1; i <= columns; i++) {
+                            writer.write(i > 1 ? "," : "");
+                            writer.write(toCsv(rs.getString(i)));
+                        }
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export analyses partition " + partition, e);
+        }
+    }
+
+    private static String toCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "analyses_" + month.atDay(1).format(PARTITION_SUFFIX);
+    }
+}
@@ -0,0 +1,74 @@
+package com.tradingsystem.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически сверяет количество в позициях с журналом сделок.
+ * Проверка продажи опирается на строку позиции, поэтому расхождение с историей сделок
+ * (ручная правка, сбой, данные до учета сделок) не исправляется автоматически, а сообщается в журнал
+ */
+@Component
+public class HoldingReconciliationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldingReconciliationJob.class);
+
+    /**
+     * Позиции и чистое количество по сделкам сравниваются одним запросом; FULL JOIN находит
+     * и позиции без сделок, и сделки без позиции
+     */
+    private static final String DRIFT_QUERY =
+            "SELECT COALESCE(h.portfolio_id, t.portfolio_id) AS portfolio_id, " +
+            "       COALESCE(h.stock_id, t.stock_id) AS stock_id, " +
+            "       COALESCE(h.quantity, 0) AS holding_quantity, " +
+            "       COALESCE(t.net_quantity, 0) AS ledger_quantity " +
+            "FROM holdings h " +
+            "FULL JOIN (SELECT portfolio_id, stock_id, " +
+            "                  SUM(CASE WHEN type = 'BUY' THEN quantity ELSE -quantity END) AS net_quantity " +
+            "           FROM trades GROUP BY portfolio_id, stock_id) t " +
+            "  ON t.portfolio_id = h.portfolio_id AND t.stock_id = h.stock_id " +
+            "WHERE COALESCE(h.quantity, 0) <> COALESCE(t.net_quantity, 0) " +
+            "ORDER BY 1, 2";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.reconciliation.max-logged:100}")
+    private int maxLogged;
+
+    @Autowired
+    public HoldingReconciliationJob(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Выполняет сверку (по умолчанию в 03:30)
+     * @return Количество позиций с расхождением
+     */
+    @Scheduled(cron = "${app.reconciliation.cron:0 30 3 * * *}")
+    public int reconcile() {
+        long started = System.currentTimeMillis();
+        int[] drifted = {0};
+
+        jdbcTemplate.query(DRIFT_QUERY, rs -> {
+            drifted[0]++;
+            if (drifted[0] <= maxLogged) {
+                logger.warn("Holding drift: portfolio {}, stock {}: holding quantity {}, trade ledger quantity {}",
+                        rs.getLong("portfolio_id"), rs.getLong("stock_id"),
+                        rs.getLong("holding_quantity"), rs.getLong("ledger_quantity"));
+            }
+        });
+
+        long elapsed = System.currentTimeMillis() - started;
+        if (drifted[0] > 0) {
+            logger.warn("Holding reconciliation found {} positions out of line with the trade ledger ({} ms)", drifted[0], elapsed);
+        } else {
+            logger.info("Holding reconciliation: all positions match the trade ledger ({} ms)", elapsed);
+        }
+        return drifted[0];
+    }
+}
@@ -0,0 +1,77 @@
+package com.tradingsystem.scheduler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.exception.CallRejectedException;
+import com.tradingsystem.exception.ExternalServiceException;
+import com.tradingsystem.model.enums.AnalysisPriority;
+import com.tradingsystem.repository.StockRepository;
+import com.tradingsystem.service.interfaces.StockService;
+
+/**
+ * Ночная пакетная генерация анализов для акций из портфелей и списков отслеживания.
+ * Вызовы ChatGPT идут в очереди NIGHTLY_BATCH и уступают интерактивным запросам;
+ * если планировщик вызовов отклоняет запрос, пакет прекращается до следующей ночи.
+ * Ошибки внешних сервисов по отдельной акции (например, AlphaVantage) пропускают только ее
+ */
+@Component
+public class NightlyAnalysisJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(NightlyAnalysisJob.class);
+
+    private final StockRepository stockRepository;
+    private final StockService stockService;
+
+    @Value("${app.analysis.nightly-batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.analysis.nightly-min-age-hours:20}")
+    private int minAgeHours;
+
+    @Autowired
+    public NightlyAnalysisJob(StockRepository stockRepository, StockService stockService) {
+        this.stockRepository = stockRepository;
+        this.stockService = stockService;
+    }
+
+    /**
+     * Обновляет анализы, которые старше заданного возраста (по умолчанию в 03:00)
+     */
+    @Scheduled(cron = "${app.analysis.nightly-cron:0 0 3 * * *}")
+    public void generateAnalyses() {
+        List<String> symbols = stockRepository.findTrackedSymbolsWithoutAnalysisSince(
+                LocalDateTime.now().minusHours(minAgeHours), PageRequest.of(0, batchSize));
+
+        int generated = 0;
+        int failed = 0;
+        for (String symbol : symbols) {
+            if (Thread.currentThread().isInterrupted()) {
+                logger.warn("Nightly analysis batch interrupted after {} of {} stocks", generated, symbols.size());
+                return;
+            }
+            try {
+                stockService.generateAnalysis(symbol, AnalysisPriority.NIGHTLY_BATCH);
+                generated++;
+            } catch (CallRejectedException e) {
+                logger.warn("Nightly analysis batch stopped after {} of {} stocks: {}", generated, symbols.size(), e.getMessage());
+                return;
+            } catch (ExternalServiceException e) {
+                failed++;
+                logger.warn("Nightly analysis skipped stock {}: {}", symbol, e.getMessage());
+            } catch (RuntimeException e) {
+                failed++;
+                logger.error("Nightly analysis failed for stock: {}", symbol, e);
+            }
+        }
+        logger.info("Nightly analysis batch: {} of {} stocks analysed, {} failed", generated, symbols.size(), failed);
+    }
+}
@@ -0,0 +1,36 @@
+package com.tradingsystem.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.service.interfaces.PaperTradingService;
+
+/**
+ * Закрывает простаивающие сессии бумажной торговли и освобождает их ленты котировок
+ */
+@Component
+public class PaperSessionCleanupJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaperSessionCleanupJob.class);
+
+    private final PaperTradingService paperTradingService;
+
+    @Autowired
+    public PaperSessionCleanupJob(PaperTradingService paperTradingService) {
+        this.paperTradingService = paperTradingService;
+    }
+
+    /**
+     * Проверяет сессии (по умолчанию раз в минуту)
+     */
+    @Scheduled(fixedDelayString = "${app.paper.cleanup-interval:60000}")
+    public void closeIdleSessions() {
+        int closed = paperTradingService.closeIdleSessions();
+        if (closed > 0) {
+            logger.info("Closed {} idle paper-trading sessions", closed);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.tradingsystem.scheduler;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.service.index.PerformanceCache;
+import com.tradingsystem.service.index.PortfolioLeaderboard;
+import com.tradingsystem.service.interfaces.PortfolioHistoryService;
+
+/**
+ * Ежедневно досчитывает историю оценок всех портфелей за завершенные торговые дни
+ */
+@Component
+public class PortfolioHistoryJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioHistoryJob.class);
+
+    private final PortfolioRepository portfolioRepository;
+    private final PortfolioHistoryService portfolioHistoryService;
+    private final PerformanceCache performanceCache;
+    private final PortfolioLeaderboard portfolioLeaderboard;
+
+    @Autowired
+    public PortfolioHistoryJob(PortfolioRepository portfolioRepository, PortfolioHistoryService portfolioHistoryService,
+                               PerformanceCache performanceCache, PortfolioLeaderboard portfolioLeaderboard) {
+        this.portfolioRepository = portfolioRepository;
+        this.portfolioHistoryService = portfolioHistoryService;
+        this.performanceCache = performanceCache;
+        this.portfolioLeaderboard = portfolioLeaderboard;
+    }
+
+    /**
+     * Обновляет историю оценок (по умолчанию в 01:00)
+     */
+    @Scheduled(cron = "${app.performance.history-cron:0 0 1 * * *}")
+    public void updateHistory() {
+        List<Long> portfolioIds = portfolioRepository.findAllIds();
+        int days = 0;
+
+        for (Long portfolioId : portfolioIds) {
+            try {
+                days += portfolioHistoryService.updateHistory(portfolioId);
+            } catch (Exception e) {
+                logger.error("Failed to update valuation history for portfolio {}", portfolioId, e);
+            }
+        }
+
+        // В кэшированной эффективности хранится график стоимости, который только что дополнился
+        if (days > 0) {
+            performanceCache.invalidateAll();
+        }
+
+        // Базовые оценки рейтинга сдвигаются на только что рассчитанный день
+        portfolioLeaderboard.rebuild();
+
+        logger.info("Valuation history updated: {} portfolios, {} days", portfolioIds.size(), days);
+    }
+}
@@ -0,0 +1,70 @@
+package com.tradingsystem.scheduler;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.service.index.PositionBook;
+
+/**
+ * Периодически сохраняет измененные итоги портфелей из книги позиций
+ * пакетным обновлением таблицы portfolios.
+ * Сохранение сущности портфеля не затрагивает total_value, поэтому записанный здесь итог
+ * не перезаписывается значением из устаревшей копии портфеля
+ */
+@Component
+public class PortfolioValueFlushJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioValueFlushJob.class);
+
+    private final PositionBook positionBook;
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+
+    @Value("${app.valuation.flush-batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public PortfolioValueFlushJob(PositionBook positionBook, JdbcTemplate jdbcTemplate, CacheManager cacheManager) {
+        this.positionBook = positionBook;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Сохраняет накопленные изменения (по умолчанию каждые 5 секунд)
+     */
+    @Scheduled(fixedDelayString = "${app.valuation.flush-interval:5000}")
+    public void flush() {
+        Map<Long, BigDecimal> batch;
+        while (!(batch = positionBook.drainDirty(batchSize)).isEmpty()) {
+            List<Object[]> args = new ArrayList<>(batch.size());
+            batch.forEach((portfolioId, totalValue) -> args.add(new Object[]{totalValue, portfolioId}));
+
+            try {
+                jdbcTemplate.batchUpdate("UPDATE portfolios SET total_value = ? WHERE id = ?", args);
+            } catch (Exception e) {
+                logger.error("Failed to flush {} portfolio values, will retry", batch.size(), e);
+                positionBook.markDirty(batch.keySet());
+                return;
+            }
+
+            Cache cache = cacheManager.getCache("portfolios");
+            if (cache != null) {
+                batch.keySet().forEach(cache::evict);
+            }
+            logger.debug("Flushed {} portfolio values", batch.size());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.tradingsystem.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.service.interfaces.QuoteStreamService;
+
+/**
+ * Отправляет подписчикам потока котировок накопленные изменения цен и поддерживающие сообщения
+ */
+@Component
+public class QuoteStreamFlushJob {
+
+    private final QuoteStreamService quoteStreamService;
+
+    @Autowired
+    public QuoteStreamFlushJob(QuoteStreamService quoteStreamService) {
+        this.quoteStreamService = quoteStreamService;
+    }
+
+    /**
+     * Рассылает кадры изменений (по умолчанию раз в 250 мс)
+     */
+    @Scheduled(fixedDelayString = "${app.quotes.flush-interval:250}")
+    public void flush() {
+        quoteStreamService.flush();
+    }
+
+    /**
+     * Отмечает простаивающие подключения для отправки поддерживающего сообщения (по умолчанию раз в 15 секунд)
+     */
+    @Scheduled(fixedDelayString = "${app.quotes.heartbeat-interval:15000}")
+    public void heartbeat() {
+        quoteStreamService.heartbeat();
+    }
+}
@@ -0,0 +1,59 @@
+package com.tradingsystem.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.service.journal.TradeJournal;
+import com.tradingsystem.service.journal.TradeJournalReplayer;
+
+/**
+ * Обслуживание журнала сделок: периодический сброс на диск и снимки позиций,
+ * ограничивающие объем журнала, который читается при восстановлении
+ */
+@Component
+public class TradeJournalJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeJournalJob.class);
+
+    private final TradeJournal journal;
+    private final TradeJournalReplayer replayer;
+
+    private long lastSnapshotSequence = -1;
+
+    @Autowired
+    public TradeJournalJob(TradeJournal journal, TradeJournalReplayer replayer) {
+        this.journal = journal;
+        this.replayer = replayer;
+    }
+
+    /**
+     * Сбрасывает записи журнала на диск (по умолчанию каждую секунду)
+     */
+    @Scheduled(fixedDelayString = "${app.journal.flush-interval:1000}")
+    public void flush() {
+        try {
+            journal.flush();
+        } catch (Exception e) {
+            logger.error("Failed to flush trade journal", e);
+        }
+    }
+
+    /**
+     * Сохраняет снимок позиций, если журнал изменился (по умолчанию каждый час)
+     */
+    @Scheduled(cron = "${app.journal.snapshot-cron:0 0 * * * *}")
+    public void snapshot() {
+        if (!journal.isEnabled() || journal.getLastSequence() == lastSnapshotSequence) {
+            return;
+        }
+        try {
+            journal.flush();
+            lastSnapshotSequence = replayer.snapshot();
+        } catch (Exception e) {
+            logger.error("Failed to write journal snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.tradingsystem.service.alert;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.service.index.PriceAlertIndex;
+
+/**
+ * Очередь уведомлений о сработавших ценовых оповещениях.
+ * Индекс снимает пересеченные оповещения в потоке обновления цены и кладет их в очередь;
+ * поток рассылки забирает их пакетами, одним пакетным UPDATE отмечает сработавшими и только
+ * отмеченные передает слушателям. Очередь не ограничена по размеру: каждое активное оповещение
+ * попадает в нее не более одного раза, поэтому ее размер ограничен числом оповещений в индексе
+ */
+@Component
+public class PriceAlertDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceAlertDispatcher.class);
+
+    private static final String MARK_TRIGGERED_SQL = "UPDATE watchlist_items SET alert_triggered_at = ?, alert_triggered_price = ? " +
+            "WHERE id = ? AND alert_triggered_at IS NULL AND alert_direction = ? " +
+            "AND ROUND(CAST(price_target AS NUMERIC), 4) = ?";
+    private static final String OWNERS_SQL = "SELECT id, user_id FROM watchlist_items WHERE id = ANY (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    private final PriceAlertIndex priceAlertIndex;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final List<Consumer<List<PriceAlertNotification>>> listeners = new CopyOnWriteArrayList<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    @Value("${app.alerts.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public PriceAlertDispatcher(JdbcTemplate jdbcTemplate, CacheManager cacheManager, PriceAlertIndex priceAlertIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheManager = cacheManager;
+        this.priceAlertIndex = priceAlertIndex;
+        this.worker = new Thread(this::run, "price-alert-dispatcher");
+        this.worker.setDaemon(true);
+        priceAlertIndex.addListener(this::enqueue);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Подписывает на уведомления. Слушатель вызывается в потоке рассылки
+     * @param listener Слушатель
+     */
+    public void addListener(Consumer<List<PriceAlertNotification>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Количество оповещений, ожидающих рассылки
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    private void enqueue(Long stockId, BigDecimal price, List<PriceAlertIndex.FiredAlert> alerts) {
+        LocalDateTime now = LocalDateTime.now();
+        for (PriceAlertIndex.FiredAlert alert : alerts) {
+            queue.add(new Pending(alert, stockId, price, now));
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Pending first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, Math.max(1, batchSize) - 1);
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Неотмеченные оповещения возвращаются в индекс и сработают на следующей цене
+                logger.error("Failed to dispatch {} price alerts, returning them to the index", batch.size(), e);
+                batch.forEach(pending -> priceAlertIndex.onAlertCreated(pending.alert.alertId(), pending.stockId,
+                        pending.alert.direction(), pending.alert.targetPrice()));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Отмечает пакет сработавшим и рассылает уведомления. Условие UPDATE пропускает оповещения,
+     * которые после снятия из индекса были удалены, перенастроены или уже отмечены
+     */
+    private void dispatch(List<Pending> batch) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            args.add(new Object[]{Timestamp.valueOf(pending.firedAt), pending.price, pending.alert.alertId(),
+                    pending.alert.direction().name(), pending.alert.targetPrice()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(MARK_TRIGGERED_SQL, args);
+
+        List<Pending> marked = new ArrayList<>(batch.size());
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0) {
+                marked.add(batch.get(i));
+            }
+        }
+        if (marked.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Long> owners = findOwners(marked);
+        List<PriceAlertNotification> notifications = new ArrayList<>(marked.size());
+        for (Pending pending : marked) {
+            Long userId = owners.get(pending.alert.alertId());
+            if (userId == null) {
+                continue;
+            }
+            notifications.add(new PriceAlertNotification(pending.alert.alertId(), userId, pending.stockId,
+                    pending.alert.direction(), pending.alert.targetPrice(), pending.price, pending.firedAt));
+            evictCaches(userId, pending.stockId);
+        }
+
+        logger.debug("Dispatched {} price alerts", notifications.size());
+        for (Consumer<List<PriceAlertNotification>> listener : listeners) {
+            try {
+                listener.accept(notifications);
+            } catch (RuntimeException e) {
+                logger.error("Price alert listener failed for {} notifications", notifications.size(), e);
+            }
+        }
+    }
+
+    private Map<Long, Long> findOwners(List<Pending> marked) {
+        Long[] ids = marked.stream().map(pending -> pending.alert.alertId()).toArray(Long[]::new);
+        Map<Long, Long> owners = new HashMap<>(ids.length * 2);
+        jdbcTemplate.query(OWNERS_SQL, statement -> {
+            Array array = statement.getConnection().createArrayOf("bigint", ids);
+            statement.setArray(1, array);
+        }, row -> {
+            owners.put(row.getLong(1), row.getLong(2));
+        });
+        return owners;
+    }
+
+    private void evictCaches(Long userId, Long stockId) {
+        Cache watchlist = cacheManager.getCache("watchlist");
+        if (watchlist != null) {
+            watchlist.evict(userId);
+        }
+        Cache item = cacheManager.getCache("watchlist_item");
+        if (item != null) {
+            item.evict(userId + "_" + stockId);
+        }
+    }
+
+    private record Pending(PriceAlertIndex.FiredAlert alert, Long stockId, BigDecimal price, LocalDateTime firedAt) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.tradingsystem.service.alert;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.tradingsystem.model.enums.AlertDirection;
+
+/**
+ * Оповещение о достижении целевой цены, отмеченное сработавшим в базе данных
+ * @param alertId ID элемента списка отслеживания
+ * @param userId ID пользователя
+ * @param stockId ID акции
+ * @param direction Направление
+ * @param targetPrice Целевая цена
+ * @param price Цена срабатывания
+ * @param triggeredAt Время срабатывания
+ */
+public record PriceAlertNotification(long alertId, long userId, long stockId, AlertDirection direction,
+                                     BigDecimal targetPrice, BigDecimal price, LocalDateTime triggeredAt) {
+}
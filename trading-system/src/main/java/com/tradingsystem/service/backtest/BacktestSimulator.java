@@ -0,0 +1,139 @@
+package com.tradingsystem.service.backtest;
+
+/**
+ * Моделирование торговли одной акцией по дневным барам.
+ * На закрытии бара стратегия выставляет заявки; они исполняются по цене открытия следующего бара
+ * по модели исполнения, после чего счет оценивается по цене закрытия. Заявки последнего бара
+ * не исполняются. Прогон использует только локальное состояние и безопасен для параллельного запуска
+ */
+public final class BacktestSimulator {
+
+    private BacktestSimulator() {
+    }
+
+    /**
+     * Выполняет прогон
+     * @param bars Котировки
+     * @param handler Обработчик баров стратегии
+     * @param fillModel Модель исполнения
+     * @param initialCash Начальный капитал
+     * @return Кривая капитала и статистика
+     */
+    public static SimulationResult run(BarSeries bars, BarHandler handler, FillModel fillModel, double initialCash) {
+        Account account = new Account(fillModel, initialCash);
+        int size = bars.size();
+        double[] equity = new double[size];
+        double peak = initialCash;
+        double maxDrawdown = 0;
+
+        for (int i = 0; i < size; i++) {
+            double open = bars.open(i);
+            account.fill(Double.isNaN(open) || open <= 0 ? bars.close(i) : open);
+
+            account.markPrice = bars.close(i);
+            equity[i] = account.equity();
+            peak = Math.max(peak, equity[i]);
+            if (peak > 0) {
+                maxDrawdown = Math.max(maxDrawdown, (peak - equity[i]) / peak);
+            }
+
+            handler.onBar(i, account);
+        }
+        return new SimulationResult(equity, initialCash, account.cash, account.position,
+                account.tradeCount, account.totalCommission, maxDrawdown);
+    }
+
+    /**
+     * Моделируемый счет: одна акция, без коротких позиций и заемных средств
+     */
+    private static final class Account implements OrderContext {
+        private final FillModel fillModel;
+        private double cash;
+        private int position;
+        private double markPrice;
+        private int pendingQuantity;
+        private int tradeCount;
+        private double totalCommission;
+
+        private Account(FillModel fillModel, double cash) {
+            this.fillModel = fillModel;
+            this.cash = cash;
+        }
+
+        @Override
+        public int position() {
+            return position;
+        }
+
+        @Override
+        public double cash() {
+            return cash;
+        }
+
+        @Override
+        public double equity() {
+            return cash + position * markPrice;
+        }
+
+        @Override
+        public int affordableQuantity(double price) {
+            double fillPrice = fillModel.fillPrice(price, true);
+            if (fillPrice <= 0 || cash <= 0) {
+                return 0;
+            }
+            int quantity = (int) Math.min(Integer.MAX_VALUE, Math.floor(cash / (fillPrice * (1 + fillModel.commissionRate()))));
+            while (quantity > 0 && quantity * fillPrice + fillModel.commission(quantity * fillPrice) > cash) {
+                quantity--;
+            }
+            return quantity;
+        }
+
+        @Override
+        public void buy(int quantity) {
+            if (quantity > 0) {
+                pendingQuantity += quantity;
+            }
+        }
+
+        @Override
+        public void sell(int quantity) {
+            if (quantity > 0) {
+                pendingQuantity -= quantity;
+            }
+        }
+
+        /**
+         * Исполняет накопленную заявку (покупки и продажи одного бара взаимно погашаются)
+         */
+        private void fill(double price) {
+            int quantity = pendingQuantity;
+            pendingQuantity = 0;
+            if (quantity > 0) {
+                quantity = Math.min(quantity, affordableQuantity(price));
+                if (quantity == 0) {
+                    return;
+                }
+                double notional = quantity * fillModel.fillPrice(price, true);
+                double commission = fillModel.commission(notional);
+                cash -= notional + commission;
+                position += quantity;
+                record(commission);
+            } else if (quantity < 0) {
+                quantity = Math.min(-quantity, position);
+                if (quantity == 0) {
+                    return;
+                }
+                double notional = quantity * fillModel.fillPrice(price, false);
+                double commission = fillModel.commission(notional);
+                cash += notional - commission;
+                position -= quantity;
+                record(commission);
+            }
+        }
+
+        private void record(double commission) {
+            totalCommission += commission;
+            tradeCount++;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.tradingsystem.service.backtest;
+
+import java.util.Map;
+
+/**
+ * Стратегия для бэктестинга. Реализации - компоненты Spring, доступные по имени.
+ * Фабрика не хранит состояние прогона: для каждой пары (ряд котировок, набор параметров)
+ * создается отдельный обработчик баров, поэтому прогоны выполняются параллельно
+ */
+public interface BacktestStrategy {
+
+    /**
+     * Имя стратегии в запросе
+     */
+    String getName();
+
+    /**
+     * Параметры стратегии и их значения по умолчанию
+     */
+    Map<String, Double> getDefaultParameters();
+
+    /**
+     * Создает обработчик баров для прогона
+     * @param bars Котировки (индикаторы по ним можно рассчитать заранее)
+     * @param parameters Параметры (все ключи из {@link #getDefaultParameters()})
+     * @return Обработчик баров
+     */
+    BarHandler create(BarSeries bars, Map<String, Double> parameters);
+}
@@ -0,0 +1,15 @@
+package com.tradingsystem.service.backtest;
+
+/**
+ * Экземпляр стратегии для одного прогона: получает бары по порядку и выставляет заявки
+ */
+@FunctionalInterface
+public interface BarHandler {
+
+    /**
+     * Вызывается после закрытия бара
+     * @param index Номер бара в ряду
+     * @param context Счет и прием заявок
+     */
+    void onBar(int index, OrderContext context);
+}
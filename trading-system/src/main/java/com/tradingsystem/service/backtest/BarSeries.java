@@ -0,0 +1,121 @@
+package com.tradingsystem.service.backtest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Дневные котировки одной акции в примитивных массивах (индекс - номер дня в хронологическом порядке).
+ * Массивы только читаются, поэтому один ряд разделяют все прогоны по сетке параметров
+ */
+public final class BarSeries {
+
+    private final Long stockId;
+    private final String symbol;
+    private final int[] epochDays;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+
+    public BarSeries(Long stockId, String symbol, int[] epochDays, double[] open, double[] high,
+                     double[] low, double[] close, long[] volume) {
+        int length = epochDays.length;
+        if (open.length != length || high.length != length || low.length != length
+                || close.length != length || volume.length != length) {
+            throw new IllegalArgumentException("Bar arrays must have the same length");
+        }
+        this.stockId = stockId;
+        this.symbol = symbol;
+        this.epochDays = epochDays;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    /**
+     * Раскладывает строки запроса баров по массивам
+     * @param stockId ID акции
+     * @param symbol Символ акции
+     * @param rows Строки [date, open, high, low, close, volume] в хронологическом порядке
+     */
+    public static BarSeries fromRows(Long stockId, String symbol, List<Object[]> rows) {
+        int size = rows.size();
+        int[] epochDays = new int[size];
+        double[] open = new double[size];
+        double[] high = new double[size];
+        double[] low = new double[size];
+        double[] close = new double[size];
+        long[] volume = new long[size];
+        for (int i = 0; i < size; i++) {
+            Object[] row = rows.get(i);
+            epochDays[i] = (int) ((LocalDate) row[0]).toEpochDay();
+            open[i] = ((BigDecimal) row[1]).doubleValue();
+            high[i] = ((BigDecimal) row[2]).doubleValue();
+            low[i] = ((BigDecimal) row[3]).doubleValue();
+            close[i] = ((BigDecimal) row[4]).doubleValue();
+            volume[i] = (Long) row[5];
+        }
+        return new BarSeries(stockId, symbol, epochDays, open, high, low, close, volume);
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Количество баров
+     */
+    public int size() {
+        return close.length;
+    }
+
+    public LocalDate date(int index) {
+        return LocalDate.ofEpochDay(epochDays[index]);
+    }
+
+    public double open(int index) {
+        return open[index];
+    }
+
+    public double high(int index) {
+        return high[index];
+    }
+
+    public double low(int index) {
+        return low[index];
+    }
+
+    public double close(int index) {
+        return close[index];
+    }
+
+    public long volume(int index) {
+        return volume[index];
+    }
+
+    /**
+     * Цены закрытия для расчета индикаторов (массив не копируется и не должен изменяться)
+     */
+    public double[] closes() {
+        return close;
+    }
+
+    /**
+     * Номер последнего бара не позже указанного дня
+     * @param epochDay День (от 1970-01-01)
+     * @return Номер бара или -1, если все бары позже
+     */
+    public int floorIndex(int epochDay) {
+        int index = Arrays.binarySearch(epochDays, epochDay);
+        return index >= 0 ? index : -index - 2;
+    }
+}
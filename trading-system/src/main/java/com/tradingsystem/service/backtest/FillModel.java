@@ -0,0 +1,34 @@
+package com.tradingsystem.service.backtest;
+
+/**
+ * Модель исполнения заявок: проскальзывание от цены открытия и комиссия с оборота
+ * @param commissionRate Комиссия в долях оборота (0.001 = 0.1%)
+ * @param minCommission Минимальная комиссия за сделку
+ * @param slippageBps Проскальзывание в базисных пунктах (покупка дороже, продажа дешевле)
+ */
+public record FillModel(double commissionRate, double minCommission, double slippageBps) {
+
+    public FillModel {
+        if (commissionRate < 0 || minCommission < 0 || slippageBps < 0) {
+            throw new IllegalArgumentException("Commission and slippage must not be negative");
+        }
+    }
+
+    /**
+     * Цена исполнения с учетом проскальзывания
+     * @param price Цена открытия
+     * @param buy Покупка или продажа
+     */
+    public double fillPrice(double price, boolean buy) {
+        double slippage = price * slippageBps / 10_000;
+        return buy ? price + slippage : price - slippage;
+    }
+
+    /**
+     * Комиссия за сделку
+     * @param notional Оборот сделки
+     */
+    public double commission(double notional) {
+        return notional > 0 ? Math.max(minCommission, notional * commissionRate) : 0;
+    }
+}
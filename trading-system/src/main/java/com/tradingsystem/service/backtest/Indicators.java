@@ -0,0 +1,123 @@
+package com.tradingsystem.service.backtest;
+
+import java.util.Arrays;
+
+/**
+ * Технические индикаторы по ряду цен. Каждый индикатор считается за один проход и возвращает
+ * массив той же длины; значения до накопления периода - NaN
+ */
+public final class Indicators {
+
+    private Indicators() {
+    }
+
+    /**
+     * Простая скользящая средняя
+     * @param values Ряд значений
+     * @param period Период
+     */
+    public static double[] sma(double[] values, int period) {
+        double[] result = nanArray(values.length);
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            if (i >= period) {
+                sum -= values[i - period];
+            }
+            if (i >= period - 1) {
+                result[i] = sum / period;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Экспоненциальная скользящая средняя (начальное значение - SMA за первый период).
+     * Значения NaN во входном ряду пропускаются до первого числа
+     * @param values Ряд значений
+     * @param period Период
+     */
+    public static double[] ema(double[] values, int period) {
+        double[] result = nanArray(values.length);
+        double alpha = 2.0 / (period + 1);
+        int start = 0;
+        while (start < values.length && Double.isNaN(values[start])) {
+            start++;
+        }
+        if (values.length - start < period) {
+            return result;
+        }
+
+        double sum = 0;
+        for (int i = start; i < start + period; i++) {
+            sum += values[i];
+        }
+        double ema = sum / period;
+        result[start + period - 1] = ema;
+        for (int i = start + period; i < values.length; i++) {
+            ema += alpha * (values[i] - ema);
+            result[i] = ema;
+        }
+        return result;
+    }
+
+    /**
+     * Индекс относительной силы со сглаживанием Уайлдера (как RSI в Alpha Vantage)
+     * @param close Цены закрытия
+     * @param period Период (обычно 14)
+     */
+    public static double[] rsi(double[] close, int period) {
+        double[] result = nanArray(close.length);
+        if (close.length <= period) {
+            return result;
+        }
+
+        double gain = 0;
+        double loss = 0;
+        for (int i = 1; i <= period; i++) {
+            double change = close[i] - close[i - 1];
+            gain += Math.max(change, 0);
+            loss += Math.max(-change, 0);
+        }
+        gain /= period;
+        loss /= period;
+        result[period] = rsiValue(gain, loss);
+
+        for (int i = period + 1; i < close.length; i++) {
+            double change = close[i] - close[i - 1];
+            gain = (gain * (period - 1) + Math.max(change, 0)) / period;
+            loss = (loss * (period - 1) + Math.max(-change, 0)) / period;
+            result[i] = rsiValue(gain, loss);
+        }
+        return result;
+    }
+
+    /**
+     * Линия MACD (разность быстрой и медленной EMA)
+     * @param close Цены закрытия
+     * @param fastPeriod Период быстрой EMA (обычно 12)
+     * @param slowPeriod Период медленной EMA (обычно 26)
+     */
+    public static double[] macd(double[] close, int fastPeriod, int slowPeriod) {
+        double[] fast = ema(close, fastPeriod);
+        double[] slow = ema(close, slowPeriod);
+        double[] result = new double[close.length];
+        for (int i = 0; i < close.length; i++) {
+            result[i] = fast[i] - slow[i];
+        }
+        return result;
+    }
+
+    private static double rsiValue(double averageGain, double averageLoss) {
+        if (averageLoss == 0) {
+            return averageGain == 0 ? 50 : 100;
+        }
+        return 100 - 100 / (1 + averageGain / averageLoss);
+    }
+
+    private static double[] nanArray(int length) {
+        double[] result = new double[length];
+        Arrays.fill(result, Double.NaN);
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package com.tradingsystem.service.backtest;
+
+/**
+ * Состояние моделируемого счета, доступное стратегии, и прием заявок.
+ * Заявки исполняются по цене открытия следующего бара с учетом проскальзывания и комиссии;
+ * короткие позиции не поддерживаются
+ */
+public interface OrderContext {
+
+    /**
+     * Количество акций в позиции
+     */
+    int position();
+
+    /**
+     * Свободные денежные средства
+     */
+    double cash();
+
+    /**
+     * Стоимость счета по цене закрытия текущего бара
+     */
+    double equity();
+
+    /**
+     * Сколько акций можно купить на свободные средства по цене с учетом проскальзывания и комиссии
+     * @param price Ожидаемая цена
+     */
+    int affordableQuantity(double price);
+
+    /**
+     * Выставляет заявку на покупку (количество уменьшается до доступного на момент исполнения)
+     * @param quantity Количество акций
+     */
+    void buy(int quantity);
+
+    /**
+     * Выставляет заявку на продажу (количество уменьшается до размера позиции)
+     * @param quantity Количество акций
+     */
+    void sell(int quantity);
+}
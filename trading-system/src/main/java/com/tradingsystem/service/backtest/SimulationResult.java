@@ -0,0 +1,29 @@
+package com.tradingsystem.service.backtest;
+
+/**
+ * Результат одного прогона
+ * @param equity Стоимость счета на закрытии каждого бара
+ * @param initialCash Начальный капитал
+ * @param finalCash Денежные средства в конце
+ * @param finalPosition Позиция в конце
+ * @param tradeCount Количество исполненных сделок
+ * @param totalCommission Уплаченная комиссия
+ * @param maxDrawdown Максимальная просадка (доля от пика, 0.25 = 25%)
+ */
+public record SimulationResult(double[] equity, double initialCash, double finalCash, int finalPosition,
+                               int tradeCount, double totalCommission, double maxDrawdown) {
+
+    /**
+     * Стоимость счета в конце
+     */
+    public double finalEquity() {
+        return equity.length > 0 ? equity[equity.length - 1] : initialCash;
+    }
+
+    /**
+     * Доходность за период (доля)
+     */
+    public double totalReturn() {
+        return initialCash > 0 ? finalEquity() / initialCash - 1 : 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.tradingsystem.service.backtest.strategy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.service.backtest.BacktestStrategy;
+import com.tradingsystem.service.backtest.BarHandler;
+import com.tradingsystem.service.backtest.BarSeries;
+import com.tradingsystem.service.backtest.Indicators;
+
+/**
+ * Пересечение скользящих средних: покупка, когда быстрая средняя пересекает медленную снизу вверх,
+ * продажа при обратном пересечении
+ */
+@Component
+public class SmaCrossoverStrategy implements BacktestStrategy {
+
+    @Override
+    public String getName() {
+        return "sma-crossover";
+    }
+
+    @Override
+    public Map<String, Double> getDefaultParameters() {
+        Map<String, Double> parameters = new LinkedHashMap<>();
+        parameters.put("fastPeriod", 20.0);
+        parameters.put("slowPeriod", 50.0);
+        return parameters;
+    }
+
+    @Override
+    public BarHandler create(BarSeries bars, Map<String, Double> parameters) {
+        int fastPeriod = (int) Math.round(parameters.get("fastPeriod"));
+        int slowPeriod = (int) Math.round(parameters.get("slowPeriod"));
+        if (fastPeriod < 1 || slowPeriod <= fastPeriod) {
+            throw new IllegalArgumentException("Periods must satisfy 1 <= fastPeriod < slowPeriod");
+        }
+        double[] close = bars.closes();
+        double[] fast = Indicators.sma(close, fastPeriod);
+        double[] slow = Indicators.sma(close, slowPeriod);
+
+        return (index, context) -> {
+            if (index == 0 || Double.isNaN(slow[index - 1])) {
+                return;
+            }
+            boolean crossedUp = fast[index - 1] <= slow[index - 1] && fast[index] > slow[index];
+            boolean crossedDown = fast[index - 1] >= slow[index - 1] && fast[index] < slow[index];
+            if (crossedUp && context.position() == 0) {
+                context.buy(context.affordableQuantity(close[index]));
+            } else if (crossedDown && context.position() > 0) {
+                context.sell(context.position());
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.tradingsystem.service.backtest.strategy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.model.enums.TrendType;
+import com.tradingsystem.service.backtest.BacktestStrategy;
+import com.tradingsystem.service.backtest.BarHandler;
+import com.tradingsystem.service.backtest.BarSeries;
+import com.tradingsystem.service.backtest.Indicators;
+
+/**
+ * Покупка на откате в восходящем тренде: вход, когда тренд UPTREND и RSI ниже порога входа,
+ * выход, когда RSI выше порога выхода или тренд сменился на DOWNTREND.
+ * Тренд определяется по тем же данным, что и в анализе акции: MACD относительно сигнальной линии
+ * и цена относительно скользящей средней
+ */
+@Component
+public class TrendRsiStrategy implements BacktestStrategy {
+
+    @Override
+    public String getName() {
+        return "trend-rsi";
+    }
+
+    @Override
+    public Map<String, Double> getDefaultParameters() {
+        Map<String, Double> parameters = new LinkedHashMap<>();
+        parameters.put("rsiPeriod", 14.0);
+        parameters.put("rsiEntry", 40.0);
+        parameters.put("rsiExit", 70.0);
+        parameters.put("trendPeriod", 50.0);
+        parameters.put("macdFast", 12.0);
+        parameters.put("macdSlow", 26.0);
+        parameters.put("macdSignal", 9.0);
+        parameters.put("allocationPercent", 100.0);
+        return parameters;
+    }
+
+    @Override
+    public BarHandler create(BarSeries bars, Map<String, Double> parameters) {
+        double[] close = bars.closes();
+        double[] rsi = Indicators.rsi(close, period(parameters, "rsiPeriod"));
+        double[] trendAverage = Indicators.sma(close, period(parameters, "trendPeriod"));
+        double[] macd = Indicators.macd(close, period(parameters, "macdFast"), period(parameters, "macdSlow"));
+        double[] signal = Indicators.ema(macd, period(parameters, "macdSignal"));
+        double rsiEntry = parameters.get("rsiEntry");
+        double rsiExit = parameters.get("rsiExit");
+        double allocation = Math.min(Math.max(parameters.get("allocationPercent"), 0), 100) / 100;
+
+        return (index, context) -> {
+            if (Double.isNaN(rsi[index]) || Double.isNaN(trendAverage[index]) || Double.isNaN(signal[index])) {
+                return;
+            }
+            TrendType trend = trend(close[index], trendAverage[index], macd[index], signal[index]);
+
+            if (context.position() == 0) {
+                if (trend == TrendType.UPTREND && rsi[index] < rsiEntry) {
+                    int affordable = context.affordableQuantity(close[index]);
+                    context.buy((int) Math.floor(affordable * allocation));
+                }
+            } else if (rsi[index] > rsiExit || trend == TrendType.DOWNTREND) {
+                context.sell(context.position());
+            }
+        };
+    }
+
+    private TrendType trend(double price, double average, double macd, double signal) {
+        if (macd > signal && price > average) {
+            return TrendType.UPTREND;
+        }
+        if (macd < signal && price < average) {
+            return TrendType.DOWNTREND;
+        }
+        return TrendType.SIDEWAYS;
+    }
+
+    private int period(Map<String, Double> parameters, String name) {
+        int period = (int) Math.round(parameters.get(name));
+        if (period < 1) {
+            throw new IllegalArgumentException("Parameter " + name + " must be a positive period");
+        }
+        return period;
+    }
+}
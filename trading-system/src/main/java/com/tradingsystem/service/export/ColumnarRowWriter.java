@@ -0,0 +1,249 @@
+package com.tradingsystem.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tradingsystem.util.FixedPoint;
+
+/**
+ * Запись выгрузки в компактный колоночный двоичный формат (TSCF).
+ * Строки копятся группами; группа записывается по столбцам, поэтому однотипные значения
+ * лежат рядом и хорошо сжимаются. В памяти держится только одна группа строк.
+ *
+ * Формат (varint - беззнаковый LEB128, zigzag - знаковый varint):
+ * <pre>
+ * файл:    "TSCF" версия(1 байт) varint(число столбцов) {varint(длина имени) имя(UTF-8) код_типа(1 байт)}...
+ *          {группа}... varint(0)
+ * группа:  varint(число строк) {varint(длина блока) блок_столбца}...
+ * блок:    флаг_пустых(1 байт) [битовая карта пустых значений, бит i = строка i]
+ *          числа, дата и время: zigzag(разность с предыдущим непустым значением) на непустую строку;
+ *          DECIMAL - в единицах 10^-4, TIMESTAMP - микросекунды UTC, DATE - дни от эпохи
+ *          строки: varint(размер словаря) {varint(длина) значение(UTF-8)}... varint(номер в словаре) на непустую строку
+ * </pre>
+ */
+public class ColumnarRowWriter implements RowWriter {
+
+    private static final byte[] MAGIC = {'T', 'S', 'C', 'F'};
+    private static final int VERSION = 1;
+
+    private final OutputStream output;
+    private final List<ExportColumn> columns;
+    private final int rowGroupSize;
+    private final long[][] numbers;
+    private final String[][] strings;
+    private final boolean[][] nulls;
+    private final ByteSink block = new ByteSink();
+    private final ByteSink group = new ByteSink();
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private int rows;
+
+    public ColumnarRowWriter(OutputStream output, List<ExportColumn> columns, int rowGroupSize) throws IOException {
+        this.output = output;
+        this.columns = List.copyOf(columns);
+        this.rowGroupSize = rowGroupSize;
+        this.numbers = new long[columns.size()][];
+        this.strings = new String[columns.size()][];
+        this.nulls = new boolean[columns.size()][rowGroupSize];
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).type() == ExportColumn.Type.STRING) {
+                strings[i] = new String[rowGroupSize];
+            } else {
+                numbers[i] = new long[rowGroupSize];
+            }
+        }
+        writeHeader();
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values, got " + values.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            nulls[i][rows] = value == null;
+            if (value == null) {
+                continue;
+            }
+            switch (columns.get(i).type()) {
+                case INT64 -> numbers[i][rows] = ((Number) value).longValue();
+                case DECIMAL -> numbers[i][rows] = FixedPoint.of((BigDecimal) value);
+                case TIMESTAMP -> numbers[i][rows] = toEpochMicros((LocalDateTime) value);
+                case DATE -> numbers[i][rows] = ((LocalDate) value).toEpochDay();
+                case STRING -> strings[i][rows] = value instanceof Enum<?> constant ? constant.name() : value.toString();
+            }
+        }
+        if (++rows == rowGroupSize) {
+            flushGroup();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        flushGroup();
+        group.reset();
+        group.writeVarint(0);
+        group.writeTo(output);
+        output.flush();
+    }
+
+    private void writeHeader() throws IOException {
+        group.reset();
+        group.write(MAGIC, 0, MAGIC.length);
+        group.write(VERSION);
+        group.writeVarint(columns.size());
+        for (ExportColumn column : columns) {
+            group.writeString(column.name());
+            group.write(column.type().getCode());
+        }
+        group.writeTo(output);
+    }
+
+    private void flushGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        group.reset();
+        group.writeVarint(rows);
+        for (int i = 0; i < columns.size(); i++) {
+            block.reset();
+            encodeColumn(i);
+            group.writeVarint(block.size());
+            group.write(block.bytes(), 0, block.size());
+        }
+        // Запись блокируется, пока клиент не примет предыдущие данные
+        group.writeTo(output);
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (strings[i] != null) {
+                Arrays.fill(strings[i], 0, rows, null);
+            }
+        }
+        rows = 0;
+    }
+
+    private void encodeColumn(int column) {
+        boolean[] columnNulls = nulls[column];
+        boolean hasNulls = false;
+        for (int row = 0; row < rows && !hasNulls; row++) {
+            hasNulls = columnNulls[row];
+        }
+        block.write(hasNulls ? 1 : 0);
+        if (hasNulls) {
+            for (int offset = 0; offset < rows; offset += 8) {
+                int bits = 0;
+                for (int bit = 0; bit < 8 && offset + bit < rows; bit++) {
+                    if (columnNulls[offset + bit]) {
+                        bits |= 1 << bit;
+                    }
+                }
+                block.write(bits);
+            }
+        }
+
+        if (strings[column] != null) {
+            encodeStrings(strings[column], columnNulls);
+            return;
+        }
+        long[] values = numbers[column];
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            if (!columnNulls[row]) {
+                long delta = values[row] - previous;
+                block.writeVarint((delta << 1) ^ (delta >> 63));
+                previous = values[row];
+            }
+        }
+    }
+
+    private void encodeStrings(String[] values, boolean[] columnNulls) {
+        dictionary.clear();
+        int[] indexes = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            if (!columnNulls[row]) {
+                indexes[row] = dictionary.computeIfAbsent(values[row], value -> dictionary.size());
+            }
+        }
+
+        String[] entries = new String[dictionary.size()];
+        dictionary.forEach((value, index) -> entries[index] = value);
+        block.writeVarint(entries.length);
+        for (String entry : entries) {
+            block.writeString(entry);
+        }
+        for (int row = 0; row < rows; row++) {
+            if (!columnNulls[row]) {
+                block.writeVarint(indexes[row]);
+            }
+        }
+    }
+
+    private static long toEpochMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    /**
+     * Растущий байтовый буфер без синхронизации, переиспользуемый между группами
+     */
+    private static final class ByteSink {
+        private byte[] buffer = new byte[8192];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] bytes() {
+            return buffer;
+        }
+
+        void write(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeTo(OutputStream output) throws IOException {
+            output.write(buffer, 0, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+}
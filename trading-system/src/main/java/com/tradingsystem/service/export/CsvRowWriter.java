@@ -0,0 +1,69 @@
+package com.tradingsystem.service.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Запись выгрузки в CSV (RFC 4180) с заголовком, сжатый gzip.
+ * В памяти держится только буфер сжатия и буфер символов
+ */
+public class CsvRowWriter implements RowWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final GZIPOutputStream gzip;
+    private final BufferedWriter writer;
+    private final int columnCount;
+
+    public CsvRowWriter(OutputStream output, List<ExportColumn> columns) throws IOException {
+        this.gzip = new GZIPOutputStream(output, BUFFER_SIZE);
+        this.writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.columnCount = columns.size();
+        writeRow(columns.stream().map(ExportColumn::name).toArray());
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        if (values.length != columnCount) {
+            throw new IllegalArgumentException("Expected " + columnCount + " values, got " + values.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeValue(values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+        gzip.finish();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
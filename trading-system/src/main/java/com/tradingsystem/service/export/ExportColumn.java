@@ -0,0 +1,49 @@
+package com.tradingsystem.service.export;
+
+/**
+ * Столбец выгрузки
+ * @param name Имя столбца
+ * @param type Тип значений
+ */
+public record ExportColumn(String name, Type type) {
+
+    /**
+     * Тип значений столбца. Код типа записывается в схему колоночного файла
+     */
+    public enum Type {
+        /**
+         * Целое число (Long, Integer)
+         */
+        INT64(1),
+
+        /**
+         * Десятичное число с 4 знаками после запятой (BigDecimal)
+         */
+        DECIMAL(2),
+
+        /**
+         * Строка (String, Enum)
+         */
+        STRING(3),
+
+        /**
+         * Дата и время (LocalDateTime), в колоночном файле - микросекунды от эпохи UTC
+         */
+        TIMESTAMP(4),
+
+        /**
+         * Дата (LocalDate), в колоночном файле - дни от эпохи
+         */
+        DATE(5);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+}
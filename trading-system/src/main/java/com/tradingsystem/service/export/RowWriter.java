@@ -0,0 +1,23 @@
+package com.tradingsystem.service.export;
+
+import java.io.IOException;
+
+/**
+ * Построчная запись выгрузки в поток ответа. Запись блокируется, пока клиент не примет
+ * уже отправленные данные, поэтому чтение из базы данных идет со скоростью клиента
+ */
+public interface RowWriter {
+
+    /**
+     * Записывает строку; значения идут в порядке столбцов, null - пустое значение
+     * @param values Значения строки
+     * @throws IOException при ошибке записи (например, клиент отключился)
+     */
+    void writeRow(Object... values) throws IOException;
+
+    /**
+     * Дописывает буферизованные строки и завершение формата. Поток ответа не закрывается
+     * @throws IOException при ошибке записи
+     */
+    void finish() throws IOException;
+}
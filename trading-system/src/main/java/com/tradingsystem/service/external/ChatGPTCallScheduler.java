@@ -0,0 +1,309 @@
+package com.tradingsystem.service.external;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.tradingsystem.exception.CallRejectedException;
+import com.tradingsystem.exception.ExternalServiceException;
+import com.tradingsystem.model.enums.AnalysisPriority;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Планировщик вызовов ChatGPT API.
+ * Ограничивает число одновременных запросов и расход токенов в минуту (token bucket),
+ * обслуживает очереди строго по приоритету и отбрасывает низкоприоритетные запросы
+ * при нехватке бюджета
+ */
+@Service
+public class ChatGPTCallScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ChatGPTCallScheduler.class);
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final int tokensPerMinute;
+    private final int maxConcurrentCalls;
+    private final int queueCapacity;
+    private final long maxQueueWaitNanos;
+    private final double costPerThousandTokens;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final Map<AnalysisPriority, Deque<Object>> lanes = new EnumMap<>(AnalysisPriority.class);
+
+    private double availableTokens;
+    private long lastRefillNanos;
+    private int inFlight;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<AnalysisPriority, Timer> queueWaitTimers = new EnumMap<>(AnalysisPriority.class);
+    private final Map<AnalysisPriority, Counter> spentTokenCounters = new EnumMap<>(AnalysisPriority.class);
+    private final Map<AnalysisPriority, Counter> costCounters = new EnumMap<>(AnalysisPriority.class);
+
+    @Autowired
+    public ChatGPTCallScheduler(
+            MeterRegistry meterRegistry,
+            @Value("${app.chatgpt.scheduler.tokens-per-minute:40000}") int tokensPerMinute,
+            @Value("${app.chatgpt.scheduler.max-concurrent-calls:4}") int maxConcurrentCalls,
+            @Value("${app.chatgpt.scheduler.queue-capacity:50}") int queueCapacity,
+            @Value("${app.chatgpt.scheduler.max-queue-wait:60000}") long maxQueueWaitMillis,
+            @Value("${app.chatgpt.scheduler.cost-per-1k-tokens:0.03}") double costPerThousandTokens) {
+        this.meterRegistry = meterRegistry;
+        this.tokensPerMinute = tokensPerMinute;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.queueCapacity = queueCapacity;
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+        this.costPerThousandTokens = costPerThousandTokens;
+        this.availableTokens = tokensPerMinute;
+        this.lastRefillNanos = System.nanoTime();
+
+        for (AnalysisPriority priority : AnalysisPriority.values()) {
+            Deque<Object> lane = new ArrayDeque<>();
+            lanes.put(priority, lane);
+
+            String laneTag = priority.name().toLowerCase();
+            queueWaitTimers.put(priority, Timer.builder("chatgpt.scheduler.queue.wait")
+                    .description("Время ожидания запроса в очереди к ChatGPT")
+                    .tag("lane", laneTag)
+                    .register(meterRegistry));
+            spentTokenCounters.put(priority, Counter.builder("chatgpt.tokens.spent")
+                    .description("Израсходованные токены ChatGPT")
+                    .tag("lane", laneTag)
+                    .register(meterRegistry));
+            costCounters.put(priority, Counter.builder("chatgpt.cost")
+                    .description("Оценочная стоимость вызовов ChatGPT (USD)")
+                    .baseUnit("usd")
+                    .tag("lane", laneTag)
+                    .register(meterRegistry));
+            Gauge.builder("chatgpt.scheduler.queue.size", this, scheduler -> scheduler.getQueueSize(priority))
+                    .tag("lane", laneTag)
+                    .register(meterRegistry);
+        }
+
+        Gauge.builder("chatgpt.scheduler.in.flight", this, ChatGPTCallScheduler::getInFlight)
+                .register(meterRegistry);
+        Gauge.builder("chatgpt.scheduler.tokens.available", this, ChatGPTCallScheduler::getAvailableTokens)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ожидает разрешения на вызов ChatGPT API в очереди указанного приоритета
+     * @param priority Приоритет запроса
+     * @param estimatedTokens Оценка числа токенов (промпт + max-tokens)
+     * @return Разрешение, которое необходимо закрыть после завершения вызова
+     * @throws CallRejectedException если запрос отброшен из-за перегрузки или превышено время ожидания
+     * @throws ExternalServiceException если ожидание прервано
+     */
+    public Lease acquire(AnalysisPriority priority, int estimatedTokens) {
+        int tokens = Math.max(1, Math.min(estimatedTokens, tokensPerMinute));
+        long enqueuedAt = System.nanoTime();
+        Object ticket = new Object();
+
+        lock.lock();
+        try {
+            refill();
+            checkAdmission(priority, tokens);
+
+            Deque<Object> lane = lanes.get(priority);
+            lane.addLast(ticket);
+            try {
+                long deadline = enqueuedAt + maxQueueWaitNanos;
+                while (!canStart(priority, ticket, tokens)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw shed(priority, "queue wait timeout");
+                    }
+                    stateChanged.awaitNanos(Math.min(remaining, nanosUntilAvailable(tokens)));
+                    refill();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExternalServiceException("Interrupted while waiting for ChatGPT call slot", e);
+            } finally {
+                lane.remove(ticket);
+                stateChanged.signalAll();
+            }
+
+            availableTokens -= tokens;
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+
+        long waitedNanos = System.nanoTime() - enqueuedAt;
+        queueWaitTimers.get(priority).record(waitedNanos, TimeUnit.NANOSECONDS);
+        logger.debug("ChatGPT call admitted: lane={}, tokens={}, waited={}ms",
+                priority, tokens, TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+
+        return new Lease(priority, tokens);
+    }
+
+    /**
+     * Возвращает количество запросов, ожидающих в очереди
+     * @param priority Приоритет очереди
+     * @return Размер очереди
+     */
+    public int getQueueSize(AnalysisPriority priority) {
+        lock.lock();
+        try {
+            return lanes.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество выполняющихся вызовов
+     * @return Количество вызовов
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает остаток токенов в текущем минутном бюджете
+     * @return Количество токенов
+     */
+    public double getAvailableTokens() {
+        lock.lock();
+        try {
+            refill();
+            return availableTokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вспомогательные методы (вызываются под блокировкой)
+
+    /**
+     * Отбрасывает запрос сразу, если очередь переполнена или оставшийся бюджет
+     * зарезервирован для более приоритетных запросов
+     */
+    private void checkAdmission(AnalysisPriority priority, int tokens) {
+        if (lanes.get(priority).size() >= queueCapacity) {
+            throw shed(priority, "queue is full");
+        }
+
+        if (availableTokens - tokens < reservedTokens(priority)) {
+            throw shed(priority, "token budget reserved for higher priority calls");
+        }
+    }
+
+    /**
+     * Доля минутного бюджета, которую нельзя расходовать запросам данного приоритета
+     */
+    private double reservedTokens(AnalysisPriority priority) {
+        switch (priority) {
+            case SIGNIFICANT_MOVE:
+                return tokensPerMinute * 0.2;
+            case NIGHTLY_BATCH:
+                return tokensPerMinute * 0.5;
+            default:
+                return Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    private boolean canStart(AnalysisPriority priority, Object ticket, int tokens) {
+        for (AnalysisPriority higher : AnalysisPriority.values()) {
+            if (higher == priority) {
+                break;
+            }
+            if (!lanes.get(higher).isEmpty()) {
+                return false;
+            }
+        }
+
+        return lanes.get(priority).peekFirst() == ticket
+                && inFlight < maxConcurrentCalls
+                && availableTokens >= tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double refilled = (now - lastRefillNanos) * tokensPerMinute / NANOS_PER_MINUTE;
+        availableTokens = Math.min(tokensPerMinute, availableTokens + refilled);
+        lastRefillNanos = now;
+    }
+
+    private long nanosUntilAvailable(int tokens) {
+        double missing = tokens - availableTokens;
+        if (missing <= 0) {
+            return TimeUnit.MILLISECONDS.toNanos(100);
+        }
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (missing * NANOS_PER_MINUTE / tokensPerMinute));
+    }
+
+    private CallRejectedException shed(AnalysisPriority priority, String reason) {
+        meterRegistry.counter("chatgpt.scheduler.shed",
+                "lane", priority.name().toLowerCase(), "reason", reason).increment();
+        logger.warn("ChatGPT call shed: lane={}, reason={}", priority, reason);
+        return new CallRejectedException("ChatGPT call rejected (" + priority + "): " + reason);
+    }
+
+    /**
+     * Разрешение на выполнение одного вызова ChatGPT API
+     */
+    public final class Lease implements AutoCloseable {
+        private final AnalysisPriority priority;
+        private final int reservedTokens;
+        private int spentTokens = -1;
+        private boolean closed;
+
+        private Lease(AnalysisPriority priority, int reservedTokens) {
+            this.priority = priority;
+            this.reservedTokens = reservedTokens;
+        }
+
+        /**
+         * Фиксирует фактический расход токенов по данным ответа API
+         * @param totalTokens Фактическое число токенов
+         */
+        public void recordUsage(int totalTokens) {
+            this.spentTokens = totalTokens;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            int spent = spentTokens >= 0 ? spentTokens : reservedTokens;
+
+            lock.lock();
+            try {
+                refill();
+                // Возвращаем неиспользованный резерв (или списываем перерасход)
+                availableTokens = Math.max(-tokensPerMinute,
+                        Math.min(tokensPerMinute, availableTokens + reservedTokens - spent));
+                inFlight--;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            spentTokenCounters.get(priority).increment(spent);
+            costCounters.get(priority).increment(spent / 1000.0 * costPerThousandTokens);
+        }
+    }
+}
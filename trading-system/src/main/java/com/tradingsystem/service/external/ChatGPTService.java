@@ -20,6 +20,7 @@ import org.springframework.web.client.RestTemplate;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tradingsystem.exception.ExternalServiceException;
 import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.enums.AnalysisPriority;
 import com.tradingsystem.model.enums.TrendType;
 import com.tradingsystem.properties.ChatGPTProperties;
 
@@ -34,12 +35,18 @@ public class ChatGPTService {
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final ChatGPTProperties properties;
+    private final ChatGPTCallScheduler callScheduler;
 
     @Autowired
-    public ChatGPTService(RestTemplate restTemplate, ObjectMapper objectMapper, ChatGPTProperties properties) {
+    public ChatGPTService(
+            RestTemplate restTemplate,
+            ObjectMapper objectMapper,
+            ChatGPTProperties properties,
+            ChatGPTCallScheduler callScheduler) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
         this.properties = properties;
+        this.callScheduler = callScheduler;
     }
 
     /**
@@ -50,25 +57,47 @@ public class ChatGPTService {
      * @return Текст рекомендации
      */
     public String getInvestmentAdvice(Stock stock, List<Map<String, Object>> technicalData, TrendType trend) {
+        return getInvestmentAdvice(stock, technicalData, trend, AnalysisPriority.INTERACTIVE);
+    }
+
+    /**
+     * Получает инвестиционную рекомендацию через очередь вызовов с указанным приоритетом
+     * @param stock Данные об акции
+     * @param technicalData Технические индикаторы
+     * @param trend Тип тренда
+     * @param priority Приоритет запроса
+     * @return Текст рекомендации
+     */
+    public String getInvestmentAdvice(Stock stock, List<Map<String, Object>> technicalData, TrendType trend,
+                                      AnalysisPriority priority) {
         try {
-            logger.debug("Getting investment advice for stock: {}", stock.getSymbol());
+            logger.debug("Getting investment advice for stock: {} (priority: {})", stock.getSymbol(), priority);
 
             HttpHeaders headers = createHeaders();
             Map<String, Object> requestBody = createRequestBody(stock, technicalData, trend);
 
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    properties.getUrl(),
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
+            try (ChatGPTCallScheduler.Lease lease = callScheduler.acquire(priority, estimateTokens(requestBody))) {
+                ResponseEntity<Map> response = restTemplate.exchange(
+                        properties.getUrl(),
+                        HttpMethod.POST,
+                        entity,
+                        Map.class
+                );
+
+                Integer totalTokens = extractTotalTokens(response.getBody());
+                if (totalTokens != null) {
+                    lease.recordUsage(totalTokens);
+                }
 
-            return extractAdviceFromResponse(response.getBody());
+                return extractAdviceFromResponse(response.getBody());
+            }
         } catch (RestClientException e) {
             logger.error("Error calling ChatGPT API: {}", e.getMessage());
             throw new ExternalServiceException("Error calling ChatGPT API", e);
+        } catch (ExternalServiceException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Unexpected error when getting investment advice: {}", e.getMessage());
             throw new ExternalServiceException("Failed to get investment advice", e);
@@ -162,6 +191,35 @@ public class ChatGPTService {
         return prompt.toString();
     }
 
+    /**
+     * Оценивает расход токенов на запрос: около 4 символов промпта на токен плюс лимит ответа (max-tokens)
+     * @param requestBody Тело запроса
+     * @return Оценка количества токенов
+     */
+    @SuppressWarnings("unchecked")
+    private int estimateTokens(Map<String, Object> requestBody) {
+        int promptChars = 0;
+        for (Map<String, String> message : (List<Map<String, String>>) requestBody.get("messages")) {
+            promptChars += message.get("content").length();
+        }
+        return promptChars / 4 + properties.getMaxTokens();
+    }
+
+    /**
+     * Извлекает фактическое количество токенов из блока usage ответа API
+     * @param responseBody Тело ответа от API
+     * @return Количество токенов или null, если блок usage отсутствует
+     */
+    @SuppressWarnings("unchecked")
+    private Integer extractTotalTokens(Map responseBody) {
+        if (responseBody == null || !(responseBody.get("usage") instanceof Map)) {
+            return null;
+        }
+
+        Object totalTokens = ((Map<String, Object>) responseBody.get("usage")).get("total_tokens");
+        return totalTokens instanceof Number ? ((Number) totalTokens).intValue() : null;
+    }
+
     /**
      * Извлекает текст рекомендации из ответа API
      * @param responseBody Тело ответа от API
@@ -16,7 +16,9 @@ import com.tradingsystem.model.entity.Analysis;
 import com.tradingsystem.model.entity.Stock;
 import com.tradingsystem.model.enums.TrendType;
 import com.tradingsystem.repository.AnalysisRepository;
+import com.tradingsystem.repository.LatestAnalysisRepository;
 import com.tradingsystem.repository.StockRepository;
+import com.tradingsystem.service.index.LatestAnalysisIndex;
 import com.tradingsystem.service.interfaces.AnalysisService;
 import com.tradingsystem.service.interfaces.StockService;
 
@@ -31,15 +33,21 @@ public class AnalysisServiceImpl implements AnalysisService {
     private final AnalysisRepository analysisRepository;
     private final StockRepository stockRepository;
     private final StockService stockService;
+    private final LatestAnalysisRepository latestAnalysisRepository;
+    private final LatestAnalysisIndex latestAnalysisIndex;
 
     @Autowired
     public AnalysisServiceImpl(
             AnalysisRepository analysisRepository,
             StockRepository stockRepository,
-            StockService stockService) {
+            StockService stockService,
+            LatestAnalysisRepository latestAnalysisRepository,
+            LatestAnalysisIndex latestAnalysisIndex) {
         this.analysisRepository = analysisRepository;
         this.stockRepository = stockRepository;
         this.stockService = stockService;
+        this.latestAnalysisRepository = latestAnalysisRepository;
+        this.latestAnalysisIndex = latestAnalysisIndex;
     }
 
     @Override
@@ -87,15 +95,22 @@ public class AnalysisServiceImpl implements AnalysisService {
     }
 
     @Override
-    @Cacheable(value = "analyses", key = "'latest_stock_' + #stockId")
     public Analysis getLatestAnalysisForStock(Long stockId) {
         logger.debug("Getting latest analysis for stock with id: {}", stockId);
+
+        Analysis latest = latestAnalysisIndex.get(stockId);
+        if (latest != null) {
+            return latest;
+        }
+
+        // Промах индекса (например, проекция еще не заполнена) - читаем из базы и дополняем индекс
         List<Analysis> analyses = analysisRepository.findLatestAnalysisByStockId(stockId, PageRequest.of(0, 1));
 
         if (analyses.isEmpty()) {
             throw new ResourceNotFoundException("No analysis found for stock with id: " + stockId);
         }
 
+        latestAnalysisIndex.update(analyses.get(0));
         return analyses.get(0);
     }
 
@@ -107,7 +122,12 @@ public class AnalysisServiceImpl implements AnalysisService {
     }
 
     @Override
-    @Transactional
+    public List<Analysis> getLatestAnalysesForAllStocks() {
+        logger.debug("Getting latest analysis for every stock");
+        return latestAnalysisIndex.getAll();
+    }
+
+    @Override
     public Analysis generateAnalysis(String symbol) {
         logger.debug("Generating analysis for stock with symbol: {}", symbol);
         return stockService.generateAnalysis(symbol);
@@ -119,11 +139,31 @@ public class AnalysisServiceImpl implements AnalysisService {
     public void deleteAnalysis(Long id) {
         logger.debug("Deleting analysis with id: {}", id);
 
-        if (!analysisRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Analysis not found with id: " + id);
+        Analysis analysis = analysisRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Analysis not found with id: " + id));
+        Long stockId = analysis.getStock().getId();
+
+        // Если удаляется последний анализ акции, пересчитываем проекцию по оставшимся
+        boolean wasLatest = latestAnalysisRepository.findById(stockId)
+                .map(latest -> latest.getAnalysis().getId().equals(id))
+                .orElse(false);
+
+        if (wasLatest) {
+            latestAnalysisRepository.deleteById(stockId);
+            latestAnalysisRepository.flush();
         }
 
         analysisRepository.deleteById(id);
+
+        if (wasLatest) {
+            analysisRepository.flush();
+            List<Analysis> remaining = analysisRepository.findLatestAnalysisByStockId(stockId, PageRequest.of(0, 1));
+            Analysis newLatest = remaining.isEmpty() ? null : remaining.get(0);
+            if (newLatest != null) {
+                latestAnalysisRepository.upsertIfNewer(stockId, newLatest.getId(), newLatest.getAnalysisDate());
+            }
+            latestAnalysisIndex.replace(stockId, newLatest);
+        }
     }
 
     @Override
@@ -140,14 +180,18 @@ public class AnalysisServiceImpl implements AnalysisService {
         return analysisRepository.findMostConfidentSellRecommendations(PageRequest.of(0, limit));
     }
 
-    /**
-     * Сохраняет анализ (внутренний метод для StockService)
-     * @param analysis Анализ для сохранения
-     * @return Сохраненный анализ
-     */
+    @Override
     @Transactional
+    @CacheEvict(value = "analyses", allEntries = true)
     public Analysis saveAnalysis(Analysis analysis) {
         logger.debug("Saving analysis for stock: {}", analysis.getStock().getSymbol());
-        return analysisRepository.save(analysis);
+        Analysis savedAnalysis = analysisRepository.save(analysis);
+
+        // Обновляем проекцию последних анализов (таблица + индекс в памяти)
+        latestAnalysisRepository.upsertIfNewer(
+                savedAnalysis.getStock().getId(), savedAnalysis.getId(), savedAnalysis.getAnalysisDate());
+        latestAnalysisIndex.update(savedAnalysis);
+
+        return savedAnalysis;
     }
 }
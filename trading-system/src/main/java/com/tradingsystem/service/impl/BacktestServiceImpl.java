@@ -0,0 +1,306 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.tradingsystem.model.dto.BacktestRequestDTO;
+import com.tradingsystem.model.dto.BacktestResultDTO;
+import com.tradingsystem.model.dto.PortfolioPerformanceDTO;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.repository.StockHistoricalDataRepository;
+import com.tradingsystem.service.backtest.BacktestSimulator;
+import com.tradingsystem.service.backtest.BacktestStrategy;
+import com.tradingsystem.service.backtest.BarSeries;
+import com.tradingsystem.service.backtest.FillModel;
+import com.tradingsystem.service.backtest.SimulationResult;
+import com.tradingsystem.service.interfaces.BacktestService;
+import com.tradingsystem.service.interfaces.StockService;
+
+/**
+ * Реализация сервиса бэктестинга.
+ * Котировки каждой акции загружаются из stock_historical_data один раз в примитивные массивы;
+ * прогоны по акциям и сочетаниям параметров распределяются по пулу fork-join и разделяют
+ * эти массивы только для чтения
+ */
+@Service
+public class BacktestServiceImpl implements BacktestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BacktestServiceImpl.class);
+    private static final int RUNS_PER_TASK = 8;
+    private static final int MIN_BARS = 2;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final StockService stockService;
+    private final StockHistoricalDataRepository historicalDataRepository;
+    private final Map<String, BacktestStrategy> strategies;
+    private final ForkJoinPool backtestPool;
+
+    @Value("${app.backtest.max-runs:10000}")
+    private int maxRuns;
+
+    @Value("${app.backtest.default-lookback-years:5}")
+    private int defaultLookbackYears;
+
+    @Value("${app.backtest.commission-rate:0.0005}")
+    private double defaultCommissionRate;
+
+    @Value("${app.backtest.min-commission:1.0}")
+    private double defaultMinCommission;
+
+    @Value("${app.backtest.slippage-bps:5}")
+    private double defaultSlippageBps;
+
+    @Autowired
+    public BacktestServiceImpl(
+            StockService stockService,
+            StockHistoricalDataRepository historicalDataRepository,
+            List<BacktestStrategy> strategies,
+            @Value("${app.backtest.parallelism:0}") int parallelism) {
+        this.stockService = stockService;
+        this.historicalDataRepository = historicalDataRepository;
+        this.strategies = strategies.stream()
+                .collect(Collectors.toMap(BacktestStrategy::getName, Function.identity(), (a, b) -> a, TreeMap::new));
+        this.backtestPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backtestPool.shutdownNow();
+    }
+
+    @Override
+    public Map<String, Map<String, Double>> getStrategies() {
+        Map<String, Map<String, Double>> result = new LinkedHashMap<>();
+        strategies.forEach((name, strategy) -> result.put(name, strategy.getDefaultParameters()));
+        return result;
+    }
+
+    @Override
+    public BacktestResultDTO runBacktest(BacktestRequestDTO request) {
+        BacktestStrategy strategy = strategies.get(request.getStrategy());
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown strategy: " + request.getStrategy() + ". Available: " + strategies.keySet());
+        }
+        LocalDate endDate = request.getEndDate() != null ? request.getEndDate() : LocalDate.now();
+        LocalDate startDate = request.getStartDate() != null ? request.getStartDate() : endDate.minusYears(defaultLookbackYears);
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+
+        List<Map<String, Double>> grid = expandGrid(strategy.getDefaultParameters(), request.getParameterGrid());
+        List<String> symbols = request.getSymbols().stream().distinct().collect(Collectors.toList());
+        long runCount = (long) grid.size() * symbols.size();
+        if (runCount > maxRuns) {
+            throw new IllegalArgumentException("Backtest has " + runCount + " runs, the limit is " + maxRuns);
+        }
+
+        double initialCash = positiveOrDefault(request.getInitialCash(), 10_000);
+        FillModel fillModel = new FillModel(
+                valueOrDefault(request.getCommissionRate(), defaultCommissionRate),
+                valueOrDefault(request.getMinCommission(), defaultMinCommission),
+                valueOrDefault(request.getSlippageBps(), defaultSlippageBps));
+
+        // Котировки загружаются до распределения прогонов: потоки пула не обращаются к базе данных
+        List<Stock> stocks = new ArrayList<>();
+        List<BarSeries> series = new ArrayList<>();
+        for (String symbol : symbols) {
+            Stock stock = stockService.getStockBySymbol(symbol);
+            stocks.add(stock);
+            series.add(loadBars(stock, startDate, endDate));
+        }
+
+        long started = System.nanoTime();
+        int runs = (int) runCount;
+        SimulationResult[] results = new SimulationResult[runs];
+        backtestPool.invoke(new BacktestTask(strategy, series, grid, fillModel, initialCash, results, 0, runs));
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        logger.info("Backtest {} finished: {} runs over {} symbols in {} ms", strategy.getName(), runs, symbols.size(), elapsedMillis);
+
+        boolean allCurves = Boolean.TRUE.equals(request.getAllEquityCurves());
+        List<BacktestResultDTO.Run> dtos = new ArrayList<>(runs);
+        for (int s = 0; s < series.size(); s++) {
+            int best = s * grid.size();
+            for (int g = 0; g < grid.size(); g++) {
+                if (results[s * grid.size() + g].totalReturn() > results[best].totalReturn()) {
+                    best = s * grid.size() + g;
+                }
+            }
+            for (int g = 0; g < grid.size(); g++) {
+                int run = s * grid.size() + g;
+                dtos.add(toDTO(stocks.get(s), series.get(s), grid.get(g), results[run], allCurves || run == best));
+            }
+        }
+        dtos.sort(Comparator.comparing((BacktestResultDTO.Run run) -> run.getPerformance().getProfitLossPercent()).reversed());
+
+        return new BacktestResultDTO(strategy.getName(), startDate, endDate, runs, elapsedMillis, dtos);
+    }
+
+    private BarSeries loadBars(Stock stock, LocalDate startDate, LocalDate endDate) {
+        List<Object[]> rows = historicalDataRepository.findBars(stock.getId(), startDate, endDate);
+        if (rows.size() < MIN_BARS) {
+            throw new IllegalStateException("Not enough historical bars for " + stock.getSymbol()
+                    + " between " + startDate + " and " + endDate + ": " + rows.size());
+        }
+
+        return BarSeries.fromRows(stock.getId(), stock.getSymbol(), rows);
+    }
+
+    /**
+     * Разворачивает сетку параметров во все сочетания значений
+     */
+    private List<Map<String, Double>> expandGrid(Map<String, Double> defaults, Map<String, List<Double>> parameterGrid) {
+        List<Map<String, Double>> grid = new ArrayList<>();
+        grid.add(new LinkedHashMap<>(defaults));
+        if (parameterGrid == null) {
+            return grid;
+        }
+
+        for (Map.Entry<String, List<Double>> parameter : parameterGrid.entrySet()) {
+            if (!defaults.containsKey(parameter.getKey())) {
+                throw new IllegalArgumentException("Unknown strategy parameter: " + parameter.getKey()
+                        + ". Available: " + defaults.keySet());
+            }
+            List<Double> values = parameter.getValue();
+            if (values == null || values.isEmpty()) {
+                continue;
+            }
+            if ((long) grid.size() * values.size() > maxRuns) {
+                throw new IllegalArgumentException("Parameter grid exceeds the limit of " + maxRuns + " runs");
+            }
+
+            List<Map<String, Double>> expanded = new ArrayList<>(grid.size() * values.size());
+            for (Map<String, Double> combination : grid) {
+                for (Double value : values) {
+                    Map<String, Double> next = new LinkedHashMap<>(combination);
+                    next.put(parameter.getKey(), value);
+                    expanded.add(next);
+                }
+            }
+            grid = expanded;
+        }
+        return grid;
+    }
+
+    private BacktestResultDTO.Run toDTO(Stock stock, BarSeries bars, Map<String, Double> parameters,
+                                        SimulationResult result, boolean includeCurve) {
+        BigDecimal finalEquity = money(result.finalEquity());
+        BigDecimal initialCash = money(result.initialCash());
+        BigDecimal profitLoss = finalEquity.subtract(initialCash);
+
+        PortfolioPerformanceDTO performance = new PortfolioPerformanceDTO();
+        performance.setCurrentValue(finalEquity);
+        performance.setTotalInvested(initialCash);
+        performance.setProfitLoss(profitLoss);
+        performance.setProfitLossPercent(percent(result.totalReturn()));
+
+        // Распределение на конец периода: акция и денежные средства
+        double positionValue = result.finalPosition() * bars.close(bars.size() - 1);
+        double positionShare = result.finalEquity() > 0 ? positionValue / result.finalEquity() : 0;
+        Map<String, BigDecimal> stockAllocation = new LinkedHashMap<>();
+        stockAllocation.put(stock.getSymbol(), percent(positionShare));
+        Map<String, BigDecimal> sectorAllocation = new LinkedHashMap<>();
+        sectorAllocation.put(stock.getSector() != null ? stock.getSector() : "Unknown", percent(positionShare));
+        performance.setStockAllocation(stockAllocation);
+        performance.setSectorAllocation(sectorAllocation);
+        performance.setTopGainers(List.of());
+        performance.setTopLosers(List.of());
+
+        if (includeCurve) {
+            double[] equity = result.equity();
+            List<PortfolioPerformanceDTO.PortfolioValueDataPoint> curve = new ArrayList<>(equity.length);
+            for (int i = 0; i < equity.length; i++) {
+                curve.add(new PortfolioPerformanceDTO.PortfolioValueDataPoint(bars.date(i).toString(), money(equity[i])));
+            }
+            performance.setHistoricalValues(curve);
+        } else {
+            performance.setHistoricalValues(List.of());
+        }
+
+        return new BacktestResultDTO.Run(stock.getSymbol(), parameters, performance, percent(result.maxDrawdown()),
+                result.tradeCount(), money(result.totalCommission()), result.finalPosition());
+    }
+
+    private BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal percent(double fraction) {
+        return BigDecimal.valueOf(fraction).multiply(HUNDRED).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private double positiveOrDefault(BigDecimal value, double defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.signum() <= 0) {
+            throw new IllegalArgumentException("Initial cash must be positive");
+        }
+        return value.doubleValue();
+    }
+
+    private double valueOrDefault(BigDecimal value, double defaultValue) {
+        return value != null ? value.doubleValue() : defaultValue;
+    }
+
+    /**
+     * Задача пула: прогоны с номерами [from, to). Номер прогона = акция * размер сетки + сочетание
+     */
+    private static final class BacktestTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BacktestStrategy strategy;
+        private final List<BarSeries> series;
+        private final List<Map<String, Double>> grid;
+        private final FillModel fillModel;
+        private final double initialCash;
+        private final SimulationResult[] results;
+        private final int from;
+        private final int to;
+
+        private BacktestTask(BacktestStrategy strategy, List<BarSeries> series, List<Map<String, Double>> grid,
+                             FillModel fillModel, double initialCash, SimulationResult[] results, int from, int to) {
+            this.strategy = strategy;
+            this.series = series;
+            this.grid = grid;
+            this.fillModel = fillModel;
+            this.initialCash = initialCash;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= RUNS_PER_TASK) {
+                for (int run = from; run < to; run++) {
+                    BarSeries bars = series.get(run / grid.size());
+                    Map<String, Double> parameters = grid.get(run % grid.size());
+                    results[run] = BacktestSimulator.run(bars, strategy.create(bars, parameters), fillModel, initialCash);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BacktestTask(strategy, series, grid, fillModel, initialCash, results, from, middle),
+                    new BacktestTask(strategy, series, grid, fillModel, initialCash, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.tradingsystem.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tradingsystem.model.enums.ExportFormat;
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.repository.PortfolioPerformanceRepository;
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.repository.projection.TradeHistoryRow;
+import com.tradingsystem.service.export.ColumnarRowWriter;
+import com.tradingsystem.service.export.CsvRowWriter;
+import com.tradingsystem.service.export.ExportColumn;
+import com.tradingsystem.service.export.RowWriter;
+import com.tradingsystem.service.interfaces.ExportService;
+
+/**
+ * Реализация сервиса выгрузки данных портфеля.
+ * Строки читаются курсором базы данных в транзакции только для чтения и не попадают
+ * в контекст персистентности; следующая порция читается, когда клиент принял предыдущую
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportServiceImpl.class);
+
+    private static final List<ExportColumn> TRADE_COLUMNS = List.of(
+            new ExportColumn("id", ExportColumn.Type.INT64),
+            new ExportColumn("timestamp", ExportColumn.Type.TIMESTAMP),
+            new ExportColumn("symbol", ExportColumn.Type.STRING),
+            new ExportColumn("type", ExportColumn.Type.STRING),
+            new ExportColumn("quantity", ExportColumn.Type.INT64),
+            new ExportColumn("price", ExportColumn.Type.DECIMAL),
+            new ExportColumn("total_value", ExportColumn.Type.DECIMAL));
+
+    private static final List<ExportColumn> HOLDING_COLUMNS = List.of(
+            new ExportColumn("symbol", ExportColumn.Type.STRING),
+            new ExportColumn("name", ExportColumn.Type.STRING),
+            new ExportColumn("quantity", ExportColumn.Type.INT64),
+            new ExportColumn("average_price", ExportColumn.Type.DECIMAL),
+            new ExportColumn("current_price", ExportColumn.Type.DECIMAL));
+
+    private static final List<ExportColumn> PERFORMANCE_COLUMNS = List.of(
+            new ExportColumn("date", ExportColumn.Type.DATE),
+            new ExportColumn("value", ExportColumn.Type.DECIMAL),
+            new ExportColumn("daily_return", ExportColumn.Type.DECIMAL),
+            new ExportColumn("weekly_return", ExportColumn.Type.DECIMAL),
+            new ExportColumn("monthly_return", ExportColumn.Type.DECIMAL),
+            new ExportColumn("yearly_return", ExportColumn.Type.DECIMAL),
+            new ExportColumn("total_return", ExportColumn.Type.DECIMAL));
+
+    private final TradeRepository tradeRepository;
+    private final HoldingRepository holdingRepository;
+    private final PortfolioPerformanceRepository portfolioPerformanceRepository;
+
+    @Value("${app.export.row-group-size:8192}")
+    private int rowGroupSize;
+
+    @Autowired
+    public ExportServiceImpl(
+            TradeRepository tradeRepository,
+            HoldingRepository holdingRepository,
+            PortfolioPerformanceRepository portfolioPerformanceRepository) {
+        this.tradeRepository = tradeRepository;
+        this.holdingRepository = holdingRepository;
+        this.portfolioPerformanceRepository = portfolioPerformanceRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportTrades(Long portfolioId, ExportFormat format, OutputStream output) throws IOException {
+        RowWriter writer = openWriter(format, TRADE_COLUMNS, output);
+        long count = 0;
+        try (Stream<TradeHistoryRow> rows = tradeRepository.streamChronologicalHistory(List.of(portfolioId))) {
+            Iterator<TradeHistoryRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                TradeHistoryRow row = iterator.next();
+                writer.writeRow(row.getId(), row.getTimestamp(), row.getStockSymbol(), row.getType(), row.getQuantity(),
+                        row.getPrice(), row.getPrice().multiply(BigDecimal.valueOf(row.getQuantity())));
+                count++;
+            }
+        }
+        writer.finish();
+        logger.info("Exported {} trades of portfolio {} as {}", count, portfolioId, format);
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportHoldings(Long portfolioId, ExportFormat format, OutputStream output) throws IOException {
+        RowWriter writer = openWriter(format, HOLDING_COLUMNS, output);
+        long count;
+        try (Stream<Object[]> rows = holdingRepository.streamPositionRows(portfolioId)) {
+            count = writeAll(writer, rows);
+        }
+        writer.finish();
+        logger.info("Exported {} holdings of portfolio {} as {}", count, portfolioId, format);
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportPerformance(Long portfolioId, ExportFormat format, OutputStream output) throws IOException {
+        RowWriter writer = openWriter(format, PERFORMANCE_COLUMNS, output);
+        long count;
+        try (Stream<Object[]> rows = portfolioPerformanceRepository.streamSeries(portfolioId)) {
+            count = writeAll(writer, rows);
+        }
+        writer.finish();
+        logger.info("Exported {} performance points of portfolio {} as {}", count, portfolioId, format);
+        return count;
+    }
+
+    private long writeAll(RowWriter writer, Stream<Object[]> rows) throws IOException {
+        long count = 0;
+        Iterator<Object[]> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            writer.writeRow(iterator.next());
+            count++;
+        }
+        return count;
+    }
+
+    private RowWriter openWriter(ExportFormat format, List<ExportColumn> columns, OutputStream output) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvRowWriter(output, columns);
+            case COLUMNAR -> new ColumnarRowWriter(output, columns, rowGroupSize);
+        };
+    }
+}
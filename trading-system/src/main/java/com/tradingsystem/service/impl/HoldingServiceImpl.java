@@ -23,6 +23,7 @@ import com.tradingsystem.repository.HoldingRepository;
 import com.tradingsystem.repository.PortfolioRepository;
 import com.tradingsystem.repository.StockRepository;
 import com.tradingsystem.service.interfaces.HoldingService;
+import com.tradingsystem.util.FixedPoint;
 
 /**
  * Реализация сервиса для работы с позициями в портфеле
@@ -90,6 +91,13 @@ public class HoldingServiceImpl implements HoldingService {
                         "Holding not found for portfolio id: " + portfolioId + " and stock id: " + stockId));
     }
 
+    @Override
+    @Transactional
+    public Holding lockHolding(Long portfolioId, Long stockId) {
+        logger.debug("Locking holding for portfolio id: {} and stock id: {}", portfolioId, stockId);
+        return holdingRepository.findForUpdate(portfolioId, stockId).orElse(null);
+    }
+
     @Override
     @Transactional
     public Holding createHolding(Holding holding) {
@@ -134,8 +142,8 @@ public class HoldingServiceImpl implements HoldingService {
         Stock stock = stockRepository.findById(stockId)
                 .orElseThrow(() -> new ResourceNotFoundException("Stock not found with id: " + stockId));
 
-        // Проверяем, существует ли уже позиция для этой акции в портфеле
-        Holding holding = holdingRepository.findByPortfolioIdAndStockId(portfolioId, stockId)
+        // Проверяем, существует ли уже позиция для этой акции в портфеле (строка блокируется до конца транзакции)
+        Holding holding = holdingRepository.findForUpdate(portfolioId, stockId)
                 .orElse(null);
 
         if (holding == null) {
@@ -166,11 +174,18 @@ public class HoldingServiceImpl implements HoldingService {
     @Transactional
     @CacheEvict(value = {"holdings", "holdings::portfolio_*"}, allEntries = true)
     public Holding updateHoldingOnSell(Long portfolioId, Long stockId, int quantity) {
+        return updateHoldingOnSell(portfolioId, stockId, quantity, null);
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(value = {"holdings", "holdings::portfolio_*"}, allEntries = true)
+    public Holding updateHoldingOnSell(Long portfolioId, Long stockId, int quantity, BigDecimal remainingCost) {
         logger.debug("Updating holding on SELL: portfolio id: {}, stock id: {}, quantity: {}",
                 portfolioId, stockId, quantity);
 
-        // Получаем позицию
-        Holding holding = holdingRepository.findByPortfolioIdAndStockId(portfolioId, stockId)
+        // Получаем позицию (строка блокируется до конца транзакции)
+        Holding holding = holdingRepository.findForUpdate(portfolioId, stockId)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Holding not found for portfolio id: " + portfolioId + " and stock id: " + stockId));
 
@@ -190,6 +205,11 @@ public class HoldingServiceImpl implements HoldingService {
             return null;
         }
 
+        // Средняя цена остается равной себестоимости непроданных лотов
+        if (remainingCost != null) {
+            holding.setAveragePrice(remainingCost.divide(BigDecimal.valueOf(newQuantity), 4, RoundingMode.HALF_UP));
+        }
+
         return holdingRepository.save(holding);
     }
 
@@ -255,19 +275,26 @@ public class HoldingServiceImpl implements HoldingService {
         dto.setQuantity(holding.getQuantity());
         dto.setAveragePrice(holding.getAveragePrice());
         dto.setCurrentPrice(stock.getCurrentPrice());
-        dto.setCurrentValue(holding.getCurrentValue());
-        dto.setProfitLoss(holding.getProfitLoss());
-        dto.setProfitLossPercent(holding.getProfitLossPercent());
-
-        // Расчет доли позиции в портфеле
-        BigDecimal totalValue = holding.getPortfolio().getTotalValue();
-        if (totalValue != null && totalValue.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal allocationPercent = holding.getCurrentValue()
-                    .divide(totalValue, 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100))
-                    .setScale(2, RoundingMode.HALF_UP);
-            dto.setAllocationPercent(allocationPercent);
+
+        // Стоимость и результат считаются в фиксированной точности, в BigDecimal переводятся только для DTO
+        if (stock.getCurrentPrice() != null) {
+            long price = FixedPoint.of(stock.getCurrentPrice());
+            long averagePrice = FixedPoint.of(holding.getAveragePrice());
+            long currentValue = FixedPoint.multiply(price, holding.getQuantity());
+
+            dto.setCurrentValue(FixedPoint.toBigDecimal(currentValue));
+            dto.setProfitLoss(FixedPoint.toBigDecimal(FixedPoint.multiply(price - averagePrice, holding.getQuantity())));
+            dto.setProfitLossPercent(averagePrice > 0
+                    ? BigDecimal.valueOf(FixedPoint.percentOf(price - averagePrice, averagePrice) * 100, 4)
+                    : BigDecimal.ZERO);
+
+            // Расчет доли позиции в портфеле
+            long totalValue = FixedPoint.of(holding.getPortfolio().getTotalValue());
+            dto.setAllocationPercent(FixedPoint.percentToBigDecimal(FixedPoint.percentOf(currentValue, totalValue)));
         } else {
+            dto.setCurrentValue(BigDecimal.ZERO);
+            dto.setProfitLoss(BigDecimal.ZERO);
+            dto.setProfitLossPercent(BigDecimal.ZERO);
             dto.setAllocationPercent(BigDecimal.ZERO);
         }
 
@@ -0,0 +1,102 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tradingsystem.exception.ResourceNotFoundException;
+import com.tradingsystem.model.dto.LeaderboardEntryDTO;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.enums.LeaderboardPeriod;
+import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.service.index.PortfolioLeaderboard;
+import com.tradingsystem.service.interfaces.LeaderboardService;
+
+/**
+ * Реализация сервиса рейтинга портфелей.
+ * Места и доходности берутся из рейтинга в памяти, из базы данных читаются только названия
+ * и владельцы портфелей выбранной страницы
+ */
+@Service
+public class LeaderboardServiceImpl implements LeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardServiceImpl.class);
+    private static final int MAX_LIMIT = 100;
+
+    private final PortfolioLeaderboard leaderboard;
+    private final PortfolioRepository portfolioRepository;
+
+    @Autowired
+    public LeaderboardServiceImpl(PortfolioLeaderboard leaderboard, PortfolioRepository portfolioRepository) {
+        this.leaderboard = leaderboard;
+        this.portfolioRepository = portfolioRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<LeaderboardEntryDTO> getTopPortfolios(LeaderboardPeriod period, int limit) {
+        logger.debug("Getting top {} portfolios for period {}", limit, period);
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        List<PortfolioLeaderboard.Entry> entries = leaderboard.getTop(period, limit);
+        Map<Long, Portfolio> portfolios = portfolioRepository.findAllById(
+                        entries.stream().map(PortfolioLeaderboard.Entry::getPortfolioId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Portfolio::getId, Function.identity()));
+
+        int totalRanked = leaderboard.size(period);
+        List<LeaderboardEntryDTO> result = new ArrayList<>(entries.size());
+        for (PortfolioLeaderboard.Entry entry : entries) {
+            Portfolio portfolio = portfolios.get(entry.getPortfolioId());
+            // Портфель мог быть удален между чтением рейтинга и запросом к базе
+            if (portfolio != null) {
+                result.add(toDTO(portfolio, period, entry.getRank(), totalRanked, entry.getReturnFraction()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public LeaderboardEntryDTO getPortfolioRank(Long portfolioId, LeaderboardPeriod period) {
+        logger.debug("Getting {} leaderboard rank for portfolio with id: {}", period, portfolioId);
+
+        Portfolio portfolio = portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new ResourceNotFoundException("Portfolio not found with id: " + portfolioId));
+
+        PortfolioLeaderboard.Entry entry = leaderboard.getRank(period, portfolioId);
+        int totalRanked = leaderboard.size(period);
+        if (entry == null) {
+            return toDTO(portfolio, period, null, totalRanked, null);
+        }
+        return toDTO(portfolio, period, entry.getRank(), totalRanked, entry.getReturnFraction());
+    }
+
+    private LeaderboardEntryDTO toDTO(Portfolio portfolio, LeaderboardPeriod period, Integer rank,
+                                      int totalRanked, Double returnFraction) {
+        LeaderboardEntryDTO dto = new LeaderboardEntryDTO();
+        dto.setRank(rank);
+        dto.setTotalRanked(totalRanked);
+        dto.setPortfolioId(portfolio.getId());
+        dto.setPortfolioName(portfolio.getName());
+        dto.setUsername(portfolio.getUser().getUsername());
+        dto.setPeriod(period.name());
+        if (returnFraction != null) {
+            dto.setReturnPercent(BigDecimal.valueOf(returnFraction * 100).setScale(2, RoundingMode.HALF_UP));
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,390 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradingsystem.exception.ResourceNotFoundException;
+import com.tradingsystem.model.dto.OrderBookDTO;
+import com.tradingsystem.model.entity.Holding;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.entity.TradeOrder;
+import com.tradingsystem.model.enums.OrderStatus;
+import com.tradingsystem.model.enums.OrderType;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.TradeOrderRepository;
+import com.tradingsystem.service.index.PortfolioExecutionLane;
+import com.tradingsystem.service.interfaces.HoldingService;
+import com.tradingsystem.service.interfaces.OrderService;
+import com.tradingsystem.service.interfaces.StockService;
+import com.tradingsystem.service.interfaces.TradeService;
+import com.tradingsystem.service.matching.BookDepth;
+import com.tradingsystem.service.matching.EngineOrder;
+import com.tradingsystem.service.matching.MatchEvent;
+import com.tradingsystem.service.matching.MatchingEngine;
+import com.tradingsystem.util.FixedPoint;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Реализация сервиса заявок.
+ * Заявка сохраняется в очереди портфеля и после фиксации передается движку сведения.
+ * Исполнения проводятся в потоке проведения движка: в очередях обоих портфелей одной
+ * транзакцией обновляются заявки и создаются сделки покупателя и продавца. Временные ошибки
+ * базы данных повторяются; если исполнение провести так и не удалось, остатки обеих заявок
+ * снимаются из книги, а сами заявки помечаются неудачными с причиной
+ */
+@Service
+public class OrderServiceImpl implements OrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
+
+    private final TradeOrderRepository tradeOrderRepository;
+    private final HoldingService holdingService;
+    private final TradeService tradeService;
+    private final StockService stockService;
+    private final MatchingEngine matchingEngine;
+    private final PortfolioExecutionLane executionLane;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter settlementFailures;
+
+    @Value("${app.matching.reply-timeout:5000}")
+    private long replyTimeout;
+
+    @Value("${app.matching.settle-attempts:3}")
+    private int settleAttempts;
+
+    @Value("${app.matching.settle-retry-delay:200}")
+    private long settleRetryDelay;
+
+    @Autowired
+    public OrderServiceImpl(
+            TradeOrderRepository tradeOrderRepository,
+            HoldingService holdingService,
+            TradeService tradeService,
+            StockService stockService,
+            MatchingEngine matchingEngine,
+            PortfolioExecutionLane executionLane,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.tradeOrderRepository = tradeOrderRepository;
+        this.holdingService = holdingService;
+        this.tradeService = tradeService;
+        this.stockService = stockService;
+        this.matchingEngine = matchingEngine;
+        this.executionLane = executionLane;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.settlementFailures = Counter.builder("trading.matching.settlement.failures")
+                .description("Fills that could not be settled in the database")
+                .register(meterRegistry);
+        matchingEngine.addListener(this::settle);
+    }
+
+    /**
+     * Возвращает активные заявки в книги заявок после старта приложения в порядке поступления
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(20)
+    public void restoreOrderBooks() {
+        List<TradeOrder> openOrders = tradeOrderRepository.findOpenOrders();
+        openOrders.forEach(order -> matchingEngine.submit(toEngineOrder(order)));
+        logger.info("Order books restored: {} open orders", openOrders.size());
+    }
+
+    @Override
+    public TradeOrder placeOrder(TradeOrder order) {
+        tradeService.checkTradable(order.getPortfolio());
+        validateOrder(order);
+        Long portfolioId = order.getPortfolio().getId();
+
+        // Резерв проверяется и заявка сохраняется в очереди портфеля, чтобы две заявки
+        // на продажу не зарезервировали одни и те же акции
+        TradeOrder saved = executionLane.execute(portfolioId, () -> transactionTemplate.execute(status -> {
+            if (order.getSide() == TradeType.SELL) {
+                validateSellReserve(portfolioId, order.getStock().getId(), order.getQuantity());
+            }
+            LocalDateTime now = LocalDateTime.now();
+            order.setFilledQuantity(0);
+            order.setStatus(OrderStatus.NEW);
+            order.setCreatedDate(now);
+            order.setUpdatedDate(now);
+            return tradeOrderRepository.save(order);
+        }));
+
+        try {
+            matchingEngine.submit(toEngineOrder(saved));
+        } catch (IllegalStateException e) {
+            markCancelled(saved.getId(), "matching engine overloaded");
+            throw e;
+        }
+        logger.debug("Order {} placed: {} {} {} of stock {}", saved.getId(), saved.getOrderType(), saved.getSide(),
+                saved.getQuantity(), saved.getStock().getId());
+        return saved;
+    }
+
+    @Override
+    public TradeOrder cancelOrder(Long id) {
+        TradeOrder order = getOrderById(id);
+        if (!order.getStatus().isOpen()) {
+            throw new IllegalStateException("Order is already " + order.getStatus());
+        }
+
+        int cancelled = await(matchingEngine.cancel(order.getStock().getId(), id));
+        if (cancelled == 0) {
+            throw new IllegalStateException("Order has no open quantity in the order book");
+        }
+        return markCancelled(id, "cancelled by user");
+    }
+
+    @Override
+    public TradeOrder getOrderById(Long id) {
+        logger.debug("Getting order with id: {}", id);
+        return tradeOrderRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+    }
+
+    @Override
+    public List<TradeOrder> getOrdersByPortfolioId(Long portfolioId) {
+        logger.debug("Getting orders for portfolio with id: {}", portfolioId);
+        return tradeOrderRepository.findByPortfolioId(portfolioId);
+    }
+
+    @Override
+    public OrderBookDTO getOrderBook(Long stockId, int depth) {
+        Stock stock = stockService.getStockById(stockId);
+        BookDepth book = await(matchingEngine.depth(stockId, depth));
+        return new OrderBookDTO(stock.getId(), stock.getSymbol(), toLevels(book.bids()), toLevels(book.asks()));
+    }
+
+    /**
+     * Проводит события движка в порядке сведения. Ошибка проведения одного события
+     * не останавливает проведение следующих
+     */
+    private void settle(List<MatchEvent> events) {
+        for (MatchEvent event : events) {
+            try {
+                if (event instanceof MatchEvent.Fill fill) {
+                    settleWithRetry(fill);
+                } else if (event instanceof MatchEvent.Cancelled cancelled) {
+                    markCancelled(cancelled.orderId(), cancelled.reason());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to settle match event {}", event, e);
+            }
+        }
+    }
+
+    /**
+     * Проводит исполнение, повторяя его при временных ошибках базы данных (транзакция исполнения
+     * при ошибке откатывается целиком, поэтому повтор безопасен). Если провести не удалось,
+     * книга и база данных расходятся: обе заявки снимаются из книги и помечаются неудачными
+     */
+    private void settleWithRetry(MatchEvent.Fill fill) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                executionLane.execute(List.of(fill.buyPortfolioId(), fill.sellPortfolioId()),
+                        () -> transactionTemplate.execute(status -> {
+                            settleFill(fill);
+                            return null;
+                        }));
+                return;
+            } catch (TransientDataAccessException | RecoverableDataAccessException e) {
+                if (attempt >= settleAttempts) {
+                    failSettlement(fill, e);
+                    return;
+                }
+                logger.warn("Settlement of fill {} failed (attempt {} of {}), retrying: {}",
+                        fill, attempt, settleAttempts, e.getMessage());
+                if (!pause(settleRetryDelay * attempt)) {
+                    failSettlement(fill, e);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                failSettlement(fill, e);
+                return;
+            }
+        }
+    }
+
+    private void failSettlement(MatchEvent.Fill fill, RuntimeException cause) {
+        settlementFailures.increment();
+        logger.error("Failed to settle fill {}, failing both orders", fill, cause);
+
+        String message = "Settlement failed: " + cause.getMessage();
+        String reason = message.length() > 255 ? message.substring(0, 255) : message;
+        failOrder(fill.buyOrderId(), fill.stockId(), reason);
+        failOrder(fill.sellOrderId(), fill.stockId(), reason);
+    }
+
+    /**
+     * Снимает остаток заявки из книги (без ожидания ответа: поток проведения не должен ждать
+     * поток сведения) и помечает заявку неудачной, освобождая ее резерв
+     */
+    private void failOrder(long orderId, long stockId, String reason) {
+        try {
+            matchingEngine.cancel(stockId, orderId);
+        } catch (IllegalStateException e) {
+            logger.warn("Could not remove order {} from the order book: {}", orderId, e.getMessage());
+        }
+        try {
+            Long portfolioId = getOrderById(orderId).getPortfolio().getId();
+            executionLane.execute(portfolioId, () -> transactionTemplate.execute(status -> {
+                TradeOrder order = getOrderById(orderId);
+                if (order.getStatus().isOpen()) {
+                    order.setStatus(OrderStatus.FAILED);
+                    order.setMessage(reason);
+                    order.setUpdatedDate(LocalDateTime.now());
+                    tradeOrderRepository.save(order);
+                }
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            logger.error("Failed to mark order {} as failed", orderId, e);
+        }
+    }
+
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Проводит исполнение: сначала заявки, затем сделки. После обновления заявки продавца
+     * резерв под нее уже не включает поставляемые акции, и проверка продажи их учитывает
+     */
+    private void settleFill(MatchEvent.Fill fill) {
+        TradeOrder buy = getOrderById(fill.buyOrderId());
+        TradeOrder sell = getOrderById(fill.sellOrderId());
+        BigDecimal price = FixedPoint.toBigDecimal(fill.price());
+
+        applyFill(buy, fill.quantity(), price);
+        applyFill(sell, fill.quantity(), price);
+        tradeOrderRepository.save(buy);
+        tradeOrderRepository.save(sell);
+
+        tradeService.createTrade(toTrade(buy, fill, price), null, null);
+        tradeService.createTrade(toTrade(sell, fill, price), null, null);
+    }
+
+    private void applyFill(TradeOrder order, int quantity, BigDecimal price) {
+        int filled = order.getFilledQuantity();
+        BigDecimal notional = order.getAverageFillPrice() != null
+                ? order.getAverageFillPrice().multiply(BigDecimal.valueOf(filled))
+                : BigDecimal.ZERO;
+        notional = notional.add(price.multiply(BigDecimal.valueOf(quantity)));
+
+        order.setFilledQuantity(filled + quantity);
+        order.setAverageFillPrice(notional.divide(BigDecimal.valueOf(filled + quantity), 4, RoundingMode.HALF_UP));
+        if (order.getFilledQuantity().equals(order.getQuantity())) {
+            order.setStatus(OrderStatus.FILLED);
+        } else if (order.getStatus() != OrderStatus.CANCELLED) {
+            // Исполнение, сведенное до снятия, проводится и после него
+            order.setStatus(OrderStatus.PARTIALLY_FILLED);
+        }
+        order.setUpdatedDate(LocalDateTime.now());
+    }
+
+    private Trade toTrade(TradeOrder order, MatchEvent.Fill fill, BigDecimal price) {
+        Trade trade = new Trade();
+        trade.setPortfolio(order.getPortfolio());
+        trade.setStock(order.getStock());
+        trade.setType(order.getSide());
+        trade.setQuantity(fill.quantity());
+        trade.setPrice(price);
+        trade.setTimestamp(fill.timestamp());
+        return trade;
+    }
+
+    /**
+     * Помечает заявку снятой (в очереди ее портфеля, чтобы не разойтись с проведением исполнений)
+     */
+    private TradeOrder markCancelled(Long orderId, String reason) {
+        Long portfolioId = getOrderById(orderId).getPortfolio().getId();
+        return executionLane.execute(portfolioId, () -> transactionTemplate.execute(status -> {
+            TradeOrder order = getOrderById(orderId);
+            if (order.getStatus().isOpen()) {
+                order.setStatus(OrderStatus.CANCELLED);
+                order.setUpdatedDate(LocalDateTime.now());
+                order = tradeOrderRepository.save(order);
+                logger.debug("Order {} cancelled: {}", orderId, reason);
+            }
+            return order;
+        }));
+    }
+
+    private void validateOrder(TradeOrder order) {
+        if (order.getQuantity() == null || order.getQuantity() <= 0) {
+            throw new IllegalArgumentException("Order quantity must be positive");
+        }
+        if (order.getOrderType() == OrderType.LIMIT) {
+            if (order.getLimitPrice() == null || order.getLimitPrice().signum() <= 0) {
+                throw new IllegalArgumentException("Limit price must be positive for a LIMIT order");
+            }
+        } else {
+            order.setLimitPrice(null);
+        }
+    }
+
+    /**
+     * Проверяет, что акций в позиции хватает на все активные заявки на продажу вместе с новой
+     * @throws IllegalStateException если недостаточно акций
+     */
+    private void validateSellReserve(Long portfolioId, Long stockId, int quantity) {
+        Holding holding = holdingService.lockHolding(portfolioId, stockId);
+        long reserved = tradeOrderRepository.sumOpenQuantity(portfolioId, stockId, TradeType.SELL);
+        long available = (holding != null ? holding.getQuantity() : 0) - reserved;
+
+        if (quantity > available) {
+            throw new IllegalStateException("Not enough stocks to sell. Available: " + Math.max(0, available)
+                    + " (" + reserved + " reserved by open orders), requested: " + quantity);
+        }
+    }
+
+    private EngineOrder toEngineOrder(TradeOrder order) {
+        return new EngineOrder(order.getId(), order.getPortfolio().getId(), order.getStock().getId(),
+                order.getSide(), order.getOrderType(), order.getRemainingQuantity(), order.getLimitPrice());
+    }
+
+    private List<OrderBookDTO.Level> toLevels(List<BookDepth.Level> levels) {
+        return levels.stream()
+                .map(level -> new OrderBookDTO.Level(FixedPoint.toBigDecimal(level.price()), level.quantity(), level.orders()))
+                .collect(Collectors.toList());
+    }
+
+    private <T> T await(CompletableFuture<T> reply) {
+        try {
+            return reply.get(replyTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the matching engine", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Matching engine did not respond, please retry", e);
+        }
+    }
+}
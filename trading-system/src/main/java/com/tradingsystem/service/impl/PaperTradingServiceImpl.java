@@ -0,0 +1,339 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.tradingsystem.exception.ResourceNotFoundException;
+import com.tradingsystem.model.dto.PaperOrderDTO;
+import com.tradingsystem.model.dto.PaperSessionDTO;
+import com.tradingsystem.model.dto.PaperSessionRequestDTO;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.entity.User;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.service.backtest.BarSeries;
+import com.tradingsystem.service.interfaces.PaperTradingService;
+import com.tradingsystem.service.interfaces.PortfolioService;
+import com.tradingsystem.service.interfaces.StockService;
+import com.tradingsystem.service.interfaces.TradeService;
+import com.tradingsystem.service.paper.PaperSession;
+import com.tradingsystem.service.paper.ReplayTapeCache;
+
+/**
+ * Реализация сервиса бумажной торговли.
+ * Сессии хранятся в памяти; котировки каждой сессии вычисляются по общим лентам на момент ее
+ * виртуального времени, поэтому сессии не требуют своих потоков и не копируют бары.
+ * Сделки проводятся обычным путем сервиса сделок в учебном портфеле сессии, который не участвует
+ * в рейтинге, не принимает сделки и заявки через общие API и не влияет на котировки акций
+ */
+@Service
+public class PaperTradingServiceImpl implements PaperTradingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaperTradingServiceImpl.class);
+    private static final double MIN_SPEED = 10;
+    private static final double MAX_SPEED = 1000;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final PortfolioService portfolioService;
+    private final StockService stockService;
+    private final TradeService tradeService;
+    private final ReplayTapeCache replayTapeCache;
+
+    private final Map<Long, PaperSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final Map<Long, AtomicInteger> sessionsByUser = new ConcurrentHashMap<>();
+
+    @Value("${app.paper.max-sessions:1000}")
+    private int maxSessions;
+
+    @Value("${app.paper.max-sessions-per-user:3}")
+    private int maxSessionsPerUser;
+
+    @Value("${app.paper.max-symbols:20}")
+    private int maxSymbols;
+
+    @Value("${app.paper.max-days:10}")
+    private int maxDays;
+
+    @Value("${app.paper.default-speed:100}")
+    private double defaultSpeed;
+
+    @Value("${app.paper.initial-cash:100000}")
+    private BigDecimal defaultInitialCash;
+
+    @Value("${app.paper.idle-timeout-minutes:30}")
+    private long idleTimeoutMinutes;
+
+    @Autowired
+    public PaperTradingServiceImpl(
+            PortfolioService portfolioService,
+            StockService stockService,
+            TradeService tradeService,
+            ReplayTapeCache replayTapeCache) {
+        this.portfolioService = portfolioService;
+        this.stockService = stockService;
+        this.tradeService = tradeService;
+        this.replayTapeCache = replayTapeCache;
+    }
+
+    @Override
+    public PaperSessionDTO createSession(User user, PaperSessionRequestDTO request) {
+        LocalDate startDate = request.getStartDate();
+        LocalDate endDate = request.getEndDate() != null ? request.getEndDate() : startDate;
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= maxDays) {
+            throw new IllegalArgumentException("Replay period must not exceed " + maxDays + " days");
+        }
+        double speed = request.getSpeed() != null ? request.getSpeed() : defaultSpeed;
+        validateSpeed(speed);
+        BigDecimal initialCash = request.getInitialCash() != null ? request.getInitialCash() : defaultInitialCash;
+        if (initialCash.signum() <= 0) {
+            throw new IllegalArgumentException("Initial cash must be positive");
+        }
+        List<String> symbols = request.getSymbols().stream().distinct().collect(Collectors.toList());
+        if (symbols.size() > maxSymbols) {
+            throw new IllegalArgumentException("A session can replay at most " + maxSymbols + " symbols");
+        }
+        List<Stock> stocks = symbols.stream().map(stockService::getStockBySymbol).collect(Collectors.toList());
+
+        // Счетчик сессий пользователя увеличивается атомарно: параллельные запросы не превысят лимит
+        sessionsByUser.compute(user.getId(), (id, userSessions) -> {
+            AtomicInteger count = userSessions != null ? userSessions : new AtomicInteger();
+            if (count.get() >= maxSessionsPerUser) {
+                throw new IllegalStateException("User already has " + count.get() + " open paper-trading sessions");
+            }
+            count.incrementAndGet();
+            return count;
+        });
+        if (openSessions.incrementAndGet() > maxSessions) {
+            openSessions.decrementAndGet();
+            releaseUserSlot(user.getId());
+            throw new IllegalStateException("Too many open paper-trading sessions, please retry later");
+        }
+
+        Map<String, BarSeries> tapes = new LinkedHashMap<>();
+        try {
+            for (Stock stock : stocks) {
+                tapes.put(stock.getSymbol(), replayTapeCache.acquire(stock, startDate, endDate));
+            }
+
+            // Торговые дни воспроизведения - дни, в которые торговалась хотя бы одна акция сессии
+            TreeSet<Integer> days = new TreeSet<>();
+            for (BarSeries tape : tapes.values()) {
+                for (int i = 0; i < tape.size(); i++) {
+                    days.add((int) tape.date(i).toEpochDay());
+                }
+            }
+            int[] tradingDays = days.stream().mapToInt(Integer::intValue).toArray();
+
+            Portfolio portfolio = new Portfolio();
+            portfolio.setUser(user);
+            portfolio.setName("Paper trading " + startDate + (endDate.equals(startDate) ? "" : " - " + endDate));
+            portfolio.setDescription("Replay of " + String.join(", ", tapes.keySet()));
+            portfolio.setSandbox(true);
+            Portfolio created = portfolioService.createPortfolio(portfolio);
+
+            PaperSession session = new PaperSession(sessionIds.incrementAndGet(), user.getId(), created.getId(),
+                    startDate, endDate, initialCash, tapes, tradingDays, speed);
+            sessions.put(session.getId(), session);
+            logger.info("Paper-trading session {} opened for user {}: {} trading days of {} at {}x",
+                    session.getId(), user.getId(), tradingDays.length, tapes.keySet(), speed);
+            return toDTO(session);
+        } catch (RuntimeException e) {
+            openSessions.decrementAndGet();
+            releaseUserSlot(user.getId());
+            tapes.values().forEach(tape -> replayTapeCache.release(tape.getStockId(), startDate, endDate));
+            throw e;
+        }
+    }
+
+    @Override
+    public PaperSessionDTO getSession(Long sessionId) {
+        return toDTO(getOpenSession(sessionId));
+    }
+
+    @Override
+    public List<PaperSessionDTO> getSessionsByUserId(Long userId) {
+        return sessions.values().stream()
+                .filter(session -> session.getUserId().equals(userId))
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public PaperSessionDTO pauseSession(Long sessionId) {
+        PaperSession session = getOpenSession(sessionId);
+        session.getClock().pause();
+        return toDTO(session);
+    }
+
+    @Override
+    public PaperSessionDTO resumeSession(Long sessionId) {
+        PaperSession session = getOpenSession(sessionId);
+        session.getClock().resume();
+        return toDTO(session);
+    }
+
+    @Override
+    public PaperSessionDTO setSpeed(Long sessionId, double speed) {
+        validateSpeed(speed);
+        PaperSession session = getOpenSession(sessionId);
+        session.getClock().setSpeed(speed);
+        return toDTO(session);
+    }
+
+    @Override
+    public PaperOrderDTO placeOrder(Long sessionId, PaperOrderDTO order) {
+        PaperSession session = getOpenSession(sessionId);
+        BarSeries tape = session.getTape(order.getSymbol().trim().toUpperCase(Locale.ROOT));
+        if (tape == null) {
+            throw new IllegalArgumentException("Symbol " + order.getSymbol() + " is not replayed in session " + sessionId);
+        }
+        TradeType type = TradeType.valueOf(order.getType());
+        int quantity = order.getQuantity();
+
+        // Сделки сессии проводятся по одной: проверка денег видит результат предыдущей сделки
+        synchronized (session) {
+            long elapsed = session.getClock().elapsedMillis();
+            if (elapsed >= session.getClock().getDurationMillis()) {
+                throw new IllegalStateException("Replay of session " + sessionId + " has finished");
+            }
+            double quote = session.quote(tape, elapsed);
+            if (Double.isNaN(quote)) {
+                throw new IllegalStateException("No quote for " + tape.getSymbol() + " yet");
+            }
+            BigDecimal price = BigDecimal.valueOf(quote).setScale(4, RoundingMode.HALF_UP);
+            BigDecimal amount = price.multiply(BigDecimal.valueOf(quantity));
+            if (type == TradeType.BUY && amount.compareTo(session.getCash()) > 0) {
+                throw new IllegalStateException("Not enough cash. Available: " + session.getCash() + ", required: " + amount);
+            }
+
+            Trade trade = new Trade();
+            trade.setPortfolio(portfolioService.getPortfolioById(session.getPortfolioId()));
+            trade.setStock(stockService.getStockById(tape.getStockId()));
+            trade.setType(type);
+            trade.setQuantity(quantity);
+            trade.setPrice(price);
+            trade.setTimestamp(session.virtualTime(elapsed));
+            Trade saved = tradeService.createSandboxTrade(trade);
+            session.applyTrade(tape.getStockId(), type, quantity, amount);
+
+            return new PaperOrderDTO(tape.getSymbol(), type.name(), quantity, saved.getId(), price,
+                    saved.getTimestamp(), session.getCash());
+        }
+    }
+
+    @Override
+    public void closeSession(Long sessionId) {
+        PaperSession session = sessions.remove(sessionId);
+        if (session == null) {
+            throw new ResourceNotFoundException("Paper-trading session not found with id: " + sessionId);
+        }
+        release(session);
+    }
+
+    @Override
+    public int closeIdleSessions() {
+        long deadline = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleTimeoutMinutes);
+        int closed = 0;
+        for (PaperSession session : sessions.values()) {
+            if (session.getLastAccessNanos() - deadline < 0 && sessions.remove(session.getId(), session)) {
+                release(session);
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    @Override
+    public boolean isSessionOwnedByUser(Long sessionId, Long userId) {
+        PaperSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new ResourceNotFoundException("Paper-trading session not found with id: " + sessionId);
+        }
+        return session.getUserId().equals(userId);
+    }
+
+    private PaperSession getOpenSession(Long sessionId) {
+        PaperSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new ResourceNotFoundException("Paper-trading session not found with id: " + sessionId);
+        }
+        session.touch();
+        return session;
+    }
+
+    private void release(PaperSession session) {
+        openSessions.decrementAndGet();
+        releaseUserSlot(session.getUserId());
+        for (BarSeries tape : session.getTapes()) {
+            replayTapeCache.release(tape.getStockId(), session.getStartDate(), session.getEndDate());
+        }
+        logger.info("Paper-trading session {} closed, sandbox portfolio {} kept", session.getId(), session.getPortfolioId());
+    }
+
+    private void releaseUserSlot(Long userId) {
+        sessionsByUser.computeIfPresent(userId, (id, userSessions) -> userSessions.decrementAndGet() > 0 ? userSessions : null);
+    }
+
+    private void validateSpeed(double speed) {
+        if (!(speed >= MIN_SPEED && speed <= MAX_SPEED)) {
+            throw new IllegalArgumentException("Replay speed must be between " + (int) MIN_SPEED + " and " + (int) MAX_SPEED);
+        }
+    }
+
+    /**
+     * Снимает состояние сессии на один момент виртуального времени
+     */
+    private PaperSessionDTO toDTO(PaperSession session) {
+        long elapsed = session.getClock().elapsedMillis();
+        List<PaperSessionDTO.Quote> quotes = new ArrayList<>();
+        BigDecimal marketValue = BigDecimal.ZERO;
+        BigDecimal cash;
+        synchronized (session) {
+            cash = session.getCash();
+            for (BarSeries tape : session.getTapes()) {
+                double quote = session.quote(tape, elapsed);
+                BigDecimal price = Double.isNaN(quote) ? null : BigDecimal.valueOf(quote).setScale(4, RoundingMode.HALF_UP);
+                int quantity = session.getPosition(tape.getStockId());
+                if (price != null) {
+                    marketValue = marketValue.add(price.multiply(BigDecimal.valueOf(quantity)));
+                }
+                quotes.add(new PaperSessionDTO.Quote(tape.getStockId(), tape.getSymbol(), price, quantity));
+            }
+        }
+
+        long duration = session.getClock().getDurationMillis();
+        LocalDateTime virtualTime = session.virtualTime(elapsed);
+        BigDecimal progress = BigDecimal.valueOf(elapsed).multiply(HUNDRED)
+                .divide(BigDecimal.valueOf(duration), 2, RoundingMode.HALF_UP);
+
+        return new PaperSessionDTO(session.getId(), session.getPortfolioId(), session.getStartDate(), session.getEndDate(),
+                session.getStatus().name(), session.getClock().getSpeed(), virtualTime, progress, session.getInitialCash(),
+                cash, marketValue, cash.add(marketValue).subtract(session.getInitialCash()), quotes);
+    }
+}
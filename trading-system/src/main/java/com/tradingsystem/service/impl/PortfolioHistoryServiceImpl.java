@@ -0,0 +1,253 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tradingsystem.model.entity.PortfolioPerformance;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.PortfolioPerformanceRepository;
+import com.tradingsystem.repository.StockHistoricalDataRepository;
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.repository.projection.TradeHistoryRow;
+import com.tradingsystem.service.interfaces.PortfolioHistoryService;
+
+/**
+ * Реализация сервиса истории оценок портфеля.
+ * Позиции восстанавливаются по сделкам и оцениваются по ценам закрытия из stock_historical_data;
+ * рассчитываются только дни после последней сохраненной оценки: позиции на начало периода
+ * берутся агрегатом по более ранним сделкам, читаются только сделки самого периода
+ */
+@Service
+public class PortfolioHistoryServiceImpl implements PortfolioHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioHistoryServiceImpl.class);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final PortfolioPerformanceRepository performanceRepository;
+    private final StockHistoricalDataRepository historicalDataRepository;
+    private final TradeRepository tradeRepository;
+
+    @Autowired
+    public PortfolioHistoryServiceImpl(
+            PortfolioPerformanceRepository performanceRepository,
+            StockHistoricalDataRepository historicalDataRepository,
+            TradeRepository tradeRepository) {
+        this.performanceRepository = performanceRepository;
+        this.historicalDataRepository = historicalDataRepository;
+        this.tradeRepository = tradeRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PortfolioPerformance> getHistory(Long portfolioId) {
+        logger.debug("Getting valuation history for portfolio with id: {}", portfolioId);
+        return performanceRepository.findByPortfolioIdOrderByDateAsc(portfolioId);
+    }
+
+    @Override
+    @Transactional
+    public int updateHistory(Long portfolioId) {
+        LocalDateTime firstTrade = tradeRepository.findFirstTradeTimestamp(portfolioId);
+        if (firstTrade == null) {
+            return 0;
+        }
+
+        // Рассчитываем только завершенные торговые дни
+        LocalDate endDate = LocalDate.now().minusDays(1);
+        PortfolioPerformance last = performanceRepository.findTopByPortfolioIdOrderByDateDesc(portfolioId).orElse(null);
+        LocalDate startDate = last != null
+                ? last.getDate().plusDays(1)
+                : firstTrade.toLocalDate();
+
+        if (startDate.isAfter(endDate)) {
+            return 0;
+        }
+
+        logger.debug("Updating valuation history for portfolio {} from {} to {}", portfolioId, startDate, endDate);
+
+        // Коэффициенты дневной доходности за последний год нужны для недельной, месячной и годовой доходности
+        NavigableMap<LocalDate, BigDecimal> growthFactors = new TreeMap<>();
+        for (PortfolioPerformance row : performanceRepository.findByPortfolioIdAndDateGreaterThanEqualOrderByDateAsc(
+                portfolioId, startDate.minusYears(1))) {
+            growthFactors.put(row.getDate(), toGrowthFactor(row.getDailyReturn()));
+        }
+        LocalDate inceptionDate = performanceRepository.findTopByPortfolioIdOrderByDateAsc(portfolioId)
+                .map(PortfolioPerformance::getDate)
+                .orElse(startDate);
+
+        // Сделки до начала периода формируют позиции без потока
+        Map<Long, Integer> positions = new HashMap<>();
+        Map<Long, BigDecimal> lastTradePrices = new HashMap<>();
+        BigDecimal netInvested = BigDecimal.ZERO;
+        for (Object[] row : tradeRepository.sumPositionsBefore(portfolioId, startDate.atStartOfDay())) {
+            Long stockId = ((Number) row[0]).longValue();
+            positions.put(stockId, ((Number) row[1]).intValue());
+            netInvested = netInvested.add((BigDecimal) row[2]);
+            lastTradePrices.put(stockId, (BigDecimal) row[3]);
+        }
+        Map<Long, NavigableMap<LocalDate, BigDecimal>> closes = loadClosePrices(positions.keySet(), startDate, endDate);
+
+        BigDecimal previousValue = last != null ? last.getValue() : null;
+        BigDecimal pendingFlow = BigDecimal.ZERO;
+        int written = 0;
+
+        try (Stream<TradeHistoryRow> periodTrades =
+                     tradeRepository.streamChronologicalHistorySince(List.of(portfolioId), startDate.atStartOfDay())) {
+            Iterator<TradeHistoryRow> tradeIterator = periodTrades.iterator();
+            TradeHistoryRow nextTrade = tradeIterator.hasNext() ? tradeIterator.next() : null;
+
+            for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+                // Применяем сделки по этот день включительно
+                while (nextTrade != null && !nextTrade.getTimestamp().toLocalDate().isAfter(day)) {
+                    TradeHistoryRow trade = nextTrade;
+                    nextTrade = tradeIterator.hasNext() ? tradeIterator.next() : null;
+
+                    BigDecimal notional = trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity()));
+                    int signedQuantity = trade.getType() == TradeType.BUY ? trade.getQuantity() : -trade.getQuantity();
+                    BigDecimal signedNotional = trade.getType() == TradeType.BUY ? notional : notional.negate();
+
+                    if (!closes.containsKey(trade.getStockId())) {
+                        closes.putAll(loadClosePrices(Set.of(trade.getStockId()), startDate, endDate));
+                    }
+                    positions.merge(trade.getStockId(), signedQuantity, Integer::sum);
+                    lastTradePrices.put(trade.getStockId(), trade.getPrice());
+                    netInvested = netInvested.add(signedNotional);
+                    pendingFlow = pendingFlow.add(signedNotional);
+                }
+
+                // Биржа закрыта по выходным: поток средств переносится на следующий торговый день
+                if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                    continue;
+                }
+
+                BigDecimal value = BigDecimal.ZERO;
+                for (Map.Entry<Long, Integer> position : positions.entrySet()) {
+                    if (position.getValue() == 0) {
+                        continue;
+                    }
+                    BigDecimal price = priceOn(closes.get(position.getKey()), day, lastTradePrices.get(position.getKey()));
+                    value = value.add(price.multiply(BigDecimal.valueOf(position.getValue())));
+                }
+                value = value.setScale(2, RoundingMode.HALF_UP);
+
+                // Дневная доходность без учета внесенных/выведенных средств: (V - поток) / V(пред) - 1
+                BigDecimal dailyReturn = null;
+                if (previousValue != null && previousValue.signum() > 0) {
+                    dailyReturn = value.subtract(pendingFlow)
+                            .divide(previousValue, MathContext.DECIMAL64)
+                            .subtract(BigDecimal.ONE)
+                            .multiply(HUNDRED);
+                }
+                growthFactors.put(day, toGrowthFactor(dailyReturn));
+
+                BigDecimal totalReturn = netInvested.signum() > 0
+                        ? value.subtract(netInvested).divide(netInvested, MathContext.DECIMAL64).multiply(HUNDRED)
+                        : null;
+
+                performanceRepository.upsert(portfolioId, day, value,
+                        scale(dailyReturn),
+                        scale(compoundReturn(growthFactors, inceptionDate, day.minusWeeks(1), day)),
+                        scale(compoundReturn(growthFactors, inceptionDate, day.minusMonths(1), day)),
+                        scale(compoundReturn(growthFactors, inceptionDate, day.minusYears(1), day)),
+                        scale(totalReturn));
+
+                previousValue = value;
+                pendingFlow = BigDecimal.ZERO;
+                written++;
+            }
+        }
+
+        logger.debug("Valuation history for portfolio {} updated: {} days", portfolioId, written);
+        return written;
+    }
+
+    @Override
+    @Transactional
+    public void invalidateFrom(Long portfolioId, LocalDate date) {
+        int deleted = performanceRepository.deleteFromDate(portfolioId, date);
+        if (deleted > 0) {
+            logger.debug("Invalidated {} valuation days for portfolio {} from {}", deleted, portfolioId, date);
+        }
+    }
+
+    /**
+     * Загружает цены закрытия за период, включая последнюю цену перед началом периода
+     * @return Карта ID акции -> (дата -> цена закрытия)
+     */
+    private Map<Long, NavigableMap<LocalDate, BigDecimal>> loadClosePrices(Set<Long> stockIds, LocalDate startDate, LocalDate endDate) {
+        Map<Long, NavigableMap<LocalDate, BigDecimal>> closes = new HashMap<>();
+        if (stockIds.isEmpty()) {
+            return closes;
+        }
+        for (Long stockId : stockIds) {
+            NavigableMap<LocalDate, BigDecimal> series = new TreeMap<>();
+            historicalDataRepository.findTopByStockIdAndDateLessThanOrderByDateDesc(stockId, startDate)
+                    .ifPresent(h -> series.put(h.getDate(), h.getClosePrice()));
+            closes.put(stockId, series);
+        }
+
+        for (Object[] row : historicalDataRepository.findClosePrices(stockIds, startDate, endDate)) {
+            closes.get((Long) row[0]).put((LocalDate) row[1], (BigDecimal) row[2]);
+        }
+        return closes;
+    }
+
+    /**
+     * Цена акции на дату: последняя известная цена закрытия, иначе цена последней сделки
+     */
+    private BigDecimal priceOn(NavigableMap<LocalDate, BigDecimal> series, LocalDate day, BigDecimal fallback) {
+        if (series != null) {
+            Map.Entry<LocalDate, BigDecimal> close = series.floorEntry(day);
+            if (close != null) {
+                return close.getValue();
+            }
+        }
+        return fallback != null ? fallback : BigDecimal.ZERO;
+    }
+
+    /**
+     * Доходность за период (from, to], сцепленная из дневных коэффициентов
+     * @return Доходность в процентах или null, если история короче периода
+     */
+    private BigDecimal compoundReturn(NavigableMap<LocalDate, BigDecimal> growthFactors, LocalDate inceptionDate,
+                                      LocalDate from, LocalDate to) {
+        if (from.isBefore(inceptionDate)) {
+            return null;
+        }
+
+        BigDecimal product = BigDecimal.ONE;
+        for (BigDecimal factor : growthFactors.subMap(from, false, to, true).values()) {
+            product = product.multiply(factor, MathContext.DECIMAL64);
+        }
+        return product.subtract(BigDecimal.ONE).multiply(HUNDRED);
+    }
+
+    private BigDecimal toGrowthFactor(BigDecimal dailyReturnPercent) {
+        if (dailyReturnPercent == null) {
+            return BigDecimal.ONE;
+        }
+        return BigDecimal.ONE.add(dailyReturnPercent.divide(HUNDRED, MathContext.DECIMAL64));
+    }
+
+    private BigDecimal scale(BigDecimal percent) {
+        return percent == null ? null : percent.setScale(4, RoundingMode.HALF_UP);
+    }
+}
@@ -3,10 +3,10 @@ package com.tradingsystem.service.impl;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -23,15 +23,18 @@ import com.tradingsystem.model.dto.HoldingDTO;
 import com.tradingsystem.model.dto.PortfolioPerformanceDTO;
 import com.tradingsystem.model.dto.PortfolioPerformanceDTO.HoldingPerformanceDTO;
 import com.tradingsystem.model.dto.PortfolioPerformanceDTO.PortfolioValueDataPoint;
-import com.tradingsystem.model.entity.Holding;
 import com.tradingsystem.model.entity.Portfolio;
-import com.tradingsystem.model.entity.Stock;
-import com.tradingsystem.model.entity.Trade;
 import com.tradingsystem.repository.HoldingRepository;
 import com.tradingsystem.repository.PortfolioRepository;
-import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.repository.projection.PortfolioPerformanceRow;
+import com.tradingsystem.service.index.PerformanceCache;
+import com.tradingsystem.service.index.PortfolioLeaderboard;
+import com.tradingsystem.service.index.PositionBook;
 import com.tradingsystem.service.interfaces.HoldingService;
+import com.tradingsystem.service.interfaces.PortfolioHistoryService;
 import com.tradingsystem.service.interfaces.PortfolioService;
+import com.tradingsystem.util.FixedPoint;
+import com.tradingsystem.util.FixedPointAllocation;
 
 /**
  * Реализация сервиса для работы с портфелями
@@ -43,19 +46,28 @@ public class PortfolioServiceImpl implements PortfolioService {
 
     private final PortfolioRepository portfolioRepository;
     private final HoldingRepository holdingRepository;
-    private final TradeRepository tradeRepository;
     private final HoldingService holdingService;
+    private final PositionBook positionBook;
+    private final PortfolioHistoryService portfolioHistoryService;
+    private final PerformanceCache performanceCache;
+    private final PortfolioLeaderboard portfolioLeaderboard;
 
     @Autowired
     public PortfolioServiceImpl(
             PortfolioRepository portfolioRepository,
             HoldingRepository holdingRepository,
-            TradeRepository tradeRepository,
-            HoldingService holdingService) {
+            HoldingService holdingService,
+            PositionBook positionBook,
+            PortfolioHistoryService portfolioHistoryService,
+            PerformanceCache performanceCache,
+            PortfolioLeaderboard portfolioLeaderboard) {
         this.portfolioRepository = portfolioRepository;
         this.holdingRepository = holdingRepository;
-        this.tradeRepository = tradeRepository;
         this.holdingService = holdingService;
+        this.positionBook = positionBook;
+        this.portfolioHistoryService = portfolioHistoryService;
+        this.performanceCache = performanceCache;
+        this.portfolioLeaderboard = portfolioLeaderboard;
     }
 
     @Override
@@ -122,30 +134,53 @@ public class PortfolioServiceImpl implements PortfolioService {
 
         // Удаляем все связанные сущности
         portfolioRepository.delete(portfolio);
+        positionBook.onPortfolioRemoved(id);
+        performanceCache.invalidate(id);
+        portfolioLeaderboard.onPortfolioRemoved(id);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public PortfolioPerformanceDTO calculatePerformance(Long id) {
+        return performanceCache.get(id, () -> computePerformance(id));
+    }
+
+    /**
+     * Рассчитывает метрики эффективности портфеля (без кэша)
+     * @param id ID портфеля
+     * @return Метрики эффективности
+     */
+    private PortfolioPerformanceDTO computePerformance(Long id) {
         logger.debug("Calculating performance for portfolio with id: {}", id);
 
-        Portfolio portfolio = getPortfolioById(id);
-        List<Holding> holdings = holdingRepository.findByPortfolioId(id);
-        List<Trade> trades = tradeRepository.findByPortfolioId(id);
+        // Итоги сделок, позиции и их места по доходности получаем одним запросом
+        List<PortfolioPerformanceRow> rows = portfolioRepository.findPerformanceRows(id);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Portfolio not found with id: " + id);
+        }
+
+        PortfolioPerformanceRow totals = rows.get(0);
+        List<PortfolioPerformanceRow> positions = rows.stream()
+                .filter(row -> row.getSymbol() != null)
+                .collect(Collectors.toList());
+
+        // Текущая стоимость берется из книги позиций: total_value в базе сохраняется пакетно
+        // с задержкой и может отставать от цен, по которым считаются распределения
+        BigDecimal currentValue = positionBook.getTotalValue(id);
+        if (currentValue == null) {
+            currentValue = totals.getPortfolioValue();
+        }
 
         // Инициализируем DTO
         PortfolioPerformanceDTO performanceDTO = new PortfolioPerformanceDTO();
         performanceDTO.setPortfolioId(id);
-        performanceDTO.setCurrentValue(portfolio.getTotalValue());
+        performanceDTO.setCurrentValue(currentValue);
 
         // Рассчитываем общую сумму инвестиций
-        BigDecimal totalBuy = tradeRepository.calculateTotalBuyAmount(id);
-        BigDecimal totalSell = tradeRepository.calculateTotalSellAmount(id);
-        BigDecimal totalInvested = totalBuy.subtract(totalSell);
+        BigDecimal totalInvested = totals.getTotalBuy().subtract(totals.getTotalSell());
         performanceDTO.setTotalInvested(totalInvested);
 
         // Рассчитываем прибыль/убыток
-        BigDecimal profitLoss = portfolio.getTotalValue().subtract(totalInvested);
+        BigDecimal profitLoss = currentValue.subtract(totalInvested);
         performanceDTO.setProfitLoss(profitLoss);
 
         // Рассчитываем процент прибыли/убытка
@@ -160,26 +195,22 @@ public class PortfolioServiceImpl implements PortfolioService {
         }
 
         // Рассчитываем распределение активов по секторам
-        Map<String, BigDecimal> sectorAllocation = calculateSectorAllocation(holdings);
+        Map<String, BigDecimal> sectorAllocation = calculateSectorAllocation(positions);
         performanceDTO.setSectorAllocation(sectorAllocation);
 
         // Рассчитываем распределение активов по акциям
-        Map<String, BigDecimal> stockAllocation = calculateStockAllocation(holdings);
+        Map<String, BigDecimal> stockAllocation = calculateStockAllocation(positions);
         performanceDTO.setStockAllocation(stockAllocation);
 
-        // Генерируем данные для графика стоимости портфеля
-        List<PortfolioValueDataPoint> historicalValues = generateHistoricalValues(trades);
+        // Данные для графика стоимости портфеля рассчитываются заранее (см. PortfolioHistoryService)
+        List<PortfolioValueDataPoint> historicalValues = getHistoricalValues(id);
         performanceDTO.setHistoricalValues(historicalValues);
 
         // Получаем топ прибыльных позиций
-        List<Holding> topGainers = holdingService.getMostProfitableHoldings(id, 5);
-        List<HoldingPerformanceDTO> topGainerDTOs = convertToHoldingPerformanceDTOs(topGainers);
-        performanceDTO.setTopGainers(topGainerDTOs);
+        performanceDTO.setTopGainers(selectTopPositions(positions, PortfolioPerformanceRow::getGainRank, 5));
 
         // Получаем топ убыточных позиций
-        List<Holding> topLosers = holdingService.getLeastProfitableHoldings(id, 5);
-        List<HoldingPerformanceDTO> topLoserDTOs = convertToHoldingPerformanceDTOs(topLosers);
-        performanceDTO.setTopLosers(topLoserDTOs);
+        performanceDTO.setTopLosers(selectTopPositions(positions, PortfolioPerformanceRow::getLossRank, 5));
 
         return performanceDTO;
     }
@@ -210,9 +241,10 @@ public class PortfolioServiceImpl implements PortfolioService {
             totalValue = BigDecimal.ZERO;
         }
 
+        // Поле не обновляется при сохранении сущности, итог записывается отдельным запросом
+        portfolioRepository.updateTotalValue(id, totalValue);
         portfolio.setTotalValue(totalValue);
-
-        return portfolioRepository.save(portfolio);
+        return portfolio;
     }
 
     @Override
@@ -223,137 +255,86 @@ public class PortfolioServiceImpl implements PortfolioService {
 
     /**
      * Рассчитывает распределение активов по секторам
-     * @param holdings Список позиций
+     * @param positions Строки позиций
      * @return Карта сектор -> процент
      */
-    private Map<String, BigDecimal> calculateSectorAllocation(List<Holding> holdings) {
-        Map<String, BigDecimal> sectorValues = new HashMap<>();
-        BigDecimal totalValue = BigDecimal.ZERO;
+    private Map<String, BigDecimal> calculateSectorAllocation(List<PortfolioPerformanceRow> positions) {
+        FixedPointAllocation allocation = new FixedPointAllocation();
 
         // Считаем стоимость по секторам
-        for (Holding holding : holdings) {
-            Stock stock = holding.getStock();
-            if (stock.getSector() == null) {
+        for (PortfolioPerformanceRow position : positions) {
+            if (position.getSector() == null) {
                 continue;
             }
-
-            BigDecimal value = holding.getCurrentValue();
-            totalValue = totalValue.add(value);
-
-            sectorValues.merge(stock.getSector(), value, BigDecimal::add);
+            allocation.add(position.getSector(), FixedPoint.of(position.getCurrentValue()));
         }
 
         // Рассчитываем проценты
-        Map<String, BigDecimal> sectorAllocation = new HashMap<>();
-        if (totalValue.compareTo(BigDecimal.ZERO) > 0) {
-            for (Map.Entry<String, BigDecimal> entry : sectorValues.entrySet()) {
-                BigDecimal percentage = entry.getValue()
-                        .divide(totalValue, 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100))
-                        .setScale(2, RoundingMode.HALF_UP);
-                sectorAllocation.put(entry.getKey(), percentage);
-            }
-        }
-
-        return sectorAllocation;
+        return allocation.toPercentages();
     }
 
     /**
      * Рассчитывает распределение активов по акциям
-     * @param holdings Список позиций
+     * @param positions Строки позиций
      * @return Карта символ акции -> процент
      */
-    private Map<String, BigDecimal> calculateStockAllocation(List<Holding> holdings) {
-        Map<String, BigDecimal> stockValues = new HashMap<>();
-        BigDecimal totalValue = BigDecimal.ZERO;
+    private Map<String, BigDecimal> calculateStockAllocation(List<PortfolioPerformanceRow> positions) {
+        FixedPointAllocation allocation = new FixedPointAllocation(positions.size());
 
         // Считаем стоимость по акциям
-        for (Holding holding : holdings) {
-            Stock stock = holding.getStock();
-            BigDecimal value = holding.getCurrentValue();
-            totalValue = totalValue.add(value);
-
-            stockValues.put(stock.getSymbol(), value);
+        for (PortfolioPerformanceRow position : positions) {
+            allocation.add(position.getSymbol(), FixedPoint.of(position.getCurrentValue()));
         }
 
         // Рассчитываем проценты
-        Map<String, BigDecimal> stockAllocation = new HashMap<>();
-        if (totalValue.compareTo(BigDecimal.ZERO) > 0) {
-            for (Map.Entry<String, BigDecimal> entry : stockValues.entrySet()) {
-                BigDecimal percentage = entry.getValue()
-                        .divide(totalValue, 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100))
-                        .setScale(2, RoundingMode.HALF_UP);
-                stockAllocation.put(entry.getKey(), percentage);
-            }
-        }
-
-        return stockAllocation;
+        return allocation.toPercentages();
     }
 
     /**
-     * Генерирует исторические данные о стоимости портфеля
-     * @param trades Список сделок
+     * Получает рассчитанную историю стоимости портфеля (по ценам закрытия)
+     * @param portfolioId ID портфеля
      * @return Список точек данных
      */
-    private List<PortfolioValueDataPoint> generateHistoricalValues(List<Trade> trades) {
-        // В реальном приложении эти данные могут храниться в отдельной таблице
-        // Для примера мы генерируем их на основе сделок
-
-        // Сортируем сделки по дате
-        trades = trades.stream()
-                .sorted((t1, t2) -> t1.getTimestamp().compareTo(t2.getTimestamp()))
+    private List<PortfolioValueDataPoint> getHistoricalValues(Long portfolioId) {
+        return portfolioHistoryService.getHistory(portfolioId).stream()
+                .map(row -> new PortfolioValueDataPoint(row.getDate().toString(), row.getValue()))
                 .collect(Collectors.toList());
-
-        List<PortfolioValueDataPoint> result = new ArrayList<>();
-        BigDecimal runningValue = BigDecimal.ZERO;
-
-        for (Trade trade : trades) {
-            BigDecimal tradeValue = trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity()));
-
-            if (trade.getType().name().equals("BUY")) {
-                runningValue = runningValue.add(tradeValue);
-            } else {
-                runningValue = runningValue.subtract(tradeValue);
-            }
-
-            String date = trade.getTimestamp().toLocalDate().toString();
-
-            // Проверяем, есть ли уже запись на эту дату
-            boolean dateExists = result.stream()
-                    .anyMatch(dp -> dp.getDate().equals(date));
-
-            if (dateExists) {
-                // Обновляем существующую запись
-                result.stream()
-                        .filter(dp -> dp.getDate().equals(date))
-                        .findFirst()
-                        .ifPresent(dp -> dp.setValue(runningValue));
-            } else {
-                // Добавляем новую запись
-                result.add(new PortfolioValueDataPoint(date, runningValue));
-            }
-        }
-
-        return result;
     }
 
     /**
-     * Конвертирует позиции в DTO производительности
-     * @param holdings Список позиций
+     * Выбирает первые позиции по месту в рейтинге и конвертирует их в DTO производительности
+     * @param positions Строки позиций
+     * @param rank Место позиции в рейтинге
+     * @param limit Количество позиций
      * @return Список DTO
      */
-    private List<HoldingPerformanceDTO> convertToHoldingPerformanceDTOs(List<Holding> holdings) {
-        return holdings.stream()
-                .map(holding -> {
-                    Stock stock = holding.getStock();
+    private List<HoldingPerformanceDTO> selectTopPositions(List<PortfolioPerformanceRow> positions,
+                                                           Function<PortfolioPerformanceRow, Long> rank, int limit) {
+        return positions.stream()
+                .filter(position -> rank.apply(position) <= limit)
+                .sorted(Comparator.comparing(rank))
+                .map(position -> {
+                    BigDecimal quantity = BigDecimal.valueOf(position.getQuantity());
+                    BigDecimal currentPrice = position.getCurrentPrice();
+                    BigDecimal averagePrice = position.getAveragePrice();
+
                     HoldingPerformanceDTO dto = new HoldingPerformanceDTO();
-                    dto.setSymbol(stock.getSymbol());
-                    dto.setName(stock.getName());
-                    dto.setQuantity(holding.getQuantity());
-                    dto.setCurrentValue(holding.getCurrentValue());
-                    dto.setProfitLoss(holding.getProfitLoss());
-                    dto.setProfitLossPercent(holding.getProfitLossPercent());
+                    dto.setSymbol(position.getSymbol());
+                    dto.setName(position.getName());
+                    dto.setQuantity(position.getQuantity());
+                    dto.setCurrentValue(position.getCurrentValue());
+                    if (currentPrice != null) {
+                        dto.setProfitLoss(position.getCurrentValue().subtract(averagePrice.multiply(quantity)));
+                    } else {
+                        dto.setProfitLoss(BigDecimal.ZERO);
+                    }
+                    if (currentPrice != null && averagePrice.compareTo(BigDecimal.ZERO) > 0) {
+                        dto.setProfitLossPercent(currentPrice.subtract(averagePrice)
+                                .divide(averagePrice, 4, RoundingMode.HALF_UP)
+                                .multiply(BigDecimal.valueOf(100)));
+                    } else {
+                        dto.setProfitLossPercent(BigDecimal.ZERO);
+                    }
                     return dto;
                 })
                 .collect(Collectors.toList());
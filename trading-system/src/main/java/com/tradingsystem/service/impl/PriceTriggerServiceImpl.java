@@ -0,0 +1,226 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradingsystem.exception.ResourceNotFoundException;
+import com.tradingsystem.model.entity.Holding;
+import com.tradingsystem.model.entity.PriceTrigger;
+import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.model.enums.TriggerStatus;
+import com.tradingsystem.model.enums.TriggerType;
+import com.tradingsystem.repository.PriceTriggerRepository;
+import com.tradingsystem.service.index.PortfolioExecutionLane;
+import com.tradingsystem.service.index.PriceTriggerIndex;
+import com.tradingsystem.service.interfaces.HoldingService;
+import com.tradingsystem.service.interfaces.PriceTriggerService;
+import com.tradingsystem.service.interfaces.TradeService;
+
+/**
+ * Реализация сервиса ценовых триггеров.
+ * Пересеченные пороги снимает индекс триггеров при обновлении цены; продажи проводятся
+ * в отдельном пуле потоков с ограниченной очередью, каждая - в очереди портфеля, и не задерживают
+ * обновление котировок. Триггер, не принятый переполненным пулом, помечается неудачным
+ */
+@Service
+public class PriceTriggerServiceImpl implements PriceTriggerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceTriggerServiceImpl.class);
+
+    private final PriceTriggerRepository priceTriggerRepository;
+    private final HoldingService holdingService;
+    private final TradeService tradeService;
+    private final PriceTriggerIndex priceTriggerIndex;
+    private final PortfolioExecutionLane executionLane;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+
+    @Autowired
+    public PriceTriggerServiceImpl(
+            PriceTriggerRepository priceTriggerRepository,
+            HoldingService holdingService,
+            TradeService tradeService,
+            PriceTriggerIndex priceTriggerIndex,
+            PortfolioExecutionLane executionLane,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.triggers.executor-threads:2}") int executorThreads,
+            @Value("${app.triggers.queue-capacity:1000}") int queueCapacity) {
+        this.priceTriggerRepository = priceTriggerRepository;
+        this.holdingService = holdingService;
+        this.tradeService = tradeService;
+        this.priceTriggerIndex = priceTriggerIndex;
+        this.executionLane = executionLane;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, executorThreads);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "price-trigger-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        priceTriggerIndex.addListener(this::onTriggered);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public PriceTrigger createTrigger(PriceTrigger trigger) {
+        tradeService.checkTradable(trigger.getPortfolio());
+        if (trigger.getQuantity() == null || trigger.getQuantity() <= 0) {
+            throw new IllegalArgumentException("Trigger quantity must be positive");
+        }
+        if (trigger.getTriggerPrice() == null || trigger.getTriggerPrice().signum() <= 0) {
+            throw new IllegalArgumentException("Trigger price must be positive");
+        }
+
+        // Порог, уже пересеченный текущей ценой, сработал бы на первой же котировке
+        BigDecimal currentPrice = trigger.getStock().getCurrentPrice();
+        if (currentPrice != null) {
+            int comparison = trigger.getTriggerPrice().compareTo(currentPrice);
+            if (trigger.getTriggerType() == TriggerType.STOP_LOSS && comparison >= 0) {
+                throw new IllegalArgumentException("Stop-loss price must be below the current price " + currentPrice);
+            }
+            if (trigger.getTriggerType() == TriggerType.TAKE_PROFIT && comparison <= 0) {
+                throw new IllegalArgumentException("Take-profit price must be above the current price " + currentPrice);
+            }
+        }
+
+        Long portfolioId = trigger.getPortfolio().getId();
+        // В очереди портфеля проверка позиции не пересекается с исполнениями и продажами по портфелю
+        return executionLane.execute(portfolioId, () -> transactionTemplate.execute(status -> {
+            Holding holding = holdingService.lockHolding(portfolioId, trigger.getStock().getId());
+            int held = holding != null ? holding.getQuantity() : 0;
+            if (trigger.getQuantity() > held) {
+                throw new IllegalStateException("Not enough stocks for the trigger. Held: " + held + ", requested: " + trigger.getQuantity());
+            }
+
+            trigger.setStatus(TriggerStatus.ACTIVE);
+            trigger.setCreatedDate(LocalDateTime.now());
+            PriceTrigger saved = priceTriggerRepository.save(trigger);
+            priceTriggerIndex.onTriggerCreated(saved.getId(), saved.getStock().getId(), saved.getTriggerType(), saved.getTriggerPrice());
+            return saved;
+        }));
+    }
+
+    @Override
+    public PriceTrigger cancelTrigger(Long id) {
+        Long portfolioId = getTriggerById(id).getPortfolio().getId();
+        // В очереди портфеля снятие не пересекается с проведением сработавшего триггера
+        return executionLane.execute(portfolioId, () -> transactionTemplate.execute(status -> {
+            PriceTrigger trigger = getTriggerById(id);
+            if (trigger.getStatus() != TriggerStatus.ACTIVE) {
+                throw new IllegalStateException("Trigger is already " + trigger.getStatus());
+            }
+            trigger.setStatus(TriggerStatus.CANCELLED);
+            priceTriggerIndex.onTriggerRemoved(id);
+            return priceTriggerRepository.save(trigger);
+        }));
+    }
+
+    @Override
+    public PriceTrigger getTriggerById(Long id) {
+        logger.debug("Getting price trigger with id: {}", id);
+        return priceTriggerRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Price trigger not found with id: " + id));
+    }
+
+    @Override
+    public List<PriceTrigger> getTriggersByPortfolioId(Long portfolioId) {
+        logger.debug("Getting price triggers for portfolio with id: {}", portfolioId);
+        return priceTriggerRepository.findByPortfolioId(portfolioId);
+    }
+
+    /**
+     * Принимает сработавшие триггеры от индекса и передает их на проведение в пул потоков.
+     * Триггер уже снят с индекса, поэтому при переполненной очереди он помечается неудачным
+     */
+    private void onTriggered(Long stockId, BigDecimal price, List<Long> triggerIds) {
+        for (Long triggerId : triggerIds) {
+            try {
+                executor.execute(() -> execute(triggerId, price));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Price trigger {} rejected at {}: executor queue is full", triggerId, price);
+                markFailed(triggerId, price, "Trigger executor queue is full");
+            }
+        }
+    }
+
+    /**
+     * Проводит продажу по сработавшему триггеру. Если продать не удалось,
+     * триггер помечается неудачным с причиной
+     */
+    private void execute(Long triggerId, BigDecimal price) {
+        try {
+            Long portfolioId = getTriggerById(triggerId).getPortfolio().getId();
+            executionLane.execute(portfolioId, () -> transactionTemplate.execute(status -> {
+                PriceTrigger trigger = getTriggerById(triggerId);
+                if (trigger.getStatus() != TriggerStatus.ACTIVE) {
+                    // Снят после срабатывания, но до проведения
+                    return null;
+                }
+
+                Trade trade = new Trade();
+                trade.setPortfolio(trigger.getPortfolio());
+                trade.setStock(trigger.getStock());
+                trade.setType(TradeType.SELL);
+                trade.setQuantity(trigger.getQuantity());
+                trade.setPrice(price);
+                trade.setTimestamp(LocalDateTime.now());
+                Trade saved = tradeService.createTrade(trade);
+
+                trigger.setStatus(TriggerStatus.TRIGGERED);
+                trigger.setTradeId(saved.getId());
+                trigger.setExecutionPrice(price);
+                trigger.setTriggeredDate(saved.getTimestamp());
+                priceTriggerRepository.save(trigger);
+                logger.info("Price trigger {} executed: sold {} at {}", triggerId, trigger.getQuantity(), price);
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            logger.warn("Price trigger {} failed at {}: {}", triggerId, price, e.getMessage());
+            markFailed(triggerId, price, e.getMessage());
+        }
+    }
+
+    private void markFailed(Long triggerId, BigDecimal price, String message) {
+        try {
+            transactionTemplate.execute(status -> {
+                priceTriggerRepository.findById(triggerId)
+                        .filter(trigger -> trigger.getStatus() == TriggerStatus.ACTIVE)
+                        .ifPresent(trigger -> {
+                            trigger.setStatus(TriggerStatus.FAILED);
+                            trigger.setExecutionPrice(price);
+                            trigger.setTriggeredDate(LocalDateTime.now());
+                            trigger.setMessage(message != null && message.length() > 255 ? message.substring(0, 255) : message);
+                            priceTriggerRepository.save(trigger);
+                        });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.error("Failed to mark price trigger {} as failed", triggerId, e);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.tradingsystem.service.impl;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.tradingsystem.model.dto.QuoteSnapshotDTO;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.service.alert.PriceAlertDispatcher;
+import com.tradingsystem.service.alert.PriceAlertNotification;
+import com.tradingsystem.service.interfaces.QuoteStreamService;
+import com.tradingsystem.util.FixedPoint;
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Реализация рассылки котировок по Server-Sent Events.
+ * Подписчики хранятся в реестре по акциям; новая цена записывается в ячейку акции каждого
+ * подписчика поверх прежней, и подписчик ставится в очередь на отправку не более одного раза.
+ * Отправка идет пакетами раз в интервал рассылки в пуле потоков: медленный клиент получает
+ * в следующем кадре только последнюю цену каждой акции, и память на него не растет с числом тиков.
+ * Кадр изменений - текст "номер:изменение" через запятую, где изменение - разница с ценой,
+ * отправленной этому клиенту в прошлый раз, в единицах 10^-4 ("номер=цена" - для первой известной цены)
+ */
+@Service
+public class QuoteStreamServiceImpl implements QuoteStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuoteStreamServiceImpl.class);
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final ExecutorService senders;
+    private final Map<Long, Map<Subscriber, Integer>> subscribersByStock = new ConcurrentHashMap<>();
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> connectionsByUser = new ConcurrentHashMap<>();
+    private final Queue<Subscriber> dirty = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Long> lastPrices = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+
+    @Value("${app.quotes.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${app.quotes.timeout:1800000}")
+    private long timeout;
+
+    @Value("${app.quotes.heartbeat-interval:15000}")
+    private long heartbeatInterval;
+
+    @Autowired
+    public QuoteStreamServiceImpl(
+            PriceAlertDispatcher priceAlertDispatcher,
+            @Value("${app.quotes.sender-threads:4}") int senderThreads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "quote-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        priceAlertDispatcher.addListener(this::onAlerts);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        subscribers.values().forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    @Override
+    public SseEmitter subscribe(Long userId, List<Stock> watchlistStocks) {
+        // Акция, встречающаяся в списке дважды, получает одну ячейку
+        List<Stock> stocks = new ArrayList<>(watchlistStocks.stream()
+                .collect(Collectors.toMap(Stock::getId, Function.identity(), (first, duplicate) -> first, LinkedHashMap::new))
+                .values());
+
+        // Счетчик подключений пользователя увеличивается атомарно до регистрации подписчика
+        connectionsByUser.compute(userId, (id, connections) -> {
+            AtomicInteger count = connections != null ? connections : new AtomicInteger();
+            if (count.get() >= maxConnectionsPerUser) {
+                throw new IllegalStateException("User already has " + count.get() + " open quote streams");
+            }
+            count.incrementAndGet();
+            return count;
+        });
+
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), userId, createEmitter(), stocks);
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(error -> unsubscribe(subscriber));
+
+        // Подписчик попадает в реестр до снимка: цена, пришедшая между ними, не теряется.
+        // До отправки снимка он помечен стоящим в очереди, поэтому изменения не уходят раньше снимка
+        subscribers.put(subscriber.id, subscriber);
+        for (int slot = 0; slot < subscriber.stockIds.length; slot++) {
+            int stockSlot = slot;
+            subscribersByStock.compute(subscriber.stockIds[slot], (stockId, registered) -> {
+                Map<Subscriber, Integer> slots = registered != null ? registered : new ConcurrentHashMap<>();
+                slots.put(subscriber, stockSlot);
+                return slots;
+            });
+        }
+
+        List<Long> stockIds = new ArrayList<>(stocks.size());
+        List<String> symbols = new ArrayList<>(stocks.size());
+        List<Long> prices = new ArrayList<>(stocks.size());
+        for (int slot = 0; slot < stocks.size(); slot++) {
+            Stock stock = stocks.get(slot);
+            Long price = lastPrices.get(stock.getId());
+            if (price == null && stock.getCurrentPrice() != null) {
+                price = FixedPoint.of(stock.getCurrentPrice());
+            }
+            long snapshotPrice = price != null ? price : NO_PRICE;
+            subscriber.sent[slot] = snapshotPrice;
+            subscriber.latest.compareAndSet(slot, NO_PRICE, snapshotPrice);
+
+            stockIds.add(stock.getId());
+            symbols.add(stock.getSymbol());
+            prices.add(price);
+        }
+
+        try {
+            subscriber.emitter.send(SseEmitter.event()
+                    .id("0")
+                    .name("snapshot")
+                    .data(new QuoteSnapshotDTO(FixedPoint.SCALE, stockIds, symbols, prices), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            unsubscribe(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return subscriber.emitter;
+        }
+        subscriber.lastSentNanos = System.nanoTime();
+        subscriber.scheduled.set(false);
+        markDirtyIfChanged(subscriber);
+
+        logger.debug("Quote stream {} opened for user {}: {} stocks", subscriber.id, userId, stocks.size());
+        return subscriber.emitter;
+    }
+
+    @Override
+    public void onPriceUpdate(Long stockId, BigDecimal price) {
+        if (price == null) {
+            return;
+        }
+        long fixedPrice = FixedPoint.of(price);
+        TransactionHooks.afterCommit(() -> publish(stockId, fixedPrice));
+    }
+
+    @Override
+    public void flush() {
+        Subscriber subscriber;
+        while ((subscriber = dirty.poll()) != null) {
+            Subscriber next = subscriber;
+            senders.execute(() -> drain(next));
+        }
+    }
+
+    @Override
+    public void heartbeat() {
+        long idleSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(heartbeatInterval);
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.lastSentNanos - idleSince < 0) {
+                subscriber.heartbeatDue = true;
+                markDirty(subscriber);
+            }
+        }
+    }
+
+    @Override
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Создает поток событий для нового подключения
+     */
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeout);
+    }
+
+    private void publish(Long stockId, long price) {
+        lastPrices.put(stockId, price);
+        Map<Subscriber, Integer> slots = subscribersByStock.get(stockId);
+        if (slots == null) {
+            return;
+        }
+        slots.forEach((subscriber, slot) -> {
+            subscriber.latest.set(slot, price);
+            markDirty(subscriber);
+        });
+    }
+
+    private void onAlerts(List<PriceAlertNotification> notifications) {
+        Map<Long, List<PriceAlertNotification>> byUser = new HashMap<>();
+        for (PriceAlertNotification notification : notifications) {
+            byUser.computeIfAbsent(notification.userId(), id -> new ArrayList<>()).add(notification);
+        }
+        for (Subscriber subscriber : subscribers.values()) {
+            List<PriceAlertNotification> alerts = byUser.get(subscriber.userId);
+            if (alerts != null) {
+                subscriber.alerts.addAll(alerts);
+                markDirty(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Отправляет подписчику накопленное: сработавшие оповещения и один кадр изменений цен.
+     * Для подписчика одновременно выполняется не более одной отправки - пока он не снят с очереди,
+     * новые цены только перезаписывают его ячейки
+     */
+    private void drain(Subscriber subscriber) {
+        if (subscriber.closed) {
+            return;
+        }
+        try {
+            PriceAlertNotification alert;
+            while ((alert = subscriber.alerts.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(++subscriber.sequence))
+                        .name("alert")
+                        .data(alert, MediaType.APPLICATION_JSON));
+            }
+
+            String frame = buildDelta(subscriber);
+            if (!frame.isEmpty()) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(++subscriber.sequence))
+                        .name("q")
+                        .data(frame, MediaType.TEXT_PLAIN));
+            } else if (subscriber.heartbeatDue) {
+                subscriber.emitter.send(SseEmitter.event().comment("hb"));
+            }
+            subscriber.heartbeatDue = false;
+            subscriber.lastSentNanos = System.nanoTime();
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился или поток уже закрыт
+            logger.debug("Quote stream {} closed on send: {}", subscriber.id, e.getMessage());
+            unsubscribe(subscriber);
+            return;
+        }
+
+        subscriber.scheduled.set(false);
+        markDirtyIfChanged(subscriber);
+    }
+
+    private String buildDelta(Subscriber subscriber) {
+        StringBuilder frame = new StringBuilder();
+        for (int slot = 0; slot < subscriber.sent.length; slot++) {
+            long latest = subscriber.latest.get(slot);
+            long sent = subscriber.sent[slot];
+            if (latest == NO_PRICE || latest == sent) {
+                continue;
+            }
+            if (frame.length() > 0) {
+                frame.append(',');
+            }
+            frame.append(slot);
+            if (sent == NO_PRICE) {
+                frame.append('=').append(latest);
+            } else {
+                frame.append(':').append(latest - sent);
+            }
+            subscriber.sent[slot] = latest;
+        }
+        return frame.toString();
+    }
+
+    private void markDirty(Subscriber subscriber) {
+        if (!subscriber.closed && subscriber.scheduled.compareAndSet(false, true)) {
+            dirty.add(subscriber);
+        }
+    }
+
+    /**
+     * Ставит подписчика в очередь, если за время отправки пришли новые цены или оповещения
+     */
+    private void markDirtyIfChanged(Subscriber subscriber) {
+        boolean changed = !subscriber.alerts.isEmpty();
+        for (int slot = 0; slot < subscriber.sent.length && !changed; slot++) {
+            long latest = subscriber.latest.get(slot);
+            changed = latest != NO_PRICE && latest != subscriber.sent[slot];
+        }
+        if (changed) {
+            markDirty(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber.id) == null) {
+            return;
+        }
+        subscriber.closed = true;
+        connectionsByUser.computeIfPresent(subscriber.userId,
+                (id, connections) -> connections.decrementAndGet() > 0 ? connections : null);
+        for (long stockId : subscriber.stockIds) {
+            subscribersByStock.computeIfPresent(stockId, (id, slots) -> {
+                slots.remove(subscriber);
+                return slots.isEmpty() ? null : slots;
+            });
+        }
+        logger.debug("Quote stream {} of user {} closed", subscriber.id, subscriber.userId);
+    }
+
+    /**
+     * Подключение клиента: последние цены по номерам акций подписки и цены,
+     * отправленные в прошлом кадре (меняются только в отправке)
+     */
+    private static final class Subscriber {
+        private final long id;
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final long[] stockIds;
+        private final AtomicLongArray latest;
+        private final long[] sent;
+        private final Queue<PriceAlertNotification> alerts = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(true);
+        private volatile boolean closed;
+        private volatile boolean heartbeatDue;
+        private volatile long lastSentNanos = System.nanoTime();
+        private long sequence;
+
+        private Subscriber(long id, Long userId, SseEmitter emitter, List<Stock> stocks) {
+            this.id = id;
+            this.userId = userId;
+            this.emitter = emitter;
+            this.stockIds = stocks.stream().mapToLong(Stock::getId).toArray();
+            this.latest = new AtomicLongArray(stockIds.length);
+            this.sent = new long[stockIds.length];
+            for (int slot = 0; slot < stockIds.length; slot++) {
+                latest.set(slot, NO_PRICE);
+            }
+        }
+    }
+}
@@ -0,0 +1,751 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradingsystem.model.dto.PortfolioRiskDTO;
+import com.tradingsystem.model.entity.Holding;
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.repository.StockHistoricalDataRepository;
+import com.tradingsystem.repository.StockRepository;
+import com.tradingsystem.service.index.PositionBook;
+import com.tradingsystem.service.interfaces.RiskAnalyticsService;
+
+/**
+ * Реализация сервиса расчета показателей риска портфеля.
+ * Доходности строятся по скорректированным ценам закрытия из stock_historical_data
+ * при текущих весах позиций. VaR методом Монте-Карло моделирует новые сценарии по модели,
+ * подобранной к истории: волатильность каждого актива - прогноз EWMA, зависимость - корреляция
+ * нормированных остатков, хвосты - распределение Стьюдента с числом степеней свободы по эксцессу
+ * остатков. Моделирование идет в пуле fork-join после чтения данных, вне транзакции.
+ * Результат кэшируется до изменения состава портфеля, но не дольше интервала кэширования:
+ * цены меняются на каждом тике, а веса позиций от них зависят слабо
+ */
+@Service
+public class RiskAnalyticsServiceImpl implements RiskAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RiskAnalyticsServiceImpl.class);
+    private static final int TRADING_DAYS = 252;
+    private static final int MIN_OBSERVATIONS = 20;
+    private static final int SIMULATIONS_PER_TASK = 10_000;
+    private static final int MAX_CACHED_MOMENTS = 1000;
+    private static final int MAX_CACHED_RISKS = 10_000;
+    private static final double EWMA_DECAY = 0.94;
+    private static final double MIN_DEGREES_OF_FREEDOM = 5;
+    private static final double MAX_DEGREES_OF_FREEDOM = 100;
+
+    private final HoldingRepository holdingRepository;
+    private final StockRepository stockRepository;
+    private final StockHistoricalDataRepository historicalDataRepository;
+    private final PositionBook positionBook;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Map<Long, CachedRisk> cache = new ConcurrentHashMap<>();
+    private final Map<List<Long>, ReturnMoments> momentsCache = new ConcurrentHashMap<>();
+    private final ForkJoinPool monteCarloPool;
+
+    @Value("${app.risk.lookback-days:252}")
+    private int lookbackDays;
+
+    @Value("${app.risk.confidence-level:0.95}")
+    private double confidenceLevel;
+
+    @Value("${app.risk.risk-free-rate:0.04}")
+    private double riskFreeRate;
+
+    @Value("${app.risk.benchmark-symbol:SPY}")
+    private String benchmarkSymbol;
+
+    @Value("${app.risk.monte-carlo.simulations:100000}")
+    private int simulations;
+
+    @Value("${app.risk.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    @Autowired
+    public RiskAnalyticsServiceImpl(
+            HoldingRepository holdingRepository,
+            StockRepository stockRepository,
+            StockHistoricalDataRepository historicalDataRepository,
+            PositionBook positionBook,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.risk.monte-carlo.parallelism:0}") int parallelism) {
+        this.holdingRepository = holdingRepository;
+        this.stockRepository = stockRepository;
+        this.historicalDataRepository = historicalDataRepository;
+        this.positionBook = positionBook;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.monteCarloPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        monteCarloPool.shutdownNow();
+    }
+
+    @Override
+    public PortfolioRiskDTO calculateRisk(Long portfolioId) {
+        // Версия состава меняется только при сделках; изменения цен и дневное обновление истории
+        // учитываются по истечении интервала кэширования
+        long version = positionBook.getPositionsVersion(portfolioId);
+        long bucket = System.currentTimeMillis() / Math.max(1, cacheTtlSeconds * 1000);
+
+        CachedRisk cached = cache.get(portfolioId);
+        if (cached != null && cached.version == version && cached.bucket == bucket) {
+            return cached.risk;
+        }
+
+        PortfolioRiskDTO risk = computeRisk(portfolioId, readOnlyTransaction.execute(status -> loadInputs(portfolioId)));
+
+        // Размер кэша ограничен числом портфелей; первыми удаляются устаревшие результаты
+        if (cache.size() >= MAX_CACHED_RISKS) {
+            cache.values().removeIf(entry -> entry.bucket != bucket);
+            if (cache.size() >= MAX_CACHED_RISKS) {
+                cache.clear();
+            }
+        }
+        cache.put(portfolioId, new CachedRisk(version, bucket, risk));
+        return risk;
+    }
+
+    /**
+     * Читает позиции, историю цен и ряд эталона одной короткой транзакцией
+     */
+    private RiskInputs loadInputs(Long portfolioId) {
+        logger.debug("Loading risk inputs for portfolio with id: {}", portfolioId);
+
+        List<Holding> holdings = holdingRepository.findByPortfolioId(portfolioId).stream()
+                .filter(h -> h.getStock().getCurrentPrice() != null && h.getQuantity() > 0)
+                .collect(Collectors.toList());
+        if (holdings.isEmpty()) {
+            throw new IllegalStateException("Portfolio " + portfolioId + " has no priced positions to analyze");
+        }
+
+        int assets = holdings.size();
+        Long[] stockIds = new Long[assets];
+        double[] weights = new double[assets];
+        double portfolioValue = 0;
+        for (int i = 0; i < assets; i++) {
+            Holding holding = holdings.get(i);
+            stockIds[i] = holding.getStock().getId();
+            weights[i] = holding.getCurrentValue().doubleValue();
+            portfolioValue += weights[i];
+        }
+        for (int i = 0; i < assets; i++) {
+            weights[i] /= portfolioValue;
+        }
+
+        // Матрица доходностей [актив][день] по общим датам котировок
+        LocalDate startDate = LocalDate.now().minusDays(lookbackDays * 7L / 5 + 10);
+        Map<Long, NavigableMap<LocalDate, Double>> prices = loadPrices(Set.of(stockIds), startDate);
+        List<LocalDate> dates = alignedDates(prices, stockIds);
+        if (dates.size() - 1 < MIN_OBSERVATIONS) {
+            throw new IllegalStateException("Not enough price history to calculate risk for portfolio " + portfolioId
+                    + ". Observations: " + Math.max(0, dates.size() - 1) + ", required: " + MIN_OBSERVATIONS);
+        }
+
+        double[][] assetReturns = returnMatrix(prices, stockIds, dates);
+        NavigableMap<LocalDate, Double> benchmark = stockRepository.findBySymbol(benchmarkSymbol)
+                .map(stock -> loadPrices(Set.of(stock.getId()), dates.get(0).minusDays(10)).get(stock.getId()))
+                .orElse(null);
+        return new RiskInputs(portfolioValue, weights, dates, assetReturns, benchmark);
+    }
+
+    private PortfolioRiskDTO computeRisk(Long portfolioId, RiskInputs inputs) {
+        double portfolioValue = inputs.portfolioValue();
+        double[] weights = inputs.weights();
+        List<LocalDate> dates = inputs.dates();
+        double[][] assetReturns = inputs.assetReturns();
+        int assets = weights.length;
+        int observations = dates.size() - 1;
+
+        double[] portfolioReturns = new double[observations];
+        for (int t = 0; t < observations; t++) {
+            double r = 0;
+            for (int i = 0; i < assets; i++) {
+                r += weights[i] * assetReturns[i][t];
+            }
+            portfolioReturns[t] = r;
+        }
+
+        double alpha = 1 - confidenceLevel;
+        double mean = mean(portfolioReturns);
+        double stdDev = Math.sqrt(variance(portfolioReturns, mean));
+
+        PortfolioRiskDTO dto = new PortfolioRiskDTO();
+        dto.setPortfolioId(portfolioId);
+        dto.setAsOfDate(dates.get(dates.size() - 1));
+        dto.setObservations(observations);
+        dto.setPortfolioValue(money(portfolioValue));
+        dto.setConfidenceLevel(BigDecimal.valueOf(confidenceLevel));
+        dto.setAnnualizedVolatility(percent(stdDev * Math.sqrt(TRADING_DAYS)));
+
+        // Исторический VaR/CVaR
+        double[] sorted = portfolioReturns.clone();
+        Arrays.sort(sorted);
+        double[] historical = tailRisk(sorted, alpha);
+        dto.setHistoricalVar(money(-historical[0] * portfolioValue));
+        dto.setHistoricalCvar(money(-historical[1] * portfolioValue));
+
+        // Параметрический (нормальный) VaR/CVaR
+        double z = inverseNormal(alpha);
+        double parametricVar = -(mean + z * stdDev);
+        double parametricCvar = -(mean - stdDev * normalDensity(z) / alpha);
+        dto.setParametricVar(money(parametricVar * portfolioValue));
+        dto.setParametricCvar(money(parametricCvar * portfolioValue));
+
+        // VaR методом Монте-Карло по модели EWMA с коррелированными инновациями Стьюдента
+        double[] simulated = simulatePortfolioReturns(assetReturns, weights);
+        Arrays.sort(simulated);
+        double[] monteCarlo = tailRisk(simulated, alpha);
+        dto.setMonteCarloVar(money(-monteCarlo[0] * portfolioValue));
+        dto.setMonteCarloCvar(money(-monteCarlo[1] * portfolioValue));
+
+        // Коэффициенты Шарпа и Сортино
+        double dailyRiskFree = riskFreeRate / TRADING_DAYS;
+        double annualizedExcess = (mean - dailyRiskFree) * TRADING_DAYS;
+        if (stdDev > 0) {
+            dto.setSharpeRatio(ratio(annualizedExcess / (stdDev * Math.sqrt(TRADING_DAYS))));
+        }
+        double downside = 0;
+        for (double r : portfolioReturns) {
+            double shortfall = Math.min(0, r - dailyRiskFree);
+            downside += shortfall * shortfall;
+        }
+        double downsideDeviation = Math.sqrt(downside / observations) * Math.sqrt(TRADING_DAYS);
+        if (downsideDeviation > 0) {
+            dto.setSortinoRatio(ratio(annualizedExcess / downsideDeviation));
+        }
+
+        dto.setMaxDrawdown(percent(maxDrawdown(portfolioReturns)));
+
+        dto.setBenchmarkSymbol(benchmarkSymbol);
+        dto.setBeta(calculateBeta(portfolioReturns, dates, inputs.benchmark()));
+
+        return dto;
+    }
+
+    @Override
+    public PortfolioRiskDTO estimateParametricRisk(Map<Long, BigDecimal> positionValues) {
+        List<Long> stockIds = positionValues.entrySet().stream()
+                .filter(e -> e.getValue() != null && e.getValue().signum() > 0)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .collect(Collectors.toList());
+        if (stockIds.isEmpty()) {
+            return null;
+        }
+
+        ReturnMoments moments = getMoments(stockIds);
+        if (moments.observations < MIN_OBSERVATIONS) {
+            return null;
+        }
+
+        int assets = stockIds.size();
+        double portfolioValue = 0;
+        double[] weights = new double[assets];
+        for (int i = 0; i < assets; i++) {
+            weights[i] = positionValues.get(stockIds.get(i)).doubleValue();
+            portfolioValue += weights[i];
+        }
+
+        // μp = wᵀμ, σp² = wᵀΣw
+        double mean = 0;
+        double variance = 0;
+        for (int i = 0; i < assets; i++) {
+            weights[i] /= portfolioValue;
+            mean += weights[i] * moments.means[i];
+        }
+        for (int i = 0; i < assets; i++) {
+            double row = 0;
+            for (int j = 0; j < assets; j++) {
+                row += moments.covariance[i][j] * weights[j];
+            }
+            variance += weights[i] * row;
+        }
+        double stdDev = Math.sqrt(Math.max(variance, 0));
+
+        double alpha = 1 - confidenceLevel;
+        double z = inverseNormal(alpha);
+
+        PortfolioRiskDTO dto = new PortfolioRiskDTO();
+        dto.setAsOfDate(moments.asOfDate);
+        dto.setObservations(moments.observations);
+        dto.setPortfolioValue(money(portfolioValue));
+        dto.setConfidenceLevel(BigDecimal.valueOf(confidenceLevel));
+        dto.setAnnualizedVolatility(percent(stdDev * Math.sqrt(TRADING_DAYS)));
+        dto.setParametricVar(money(-(mean + z * stdDev) * portfolioValue));
+        dto.setParametricCvar(money(-(mean - stdDev * normalDensity(z) / alpha) * portfolioValue));
+        return dto;
+    }
+
+    /**
+     * Средние доходности и ковариационная матрица для упорядоченного набора акций (кэшируются на день)
+     */
+    private ReturnMoments getMoments(List<Long> stockIds) {
+        LocalDate today = LocalDate.now();
+        ReturnMoments cached = momentsCache.get(stockIds);
+        if (cached != null && cached.date.equals(today)) {
+            return cached;
+        }
+
+        Long[] ids = stockIds.toArray(new Long[0]);
+        LocalDate startDate = today.minusDays(lookbackDays * 7L / 5 + 10);
+        Map<Long, NavigableMap<LocalDate, Double>> prices = loadPrices(Set.of(ids), startDate);
+        List<LocalDate> dates = alignedDates(prices, ids);
+
+        ReturnMoments moments;
+        if (dates.size() - 1 < MIN_OBSERVATIONS) {
+            moments = new ReturnMoments(today, null, Math.max(0, dates.size() - 1), null, null);
+        } else {
+            double[][] assetReturns = returnMatrix(prices, ids, dates);
+            double[] means = new double[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                means[i] = mean(assetReturns[i]);
+            }
+            moments = new ReturnMoments(today, dates.get(dates.size() - 1), dates.size() - 1,
+                    means, covariance(assetReturns, means));
+        }
+
+        // Наборы акций зависят от сценариев пользователей, поэтому размер кэша ограничен
+        if (momentsCache.size() >= MAX_CACHED_MOMENTS) {
+            momentsCache.clear();
+        }
+        momentsCache.put(List.copyOf(stockIds), moments);
+        return moments;
+    }
+
+    /**
+     * Загружает скорректированные цены закрытия
+     * @return Карта ID акции -> (дата -> цена)
+     */
+    private Map<Long, NavigableMap<LocalDate, Double>> loadPrices(Set<Long> stockIds, LocalDate startDate) {
+        Map<Long, NavigableMap<LocalDate, Double>> prices = new HashMap<>();
+        stockIds.forEach(id -> prices.put(id, new TreeMap<>()));
+        for (Object[] row : historicalDataRepository.findAdjustedClosePrices(stockIds, startDate)) {
+            prices.get((Long) row[0]).put((LocalDate) row[1], ((BigDecimal) row[2]).doubleValue());
+        }
+        return prices;
+    }
+
+    /**
+     * Даты, на которые известны цены всех активов (с переносом последней цены вперед),
+     * ограниченные глубиной выборки
+     */
+    private List<LocalDate> alignedDates(Map<Long, NavigableMap<LocalDate, Double>> prices, Long[] stockIds) {
+        LocalDate commonStart = null;
+        TreeSet<LocalDate> union = new TreeSet<>();
+        for (Long stockId : stockIds) {
+            NavigableMap<LocalDate, Double> series = prices.get(stockId);
+            if (series.isEmpty()) {
+                return List.of();
+            }
+            union.addAll(series.keySet());
+            if (commonStart == null || series.firstKey().isAfter(commonStart)) {
+                commonStart = series.firstKey();
+            }
+        }
+
+        List<LocalDate> dates = new ArrayList<>(union.tailSet(commonStart, true));
+        int from = Math.max(0, dates.size() - (lookbackDays + 1));
+        return dates.subList(from, dates.size());
+    }
+
+    /**
+     * Матрица дневных доходностей [актив][день] по выровненным датам
+     */
+    private double[][] returnMatrix(Map<Long, NavigableMap<LocalDate, Double>> prices, Long[] stockIds, List<LocalDate> dates) {
+        int observations = dates.size() - 1;
+        double[][] assetReturns = new double[stockIds.length][observations];
+        for (int i = 0; i < stockIds.length; i++) {
+            NavigableMap<LocalDate, Double> series = prices.get(stockIds[i]);
+            double previous = series.floorEntry(dates.get(0)).getValue();
+            for (int t = 0; t < observations; t++) {
+                double current = series.floorEntry(dates.get(t + 1)).getValue();
+                assetReturns[i][t] = current / previous - 1;
+                previous = current;
+            }
+        }
+        return assetReturns;
+    }
+
+    /**
+     * Моделирует однодневные доходности портфеля. Для каждого актива доходность дня t нормируется
+     * прогнозом волатильности EWMA на этот день: ε_t = (r_t - μ) / σ_t, σ²_{t+1} = λσ²_t + (1 - λ)(r_t - μ)².
+     * Сценарий - новая инновация: коррелированный нормальный вектор с корреляцией остатков ε,
+     * компоненты которого делятся на независимые √(χ²_ν/(ν-2)) с числом степеней свободы ν актива,
+     * умноженная на текущий прогноз волатильности σ_{T+1}
+     */
+    private double[] simulatePortfolioReturns(double[][] assetReturns, double[] weights) {
+        int assets = weights.length;
+        int observations = assetReturns[0].length;
+
+        // Портфель линейный: сценарий - μp + Σ w·σ_{T+1}·x по активам
+        double meanReturn = 0;
+        double[] scales = new double[assets];
+        double[] degreesOfFreedom = new double[assets];
+        double[][] residuals = new double[assets][observations];
+        for (int i = 0; i < assets; i++) {
+            double[] returns = assetReturns[i];
+            double mean = mean(returns);
+            double variance = Math.max(variance(returns, mean), 1e-12);
+            for (int t = 0; t < observations; t++) {
+                double deviation = returns[t] - mean;
+                residuals[i][t] = deviation / Math.sqrt(variance);
+                variance = Math.max(EWMA_DECAY * variance + (1 - EWMA_DECAY) * deviation * deviation, 1e-12);
+            }
+            meanReturn += weights[i] * mean;
+            scales[i] = weights[i] * Math.sqrt(variance);
+            degreesOfFreedom[i] = degreesOfFreedom(residuals[i]);
+        }
+
+        ScenarioModel model = new ScenarioModel(meanReturn, scales, degreesOfFreedom, cholesky(correlation(residuals)));
+        double[] results = new double[simulations];
+        monteCarloPool.invoke(new SimulationTask(results, 0, simulations, model,
+                new SplittableRandom(System.nanoTime())));
+        return results;
+    }
+
+    private BigDecimal calculateBeta(double[] portfolioReturns, List<LocalDate> dates, NavigableMap<LocalDate, Double> series) {
+        if (series == null) {
+            return null;
+        }
+
+        List<double[]> pairs = new ArrayList<>();
+        for (int t = 0; t < portfolioReturns.length; t++) {
+            Map.Entry<LocalDate, Double> previous = series.floorEntry(dates.get(t));
+            Map.Entry<LocalDate, Double> current = series.floorEntry(dates.get(t + 1));
+            if (previous != null && current != null) {
+                pairs.add(new double[]{portfolioReturns[t], current.getValue() / previous.getValue() - 1});
+            }
+        }
+        if (pairs.size() < MIN_OBSERVATIONS) {
+            return null;
+        }
+
+        double portfolioMean = pairs.stream().mapToDouble(p -> p[0]).average().orElse(0);
+        double benchmarkMean = pairs.stream().mapToDouble(p -> p[1]).average().orElse(0);
+        double covariance = 0;
+        double benchmarkVariance = 0;
+        for (double[] pair : pairs) {
+            covariance += (pair[0] - portfolioMean) * (pair[1] - benchmarkMean);
+            benchmarkVariance += (pair[1] - benchmarkMean) * (pair[1] - benchmarkMean);
+        }
+        return benchmarkVariance > 0 ? ratio(covariance / benchmarkVariance) : null;
+    }
+
+    /**
+     * Квантиль и среднее хвоста отсортированной выборки
+     * @return [квантиль уровня alpha, среднее значений не выше квантиля]
+     */
+    private static double[] tailRisk(double[] sorted, double alpha) {
+        int cutoff = Math.max(1, (int) Math.floor(sorted.length * alpha));
+        double tailSum = 0;
+        for (int i = 0; i < cutoff; i++) {
+            tailSum += sorted[i];
+        }
+        return new double[]{sorted[cutoff - 1], tailSum / cutoff};
+    }
+
+    private static double maxDrawdown(double[] returns) {
+        double equity = 1;
+        double peak = 1;
+        double drawdown = 0;
+        for (double r : returns) {
+            equity *= 1 + r;
+            peak = Math.max(peak, equity);
+            drawdown = Math.max(drawdown, (peak - equity) / peak);
+        }
+        return drawdown;
+    }
+
+    /**
+     * Число степеней свободы распределения Стьюдента по эксцессу остатков: κ = 6 / (ν - 4)
+     * @return ν или 0, если хвосты не тяжелее нормальных
+     */
+    private static double degreesOfFreedom(double[] residuals) {
+        double mean = mean(residuals);
+        double m2 = 0;
+        double m4 = 0;
+        for (double residual : residuals) {
+            double deviation = (residual - mean) * (residual - mean);
+            m2 += deviation;
+            m4 += deviation * deviation;
+        }
+        m2 /= residuals.length;
+        m4 /= residuals.length;
+        double excessKurtosis = m2 > 0 ? m4 / (m2 * m2) - 3 : 0;
+        if (excessKurtosis <= 6 / (MAX_DEGREES_OF_FREEDOM - 4)) {
+            return 0;
+        }
+        return Math.max(MIN_DEGREES_OF_FREEDOM, 4 + 6 / excessKurtosis);
+    }
+
+    private static double[][] correlation(double[][] series) {
+        int count = series.length;
+        double[] means = new double[count];
+        for (int i = 0; i < count; i++) {
+            means[i] = mean(series[i]);
+        }
+        double[][] correlation = covariance(series, means);
+        double[] deviations = new double[count];
+        for (int i = 0; i < count; i++) {
+            deviations[i] = Math.sqrt(correlation[i][i]);
+        }
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < count; j++) {
+                correlation[i][j] = deviations[i] > 0 && deviations[j] > 0
+                        ? correlation[i][j] / (deviations[i] * deviations[j])
+                        : (i == j ? 1 : 0);
+            }
+        }
+        return correlation;
+    }
+
+    /**
+     * Нижнетреугольный множитель Холецкого. Корреляция по выборке может быть вырожденной
+     * (активов больше, чем наблюдений, или повторяющиеся ряды): такие столбцы обнуляются
+     */
+    private static double[][] cholesky(double[][] matrix) {
+        int size = matrix.length;
+        double[][] lower = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = matrix[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= lower[i][k] * lower[j][k];
+                }
+                if (i == j) {
+                    lower[i][i] = sum > 1e-12 ? Math.sqrt(sum) : 0;
+                } else {
+                    lower[i][j] = lower[j][j] > 0 ? sum / lower[j][j] : 0;
+                }
+            }
+        }
+        return lower;
+    }
+
+    private static double[][] covariance(double[][] assetReturns, double[] means) {
+        int assets = assetReturns.length;
+        int observations = assetReturns[0].length;
+        double[][] covariance = new double[assets][assets];
+        for (int i = 0; i < assets; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = 0;
+                for (int t = 0; t < observations; t++) {
+                    sum += (assetReturns[i][t] - means[i]) * (assetReturns[j][t] - means[j]);
+                }
+                covariance[i][j] = sum / (observations - 1);
+                covariance[j][i] = covariance[i][j];
+            }
+        }
+        return covariance;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double variance(double[] values, double mean) {
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum / (values.length - 1);
+    }
+
+    private static double normalDensity(double x) {
+        return Math.exp(-x * x / 2) / Math.sqrt(2 * Math.PI);
+    }
+
+    /**
+     * Обратная функция стандартного нормального распределения (аппроксимация Acklam)
+     */
+    private static double inverseNormal(double p) {
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+
+        if (p < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - 0.02425) {
+            return -inverseNormal(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal percent(double fraction) {
+        return BigDecimal.valueOf(fraction * 100).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal ratio(double value) {
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Модель однодневной доходности портфеля: средняя, вклады активов w·σ_{T+1},
+     * степени свободы (0 - нормальные хвосты) и множитель Холецкого корреляции
+     */
+    private record ScenarioModel(double meanReturn, double[] scales, double[] degreesOfFreedom, double[][] cholesky) {
+    }
+
+    /**
+     * Задача fork-join: заполняет диапазон массива смоделированными доходностями.
+     * Генератор случайных чисел расщепляется при делении задачи, поэтому потоки не конкурируют за него
+     */
+    private static final class SimulationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] results;
+        private final int from;
+        private final int to;
+        private final transient ScenarioModel model;
+        private final transient SplittableRandom random;
+
+        private SimulationTask(double[] results, int from, int to, ScenarioModel model, SplittableRandom random) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.model = model;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SIMULATIONS_PER_TASK) {
+                double[] scales = model.scales();
+                double[] degreesOfFreedom = model.degreesOfFreedom();
+                double[][] cholesky = model.cholesky();
+                double[] normals = new double[scales.length];
+                for (int s = from; s < to; s++) {
+                    double result = model.meanReturn();
+                    for (int i = 0; i < scales.length; i++) {
+                        normals[i] = random.nextGaussian();
+                        double shock = 0;
+                        for (int j = 0; j <= i; j++) {
+                            shock += cholesky[i][j] * normals[j];
+                        }
+                        double nu = degreesOfFreedom[i];
+                        if (nu > 0) {
+                            // Дисперсия t_ν равна ν/(ν-2): приводим к единичной
+                            shock *= Math.sqrt((nu - 2) / chiSquare(nu));
+                        }
+                        result += scales[i] * shock;
+                    }
+                    results[s] = result;
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new SimulationTask(results, from, middle, model, random.split()),
+                    new SimulationTask(results, middle, to, model, random.split()));
+        }
+
+        /**
+         * χ²_ν = 2·Gamma(ν/2); гамма-распределение с формой не меньше 1 по методу Марсальи-Цанга
+         */
+        private double chiSquare(double nu) {
+            double d = nu / 2 - 1.0 / 3;
+            double c = 1 / Math.sqrt(9 * d);
+            while (true) {
+                double x = random.nextGaussian();
+                double v = 1 + c * x;
+                if (v <= 0) {
+                    continue;
+                }
+                v = v * v * v;
+                double u = random.nextDouble();
+                if (Math.log(u) < 0.5 * x * x + d - d * v + d * Math.log(v)) {
+                    return 2 * d * v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Оценки средних доходностей и ковариаций набора акций на дату расчета
+     */
+    private static final class ReturnMoments {
+        private final LocalDate date;
+        private final LocalDate asOfDate;
+        private final int observations;
+        private final double[] means;
+        private final double[][] covariance;
+
+        private ReturnMoments(LocalDate date, LocalDate asOfDate, int observations, double[] means, double[][] covariance) {
+            this.date = date;
+            this.asOfDate = asOfDate;
+            this.observations = observations;
+            this.means = means;
+            this.covariance = covariance;
+        }
+    }
+
+    /**
+     * Данные для расчета риска, прочитанные из базы данных
+     */
+    private record RiskInputs(double portfolioValue, double[] weights, List<LocalDate> dates,
+                              double[][] assetReturns, NavigableMap<LocalDate, Double> benchmark) {
+    }
+
+    /**
+     * Результат расчета вместе с версией состава портфеля и интервалом кэширования, для которых он получен
+     */
+    private static final class CachedRisk {
+        private final long version;
+        private final long bucket;
+        private final PortfolioRiskDTO risk;
+
+        private CachedRisk(long version, long bucket, PortfolioRiskDTO risk) {
+            this.version = version;
+            this.bucket = bucket;
+            this.risk = risk;
+        }
+    }
+}
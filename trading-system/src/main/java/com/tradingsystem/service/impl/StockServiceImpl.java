@@ -6,28 +6,39 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.tradingsystem.exception.ExternalServiceException;
 import com.tradingsystem.exception.ResourceNotFoundException;
 import com.tradingsystem.model.dto.StockData;
 import com.tradingsystem.model.dto.TechnicalIndicator;
 import com.tradingsystem.model.entity.Analysis;
 import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.enums.AnalysisPriority;
 import com.tradingsystem.model.enums.TrendType;
 import com.tradingsystem.repository.StockRepository;
 import com.tradingsystem.service.external.AlphaVantageService;
 import com.tradingsystem.service.external.ChatGPTService;
+import com.tradingsystem.service.index.PerformanceCache;
+import com.tradingsystem.service.index.PositionBook;
+import com.tradingsystem.service.index.PriceAlertIndex;
+import com.tradingsystem.service.index.PriceTriggerIndex;
 import com.tradingsystem.service.interfaces.AnalysisService;
+import com.tradingsystem.service.interfaces.QuoteStreamService;
 import com.tradingsystem.service.interfaces.StockService;
+import com.tradingsystem.util.TransactionHooks;
 import com.tradingsystem.util.TrendDetector;
 
 /**
@@ -43,6 +54,12 @@ public class StockServiceImpl implements StockService {
     private final ChatGPTService chatGPTService;
     private final AnalysisService analysisService;
     private final TrendDetector trendDetector;
+    private final PositionBook positionBook;
+    private final PerformanceCache performanceCache;
+    private final PriceTriggerIndex priceTriggerIndex;
+    private final PriceAlertIndex priceAlertIndex;
+    private final QuoteStreamService quoteStreamService;
+    private final Executor taskExecutor;
 
     @Autowired
     public StockServiceImpl(
@@ -50,12 +67,24 @@ public class StockServiceImpl implements StockService {
             AlphaVantageService alphaVantageService,
             ChatGPTService chatGPTService,
             AnalysisService analysisService,
-            TrendDetector trendDetector) {
+            TrendDetector trendDetector,
+            PositionBook positionBook,
+            PerformanceCache performanceCache,
+            PriceTriggerIndex priceTriggerIndex,
+            PriceAlertIndex priceAlertIndex,
+            QuoteStreamService quoteStreamService,
+            @Qualifier("taskExecutor") Executor taskExecutor) {
         this.stockRepository = stockRepository;
         this.alphaVantageService = alphaVantageService;
         this.chatGPTService = chatGPTService;
         this.analysisService = analysisService;
         this.trendDetector = trendDetector;
+        this.positionBook = positionBook;
+        this.performanceCache = performanceCache;
+        this.priceTriggerIndex = priceTriggerIndex;
+        this.priceAlertIndex = priceAlertIndex;
+        this.quoteStreamService = quoteStreamService;
+        this.taskExecutor = taskExecutor;
     }
 
     @Override
@@ -121,15 +150,21 @@ public class StockServiceImpl implements StockService {
         stock.setLastUpdated(LocalDateTime.now());
         Stock updatedStock = stockRepository.save(stock);
 
-        // Если изменение цены значительное, генерируем анализ
+        // Переоцениваем только портфели, содержащие эту акцию
+        positionBook.onPriceUpdate(updatedStock.getId(), updatedStock.getCurrentPrice());
+        performanceCache.markStale(updatedStock.getId());
+        // Пересеченные пороги стоп-лоссов и тейк-профитов срабатывают после фиксации цены
+        priceTriggerIndex.onPriceUpdate(updatedStock.getId(), updatedStock.getCurrentPrice());
+        // Пересеченные целевые цены списков отслеживания уходят в очередь уведомлений
+        priceAlertIndex.onPriceUpdate(updatedStock.getId(), updatedStock.getCurrentPrice());
+        // Подписчики потока котировок получат цену в ближайшем кадре изменений
+        quoteStreamService.onPriceUpdate(updatedStock.getId(), updatedStock.getCurrentPrice());
+
+        // Если изменение цены значительное, генерируем анализ - после фиксации цены и в другом потоке:
+        // ожидание очереди ChatGPT не должно удерживать транзакцию и соединение с базой данных
         if (updatedStock.getDayChangePercent() != null &&
                 Math.abs(updatedStock.getDayChangePercent().doubleValue()) >= 2.0) {
-            logger.debug("Generating analysis for stock with significant price change: {}", symbol);
-            try {
-                generateAnalysis(symbol);
-            } catch (Exception e) {
-                logger.error("Failed to generate analysis for stock: {}", symbol, e);
-            }
+            TransactionHooks.afterCommit(() -> submitAnalysis(symbol, AnalysisPriority.SIGNIFICANT_MOVE));
         }
 
         return updatedStock;
@@ -224,9 +259,17 @@ public class StockServiceImpl implements StockService {
     }
 
     @Override
-    @Transactional
     public Analysis generateAnalysis(String symbol) {
-        logger.debug("Generating analysis for stock: {}", symbol);
+        return generateAnalysis(symbol, AnalysisPriority.INTERACTIVE);
+    }
+
+    /**
+     * Транзакция не открывается: вызовы внешних сервисов могут ждать очереди ChatGPT,
+     * анализ сохраняется отдельной транзакцией
+     */
+    @Override
+    public Analysis generateAnalysis(String symbol, AnalysisPriority priority) {
+        logger.debug("Generating analysis for stock: {} (priority: {})", symbol, priority);
         Stock stock = getStockBySymbol(symbol);
 
         try {
@@ -245,7 +288,7 @@ public class StockServiceImpl implements StockService {
             technicalData.add(Map.of("name", "MACD Histogram", "value", macd.getHistogram()));
 
             // Получаем рекомендацию от ChatGPT
-            String adviceText = chatGPTService.getInvestmentAdvice(stock, technicalData, trend);
+            String adviceText = chatGPTService.getInvestmentAdvice(stock, technicalData, trend, priority);
 
             // Извлекаем рекомендацию из текста
             String recommendation = chatGPTService.extractRecommendation(adviceText);
@@ -264,6 +307,9 @@ public class StockServiceImpl implements StockService {
 
             // Сохраняем анализ
             return analysisService.saveAnalysis(analysis);
+        } catch (ExternalServiceException e) {
+            logger.error("External service unavailable while generating analysis for stock: {}", symbol, e);
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to generate analysis for stock: {}", symbol, e);
             throw new RuntimeException("Failed to generate analysis: " + e.getMessage(), e);
@@ -285,6 +331,24 @@ public class StockServiceImpl implements StockService {
         stockRepository.deleteById(id);
     }
 
+    /**
+     * Передает генерацию анализа в пул фоновых задач; при переполненном пуле анализ пропускается
+     */
+    private void submitAnalysis(String symbol, AnalysisPriority priority) {
+        try {
+            taskExecutor.execute(() -> {
+                logger.debug("Generating analysis for stock with significant price change: {}", symbol);
+                try {
+                    generateAnalysis(symbol, priority);
+                } catch (Exception e) {
+                    logger.error("Failed to generate analysis for stock: {}", symbol, e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            logger.warn("Analysis for stock {} skipped: background executor is saturated", symbol);
+        }
+    }
+
     /**
      * Обновляет данные об акции из внешнего API
      * @param stock Акция для обновления
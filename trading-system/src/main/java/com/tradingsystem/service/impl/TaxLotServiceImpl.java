@@ -0,0 +1,426 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tradingsystem.model.dto.ProfitLossReportDTO;
+import com.tradingsystem.model.dto.TaxLotDTO;
+import com.tradingsystem.model.entity.Holding;
+import com.tradingsystem.model.entity.LotDisposal;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.entity.RealizedGain;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.entity.TaxLot;
+import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.enums.LotMethod;
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.repository.LotDisposalRepository;
+import com.tradingsystem.repository.RealizedGainRepository;
+import com.tradingsystem.repository.TaxLotRepository;
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.service.interfaces.TaxLotService;
+
+/**
+ * Реализация сервиса учета налоговых лотов.
+ * Открытые лоты позиции блокируются на время транзакции сделки; реализованный результат
+ * накапливается в realized_gains, поэтому отчет строится по позициям, а не по истории сделок.
+ * Акции, купленные до появления учета лотов, входят в лоты без сделки (догоняющие лоты)
+ * по средней цене позиции
+ */
+@Service
+public class TaxLotServiceImpl implements TaxLotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaxLotServiceImpl.class);
+
+    private final TaxLotRepository taxLotRepository;
+    private final LotDisposalRepository lotDisposalRepository;
+    private final RealizedGainRepository realizedGainRepository;
+    private final HoldingRepository holdingRepository;
+    private final TradeRepository tradeRepository;
+
+    @Autowired
+    public TaxLotServiceImpl(
+            TaxLotRepository taxLotRepository,
+            LotDisposalRepository lotDisposalRepository,
+            RealizedGainRepository realizedGainRepository,
+            HoldingRepository holdingRepository,
+            TradeRepository tradeRepository) {
+        this.taxLotRepository = taxLotRepository;
+        this.lotDisposalRepository = lotDisposalRepository;
+        this.realizedGainRepository = realizedGainRepository;
+        this.holdingRepository = holdingRepository;
+        this.tradeRepository = tradeRepository;
+    }
+
+    @Override
+    @Transactional
+    public void openLot(Trade buy) {
+        logger.debug("Opening tax lot for trade {}", buy.getId());
+
+        lockOpenLots(buy.getPortfolio(), buy.getStock());
+        taxLotRepository.save(new TaxLot(null, buy.getPortfolio(), buy.getStock(), buy,
+                buy.getTimestamp(), buy.getQuantity(), buy.getQuantity(), buy.getPrice()));
+    }
+
+    @Override
+    @Transactional
+    public BigDecimal consumeLots(Trade sell, LotMethod method, List<Long> lotIds) {
+        logger.debug("Consuming tax lots for trade {} using {}", sell.getId(), method);
+
+        List<TaxLot> openLots = lockOpenLots(sell.getPortfolio(), sell.getStock());
+        List<TaxLot> order = disposalOrder(openLots, method, lotIds);
+
+        int remaining = sell.getQuantity();
+        BigDecimal costBasis = BigDecimal.ZERO;
+        BigDecimal realized = BigDecimal.ZERO;
+        List<LotDisposal> disposals = new ArrayList<>();
+
+        for (TaxLot lot : order) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = Math.min(remaining, lot.getRemainingQuantity());
+            lot.setRemainingQuantity(lot.getRemainingQuantity() - taken);
+            remaining -= taken;
+
+            BigDecimal lotCost = lot.getCostPrice().multiply(BigDecimal.valueOf(taken));
+            BigDecimal profitLoss = sell.getPrice().subtract(lot.getCostPrice()).multiply(BigDecimal.valueOf(taken));
+            costBasis = costBasis.add(lotCost);
+            realized = realized.add(profitLoss);
+            disposals.add(new LotDisposal(null, lot, sell, taken, lot.getCostPrice(), sell.getPrice(), profitLoss));
+        }
+
+        if (remaining > 0) {
+            int available = sell.getQuantity() - remaining;
+            if (method == LotMethod.SPECIFIC_LOT) {
+                throw new IllegalArgumentException(
+                        "Selected lots hold only " + available + " shares, requested: " + sell.getQuantity());
+            }
+            throw new IllegalStateException(
+                    "Not enough shares in open lots. Available: " + available + ", requested: " + sell.getQuantity());
+        }
+
+        taxLotRepository.saveAll(order);
+        lotDisposalRepository.saveAll(disposals);
+
+        BigDecimal proceeds = sell.getPrice().multiply(BigDecimal.valueOf(sell.getQuantity()));
+        addRealized(sell.getPortfolio(), sell.getStock(), sell.getQuantity(), proceeds, costBasis, realized);
+
+        return remainingCost(openLots);
+    }
+
+    @Override
+    @Transactional
+    public BigDecimal removeLot(Trade buy) {
+        logger.debug("Removing tax lot of trade {}", buy.getId());
+
+        List<TaxLot> openLots = lockOpenLots(buy.getPortfolio(), buy.getStock());
+        TaxLot lot = taxLotRepository.findByTradeId(buy.getId()).orElse(null);
+
+        if (lot != null) {
+            if (lot.getRemainingQuantity() < lot.getQuantity()) {
+                throw new IllegalStateException("Cannot delete a buy trade whose shares have already been sold");
+            }
+            openLots.remove(lot);
+            taxLotRepository.delete(lot);
+        } else {
+            // Покупка до учета лотов: ее акции входят только в догоняющие лоты, уменьшаем их
+            // начиная со старых. Лоты других покупок не затрагиваются, поэтому если догоняющих
+            // лотов не хватает, часть акций этой покупки уже продана
+            int remaining = buy.getQuantity();
+            for (TaxLot openLot : new ArrayList<>(openLots)) {
+                if (remaining == 0) {
+                    break;
+                }
+                if (openLot.getTrade() != null) {
+                    continue;
+                }
+                int taken = Math.min(remaining, openLot.getRemainingQuantity());
+                openLot.setQuantity(openLot.getQuantity() - taken);
+                openLot.setRemainingQuantity(openLot.getRemainingQuantity() - taken);
+                remaining -= taken;
+
+                if (openLot.getQuantity() == 0) {
+                    openLots.remove(openLot);
+                    taxLotRepository.delete(openLot);
+                } else {
+                    taxLotRepository.save(openLot);
+                }
+            }
+            if (remaining > 0) {
+                throw new IllegalStateException("Cannot delete a buy trade whose shares have already been sold");
+            }
+        }
+
+        return remainingCost(openLots);
+    }
+
+    @Override
+    @Transactional
+    public BigDecimal reverseDisposals(Trade sell) {
+        logger.debug("Reversing tax lot disposals of trade {}", sell.getId());
+
+        List<TaxLot> openLots = lockOpenLots(sell.getPortfolio(), sell.getStock());
+        List<LotDisposal> disposals = lotDisposalRepository.findByTradeId(sell.getId());
+
+        if (disposals.isEmpty()) {
+            return restoreLegacySale(sell, openLots);
+        }
+
+        BigDecimal restoredCost = BigDecimal.ZERO;
+        BigDecimal realized = BigDecimal.ZERO;
+        for (LotDisposal disposal : disposals) {
+            TaxLot lot = disposal.getLot();
+            lot.setRemainingQuantity(lot.getRemainingQuantity() + disposal.getQuantity());
+            taxLotRepository.save(lot);
+
+            restoredCost = restoredCost.add(disposal.getCostPrice().multiply(BigDecimal.valueOf(disposal.getQuantity())));
+            realized = realized.add(disposal.getRealizedProfitLoss());
+        }
+        lotDisposalRepository.deleteAll(disposals);
+
+        BigDecimal proceeds = sell.getPrice().multiply(BigDecimal.valueOf(sell.getQuantity()));
+        addRealized(sell.getPortfolio(), sell.getStock(), -sell.getQuantity(),
+                proceeds.negate(), restoredCost.negate(), realized.negate());
+
+        return restoredCost;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaxLotDTO> getOpenLots(Long portfolioId) {
+        logger.debug("Getting open tax lots for portfolio with id: {}", portfolioId);
+
+        return taxLotRepository.findOpenLotsByPortfolioId(portfolioId).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProfitLossReportDTO getProfitLossReport(Long portfolioId) {
+        logger.debug("Building profit/loss report for portfolio with id: {}", portfolioId);
+
+        // Средняя цена позиции равна себестоимости ее открытых лотов, поэтому нереализованный
+        // результат считается по позициям, а реализованный берется из накопленных итогов
+        Map<Long, ProfitLossReportDTO.PositionProfitLoss> positions = new LinkedHashMap<>();
+        for (Holding holding : holdingRepository.findByPortfolioId(portfolioId)) {
+            Stock stock = holding.getStock();
+            BigDecimal quantity = BigDecimal.valueOf(holding.getQuantity());
+            BigDecimal costBasis = holding.getAveragePrice().multiply(quantity);
+            BigDecimal marketValue = stock.getCurrentPrice() != null ? stock.getCurrentPrice().multiply(quantity) : costBasis;
+
+            ProfitLossReportDTO.PositionProfitLoss position = emptyPosition(stock);
+            position.setQuantity(holding.getQuantity());
+            position.setAverageCost(holding.getAveragePrice());
+            position.setCostBasis(costBasis);
+            position.setMarketValue(marketValue);
+            position.setUnrealizedProfitLoss(marketValue.subtract(costBasis));
+            positions.put(stock.getId(), position);
+        }
+
+        for (RealizedGain gain : realizedGainRepository.findByPortfolioId(portfolioId)) {
+            ProfitLossReportDTO.PositionProfitLoss position =
+                    positions.computeIfAbsent(gain.getStock().getId(), id -> emptyPosition(gain.getStock()));
+            position.setQuantitySold(gain.getQuantitySold());
+            position.setProceeds(gain.getProceeds());
+            position.setRealizedProfitLoss(gain.getRealizedProfitLoss());
+        }
+
+        ProfitLossReportDTO report = new ProfitLossReportDTO();
+        report.setPortfolioId(portfolioId);
+        report.setCostBasis(BigDecimal.ZERO);
+        report.setMarketValue(BigDecimal.ZERO);
+        report.setUnrealizedProfitLoss(BigDecimal.ZERO);
+        report.setRealizedProfitLoss(BigDecimal.ZERO);
+        for (ProfitLossReportDTO.PositionProfitLoss position : positions.values()) {
+            report.setCostBasis(report.getCostBasis().add(position.getCostBasis()));
+            report.setMarketValue(report.getMarketValue().add(position.getMarketValue()));
+            report.setUnrealizedProfitLoss(report.getUnrealizedProfitLoss().add(position.getUnrealizedProfitLoss()));
+            report.setRealizedProfitLoss(report.getRealizedProfitLoss().add(position.getRealizedProfitLoss()));
+        }
+        report.setTotalProfitLoss(report.getUnrealizedProfitLoss().add(report.getRealizedProfitLoss()));
+        report.setPositions(new ArrayList<>(positions.values()));
+
+        return report;
+    }
+
+    /**
+     * Возвращает акции продажи, сделанной до учета лотов. Такая продажа уменьшила позицию,
+     * купленную до учета лотов, поэтому акции возвращаются в догоняющий лот по его цене и дате;
+     * если его нет, открывается новый по средней цене позиции (по цене продажи, если позиция
+     * закрыта и себестоимость неизвестна)
+     * @return Себестоимость возвращенных акций
+     */
+    private BigDecimal restoreLegacySale(Trade sell, List<TaxLot> openLots) {
+        int quantity = sell.getQuantity();
+        TaxLot catchUp = openLots.stream().filter(lot -> lot.getTrade() == null).findFirst().orElse(null);
+
+        BigDecimal costPrice;
+        if (catchUp != null) {
+            catchUp.setQuantity(catchUp.getQuantity() + quantity);
+            catchUp.setRemainingQuantity(catchUp.getRemainingQuantity() + quantity);
+            taxLotRepository.save(catchUp);
+            costPrice = catchUp.getCostPrice();
+        } else {
+            costPrice = holdingRepository.findByPortfolioIdAndStockId(sell.getPortfolio().getId(), sell.getStock().getId())
+                    .map(Holding::getAveragePrice)
+                    .orElse(sell.getPrice());
+            taxLotRepository.save(new TaxLot(null, sell.getPortfolio(), sell.getStock(), null,
+                    legacyOpenDate(sell.getPortfolio(), sell.getStock(), openLots), quantity, quantity, costPrice));
+        }
+        return costPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+
+    /**
+     * Дата открытия акций, купленных до учета лотов: первая сделка по акции или самый старый лот,
+     * если сделок раньше нет, иначе дата создания портфеля. Такие акции всегда старше учтенных
+     * лотов, поэтому при списании по FIFO расходуются первыми
+     */
+    private LocalDateTime legacyOpenDate(Portfolio portfolio, Stock stock, List<TaxLot> openLots) {
+        LocalDateTime openDate = tradeRepository.findFirstTradeTimestamp(portfolio.getId(), stock.getId());
+        for (TaxLot lot : openLots) {
+            if (openDate == null || lot.getOpenDate().isBefore(openDate)) {
+                openDate = lot.getOpenDate();
+            }
+        }
+        if (openDate == null) {
+            openDate = portfolio.getCreationDate() != null ? portfolio.getCreationDate() : LocalDate.EPOCH.atStartOfDay();
+        }
+        return openDate;
+    }
+
+    /**
+     * Блокирует открытые лоты позиции и дополняет их лотом по средней цене, если позиция
+     * больше суммы лотов (позиции, открытые до появления учета лотов)
+     * @return Открытые лоты от старых к новым
+     */
+    private List<TaxLot> lockOpenLots(Portfolio portfolio, Stock stock) {
+        List<TaxLot> openLots = taxLotRepository.findOpenLotsForUpdate(portfolio.getId(), stock.getId());
+
+        Holding holding = holdingRepository.findByPortfolioIdAndStockId(portfolio.getId(), stock.getId()).orElse(null);
+        int lotQuantity = openLots.stream().mapToInt(TaxLot::getRemainingQuantity).sum();
+        if (holding != null && holding.getQuantity() > lotQuantity) {
+            int missing = holding.getQuantity() - lotQuantity;
+            LocalDateTime openDate = legacyOpenDate(portfolio, stock, openLots);
+            logger.info("Opening catch-up tax lot of {} shares for portfolio {} and stock {}",
+                    missing, portfolio.getId(), stock.getId());
+
+            TaxLot catchUp = taxLotRepository.save(new TaxLot(null, portfolio, stock, null,
+                    openDate, missing, missing, holding.getAveragePrice()));
+            openLots.add(0, catchUp);
+        }
+
+        return openLots;
+    }
+
+    /**
+     * Порядок списания лотов для выбранного способа
+     */
+    private List<TaxLot> disposalOrder(List<TaxLot> openLots, LotMethod method, List<Long> lotIds) {
+        switch (method) {
+            case FIFO:
+                return openLots;
+            case LIFO:
+                List<TaxLot> newestFirst = new ArrayList<>(openLots);
+                Collections.reverse(newestFirst);
+                return newestFirst;
+            case SPECIFIC_LOT:
+                if (lotIds == null || lotIds.isEmpty()) {
+                    throw new IllegalArgumentException("Lot IDs are required for SPECIFIC_LOT method");
+                }
+                Map<Long, TaxLot> byId = openLots.stream()
+                        .collect(Collectors.toMap(TaxLot::getId, lot -> lot));
+                List<TaxLot> selected = new ArrayList<>();
+                for (Long lotId : new LinkedHashSet<>(lotIds)) {
+                    TaxLot lot = byId.get(lotId);
+                    if (lot == null) {
+                        throw new IllegalArgumentException("Lot " + lotId + " is not an open lot of this position");
+                    }
+                    selected.add(lot);
+                }
+                return selected;
+            default:
+                throw new IllegalArgumentException("Unsupported lot method: " + method);
+        }
+    }
+
+    /**
+     * Добавляет продажу (или вычитает отмененную) к накопленному результату по акции
+     */
+    private void addRealized(Portfolio portfolio, Stock stock, int quantitySold,
+                             BigDecimal proceeds, BigDecimal costBasis, BigDecimal profitLoss) {
+        RealizedGain gain = realizedGainRepository.findByPortfolioIdAndStockId(portfolio.getId(), stock.getId())
+                .orElseGet(() -> {
+                    RealizedGain created = new RealizedGain();
+                    created.setPortfolio(portfolio);
+                    created.setStock(stock);
+                    return created;
+                });
+
+        gain.setQuantitySold(gain.getQuantitySold() + quantitySold);
+        gain.setProceeds(gain.getProceeds().add(proceeds));
+        gain.setCostBasis(gain.getCostBasis().add(costBasis));
+        gain.setRealizedProfitLoss(gain.getRealizedProfitLoss().add(profitLoss));
+        gain.setUpdatedDate(LocalDateTime.now());
+        realizedGainRepository.save(gain);
+    }
+
+    private BigDecimal remainingCost(List<TaxLot> lots) {
+        BigDecimal cost = BigDecimal.ZERO;
+        for (TaxLot lot : lots) {
+            cost = cost.add(lot.getCostPrice().multiply(BigDecimal.valueOf(lot.getRemainingQuantity())));
+        }
+        return cost;
+    }
+
+    private ProfitLossReportDTO.PositionProfitLoss emptyPosition(Stock stock) {
+        ProfitLossReportDTO.PositionProfitLoss position = new ProfitLossReportDTO.PositionProfitLoss();
+        position.setStockId(stock.getId());
+        position.setStockSymbol(stock.getSymbol());
+        position.setQuantity(0);
+        position.setAverageCost(BigDecimal.ZERO);
+        position.setCurrentPrice(stock.getCurrentPrice());
+        position.setCostBasis(BigDecimal.ZERO);
+        position.setMarketValue(BigDecimal.ZERO);
+        position.setUnrealizedProfitLoss(BigDecimal.ZERO);
+        position.setQuantitySold(0L);
+        position.setProceeds(BigDecimal.ZERO);
+        position.setRealizedProfitLoss(BigDecimal.ZERO);
+        return position;
+    }
+
+    private TaxLotDTO convertToDTO(TaxLot lot) {
+        Stock stock = lot.getStock();
+
+        TaxLotDTO dto = new TaxLotDTO();
+        dto.setId(lot.getId());
+        dto.setPortfolioId(lot.getPortfolio().getId());
+        dto.setStockId(stock.getId());
+        dto.setStockSymbol(stock.getSymbol());
+        dto.setTradeId(lot.getTrade() != null ? lot.getTrade().getId() : null);
+        dto.setOpenDate(lot.getOpenDate());
+        dto.setQuantity(lot.getQuantity());
+        dto.setRemainingQuantity(lot.getRemainingQuantity());
+        dto.setCostPrice(lot.getCostPrice());
+        dto.setCurrentPrice(stock.getCurrentPrice());
+        dto.setUnrealizedProfitLoss(stock.getCurrentPrice() != null
+                ? stock.getCurrentPrice().subtract(lot.getCostPrice()).multiply(BigDecimal.valueOf(lot.getRemainingQuantity()))
+                : BigDecimal.ZERO);
+        return dto;
+    }
+}
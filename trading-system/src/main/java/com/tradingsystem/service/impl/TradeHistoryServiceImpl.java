@@ -0,0 +1,167 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tradingsystem.model.dto.TradeDTO;
+import com.tradingsystem.model.dto.TradePageDTO;
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.repository.projection.TradeHistoryRow;
+import com.tradingsystem.service.interfaces.TradeHistoryService;
+
+/**
+ * Реализация сервиса чтения истории сделок.
+ * Страницы выбираются по курсору (timestamp, id) последней выданной сделки: каждая страница -
+ * один проход по индексу, сколько бы страниц ни было до нее. Потоковая выдача читает строки
+ * курсором базы данных порциями, поэтому память не зависит от размера истории
+ */
+@Service
+public class TradeHistoryServiceImpl implements TradeHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeHistoryServiceImpl.class);
+    private static final char CURSOR_SEPARATOR = '|';
+
+    private final TradeRepository tradeRepository;
+
+    @Autowired
+    public TradeHistoryServiceImpl(TradeRepository tradeRepository) {
+        this.tradeRepository = tradeRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TradeDTO> getUserTrades(Long userId) {
+        logger.debug("Getting trade history for user with id: {}", userId);
+        List<TradeDTO> trades = new ArrayList<>();
+        streamUserTrades(userId, trades::add);
+        return trades;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TradeDTO> getPortfolioTrades(Long portfolioId) {
+        logger.debug("Getting trade history for portfolio with id: {}", portfolioId);
+        List<TradeDTO> trades = new ArrayList<>();
+        streamPortfolioTrades(portfolioId, trades::add);
+        return trades;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TradePageDTO getUserTradePage(Long userId, String cursor, int limit) {
+        return page(cursor, limit,
+                pageRequest -> tradeRepository.findUserHistoryPage(userId, pageRequest),
+                (after, pageRequest) -> tradeRepository.findUserHistoryPageAfter(userId, after.timestamp(), after.id(), pageRequest));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TradePageDTO getPortfolioTradePage(Long portfolioId, String cursor, int limit) {
+        List<Long> portfolioIds = List.of(portfolioId);
+        return page(cursor, limit,
+                pageRequest -> tradeRepository.findHistoryPage(portfolioIds, pageRequest),
+                (after, pageRequest) -> tradeRepository.findHistoryPageAfter(portfolioIds, after.timestamp(), after.id(), pageRequest));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamUserTrades(Long userId, Consumer<TradeDTO> consumer) {
+        long count = stream(tradeRepository.streamUserHistory(userId), consumer);
+        logger.debug("Streamed {} trades for user {}", count, userId);
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamPortfolioTrades(Long portfolioId, Consumer<TradeDTO> consumer) {
+        long count = stream(tradeRepository.streamHistory(List.of(portfolioId)), consumer);
+        logger.debug("Streamed {} trades for portfolio {}", count, portfolioId);
+        return count;
+    }
+
+    /**
+     * Выбирает страницу истории: первую или после позиции, закодированной в курсоре
+     */
+    private TradePageDTO page(String cursor, int limit,
+                              Function<PageRequest, List<TradeHistoryRow>> firstPage,
+                              BiFunction<Position, PageRequest, List<TradeHistoryRow>> pageAfter) {
+        // Лишняя строка показывает, есть ли следующая страница, без отдельного запроса
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<TradeHistoryRow> rows = cursor == null || cursor.isBlank()
+                ? firstPage.apply(pageRequest)
+                : pageAfter.apply(decodeCursor(cursor), pageRequest);
+
+        boolean hasMore = rows.size() > limit;
+        List<TradeHistoryRow> pageRows = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? encodeCursor(pageRows.get(pageRows.size() - 1)) : null;
+        return new TradePageDTO(pageRows.stream().map(this::toDTO).collect(Collectors.toList()), nextCursor);
+    }
+
+    private long stream(Stream<TradeHistoryRow> history, Consumer<TradeDTO> consumer) {
+        long count = 0;
+        try (Stream<TradeHistoryRow> rows = history) {
+            for (TradeHistoryRow row : (Iterable<TradeHistoryRow>) rows::iterator) {
+                consumer.accept(toDTO(row));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private TradeDTO toDTO(TradeHistoryRow row) {
+        TradeDTO dto = new TradeDTO();
+        dto.setId(row.getId());
+        dto.setPortfolioId(row.getPortfolioId());
+        dto.setStockId(row.getStockId());
+        dto.setStockSymbol(row.getStockSymbol());
+        dto.setType(row.getType().name());
+        dto.setQuantity(row.getQuantity());
+        dto.setPrice(row.getPrice());
+        dto.setTimestamp(row.getTimestamp());
+        dto.setTotalValue(row.getPrice().multiply(new BigDecimal(row.getQuantity())));
+        return dto;
+    }
+
+    /**
+     * Курсор - позиция последней выданной сделки в порядке выдачи, закодированная в base64url
+     */
+    private String encodeCursor(TradeHistoryRow row) {
+        String position = row.getTimestamp().toString() + CURSOR_SEPARATOR + row.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Position decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid trade history cursor");
+            }
+            return new Position(LocalDateTime.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException - тоже IllegalArgumentException
+            throw new IllegalArgumentException("Invalid trade history cursor", e);
+        }
+    }
+
+    private record Position(LocalDateTime timestamp, Long id) {
+    }
+}
@@ -0,0 +1,837 @@
+package com.tradingsystem.service.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradingsystem.model.dto.TradeImportResultDTO;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.enums.LotMethod;
+import com.tradingsystem.model.enums.TradeImportFormat;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.service.index.PerformanceCache;
+import com.tradingsystem.service.index.PortfolioExecutionLane;
+import com.tradingsystem.service.index.PortfolioLeaderboard;
+import com.tradingsystem.service.index.PositionBook;
+import com.tradingsystem.service.interfaces.PortfolioHistoryService;
+import com.tradingsystem.service.interfaces.TradeImportService;
+import com.tradingsystem.service.journal.JournalRecord;
+import com.tradingsystem.service.journal.TradeJournal;
+
+/**
+ * Реализация пакетного импорта сделок.
+ * Поток читается построчно; допустимые строки группируются по портфелю и акции и применяются
+ * к позициям и налоговым лотам в памяти в хронологическом порядке. Затем сделки, лоты,
+ * списания и результаты сохраняются пакетами JDBC, каждая позиция обновляется один раз,
+ * а книга позиций, история и рейтинг получают по одному изменению на позицию или портфель
+ */
+@Service
+public class TradeImportServiceImpl implements TradeImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeImportServiceImpl.class);
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PortfolioRepository portfolioRepository;
+    private final PositionBook positionBook;
+    private final PortfolioHistoryService portfolioHistoryService;
+    private final PerformanceCache performanceCache;
+    private final PortfolioLeaderboard portfolioLeaderboard;
+    private final PortfolioExecutionLane executionLane;
+    private final TransactionTemplate transactionTemplate;
+    private final TradeJournal tradeJournal;
+
+    @Value("${app.import.max-rows:100000}")
+    private int maxRows;
+
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.tax-lots.default-method:FIFO}")
+    private LotMethod defaultLotMethod;
+
+    @Autowired
+    public TradeImportServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            PortfolioRepository portfolioRepository,
+            PositionBook positionBook,
+            PortfolioHistoryService portfolioHistoryService,
+            PerformanceCache performanceCache,
+            PortfolioLeaderboard portfolioLeaderboard,
+            PortfolioExecutionLane executionLane,
+            PlatformTransactionManager transactionManager,
+            TradeJournal tradeJournal) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.portfolioRepository = portfolioRepository;
+        this.positionBook = positionBook;
+        this.portfolioHistoryService = portfolioHistoryService;
+        this.performanceCache = performanceCache;
+        this.portfolioLeaderboard = portfolioLeaderboard;
+        this.executionLane = executionLane;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tradeJournal = tradeJournal;
+    }
+
+    @Override
+    @CacheEvict(value = {"holdings", "holdings::portfolio_*"}, allEntries = true)
+    public TradeImportResultDTO importTrades(Long userId, Long defaultPortfolioId, InputStream input,
+                                             TradeImportFormat format, LotMethod lotMethod, boolean dryRun) throws IOException {
+        LotMethod method = lotMethod != null ? lotMethod : defaultLotMethod;
+        if (method == LotMethod.SPECIFIC_LOT) {
+            throw new IllegalArgumentException("SPECIFIC_LOT method is not supported for bulk import");
+        }
+
+        // Учебные портфели бумажной торговли не принимают импорт
+        Set<Long> ownedPortfolios = portfolioRepository.findByUserId(userId).stream()
+                .filter(portfolio -> !portfolio.isSandbox())
+                .map(Portfolio::getId)
+                .collect(Collectors.toSet());
+        if (defaultPortfolioId != null && !ownedPortfolios.contains(defaultPortfolioId)) {
+            throw new IllegalArgumentException("Portfolio not found: " + defaultPortfolioId);
+        }
+
+        ImportReport report = new ImportReport();
+        List<ImportRow> rows = parse(input, format, defaultPortfolioId, report);
+        logger.info("Importing {} trades for user {} ({} rejected while parsing)", rows.size(), userId, report.failed);
+
+        Map<String, StockInfo> stocksBySymbol = loadStocks(rows);
+        Map<PositionKey, List<ImportRow>> groups = new LinkedHashMap<>();
+        for (ImportRow row : rows) {
+            StockInfo stock = stocksBySymbol.get(row.symbol);
+            if (!ownedPortfolios.contains(row.portfolioId)) {
+                report.reject(row.line, "Portfolio not found: " + row.portfolioId);
+            } else if (stock == null) {
+                report.reject(row.line, "Unknown stock symbol: " + row.symbol);
+            } else {
+                row.stock = stock;
+                groups.computeIfAbsent(new PositionKey(row.portfolioId, stock.id), key -> new ArrayList<>()).add(row);
+            }
+        }
+
+        // Поток уже прочитан: очереди затронутых портфелей и транзакция занимаются только на запись
+        Set<Long> portfolioIds = groups.keySet().stream().map(PositionKey::portfolioId).collect(Collectors.toSet());
+        return executionLane.execute(portfolioIds, () -> transactionTemplate.execute(
+                status -> applyAndPersist(userId, groups, method, dryRun, report)));
+    }
+
+    /**
+     * Применяет строки к позициям и сохраняет результат (в транзакции, в очередях портфелей)
+     */
+    private TradeImportResultDTO applyAndPersist(Long userId, Map<PositionKey, List<ImportRow>> groups, LotMethod method,
+                                                 boolean dryRun, ImportReport report) {
+        List<PositionState> positions = applyToPositions(groups, method, report);
+        List<ImportRow> accepted = new ArrayList<>();
+        for (PositionState position : positions) {
+            accepted.addAll(position.rows);
+        }
+        positions.removeIf(position -> position.rows.isEmpty());
+
+        if (!dryRun && !accepted.isEmpty()) {
+            persist(userId, accepted, positions);
+            publish(positions);
+        }
+
+        Set<Long> portfolios = positions.stream().map(position -> position.key.portfolioId).collect(Collectors.toSet());
+        return new TradeImportResultDTO(dryRun, report.total, accepted.size(), report.failed,
+                portfolios.size(), positions.size(), report.errors);
+    }
+
+    /**
+     * Читает поток построчно и преобразует строки в сделки; ошибочные строки попадают в отчет
+     */
+    private List<ImportRow> parse(InputStream input, TradeImportFormat format, Long defaultPortfolioId,
+                                  ImportReport report) throws IOException {
+        List<ImportRow> rows = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        List<String> header = null;
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            Map<String, String> fields;
+            if (format == TradeImportFormat.CSV) {
+                List<String> values = splitCsv(line);
+                if (header == null) {
+                    header = values.stream().map(TradeImportServiceImpl::normalizeField).collect(Collectors.toList());
+                    continue;
+                }
+                fields = new HashMap<>();
+                for (int i = 0; i < header.size() && i < values.size(); i++) {
+                    fields.put(header.get(i), values.get(i).trim());
+                }
+            } else {
+                fields = readJsonLine(line);
+            }
+
+            report.total++;
+            if (report.total > maxRows) {
+                throw new IllegalArgumentException("Import is limited to " + maxRows + " rows");
+            }
+
+            try {
+                rows.add(toRow(lineNumber, fields, defaultPortfolioId));
+            } catch (IllegalArgumentException e) {
+                report.reject(lineNumber, e.getMessage());
+            }
+        }
+        return rows;
+    }
+
+    private Map<String, String> readJsonLine(String line) {
+        Map<String, String> fields = new HashMap<>();
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (node != null && node.isObject()) {
+                node.fields().forEachRemaining(field -> {
+                    if (!field.getValue().isNull()) {
+                        fields.put(normalizeField(field.getKey()), field.getValue().asText().trim());
+                    }
+                });
+            }
+        } catch (JsonProcessingException e) {
+            fields.put("error", "Malformed JSON: " + e.getOriginalMessage());
+        }
+        return fields;
+    }
+
+    /**
+     * Проверяет поля строки и создает сделку
+     * @throws IllegalArgumentException с описанием первой ошибки
+     */
+    private ImportRow toRow(long line, Map<String, String> fields, Long defaultPortfolioId) {
+        if (fields.containsKey("error")) {
+            throw new IllegalArgumentException(fields.get("error"));
+        }
+
+        ImportRow row = new ImportRow(line);
+        String portfolioId = fields.getOrDefault("portfolioid", "");
+        if (portfolioId.isEmpty()) {
+            if (defaultPortfolioId == null) {
+                throw new IllegalArgumentException("portfolioId is required");
+            }
+            row.portfolioId = defaultPortfolioId;
+        } else {
+            row.portfolioId = parseNumber(portfolioId, "portfolioId").longValueExact();
+        }
+
+        row.symbol = fields.getOrDefault("symbol", fields.getOrDefault("stocksymbol", "")).toUpperCase();
+        if (row.symbol.isEmpty()) {
+            throw new IllegalArgumentException("symbol is required");
+        }
+
+        try {
+            row.type = TradeType.valueOf(fields.getOrDefault("type", "").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("type must be BUY or SELL");
+        }
+
+        BigDecimal quantity = parseNumber(fields.getOrDefault("quantity", ""), "quantity");
+        if (quantity.signum() <= 0 || quantity.stripTrailingZeros().scale() > 0 || quantity.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0) {
+            throw new IllegalArgumentException("quantity must be a positive integer");
+        }
+        row.quantity = quantity.intValueExact();
+
+        row.price = parseNumber(fields.getOrDefault("price", ""), "price");
+        if (row.price.signum() <= 0) {
+            throw new IllegalArgumentException("price must be positive");
+        }
+        row.price = row.price.setScale(4, RoundingMode.HALF_UP);
+
+        String timestamp = fields.getOrDefault("timestamp", "");
+        try {
+            row.timestamp = timestamp.isEmpty() ? LocalDateTime.now() : LocalDateTime.parse(timestamp.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("timestamp must be yyyy-MM-dd HH:mm:ss");
+        }
+        return row;
+    }
+
+    /**
+     * Загружает акции по символам импортируемых строк одним запросом
+     */
+    private Map<String, StockInfo> loadStocks(List<ImportRow> rows) {
+        String[] symbols = rows.stream().map(row -> row.symbol).distinct().toArray(String[]::new);
+        if (symbols.length == 0) {
+            return Map.of();
+        }
+
+        return jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(
+                            "SELECT id, symbol, current_price FROM stocks WHERE UPPER(symbol) = ANY (?)");
+                    ps.setArray(1, connection.createArrayOf("varchar", symbols));
+                    return ps;
+                },
+                (rs, rowNum) -> new StockInfo(rs.getLong("id"), rs.getString("symbol").toUpperCase(), rs.getBigDecimal("current_price")))
+                .stream()
+                .collect(Collectors.toMap(stock -> stock.symbol, Function.identity(), (first, second) -> first));
+    }
+
+    /**
+     * Применяет строки к позициям и открытым лотам в хронологическом порядке.
+     * Позиции и лоты затронутых портфелей блокируются до конца транзакции; акции, зарезервированные
+     * активными заявками на продажу, для продаж из файла недоступны (как в {@link TradeServiceImpl})
+     */
+    private List<PositionState> applyToPositions(Map<PositionKey, List<ImportRow>> groups, LotMethod method,
+                                                 ImportReport report) {
+        if (groups.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Long[] portfolioIds = groups.keySet().stream().map(key -> key.portfolioId).distinct().toArray(Long[]::new);
+
+        Map<PositionKey, PositionState> positions = new HashMap<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(
+                            "SELECT id, portfolio_id, stock_id, quantity, average_price FROM holdings " +
+                                    "WHERE portfolio_id = ANY (?) FOR UPDATE");
+                    ps.setArray(1, connection.createArrayOf("bigint", portfolioIds));
+                    return ps;
+                },
+                rs -> {
+                    PositionKey key = new PositionKey(rs.getLong("portfolio_id"), rs.getLong("stock_id"));
+                    if (groups.containsKey(key)) {
+                        positions.put(key, new PositionState(key, rs.getLong("id"), rs.getInt("quantity"), rs.getBigDecimal("average_price")));
+                    }
+                });
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(
+                            "SELECT id, portfolio_id, stock_id, open_date, remaining_quantity, cost_price FROM tax_lots " +
+                                    "WHERE portfolio_id = ANY (?) AND remaining_quantity > 0 ORDER BY open_date, id FOR UPDATE");
+                    ps.setArray(1, connection.createArrayOf("bigint", portfolioIds));
+                    return ps;
+                },
+                rs -> {
+                    PositionState position = positions.get(new PositionKey(rs.getLong("portfolio_id"), rs.getLong("stock_id")));
+                    if (position != null) {
+                        position.lots.add(new LotState(rs.getLong("id"), null, rs.getTimestamp("open_date").toLocalDateTime(),
+                                rs.getInt("remaining_quantity"), rs.getInt("remaining_quantity"), rs.getBigDecimal("cost_price")));
+                    }
+                });
+
+        // Резерв читается после блокировки позиций: новая заявка на продажу проверяет резерв
+        // под блокировкой той же позиции
+        Map<PositionKey, Long> reserved = new HashMap<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(
+                            "SELECT portfolio_id, stock_id, SUM(quantity - filled_quantity) AS reserved FROM trade_orders " +
+                                    "WHERE portfolio_id = ANY (?) AND side = 'SELL' AND status IN ('NEW', 'PARTIALLY_FILLED') " +
+                                    "GROUP BY portfolio_id, stock_id");
+                    ps.setArray(1, connection.createArrayOf("bigint", portfolioIds));
+                    return ps;
+                },
+                rs -> {
+                    reserved.put(new PositionKey(rs.getLong("portfolio_id"), rs.getLong("stock_id")), rs.getLong("reserved"));
+                });
+
+        List<PositionState> result = new ArrayList<>(groups.size());
+        for (Map.Entry<PositionKey, List<ImportRow>> group : groups.entrySet()) {
+            long reservedQuantity = reserved.getOrDefault(group.getKey(), 0L);
+            PositionState position = positions.computeIfAbsent(group.getKey(),
+                    key -> new PositionState(key, null, 0, BigDecimal.ZERO));
+            position.stock = group.getValue().get(0).stock;
+            position.addCatchUpLot();
+
+            // Сортировка устойчивая: сделки с одинаковым временем применяются в порядке файла
+            List<ImportRow> chronological = new ArrayList<>(group.getValue());
+            chronological.sort(Comparator.comparing(row -> row.timestamp));
+            for (ImportRow row : chronological) {
+                if (row.type == TradeType.BUY) {
+                    position.buy(row);
+                } else if (row.quantity > position.quantity - reservedQuantity) {
+                    report.reject(row.line, "Not enough stocks to sell. Available: " + Math.max(0, position.quantity - reservedQuantity)
+                            + (reservedQuantity > 0 ? " (" + reservedQuantity + " reserved by open orders)" : "")
+                            + ", requested: " + row.quantity);
+                } else {
+                    position.sell(row, method);
+                }
+            }
+            result.add(position);
+        }
+        return result;
+    }
+
+    /**
+     * Сохраняет сделки, лоты, списания, реализованный результат и позиции пакетами
+     */
+    private void persist(Long userId, List<ImportRow> accepted, List<PositionState> positions) {
+        List<Long> tradeIds = insertReturningIds(
+                "INSERT INTO trades (portfolio_id, user_id, stock_id, type, quantity, price, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                accepted, (ps, row) -> {
+                    ps.setLong(1, row.portfolioId);
+                    ps.setLong(2, userId);
+                    ps.setLong(3, row.stock.id);
+                    ps.setString(4, row.type.name());
+                    ps.setInt(5, row.quantity);
+                    ps.setBigDecimal(6, row.price);
+                    ps.setTimestamp(7, Timestamp.valueOf(row.timestamp));
+                });
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).tradeId = tradeIds.get(i);
+        }
+
+        List<LotState> newLots = new ArrayList<>();
+        List<LotState> changedLots = new ArrayList<>();
+        List<Disposal> disposals = new ArrayList<>();
+        for (PositionState position : positions) {
+            for (LotState lot : position.allLots) {
+                if (lot.id == null) {
+                    newLots.add(lot);
+                } else if (lot.remainingQuantity != lot.initialRemaining) {
+                    changedLots.add(lot);
+                }
+            }
+            disposals.addAll(position.disposals);
+        }
+
+        Map<LotState, PositionState> lotPositions = new HashMap<>();
+        positions.forEach(position -> position.allLots.forEach(lot -> lotPositions.put(lot, position)));
+        List<Long> lotIds = insertReturningIds(
+                "INSERT INTO tax_lots (portfolio_id, stock_id, trade_id, open_date, quantity, remaining_quantity, cost_price) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                newLots, (ps, lot) -> {
+                    PositionState position = lotPositions.get(lot);
+                    ps.setLong(1, position.key.portfolioId);
+                    ps.setLong(2, position.key.stockId);
+                    ps.setObject(3, lot.trade != null ? lot.trade.tradeId : null, Types.BIGINT);
+                    ps.setTimestamp(4, Timestamp.valueOf(lot.openDate));
+                    ps.setInt(5, lot.quantity);
+                    ps.setInt(6, lot.remainingQuantity);
+                    ps.setBigDecimal(7, lot.costPrice);
+                });
+        for (int i = 0; i < newLots.size(); i++) {
+            newLots.get(i).id = lotIds.get(i);
+        }
+
+        batchUpdate("UPDATE tax_lots SET remaining_quantity = ? WHERE id = ?", changedLots, (ps, lot) -> {
+            ps.setInt(1, lot.remainingQuantity);
+            ps.setLong(2, lot.id);
+        });
+
+        batchUpdate("INSERT INTO lot_disposals (lot_id, trade_id, quantity, cost_price, sale_price, realized_profit_loss) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", disposals, (ps, disposal) -> {
+            ps.setLong(1, disposal.lot.id);
+            ps.setLong(2, disposal.sell.tradeId);
+            ps.setInt(3, disposal.quantity);
+            ps.setBigDecimal(4, disposal.lot.costPrice);
+            ps.setBigDecimal(5, disposal.sell.price);
+            ps.setBigDecimal(6, disposal.profitLoss());
+        });
+
+        List<PositionState> realized = positions.stream().filter(position -> position.quantitySold > 0).collect(Collectors.toList());
+        batchUpdate("INSERT INTO realized_gains (portfolio_id, stock_id, quantity_sold, proceeds, cost_basis, realized_profit_loss, updated_date) " +
+                "VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+                "ON CONFLICT (portfolio_id, stock_id) DO UPDATE SET " +
+                "quantity_sold = realized_gains.quantity_sold + EXCLUDED.quantity_sold, " +
+                "proceeds = realized_gains.proceeds + EXCLUDED.proceeds, " +
+                "cost_basis = realized_gains.cost_basis + EXCLUDED.cost_basis, " +
+                "realized_profit_loss = realized_gains.realized_profit_loss + EXCLUDED.realized_profit_loss, " +
+                "updated_date = EXCLUDED.updated_date", realized, (ps, position) -> {
+            ps.setLong(1, position.key.portfolioId);
+            ps.setLong(2, position.key.stockId);
+            ps.setLong(3, position.quantitySold);
+            ps.setBigDecimal(4, position.proceeds);
+            ps.setBigDecimal(5, position.soldCost);
+            ps.setBigDecimal(6, position.proceeds.subtract(position.soldCost));
+        });
+
+        // Каждая позиция записывается один раз: обновление, удаление закрытой или вставка новой
+        List<PositionState> updated = new ArrayList<>();
+        List<PositionState> closed = new ArrayList<>();
+        List<PositionState> opened = new ArrayList<>();
+        for (PositionState position : positions) {
+            if (position.holdingId == null) {
+                if (position.quantity > 0) {
+                    opened.add(position);
+                }
+            } else if (position.quantity == 0) {
+                closed.add(position);
+            } else {
+                updated.add(position);
+            }
+        }
+        batchUpdate("UPDATE holdings SET quantity = ?, average_price = ?, version = version + 1 WHERE id = ?", updated, (ps, position) -> {
+            ps.setInt(1, position.quantity);
+            ps.setBigDecimal(2, position.averagePrice());
+            ps.setLong(3, position.holdingId);
+        });
+        batchUpdate("DELETE FROM holdings WHERE id = ?", closed, (ps, position) -> ps.setLong(1, position.holdingId));
+        batchUpdate("INSERT INTO holdings (portfolio_id, stock_id, quantity, average_price, version) VALUES (?, ?, ?, ?, 0)",
+                opened, (ps, position) -> {
+                    ps.setLong(1, position.key.portfolioId);
+                    ps.setLong(2, position.key.stockId);
+                    ps.setInt(3, position.quantity);
+                    ps.setBigDecimal(4, position.averagePrice());
+                });
+
+        logger.info("Imported {} trades into {} positions ({} new lots, {} disposals)",
+                accepted.size(), positions.size(), newLots.size(), disposals.size());
+    }
+
+    /**
+     * Передает итоговое состояние позиций в книгу позиций, рейтинг, историю, кэш показателей
+     * и журнал сделок (изменения применяются после фиксации транзакции)
+     */
+    private void publish(List<PositionState> positions) {
+        Map<Long, BigDecimal> netFlows = new HashMap<>();
+        Map<Long, LocalDate> firstDates = new HashMap<>();
+        for (PositionState position : positions) {
+            Long portfolioId = position.key.portfolioId;
+            for (ImportRow row : position.rows) {
+                BigDecimal notional = row.price.multiply(BigDecimal.valueOf(row.quantity));
+                netFlows.merge(portfolioId, row.type == TradeType.BUY ? notional : notional.negate(), BigDecimal::add);
+                firstDates.merge(portfolioId, row.timestamp.toLocalDate(), (a, b) -> a.isBefore(b) ? a : b);
+            }
+        }
+
+        // Денежные потоки учитываются в рейтинге до изменения стоимости в книге позиций
+        netFlows.forEach(portfolioLeaderboard::onTrade);
+        for (PositionState position : positions) {
+            positionBook.onPositionChanged(position.key.portfolioId, position.key.stockId, position.quantity,
+                    position.quantity > 0 ? position.averagePrice() : BigDecimal.ZERO, position.stock.currentPrice);
+        }
+        firstDates.forEach((portfolioId, date) -> {
+            portfolioHistoryService.invalidateFrom(portfolioId, date);
+            performanceCache.invalidate(portfolioId);
+        });
+
+        // Строки позиции журналируются в порядке применения: последняя запись - итоговое состояние
+        List<JournalRecord> records = new ArrayList<>();
+        for (PositionState position : positions) {
+            for (ImportRow row : position.rows) {
+                records.add(JournalRecord.of(JournalRecord.TRADE_BOOKED, row.tradeId, row.portfolioId, row.stock.id,
+                        row.type, row.quantity, row.price, row.timestamp, row.quantityAfter, row.averagePriceAfter));
+            }
+        }
+        tradeJournal.recordAll(records);
+    }
+
+    private <T> List<Long> insertReturningIds(String sql, List<T> items, StatementBinder<T> binder) {
+        List<Long> ids = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += batchSize) {
+            List<T> chunk = items.subList(from, Math.min(from + batchSize, items.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            binder.bind(ps, chunk.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    }, keyHolder);
+            for (Map<String, Object> keys : keyHolder.getKeyList()) {
+                ids.add(((Number) keys.get("id")).longValue());
+            }
+        }
+        return ids;
+    }
+
+    private <T> void batchUpdate(String sql, List<T> items, StatementBinder<T> binder) {
+        if (!items.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, items, batchSize, binder::bind);
+        }
+    }
+
+    /**
+     * Разбирает строку CSV с учетом кавычек ("" внутри кавычек - сама кавычка)
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    /**
+     * Приводит имя поля к единому виду: portfolio_id, portfolioId и PortfolioID совпадают
+     * (метка порядка байтов в начале файла отбрасывается)
+     */
+    private static String normalizeField(String name) {
+        return name.replace("\uFEFF", "").trim().replace("_", "").toLowerCase();
+    }
+
+    private static BigDecimal parseNumber(String value, String field) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder<T> {
+        void bind(PreparedStatement ps, T item) throws SQLException;
+    }
+
+    /**
+     * Счетчики строк и ошибки импорта
+     */
+    private static final class ImportReport {
+        private int total;
+        private int failed;
+        private final List<TradeImportResultDTO.RowError> errors = new ArrayList<>();
+
+        private void reject(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new TradeImportResultDTO.RowError(line, message));
+            }
+        }
+    }
+
+    /**
+     * Проверенная строка импорта
+     */
+    private static final class ImportRow {
+        private final long line;
+        private Long portfolioId;
+        private String symbol;
+        private StockInfo stock;
+        private TradeType type;
+        private int quantity;
+        private BigDecimal price;
+        private LocalDateTime timestamp;
+        private Long tradeId;
+        /** Состояние позиции после применения строки */
+        private int quantityAfter;
+        private BigDecimal averagePriceAfter;
+
+        private ImportRow(long line) {
+            this.line = line;
+        }
+    }
+
+    private static final class StockInfo {
+        private final long id;
+        private final String symbol;
+        private final BigDecimal currentPrice;
+
+        private StockInfo(long id, String symbol, BigDecimal currentPrice) {
+            this.id = id;
+            this.symbol = symbol;
+            this.currentPrice = currentPrice;
+        }
+    }
+
+    private record PositionKey(Long portfolioId, Long stockId) {
+    }
+
+    /**
+     * Налоговый лот: существующий (id задан) или открываемый импортом
+     */
+    private static final class LotState {
+        private Long id;
+        private final ImportRow trade;
+        private final LocalDateTime openDate;
+        private final int quantity;
+        private final int initialRemaining;
+        private int remainingQuantity;
+        private final BigDecimal costPrice;
+
+        private LotState(Long id, ImportRow trade, LocalDateTime openDate, int quantity, int remainingQuantity, BigDecimal costPrice) {
+            this.id = id;
+            this.trade = trade;
+            this.openDate = openDate;
+            this.quantity = quantity;
+            this.initialRemaining = remainingQuantity;
+            this.remainingQuantity = remainingQuantity;
+            this.costPrice = costPrice;
+        }
+    }
+
+    private static final class Disposal {
+        private final LotState lot;
+        private final ImportRow sell;
+        private final int quantity;
+
+        private Disposal(LotState lot, ImportRow sell, int quantity) {
+            this.lot = lot;
+            this.sell = sell;
+            this.quantity = quantity;
+        }
+
+        private BigDecimal profitLoss() {
+            return sell.price.subtract(lot.costPrice).multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    /**
+     * Позиция (портфель и акция) с открытыми лотами и принятыми строками импорта
+     */
+    private static final class PositionState {
+        private final PositionKey key;
+        private final Long holdingId;
+        private final BigDecimal initialAveragePrice;
+        private StockInfo stock;
+        private int quantity;
+
+        /** Открытые лоты от старых к новым */
+        private final List<LotState> lots = new ArrayList<>();
+        /** Все затронутые лоты, включая закрытые импортом */
+        private final Set<LotState> allLots = new LinkedHashSet<>();
+        private final List<ImportRow> rows = new ArrayList<>();
+        private final List<Disposal> disposals = new ArrayList<>();
+
+        /** Себестоимость открытых лотов */
+        private BigDecimal openCost = BigDecimal.ZERO;
+        private long quantitySold;
+        private BigDecimal proceeds = BigDecimal.ZERO;
+        private BigDecimal soldCost = BigDecimal.ZERO;
+
+        private PositionState(PositionKey key, Long holdingId, int quantity, BigDecimal averagePrice) {
+            this.key = key;
+            this.holdingId = holdingId;
+            this.quantity = quantity;
+            this.initialAveragePrice = averagePrice;
+        }
+
+        /**
+         * Дополняет лоты по средней цене, если позиция больше суммы лотов (позиции, открытые до учета лотов)
+         */
+        private void addCatchUpLot() {
+            allLots.addAll(lots);
+            int lotQuantity = 0;
+            for (LotState lot : lots) {
+                lotQuantity += lot.remainingQuantity;
+                openCost = openCost.add(lot.costPrice.multiply(BigDecimal.valueOf(lot.remainingQuantity)));
+            }
+            if (quantity > lotQuantity) {
+                int missing = quantity - lotQuantity;
+                LocalDateTime openDate = lots.isEmpty() ? LocalDateTime.now() : lots.get(0).openDate;
+                LotState catchUp = new LotState(null, null, openDate, missing, missing, initialAveragePrice);
+                lots.add(0, catchUp);
+                allLots.add(catchUp);
+                openCost = openCost.add(initialAveragePrice.multiply(BigDecimal.valueOf(missing)));
+            }
+        }
+
+        private void buy(ImportRow row) {
+            LotState lot = new LotState(null, row, row.timestamp, row.quantity, row.quantity, row.price);
+            // Лот встает на место по дате открытия: сделки задним числом старше уже открытых лотов
+            int index = lots.size();
+            while (index > 0 && lots.get(index - 1).openDate.isAfter(row.timestamp)) {
+                index--;
+            }
+            lots.add(index, lot);
+            allLots.add(lot);
+            quantity += row.quantity;
+            openCost = openCost.add(row.price.multiply(BigDecimal.valueOf(row.quantity)));
+            accept(row);
+        }
+
+        private void sell(ImportRow row, LotMethod method) {
+            int remaining = row.quantity;
+            int index = method == LotMethod.LIFO ? lots.size() - 1 : 0;
+            while (remaining > 0) {
+                LotState lot = lots.get(index);
+                int taken = Math.min(remaining, lot.remainingQuantity);
+                lot.remainingQuantity -= taken;
+                remaining -= taken;
+                disposals.add(new Disposal(lot, row, taken));
+                BigDecimal takenCost = lot.costPrice.multiply(BigDecimal.valueOf(taken));
+                soldCost = soldCost.add(takenCost);
+                openCost = openCost.subtract(takenCost);
+
+                if (lot.remainingQuantity == 0) {
+                    lots.remove(index);
+                    if (method == LotMethod.LIFO) {
+                        index--;
+                    }
+                }
+            }
+            quantity -= row.quantity;
+            quantitySold += row.quantity;
+            proceeds = proceeds.add(row.price.multiply(BigDecimal.valueOf(row.quantity)));
+            accept(row);
+        }
+
+        private void accept(ImportRow row) {
+            row.quantityAfter = quantity;
+            row.averagePriceAfter = quantity > 0 ? averagePrice() : null;
+            rows.add(row);
+        }
+
+        /**
+         * Средняя цена позиции - себестоимость оставшихся лотов на акцию
+         */
+        private BigDecimal averagePrice() {
+            return quantity > 0 ? openCost.divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+        }
+    }
+}
@@ -1,26 +1,41 @@
 package com.tradingsystem.service.impl;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.tradingsystem.exception.ResourceNotFoundException;
+import com.tradingsystem.model.entity.Holding;
 import com.tradingsystem.model.entity.Portfolio;
 import com.tradingsystem.model.entity.Stock;
 import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.enums.LotMethod;
 import com.tradingsystem.model.enums.TradeType;
 import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.repository.TradeOrderRepository;
 import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.service.index.IdempotencyKeyCache;
+import com.tradingsystem.service.index.PerformanceCache;
+import com.tradingsystem.service.index.PortfolioExecutionLane;
+import com.tradingsystem.service.index.PortfolioLeaderboard;
+import com.tradingsystem.service.index.PositionBook;
 import com.tradingsystem.service.interfaces.HoldingService;
-import com.tradingsystem.service.interfaces.PortfolioService;
+import com.tradingsystem.service.interfaces.PortfolioHistoryService;
+import com.tradingsystem.service.interfaces.TaxLotService;
 import com.tradingsystem.service.interfaces.TradeService;
+import com.tradingsystem.service.journal.JournalRecord;
+import com.tradingsystem.service.journal.TradeJournal;
 
 /**
  * Реализация сервиса для работы с торговыми операциями
@@ -33,18 +48,48 @@ public class TradeServiceImpl implements TradeService {
     private final TradeRepository tradeRepository;
     private final PortfolioRepository portfolioRepository;
     private final HoldingService holdingService;
-    private final PortfolioService portfolioService;
+    private final PositionBook positionBook;
+    private final PortfolioHistoryService portfolioHistoryService;
+    private final PerformanceCache performanceCache;
+    private final PortfolioLeaderboard portfolioLeaderboard;
+    private final TaxLotService taxLotService;
+    private final PortfolioExecutionLane executionLane;
+    private final TransactionTemplate transactionTemplate;
+    private final TradeJournal tradeJournal;
+    private final TradeOrderRepository tradeOrderRepository;
+    private final IdempotencyKeyCache idempotencyKeyCache;
+
+    @Value("${app.tax-lots.default-method:FIFO}")
+    private LotMethod defaultLotMethod;
 
     @Autowired
     public TradeServiceImpl(
             TradeRepository tradeRepository,
             PortfolioRepository portfolioRepository,
             HoldingService holdingService,
-            PortfolioService portfolioService) {
+            PositionBook positionBook,
+            PortfolioHistoryService portfolioHistoryService,
+            PerformanceCache performanceCache,
+            PortfolioLeaderboard portfolioLeaderboard,
+            TaxLotService taxLotService,
+            PortfolioExecutionLane executionLane,
+            PlatformTransactionManager transactionManager,
+            TradeJournal tradeJournal,
+            TradeOrderRepository tradeOrderRepository,
+            IdempotencyKeyCache idempotencyKeyCache) {
         this.tradeRepository = tradeRepository;
         this.portfolioRepository = portfolioRepository;
         this.holdingService = holdingService;
-        this.portfolioService = portfolioService;
+        this.positionBook = positionBook;
+        this.portfolioHistoryService = portfolioHistoryService;
+        this.performanceCache = performanceCache;
+        this.portfolioLeaderboard = portfolioLeaderboard;
+        this.taxLotService = taxLotService;
+        this.executionLane = executionLane;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tradeJournal = tradeJournal;
+        this.tradeOrderRepository = tradeOrderRepository;
+        this.idempotencyKeyCache = idempotencyKeyCache;
     }
 
     @Override
@@ -85,8 +130,91 @@ public class TradeServiceImpl implements TradeService {
     }
 
     @Override
-    @Transactional
     public Trade createTrade(Trade trade) {
+        return createTrade(trade, null, null);
+    }
+
+    @Override
+    public Trade createTrade(Trade trade, LotMethod lotMethod, List<Long> lotIds) {
+        checkTradable(trade.getPortfolio());
+        return submitTrade(trade, lotMethod, lotIds);
+    }
+
+    @Override
+    public Trade createSandboxTrade(Trade trade) {
+        if (!trade.getPortfolio().isSandbox()) {
+            throw new IllegalArgumentException("Portfolio " + trade.getPortfolio().getId() + " is not a sandbox portfolio");
+        }
+        return submitTrade(trade, null, null);
+    }
+
+    @Override
+    public void checkTradable(Portfolio portfolio) {
+        // Учебный портфель торгует только по котировкам своей сессии бумажной торговли
+        if (portfolio.isSandbox()) {
+            throw new IllegalArgumentException("Sandbox portfolio " + portfolio.getId()
+                    + " accepts trades only from its paper-trading session");
+        }
+    }
+
+    /**
+     * Проводит сделку в очереди портфеля с учетом ключа идемпотентности
+     */
+    private Trade submitTrade(Trade trade, LotMethod lotMethod, List<Long> lotIds) {
+        Long portfolioId = trade.getPortfolio().getId();
+        String idempotencyKey = trade.getIdempotencyKey();
+        if (idempotencyKey == null) {
+            // Изменения портфеля выполняются по очереди: проверка продажи и обновление позиции
+            // видят результат предыдущей сделки, а не читают то же состояние параллельно
+            return executionLane.execute(portfolioId,
+                    () -> transactionTemplate.execute(status -> executeTrade(trade, lotMethod, lotIds)));
+        }
+
+        // Повтор запроса возвращает исходную сделку. Ключ проверяется в очереди портфеля:
+        // параллельный повтор дождется первого запроса и увидит его ключ в кэше
+        try {
+            return executionLane.execute(portfolioId, () -> {
+                Trade original = findReplayedTrade(portfolioId, idempotencyKey);
+                return original != null
+                        ? checkReplay(original, trade)
+                        : transactionTemplate.execute(status -> executeTrade(trade, lotMethod, lotIds));
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Ключ вытеснен из кэша, но сделка с ним уже есть: транзакция откатилась на вставке
+            Trade original = tradeRepository.findByPortfolioIdAndIdempotencyKey(portfolioId, idempotencyKey)
+                    .orElseThrow(() -> e);
+            return checkReplay(original, trade);
+        }
+    }
+
+    /**
+     * Находит сделку, уже созданную с ключом идемпотентности, по кэшу ключей
+     */
+    private Trade findReplayedTrade(Long portfolioId, String idempotencyKey) {
+        Long tradeId = idempotencyKeyCache.find(portfolioId, idempotencyKey);
+        return tradeId != null ? tradeRepository.findById(tradeId).orElse(null) : null;
+    }
+
+    /**
+     * Проверяет, что повтор совпадает с исходным запросом
+     * @throws IllegalArgumentException если ключ использован для другой сделки
+     */
+    private Trade checkReplay(Trade original, Trade replay) {
+        if (!original.getStock().getId().equals(replay.getStock().getId())
+                || original.getType() != replay.getType()
+                || !original.getQuantity().equals(replay.getQuantity())
+                || original.getPrice().compareTo(replay.getPrice()) != 0) {
+            throw new IllegalArgumentException("Idempotency key " + replay.getIdempotencyKey()
+                    + " was already used for a different trade");
+        }
+        logger.debug("Replayed trade {} for idempotency key {}", original.getId(), replay.getIdempotencyKey());
+        return original;
+    }
+
+    /**
+     * Сохраняет сделку и обновляет лоты, позицию и производные данные (в транзакции, в очереди портфеля)
+     */
+    private Trade executeTrade(Trade trade, LotMethod lotMethod, List<Long> lotIds) {
         logger.debug("Creating new trade for stock {} in portfolio {}",
                 trade.getStock().getSymbol(), trade.getPortfolio().getId());
 
@@ -103,32 +231,62 @@ public class TradeServiceImpl implements TradeService {
             trade.setTimestamp(LocalDateTime.now());
         }
 
-        // Сохраняем сделку
+        // Сохраняем сделку (первой записью транзакции: повтор ключа откатывает ее сразу)
+        trade.setUserId(portfolio.getUser().getId());
         Trade savedTrade = tradeRepository.save(trade);
+        if (savedTrade.getIdempotencyKey() != null) {
+            idempotencyKeyCache.onTradeCreated(portfolio.getId(), savedTrade.getIdempotencyKey(), savedTrade.getId());
+        }
 
-        // Обновляем позицию в портфеле
+        // Обновляем налоговые лоты и позицию в портфеле (лоты - до позиции, пока она в прежнем состоянии)
+        Holding holding;
         if (trade.getType() == TradeType.BUY) {
-            holdingService.updateHoldingOnBuy(
+            taxLotService.openLot(savedTrade);
+            holding = holdingService.updateHoldingOnBuy(
                     portfolio.getId(),
                     stock.getId(),
                     trade.getQuantity(),
                     trade.getPrice());
         } else {
-            holdingService.updateHoldingOnSell(
+            BigDecimal remainingCost = taxLotService.consumeLots(
+                    savedTrade, lotMethod != null ? lotMethod : defaultLotMethod, lotIds);
+            holding = holdingService.updateHoldingOnSell(
                     portfolio.getId(),
                     stock.getId(),
-                    trade.getQuantity());
+                    trade.getQuantity(),
+                    remainingCost);
+        }
+
+        // Денежный поток учитывается в рейтинге до изменения стоимости портфеля в книге позиций
+        if (!portfolio.isSandbox()) {
+            portfolioLeaderboard.onTrade(portfolio.getId(), netFlow(trade.getType(), trade.getQuantity(), trade.getPrice()));
         }
 
-        // Обновляем общую стоимость портфеля
-        portfolioService.updatePortfolioValue(portfolio.getId());
+        // Обновляем оценку портфеля в книге позиций (итог сохраняется пакетно)
+        updatePositionBook(portfolio.getId(), stock.getId(), holding);
+        journalEvent(JournalRecord.TRADE_BOOKED, savedTrade, holding);
+
+        // Сделка задним числом делает недействительной уже рассчитанную историю
+        portfolioHistoryService.invalidateFrom(portfolio.getId(), trade.getTimestamp().toLocalDate());
+        performanceCache.invalidate(portfolio.getId());
 
         return savedTrade;
     }
 
     @Override
-    @Transactional
     public void deleteTrade(Long id) {
+        Long tradePortfolioId = getTradeById(id).getPortfolio().getId();
+        executionLane.execute(tradePortfolioId, () -> transactionTemplate.execute(status -> {
+            reverseTrade(id);
+            return null;
+        }));
+    }
+
+    /**
+     * Удаляет сделку и отменяет ее влияние на лоты, позицию и производные данные
+     * (в транзакции, в очереди портфеля)
+     */
+    private void reverseTrade(Long id) {
         logger.debug("Deleting trade with id: {}", id);
 
         Trade trade = getTradeById(id);
@@ -155,18 +313,36 @@ public class TradeServiceImpl implements TradeService {
         reverseTrade.setPrice(trade.getPrice());
         reverseTrade.setTimestamp(LocalDateTime.now());
 
-        // Обновляем позицию и портфель
+        // Обновляем налоговые лоты, позицию и портфель
+        Holding holding;
         if (reverseType == TradeType.BUY) {
-            holdingService.updateHoldingOnBuy(portfolioId, stockId, trade.getQuantity(), trade.getPrice());
+            // Акции возвращаются в проданные лоты по их себестоимости
+            BigDecimal restoredCost = taxLotService.reverseDisposals(trade);
+            BigDecimal restoredPrice = restoredCost.divide(BigDecimal.valueOf(trade.getQuantity()), 4, RoundingMode.HALF_UP);
+            holding = holdingService.updateHoldingOnBuy(portfolioId, stockId, trade.getQuantity(), restoredPrice);
         } else {
-            holdingService.updateHoldingOnSell(portfolioId, stockId, trade.getQuantity());
+            BigDecimal remainingCost = taxLotService.removeLot(trade);
+            holding = holdingService.updateHoldingOnSell(portfolioId, stockId, trade.getQuantity(), remainingCost);
         }
 
         // Удаляем сделку
         tradeRepository.deleteById(id);
+        if (trade.getIdempotencyKey() != null) {
+            idempotencyKeyCache.onTradeDeleted(portfolioId, trade.getIdempotencyKey());
+        }
 
-        // Обновляем общую стоимость портфеля
-        portfolioService.updatePortfolioValue(portfolioId);
+        // Обратная сделка возвращает денежный поток удаленной сделки
+        if (!trade.getPortfolio().isSandbox()) {
+            portfolioLeaderboard.onTrade(portfolioId, netFlow(reverseType, trade.getQuantity(), trade.getPrice()));
+        }
+
+        // Обновляем оценку портфеля в книге позиций
+        updatePositionBook(portfolioId, stockId, holding);
+        journalEvent(JournalRecord.TRADE_REVERSED, trade, holding);
+
+        // История оценок пересчитывается с даты удаленной сделки
+        portfolioHistoryService.invalidateFrom(portfolioId, trade.getTimestamp().toLocalDate());
+        performanceCache.invalidate(portfolioId);
     }
 
     @Override
@@ -184,30 +360,58 @@ public class TradeServiceImpl implements TradeService {
     }
 
     /**
-     * Проверяет, достаточно ли акций для продажи
+     * Чистый денежный поток сделки: покупка увеличивает вложения, продажа уменьшает
+     */
+    private BigDecimal netFlow(TradeType type, int quantity, BigDecimal price) {
+        BigDecimal notional = price.multiply(BigDecimal.valueOf(quantity));
+        return type == TradeType.BUY ? notional : notional.negate();
+    }
+
+    /**
+     * Передает новое состояние позиции в книгу позиций
      * @param portfolioId ID портфеля
      * @param stockId ID акции
-     * @param quantity Количество для продажи
-     * @throws IllegalStateException если недостаточно акций
+     * @param holding Позиция после сделки или null, если позиция закрыта
      */
-    private void validateSellOperation(Long portfolioId, Long stockId, int quantity) {
-        // Получаем текущее количество акций в портфеле
-        Integer buyQuantity = tradeRepository.calculateTotalBuyQuantity(portfolioId, stockId);
-        Integer sellQuantity = tradeRepository.calculateTotalSellQuantity(portfolioId, stockId);
-
-        if (buyQuantity == null) {
-            buyQuantity = 0;
+    private void updatePositionBook(Long portfolioId, Long stockId, Holding holding) {
+        if (holding == null) {
+            positionBook.onPositionChanged(portfolioId, stockId, 0, BigDecimal.ZERO, null);
+        } else {
+            positionBook.onPositionChanged(portfolioId, stockId, holding.getQuantity(),
+                    holding.getAveragePrice(), holding.getStock().getCurrentPrice());
         }
+    }
 
-        if (sellQuantity == null) {
-            sellQuantity = 0;
-        }
+    /**
+     * Добавляет событие в журнал сделок после фиксации транзакции. Запись выполняется до
+     * освобождения очереди портфеля, поэтому события одного портфеля идут в журнале по порядку
+     * @param event Тип события
+     * @param trade Проведенная или отмененная сделка
+     * @param holding Позиция после события или null, если позиция закрыта
+     */
+    private void journalEvent(byte event, Trade trade, Holding holding) {
+        tradeJournal.record(JournalRecord.of(event, trade.getId(), trade.getPortfolio().getId(), trade.getStock().getId(),
+                trade.getType(), trade.getQuantity(), trade.getPrice(), trade.getTimestamp(),
+                holding != null ? holding.getQuantity() : 0, holding != null ? holding.getAveragePrice() : null));
+    }
 
-        int availableQuantity = buyQuantity - sellQuantity;
+    /**
+     * Проверяет, достаточно ли акций для продажи. Источник истины - строка позиции,
+     * заблокированная до конца транзакции, а не суммы по истории сделок.
+     * Акции, зарезервированные активными заявками на продажу, недоступны
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @param quantity Количество для продажи
+     * @throws IllegalStateException если недостаточно акций
+     */
+    private void validateSellOperation(Long portfolioId, Long stockId, int quantity) {
+        Holding holding = holdingService.lockHolding(portfolioId, stockId);
+        long reserved = tradeOrderRepository.sumOpenQuantity(portfolioId, stockId, TradeType.SELL);
+        long availableQuantity = (holding != null ? holding.getQuantity() : 0) - reserved;
 
         if (quantity > availableQuantity) {
-            throw new IllegalStateException(
-                    "Not enough stocks to sell. Available: " + availableQuantity + ", requested: " + quantity);
+            throw new IllegalStateException("Not enough stocks to sell. Available: " + Math.max(0, availableQuantity)
+                    + (reserved > 0 ? " (" + reserved + " reserved by open orders)" : "") + ", requested: " + quantity);
         }
     }
 }
@@ -1,7 +1,9 @@
 package com.tradingsystem.service.impl;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -17,13 +19,16 @@ import com.tradingsystem.exception.ResourceNotFoundException;
 import com.tradingsystem.model.entity.Stock;
 import com.tradingsystem.model.entity.User;
 import com.tradingsystem.model.entity.WatchlistItem;
+import com.tradingsystem.model.enums.AlertDirection;
 import com.tradingsystem.repository.StockRepository;
 import com.tradingsystem.repository.UserRepository;
 import com.tradingsystem.repository.WatchlistItemRepository;
+import com.tradingsystem.service.index.PriceAlertIndex;
 import com.tradingsystem.service.interfaces.WatchlistService;
 
 /**
- * Реализация сервиса для работы со списком отслеживаемых акций
+ * Реализация сервиса для работы со списком отслеживаемых акций.
+ * Активные целевые цены регистрируются в индексе ценовых оповещений после фиксации изменений
  */
 @Service
 public class WatchlistServiceImpl implements WatchlistService {
@@ -33,15 +38,18 @@ public class WatchlistServiceImpl implements WatchlistService {
     private final WatchlistItemRepository watchlistItemRepository;
     private final UserRepository userRepository;
     private final StockRepository stockRepository;
+    private final PriceAlertIndex priceAlertIndex;
 
     @Autowired
     public WatchlistServiceImpl(
             WatchlistItemRepository watchlistItemRepository,
             UserRepository userRepository,
-            StockRepository stockRepository) {
+            StockRepository stockRepository,
+            PriceAlertIndex priceAlertIndex) {
         this.watchlistItemRepository = watchlistItemRepository;
         this.userRepository = userRepository;
         this.stockRepository = stockRepository;
+        this.priceAlertIndex = priceAlertIndex;
     }
 
     @Override
@@ -103,7 +111,10 @@ public class WatchlistServiceImpl implements WatchlistService {
             watchlistItem.setAddedAt(LocalDateTime.now());
         }
 
-        return watchlistItemRepository.save(watchlistItem);
+        prepareAlert(watchlistItem);
+        WatchlistItem saved = watchlistItemRepository.save(watchlistItem);
+        registerAlert(saved);
+        return saved;
     }
 
     @Override
@@ -141,11 +152,21 @@ public class WatchlistServiceImpl implements WatchlistService {
         logger.debug("Updating watchlist item for user id: {} and stock id: {}", userId, stockId);
 
         WatchlistItem watchlistItem = getWatchlistItem(userId, stockId);
-
         watchlistItem.setNotes(notes);
-        watchlistItem.setPriceTarget(priceTarget);
 
-        return watchlistItemRepository.save(watchlistItem);
+        // Изменение заметок не трогает оповещение; новая целевая цена заменяет прежнюю
+        boolean targetChanged = !Objects.equals(watchlistItem.getPriceTarget(), priceTarget);
+        if (targetChanged) {
+            unregisterAlert(watchlistItem);
+            watchlistItem.setPriceTarget(priceTarget);
+            prepareAlert(watchlistItem);
+        }
+
+        WatchlistItem saved = watchlistItemRepository.save(watchlistItem);
+        if (targetChanged) {
+            registerAlert(saved);
+        }
+        return saved;
     }
 
     @Override
@@ -156,11 +177,11 @@ public class WatchlistServiceImpl implements WatchlistService {
         logger.debug("Removing stock id: {} from watchlist of user id: {}", stockId, userId);
 
         // Проверка существования элемента
-        if (!watchlistItemRepository.existsByUserIdAndStockId(userId, stockId)) {
-            throw new ResourceNotFoundException(
-                    "WatchlistItem not found for user id: " + userId + " and stock id: " + stockId);
-        }
+        WatchlistItem watchlistItem = watchlistItemRepository.findByUserIdAndStockId(userId, stockId)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "WatchlistItem not found for user id: " + userId + " and stock id: " + stockId));
 
+        unregisterAlert(watchlistItem);
         watchlistItemRepository.deleteByUserIdAndStockId(userId, stockId);
     }
 
@@ -194,4 +215,49 @@ public class WatchlistServiceImpl implements WatchlistService {
         logger.debug("Getting {} top losers in watchlist for user id: {}", limit, userId);
         return watchlistItemRepository.findTopLosersInWatchlist(userId, PageRequest.of(0, limit));
     }
+
+    @Override
+    public List<WatchlistItem> getTriggeredAlerts(Long userId) {
+        logger.debug("Getting triggered price alerts for user id: {}", userId);
+        return watchlistItemRepository.findTriggeredAlerts(userId);
+    }
+
+    /**
+     * Включает оповещение по целевой цене: направление - от текущей цены к целевой
+     */
+    private void prepareAlert(WatchlistItem watchlistItem) {
+        watchlistItem.setAlertTriggeredAt(null);
+        watchlistItem.setAlertTriggeredPrice(null);
+        if (watchlistItem.getPriceTarget() == null) {
+            watchlistItem.setAlertDirection(null);
+            return;
+        }
+        if (watchlistItem.getPriceTarget() <= 0) {
+            throw new IllegalArgumentException("Price target must be positive");
+        }
+
+        BigDecimal currentPrice = watchlistItem.getStock().getCurrentPrice();
+        boolean above = currentPrice == null || BigDecimal.valueOf(watchlistItem.getPriceTarget()).compareTo(currentPrice) > 0;
+        watchlistItem.setAlertDirection(above ? AlertDirection.ABOVE : AlertDirection.BELOW);
+    }
+
+    private void registerAlert(WatchlistItem watchlistItem) {
+        if (isAlertActive(watchlistItem)) {
+            priceAlertIndex.onAlertCreated(watchlistItem.getId(), watchlistItem.getStock().getId(),
+                    watchlistItem.getAlertDirection(), BigDecimal.valueOf(watchlistItem.getPriceTarget()));
+        }
+    }
+
+    private void unregisterAlert(WatchlistItem watchlistItem) {
+        if (isAlertActive(watchlistItem)) {
+            priceAlertIndex.onAlertRemoved(watchlistItem.getId(), watchlistItem.getStock().getId(),
+                    watchlistItem.getAlertDirection(), BigDecimal.valueOf(watchlistItem.getPriceTarget()));
+        }
+    }
+
+    private static boolean isAlertActive(WatchlistItem watchlistItem) {
+        return watchlistItem.getPriceTarget() != null
+                && watchlistItem.getAlertDirection() != null
+                && watchlistItem.getAlertTriggeredAt() == null;
+    }
 }
@@ -0,0 +1,429 @@
+package com.tradingsystem.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tradingsystem.model.dto.PortfolioRiskDTO;
+import com.tradingsystem.model.dto.WhatIfResultDTO;
+import com.tradingsystem.model.dto.WhatIfScenarioDTO;
+import com.tradingsystem.model.dto.WhatIfScenarioDTO.HypotheticalTrade;
+import com.tradingsystem.model.entity.Holding;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.service.index.PositionBook;
+import com.tradingsystem.service.interfaces.RiskAnalyticsService;
+import com.tradingsystem.service.interfaces.StockService;
+import com.tradingsystem.service.interfaces.WhatIfService;
+
+/**
+ * Реализация сервиса моделирования сделок "что если".
+ * Позиции портфеля читаются один раз на версию книги позиций и копируются для каждого сценария;
+ * риск оценивается по кэшированным ковариациям, поэтому типичный сценарий не обращается к базе данных
+ */
+@Service
+public class WhatIfServiceImpl implements WhatIfService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WhatIfServiceImpl.class);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final BigDecimal MAX_QUANTITY = BigDecimal.valueOf(Integer.MAX_VALUE);
+    private static final int MAX_CACHED_SNAPSHOTS = 10_000;
+
+    private final HoldingRepository holdingRepository;
+    private final StockService stockService;
+    private final PositionBook positionBook;
+    private final RiskAnalyticsService riskAnalyticsService;
+
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WhatIfServiceImpl(
+            HoldingRepository holdingRepository,
+            StockService stockService,
+            PositionBook positionBook,
+            RiskAnalyticsService riskAnalyticsService) {
+        this.holdingRepository = holdingRepository;
+        this.stockService = stockService;
+        this.positionBook = positionBook;
+        this.riskAnalyticsService = riskAnalyticsService;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public WhatIfResultDTO simulate(Long portfolioId, WhatIfScenarioDTO scenario) {
+        logger.debug("Simulating scenario for portfolio with id: {}", portfolioId);
+
+        Map<String, SimulatedPosition> positions = new LinkedHashMap<>();
+        for (SimulatedPosition position : getSnapshot(portfolioId).positions) {
+            positions.put(position.symbol.toUpperCase(), position.copy());
+        }
+
+        Map<Long, BigDecimal> riskInputBefore = riskInput(positions);
+        Map<String, BigDecimal> sectorsBefore = sectorAllocation(positions);
+        BigDecimal valueBefore = marketValue(positions);
+        BigDecimal unrealizedBefore = unrealizedProfitLoss(positions);
+
+        Ledger ledger = new Ledger();
+        if (scenario.getTrades() != null) {
+            for (HypotheticalTrade trade : scenario.getTrades()) {
+                applyTrade(positions, trade, ledger);
+            }
+        }
+        if (scenario.getTargetWeights() != null && !scenario.getTargetWeights().isEmpty()) {
+            rebalance(positions, scenario.getTargetWeights(), ledger);
+        }
+
+        BigDecimal valueAfter = marketValue(positions);
+
+        WhatIfResultDTO result = new WhatIfResultDTO();
+        result.setPortfolioId(portfolioId);
+        result.setValueBefore(valueBefore.setScale(2, RoundingMode.HALF_UP));
+        result.setValueAfter(valueAfter.setScale(2, RoundingMode.HALF_UP));
+        result.setCashFlow(ledger.cashFlow.setScale(2, RoundingMode.HALF_UP));
+        result.setRealizedProfitLoss(ledger.realizedProfitLoss.setScale(2, RoundingMode.HALF_UP));
+        result.setUnrealizedProfitLossBefore(unrealizedBefore.setScale(2, RoundingMode.HALF_UP));
+        result.setUnrealizedProfitLossAfter(unrealizedProfitLoss(positions).setScale(2, RoundingMode.HALF_UP));
+        result.setSectorAllocationBefore(sectorsBefore);
+        result.setSectorAllocationAfter(sectorAllocation(positions));
+
+        List<WhatIfResultDTO.PositionChange> changes = new ArrayList<>(positions.size());
+        for (SimulatedPosition position : positions.values()) {
+            if (position.quantityBefore == 0 && position.quantity == 0) {
+                continue;
+            }
+            BigDecimal value = position.marketValue();
+            WhatIfResultDTO.PositionChange change = new WhatIfResultDTO.PositionChange();
+            change.setSymbol(position.symbol);
+            change.setSector(position.sector);
+            change.setPrice(position.price);
+            change.setQuantityBefore(position.quantityBefore);
+            change.setQuantityAfter(position.quantity);
+            change.setAveragePriceAfter(position.quantity > 0 ? position.averagePrice : null);
+            change.setValueAfter(value.setScale(2, RoundingMode.HALF_UP));
+            change.setWeightBefore(percentOf(position.price.multiply(BigDecimal.valueOf(position.quantityBefore)), valueBefore));
+            change.setWeightAfter(percentOf(value, valueAfter));
+            changes.add(change);
+        }
+        result.setPositions(changes);
+
+        PortfolioRiskDTO riskBefore = riskAnalyticsService.estimateParametricRisk(riskInputBefore);
+        PortfolioRiskDTO riskAfter = riskAnalyticsService.estimateParametricRisk(riskInput(positions));
+        result.setRiskBefore(riskBefore);
+        result.setRiskAfter(riskAfter);
+        if (riskBefore != null && riskAfter != null) {
+            result.setVolatilityChange(riskAfter.getAnnualizedVolatility().subtract(riskBefore.getAnnualizedVolatility()));
+            result.setVarChange(riskAfter.getParametricVar().subtract(riskBefore.getParametricVar()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Получает снимок позиций портфеля; перечитывается, только если изменилась версия книги позиций.
+     * При заполнении кэша сначала удаляются снимки устаревших версий, затем весь кэш
+     */
+    private Snapshot getSnapshot(Long portfolioId) {
+        long version = positionBook.getVersion(portfolioId);
+        Snapshot snapshot = snapshots.get(portfolioId);
+        if (snapshot != null && snapshot.version == version) {
+            return snapshot;
+        }
+
+        List<SimulatedPosition> positions = new ArrayList<>();
+        for (Holding holding : holdingRepository.findByPortfolioId(portfolioId)) {
+            Stock stock = holding.getStock();
+            if (holding.getQuantity() <= 0 || stock.getCurrentPrice() == null) {
+                continue;
+            }
+            positions.add(new SimulatedPosition(stock.getId(), stock.getSymbol(), stock.getSector(),
+                    stock.getCurrentPrice(), holding.getQuantity(), holding.getAveragePrice()));
+        }
+
+        if (snapshots.size() >= MAX_CACHED_SNAPSHOTS && !snapshots.containsKey(portfolioId)) {
+            snapshots.entrySet().removeIf(entry -> entry.getValue().version != positionBook.getVersion(entry.getKey()));
+            if (snapshots.size() >= MAX_CACHED_SNAPSHOTS) {
+                snapshots.clear();
+            }
+        }
+        snapshot = new Snapshot(version, positions);
+        snapshots.put(portfolioId, snapshot);
+        return snapshot;
+    }
+
+    private void applyTrade(Map<String, SimulatedPosition> positions, HypotheticalTrade trade, Ledger ledger) {
+        TradeType type;
+        try {
+            type = TradeType.valueOf(trade.getType().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown trade type: " + trade.getType());
+        }
+
+        SimulatedPosition position = findOrAddPosition(positions, trade.getSymbol());
+        BigDecimal price = trade.getPrice() != null ? trade.getPrice() : position.price;
+        if (price.signum() <= 0) {
+            throw new IllegalArgumentException("Trade price must be positive for " + position.symbol);
+        }
+
+        int quantity = resolveQuantity(trade, position, price);
+        if (type == TradeType.BUY) {
+            buy(position, quantity, price, ledger);
+        } else {
+            sell(position, quantity, price, ledger);
+        }
+    }
+
+    /**
+     * Определяет количество акций по одному из способов задания объема сделки
+     */
+    private int resolveQuantity(HypotheticalTrade trade, SimulatedPosition position, BigDecimal price) {
+        int specified = (trade.getQuantity() != null ? 1 : 0)
+                + (trade.getPercentOfPosition() != null ? 1 : 0)
+                + (trade.getAmount() != null ? 1 : 0);
+        if (specified != 1) {
+            throw new IllegalArgumentException(
+                    "Exactly one of quantity, percentOfPosition or amount must be set for " + position.symbol);
+        }
+
+        int quantity;
+        if (trade.getQuantity() != null) {
+            quantity = trade.getQuantity();
+        } else if (trade.getPercentOfPosition() != null) {
+            quantity = toQuantity(BigDecimal.valueOf(position.quantity)
+                    .multiply(trade.getPercentOfPosition())
+                    .divide(HUNDRED, 0, RoundingMode.DOWN), position.symbol);
+        } else {
+            quantity = toQuantity(trade.getAmount().divide(price, 0, RoundingMode.DOWN), position.symbol);
+        }
+
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Trade quantity must not be negative for " + position.symbol);
+        }
+        return quantity;
+    }
+
+    /**
+     * Переводит рассчитанное количество акций в int; слишком большие объемы считаются ошибкой запроса
+     */
+    private int toQuantity(BigDecimal shares, String symbol) {
+        if (shares.signum() < 0) {
+            throw new IllegalArgumentException("Trade quantity must not be negative for " + symbol);
+        }
+        if (shares.compareTo(MAX_QUANTITY) > 0) {
+            throw new IllegalArgumentException("Trade quantity exceeds " + Integer.MAX_VALUE + " for " + symbol);
+        }
+        return shares.intValue();
+    }
+
+    /**
+     * Приводит позиции к целевым весам от стоимости позиций с учетом денежного потока предыдущих сделок.
+     * Позиции без целевого веса продаются полностью, количество округляется вниз
+     */
+    private void rebalance(Map<String, SimulatedPosition> positions, Map<String, BigDecimal> targetWeights, Ledger ledger) {
+        BigDecimal totalWeight = BigDecimal.ZERO;
+        Map<String, BigDecimal> weights = new HashMap<>();
+        for (Map.Entry<String, BigDecimal> entry : targetWeights.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().signum() < 0) {
+                throw new IllegalArgumentException("Target weight must not be negative for " + entry.getKey());
+            }
+            weights.put(entry.getKey().toUpperCase(), entry.getValue());
+            totalWeight = totalWeight.add(entry.getValue());
+        }
+        if (totalWeight.compareTo(HUNDRED) > 0) {
+            throw new IllegalArgumentException("Target weights must not exceed 100%, got " + totalWeight);
+        }
+
+        weights.keySet().forEach(symbol -> findOrAddPosition(positions, symbol));
+        BigDecimal investable = marketValue(positions).add(ledger.cashFlow);
+
+        // Сначала продажи, затем покупки, как при реальной ребалансировке
+        Map<SimulatedPosition, Integer> buys = new LinkedHashMap<>();
+        for (SimulatedPosition position : positions.values()) {
+            BigDecimal weight = weights.getOrDefault(position.symbol.toUpperCase(), BigDecimal.ZERO);
+            int target = investable.signum() > 0
+                    ? toQuantity(investable.multiply(weight)
+                            .divide(HUNDRED.multiply(position.price), 0, RoundingMode.DOWN), position.symbol)
+                    : 0;
+            if (target < position.quantity) {
+                sell(position, position.quantity - target, position.price, ledger);
+            } else if (target > position.quantity) {
+                buys.put(position, target - position.quantity);
+            }
+        }
+        buys.forEach((position, quantity) -> buy(position, quantity, position.price, ledger));
+    }
+
+    private void buy(SimulatedPosition position, int quantity, BigDecimal price, Ledger ledger) {
+        if (quantity == 0) {
+            return;
+        }
+        if (quantity > Integer.MAX_VALUE - position.quantity) {
+            throw new IllegalArgumentException("Resulting quantity exceeds " + Integer.MAX_VALUE + " for " + position.symbol);
+        }
+        BigDecimal cost = price.multiply(BigDecimal.valueOf(quantity));
+        int newQuantity = position.quantity + quantity;
+        position.averagePrice = position.averagePrice.multiply(BigDecimal.valueOf(position.quantity))
+                .add(cost)
+                .divide(BigDecimal.valueOf(newQuantity), 4, RoundingMode.HALF_UP);
+        position.quantity = newQuantity;
+        ledger.cashFlow = ledger.cashFlow.subtract(cost);
+    }
+
+    private void sell(SimulatedPosition position, int quantity, BigDecimal price, Ledger ledger) {
+        if (quantity > position.quantity) {
+            throw new IllegalArgumentException("Not enough stocks to sell " + position.symbol
+                    + ". Available: " + position.quantity + ", requested: " + quantity);
+        }
+        if (quantity == 0) {
+            return;
+        }
+        BigDecimal proceeds = price.multiply(BigDecimal.valueOf(quantity));
+        ledger.cashFlow = ledger.cashFlow.add(proceeds);
+        ledger.realizedProfitLoss = ledger.realizedProfitLoss
+                .add(proceeds.subtract(position.averagePrice.multiply(BigDecimal.valueOf(quantity))));
+        position.quantity -= quantity;
+        if (position.quantity == 0) {
+            position.averagePrice = BigDecimal.ZERO;
+        }
+    }
+
+    /**
+     * Находит позицию по символу или добавляет пустую позицию для акции, которой нет в портфеле
+     */
+    private SimulatedPosition findOrAddPosition(Map<String, SimulatedPosition> positions, String symbol) {
+        String key = symbol.toUpperCase();
+        SimulatedPosition position = positions.get(key);
+        if (position == null) {
+            Stock stock = stockService.getStockBySymbol(key);
+            if (stock.getCurrentPrice() == null) {
+                throw new IllegalArgumentException("No current price available for " + key);
+            }
+            position = new SimulatedPosition(stock.getId(), stock.getSymbol(), stock.getSector(),
+                    stock.getCurrentPrice(), 0, BigDecimal.ZERO);
+            positions.put(key, position);
+        }
+        return position;
+    }
+
+    /**
+     * Стоимость открытых позиций по ID акций для оценки риска
+     */
+    private Map<Long, BigDecimal> riskInput(Map<String, SimulatedPosition> positions) {
+        Map<Long, BigDecimal> values = new HashMap<>();
+        for (SimulatedPosition position : positions.values()) {
+            if (position.quantity > 0) {
+                values.put(position.stockId, position.marketValue());
+            }
+        }
+        return values;
+    }
+
+    private Map<String, BigDecimal> sectorAllocation(Map<String, SimulatedPosition> positions) {
+        Map<String, BigDecimal> sectorValues = new HashMap<>();
+        BigDecimal totalValue = BigDecimal.ZERO;
+        for (SimulatedPosition position : positions.values()) {
+            if (position.sector == null || position.quantity == 0) {
+                continue;
+            }
+            BigDecimal value = position.marketValue();
+            totalValue = totalValue.add(value);
+            sectorValues.merge(position.sector, value, BigDecimal::add);
+        }
+
+        Map<String, BigDecimal> sectorAllocation = new HashMap<>();
+        for (Map.Entry<String, BigDecimal> entry : sectorValues.entrySet()) {
+            sectorAllocation.put(entry.getKey(), percentOf(entry.getValue(), totalValue));
+        }
+        return sectorAllocation;
+    }
+
+    private BigDecimal marketValue(Map<String, SimulatedPosition> positions) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (SimulatedPosition position : positions.values()) {
+            total = total.add(position.marketValue());
+        }
+        return total;
+    }
+
+    private BigDecimal unrealizedProfitLoss(Map<String, SimulatedPosition> positions) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (SimulatedPosition position : positions.values()) {
+            total = total.add(position.marketValue()
+                    .subtract(position.averagePrice.multiply(BigDecimal.valueOf(position.quantity))));
+        }
+        return total;
+    }
+
+    private BigDecimal percentOf(BigDecimal value, BigDecimal total) {
+        if (total.signum() <= 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        return value.divide(total, 4, RoundingMode.HALF_UP)
+                .multiply(HUNDRED)
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Позиция в моделируемом портфеле
+     */
+    private static final class SimulatedPosition {
+        private final Long stockId;
+        private final String symbol;
+        private final String sector;
+        private final BigDecimal price;
+        private final int quantityBefore;
+        private int quantity;
+        private BigDecimal averagePrice;
+
+        private SimulatedPosition(Long stockId, String symbol, String sector, BigDecimal price,
+                                  int quantity, BigDecimal averagePrice) {
+            this.stockId = stockId;
+            this.symbol = symbol;
+            this.sector = sector;
+            this.price = price;
+            this.quantityBefore = quantity;
+            this.quantity = quantity;
+            this.averagePrice = averagePrice;
+        }
+
+        private SimulatedPosition copy() {
+            return new SimulatedPosition(stockId, symbol, sector, price, quantity, averagePrice);
+        }
+
+        private BigDecimal marketValue() {
+            return price.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    /**
+     * Денежный поток и реализованный результат сценария
+     */
+    private static final class Ledger {
+        private BigDecimal cashFlow = BigDecimal.ZERO;
+        private BigDecimal realizedProfitLoss = BigDecimal.ZERO;
+    }
+
+    /**
+     * Неизменяемый снимок позиций портфеля для версии книги позиций
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final List<SimulatedPosition> positions;
+
+        private Snapshot(long version, List<SimulatedPosition> positions) {
+            this.version = version;
+            this.positions = positions;
+        }
+    }
+}
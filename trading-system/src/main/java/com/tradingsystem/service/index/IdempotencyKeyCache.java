@@ -0,0 +1,124 @@
+package com.tradingsystem.service.index;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Кэш ключей идемпотентности сделок: (портфель, ключ) -> ID созданной сделки.
+ * Записи живут ttl и вытесняются в порядке добавления (при одинаковом ttl это и порядок истечения),
+ * число записей ограничено. Источник истины - уникальный индекс по (portfolio_id, idempotency_key):
+ * кэш лишь избавляет повтор запроса от обращения к базе данных
+ */
+@Component
+public class IdempotencyKeyCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyCache.class);
+
+    private final TradeRepository tradeRepository;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final Map<Key, Long> tradeIds = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Expiration> expirations = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public IdempotencyKeyCache(
+            TradeRepository tradeRepository,
+            @Value("${app.idempotency.ttl-minutes:1440}") long ttlMinutes,
+            @Value("${app.idempotency.max-entries:100000}") int maxEntries) {
+        this.tradeRepository = tradeRepository;
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Загружает ключи сделок, созданных в пределах ttl, после старта приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime since = LocalDateTime.now().minusNanos(ttlNanos);
+        List<Object[]> rows = tradeRepository.findIdempotencyKeysSince(since);
+        long now = System.nanoTime();
+        for (Object[] row : rows) {
+            put(new Key((Long) row[0], (String) row[1]), (Long) row[2], now);
+        }
+        logger.info("Idempotency key cache loaded: {} keys", tradeIds.size());
+    }
+
+    /**
+     * Находит сделку, созданную с ключом
+     * @param portfolioId ID портфеля
+     * @param idempotencyKey Ключ идемпотентности
+     * @return ID сделки или null, если ключ не встречался в пределах ttl
+     */
+    public Long find(Long portfolioId, String idempotencyKey) {
+        return tradeIds.get(new Key(portfolioId, idempotencyKey));
+    }
+
+    /**
+     * Запоминает ключ созданной сделки после фиксации текущей транзакции
+     * @param portfolioId ID портфеля
+     * @param idempotencyKey Ключ идемпотентности
+     * @param tradeId ID сделки
+     */
+    public void onTradeCreated(Long portfolioId, String idempotencyKey, Long tradeId) {
+        TransactionHooks.afterCommit(() -> put(new Key(portfolioId, idempotencyKey), tradeId, System.nanoTime()));
+    }
+
+    /**
+     * Забывает ключ удаленной сделки после фиксации текущей транзакции
+     * @param portfolioId ID портфеля
+     * @param idempotencyKey Ключ идемпотентности
+     */
+    public void onTradeDeleted(Long portfolioId, String idempotencyKey) {
+        TransactionHooks.afterCommit(() -> tradeIds.remove(new Key(portfolioId, idempotencyKey)));
+    }
+
+    /**
+     * Количество ключей в кэше
+     */
+    public int size() {
+        return tradeIds.size();
+    }
+
+    private void put(Key key, Long tradeId, long now) {
+        tradeIds.put(key, tradeId);
+        expirations.add(new Expiration(key, tradeId, now + ttlNanos));
+        evict(now);
+    }
+
+    /**
+     * Снимает из головы очереди истекшие записи и записи сверх лимита.
+     * Запись очереди удаляет ключ, только если он все еще указывает на ту же сделку
+     */
+    private void evict(long now) {
+        Expiration head;
+        while ((head = expirations.peek()) != null
+                && (head.expiresAtNanos - now <= 0 || tradeIds.size() > maxEntries)) {
+            if (expirations.remove(head)) {
+                tradeIds.remove(head.key, head.tradeId);
+            }
+        }
+    }
+
+    private record Key(Long portfolioId, String idempotencyKey) {
+    }
+
+    private record Expiration(Key key, Long tradeId, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.tradingsystem.service.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.model.entity.Analysis;
+import com.tradingsystem.repository.LatestAnalysisRepository;
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Индекс последних анализов по акциям в памяти (stockId -> анализ).
+ * Заполняется из таблицы latest_analyses при старте и обновляется при сохранении анализов
+ */
+@Component
+public class LatestAnalysisIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatestAnalysisIndex.class);
+
+    private final LatestAnalysisRepository latestAnalysisRepository;
+    private final Map<Long, Analysis> latestByStockId = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LatestAnalysisIndex(LatestAnalysisRepository latestAnalysisRepository) {
+        this.latestAnalysisRepository = latestAnalysisRepository;
+    }
+
+    /**
+     * Загружает проекцию из базы данных после старта приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Analysis> analyses = latestAnalysisRepository.findAllLatestAnalyses();
+        analyses.forEach(this::apply);
+        logger.info("Latest analysis index loaded: {} stocks", latestByStockId.size());
+    }
+
+    /**
+     * Получает последний анализ для акции
+     * @param stockId ID акции
+     * @return Анализ или null, если в индексе нет записи
+     */
+    public Analysis get(Long stockId) {
+        return latestByStockId.get(stockId);
+    }
+
+    /**
+     * Получает последние анализы по всем акциям
+     * @return Список анализов (по одному на акцию)
+     */
+    public List<Analysis> getAll() {
+        return new ArrayList<>(latestByStockId.values());
+    }
+
+    /**
+     * Обновляет индекс новым анализом после фиксации текущей транзакции
+     * @param analysis Сохраненный анализ
+     */
+    public void update(Analysis analysis) {
+        TransactionHooks.afterCommit(() -> apply(analysis));
+    }
+
+    /**
+     * Заменяет запись для акции (или удаляет ее, если анализов не осталось) после фиксации транзакции
+     * @param stockId ID акции
+     * @param analysis Новый последний анализ или null
+     */
+    public void replace(Long stockId, Analysis analysis) {
+        TransactionHooks.afterCommit(() -> {
+            if (analysis == null) {
+                latestByStockId.remove(stockId);
+            } else {
+                latestByStockId.put(stockId, analysis);
+            }
+        });
+    }
+
+    private void apply(Analysis analysis) {
+        latestByStockId.merge(analysis.getStock().getId(), analysis,
+                (current, candidate) -> candidate.getAnalysisDate().isBefore(current.getAnalysisDate())
+                        ? current : candidate);
+    }
+}
@@ -0,0 +1,167 @@
+package com.tradingsystem.service.index;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.model.dto.PortfolioPerformanceDTO;
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Кэш рассчитанной эффективности портфелей.
+ * Сделки по портфелю удаляют запись; изменение цены акции только помечает устаревшими записи
+ * портфелей, содержащих акцию (по обратному индексу книги позиций). Устаревшая запись
+ * отдается сразу, а пересчет выполняется в фоне (stale-while-revalidate).
+ * Расчет, начатый до изменения цены и законченный после него, сохраняется уже устаревшим
+ */
+@Component
+public class PerformanceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceCache.class);
+
+    private final PositionBook positionBook;
+    private final Executor taskExecutor;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong priceChanges = new AtomicLong();
+    private final int maxEntries;
+
+    @Autowired
+    public PerformanceCache(
+            PositionBook positionBook,
+            @Qualifier("taskExecutor") Executor taskExecutor,
+            @Value("${app.performance.cache-max-entries:10000}") int maxEntries) {
+        this.positionBook = positionBook;
+        this.taskExecutor = taskExecutor;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Получает эффективность портфеля из кэша или рассчитывает ее
+     * @param portfolioId ID портфеля
+     * @param loader Расчет эффективности
+     * @return Эффективность портфеля (возможно, устаревшая, если уже идет пересчет)
+     */
+    public PortfolioPerformanceDTO get(Long portfolioId, Supplier<PortfolioPerformanceDTO> loader) {
+        Entry entry = entries.get(portfolioId);
+
+        if (entry == null) {
+            long generation = invalidations.get();
+            long priceGeneration = priceChanges.get();
+            PortfolioPerformanceDTO performance = loader.get();
+            // Если во время расчета была инвалидация, результат не кэшируем
+            if (invalidations.get() == generation) {
+                store(portfolioId, newEntry(performance, priceGeneration));
+            }
+            return performance;
+        }
+
+        if (entry.stale && entry.refreshing.compareAndSet(false, true)) {
+            refreshAsync(portfolioId, entry, loader);
+        }
+        return entry.performance;
+    }
+
+    /**
+     * Удаляет запись портфеля после фиксации текущей транзакции (сделка, удаление портфеля)
+     * @param portfolioId ID портфеля
+     */
+    public void invalidate(Long portfolioId) {
+        TransactionHooks.afterCommit(() -> {
+            invalidations.incrementAndGet();
+            entries.remove(portfolioId);
+        });
+    }
+
+    /**
+     * Удаляет все записи (например, после пересчета истории оценок)
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Помечает устаревшими записи портфелей, содержащих акцию, после фиксации текущей транзакции
+     * @param stockId ID акции, цена которой изменилась
+     */
+    public void markStale(Long stockId) {
+        TransactionHooks.afterCommit(() -> {
+            // Поколение увеличивается до пометки записей: расчет, идущий в этот момент, его заметит
+            priceChanges.incrementAndGet();
+            for (Long portfolioId : positionBook.getPortfoliosHolding(stockId)) {
+                Entry entry = entries.get(portfolioId);
+                if (entry != null) {
+                    entry.stale = true;
+                }
+            }
+        });
+    }
+
+    private void refreshAsync(Long portfolioId, Entry entry, Supplier<PortfolioPerformanceDTO> loader) {
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    // Запись заменяется, только если ее не удалили и не заменили во время пересчета
+                    long priceGeneration = priceChanges.get();
+                    entries.replace(portfolioId, entry, newEntry(loader.get(), priceGeneration));
+                } catch (Exception e) {
+                    logger.warn("Failed to refresh performance for portfolio {}", portfolioId, e);
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+            logger.debug("Performance refresh for portfolio {} deferred: executor is busy", portfolioId);
+        }
+    }
+
+    /**
+     * Создает запись; если с начала расчета менялись цены, запись сразу помечается устаревшей
+     */
+    private Entry newEntry(PortfolioPerformanceDTO performance, long priceGeneration) {
+        Entry entry = new Entry(performance);
+        entry.stale = priceChanges.get() != priceGeneration;
+        return entry;
+    }
+
+    /**
+     * Добавляет запись, ограничивая размер кэша: при заполнении сначала удаляются
+     * устаревшие записи, затем, если места все равно нет, все записи
+     */
+    private void store(Long portfolioId, Entry entry) {
+        if (entries.size() >= maxEntries && !entries.containsKey(portfolioId)) {
+            entries.values().removeIf(existing -> existing.stale);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(portfolioId, entry);
+    }
+
+    /**
+     * Запись кэша: рассчитанное значение и признаки устаревания/пересчета
+     */
+    private static final class Entry {
+        private final PortfolioPerformanceDTO performance;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile boolean stale;
+
+        private Entry(PortfolioPerformanceDTO performance) {
+            this.performance = performance;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.tradingsystem.service.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Последовательное выполнение изменений одного портфеля.
+ * Портфели распределяются по фиксированному набору справедливых блокировок (полос), поэтому
+ * изменения одного портфеля выполняются по очереди, а разные портфели - параллельно (кроме
+ * редких совпадений полосы). Блокировка снимается после фиксации транзакции изменения,
+ * так что следующее изменение читает уже зафиксированное состояние позиций
+ */
+@Component
+public class PortfolioExecutionLane {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+
+    public PortfolioExecutionLane(
+            @Value("${app.trading.lock-stripes:64}") int stripeCount,
+            @Value("${app.trading.lock-timeout:10000}") long timeoutMillis) {
+        // Количество полос округляется до степени двойки для выбора полосы маской
+        int size = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock(true);
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Выполняет действие в очереди портфеля
+     * @param portfolioId ID портфеля
+     * @param action Действие (обычно вызов транзакционного метода)
+     * @return Результат действия
+     * @throws IllegalStateException если очередь портфеля не освободилась за отведенное время
+     */
+    public <T> T execute(Long portfolioId, Supplier<T> action) {
+        return execute(List.of(portfolioId), action);
+    }
+
+    /**
+     * Выполняет действие в очередях нескольких портфелей. Полосы захватываются по возрастанию
+     * номера, поэтому одновременные многопортфельные изменения не блокируют друг друга навечно
+     * @param portfolioIds ID портфелей
+     * @param action Действие
+     * @return Результат действия
+     * @throws IllegalStateException если очередь портфеля не освободилась за отведенное время
+     */
+    public <T> T execute(Collection<Long> portfolioIds, Supplier<T> action) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Long portfolioId : portfolioIds) {
+            indexes.add(stripeIndex(portfolioId));
+        }
+
+        List<ReentrantLock> acquired = new ArrayList<>(indexes.size());
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Portfolio is busy with another operation, please retry");
+                }
+                acquired.add(lock);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired.forEach(ReentrantLock::unlock);
+            throw new IllegalStateException("Interrupted while waiting for portfolio lock", e);
+        } catch (RuntimeException e) {
+            acquired.forEach(ReentrantLock::unlock);
+            throw e;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Действие выполняется во внешней транзакции: очередь освобождается после ее завершения
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    acquired.forEach(ReentrantLock::unlock);
+                }
+            });
+            return action.get();
+        }
+
+        try {
+            return action.get();
+        } finally {
+            acquired.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    private int stripeIndex(Long portfolioId) {
+        long h = portfolioId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,303 @@
+package com.tradingsystem.service.index;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.model.enums.LeaderboardPeriod;
+import com.tradingsystem.repository.PortfolioPerformanceRepository;
+import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Рейтинг портфелей всех пользователей по доходности за день и с начала года.
+ * Доходность считается по простому методу Дитца: (V - Vбаз - поток) / (Vбаз + поток), где Vбаз -
+ * оценка на последнюю дату до начала периода, поток - чистые вложения после нее.
+ * Рейтинг обновляется инкрементально при каждом изменении стоимости портфеля в книге позиций
+ * и при сделках; базовые оценки перечитываются при старте и после расчета истории
+ */
+@Component
+public class PortfolioLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioLeaderboard.class);
+
+    private final PositionBook positionBook;
+    private final PortfolioRepository portfolioRepository;
+    private final PortfolioPerformanceRepository performanceRepository;
+    private final TradeRepository tradeRepository;
+
+    private final Map<LeaderboardPeriod, Board> boards = new ConcurrentHashMap<>();
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    // Сделки и удаления портфелей во время перестроения: применяются и к старым рейтингам,
+    // и к перестроенным перед их публикацией. Доступ под updateLock
+    private final Object updateLock = new Object();
+    private List<Consumer<Board>> updatesDuringRebuild;
+
+    @Autowired
+    public PortfolioLeaderboard(
+            PositionBook positionBook,
+            PortfolioRepository portfolioRepository,
+            PortfolioPerformanceRepository performanceRepository,
+            TradeRepository tradeRepository) {
+        this.positionBook = positionBook;
+        this.portfolioRepository = portfolioRepository;
+        this.performanceRepository = performanceRepository;
+        this.tradeRepository = tradeRepository;
+
+        for (LeaderboardPeriod period : LeaderboardPeriod.values()) {
+            boards.put(period, new Board(Map.of(), new ConcurrentHashMap<>()));
+        }
+        positionBook.addValueListener(this::onValueChanged);
+    }
+
+    /**
+     * Перестраивает рейтинги: загружает базовые оценки и потоки, затем оценивает все портфели.
+     * Выполняется после загрузки книги позиций и после ежедневного расчета истории
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(10)
+    public synchronized void rebuild() {
+        synchronized (updateLock) {
+            updatesDuringRebuild = new ArrayList<>();
+        }
+        rebuilding = true;
+        try {
+            List<Long> portfolioIds = portfolioRepository.findAllIds();
+            Map<Long, BigDecimal> lifetimeFlows = toMap(tradeRepository.sumNetFlowsByPortfolioSince(LocalDate.EPOCH.atStartOfDay()));
+
+            LocalDate today = LocalDate.now();
+            Map<LeaderboardPeriod, Board> rebuilt = new EnumMap<>(LeaderboardPeriod.class);
+            rebuilt.put(LeaderboardPeriod.DAY, buildBoard(portfolioIds, today, lifetimeFlows));
+            rebuilt.put(LeaderboardPeriod.YTD, buildBoard(portfolioIds, today.withDayOfYear(1), lifetimeFlows));
+
+            // Потоки сделок, учтенные только в старых рейтингах, переносятся в новые до публикации.
+            // Сделка, зафиксированная до запроса сумм, но уведомившая рейтинг после начала
+            // перестроения, будет учтена дважды; это окно ограничено временем между фиксацией
+            // и ее обработчиком и закрывается следующим перестроением
+            synchronized (updateLock) {
+                for (Consumer<Board> update : updatesDuringRebuild) {
+                    rebuilt.values().forEach(update);
+                }
+                boards.putAll(rebuilt);
+            }
+        } finally {
+            synchronized (updateLock) {
+                updatesDuringRebuild = null;
+            }
+            rebuilding = false;
+        }
+
+        // Изменения, пришедшие во время перестроения, могли попасть в старые рейтинги
+        for (Long portfolioId : changedDuringRebuild) {
+            changedDuringRebuild.remove(portfolioId);
+            onValueChanged(portfolioId);
+        }
+        logger.info("Portfolio leaderboard rebuilt: {} ranked for the day, {} year to date",
+                boards.get(LeaderboardPeriod.DAY).ranking.size(), boards.get(LeaderboardPeriod.YTD).ranking.size());
+    }
+
+    /**
+     * Учитывает денежный поток сделки после фиксации текущей транзакции
+     * @param portfolioId ID портфеля
+     * @param netFlow Сумма покупки (положительная) или продажи (отрицательная)
+     */
+    public void onTrade(Long portfolioId, BigDecimal netFlow) {
+        TransactionHooks.afterCommit(() -> update(board -> {
+            board.flows.merge(portfolioId, netFlow, BigDecimal::add);
+            rescore(board, portfolioId);
+        }));
+    }
+
+    /**
+     * Исключает портфель из рейтингов после фиксации текущей транзакции
+     * @param portfolioId ID портфеля
+     */
+    public void onPortfolioRemoved(Long portfolioId) {
+        TransactionHooks.afterCommit(() -> update(board -> {
+            synchronized (board) {
+                board.flows.remove(portfolioId);
+                board.ranking.remove(portfolioId);
+            }
+        }));
+    }
+
+    /**
+     * Первые портфели рейтинга
+     * @param period Период
+     * @param limit Количество
+     * @return Позиции рейтинга по убыванию доходности
+     */
+    public List<Entry> getTop(LeaderboardPeriod period, int limit) {
+        List<Map.Entry<Long, Double>> top = boards.get(period).ranking.top(limit);
+        Entry[] entries = new Entry[top.size()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new Entry(top.get(i).getKey(), i + 1, top.get(i).getValue());
+        }
+        return List.of(entries);
+    }
+
+    /**
+     * Место портфеля в рейтинге
+     * @param period Период
+     * @param portfolioId ID портфеля
+     * @return Позиция рейтинга или null, если доходность портфеля не определена (нет вложений)
+     */
+    public Entry getRank(LeaderboardPeriod period, Long portfolioId) {
+        RankedSkipList ranking = boards.get(period).ranking;
+        Double score = ranking.score(portfolioId);
+        int rank = ranking.rank(portfolioId);
+        if (score == null || rank == 0) {
+            return null;
+        }
+        return new Entry(portfolioId, rank, score);
+    }
+
+    /**
+     * Количество портфелей в рейтинге
+     */
+    public int size(LeaderboardPeriod period) {
+        return boards.get(period).ranking.size();
+    }
+
+    private Board buildBoard(List<Long> portfolioIds, LocalDate periodStart, Map<Long, BigDecimal> lifetimeFlows) {
+        LocalDate baseDate = performanceRepository.findLatestDateBefore(periodStart);
+        Map<Long, BigDecimal> baseValues = baseDate != null ? toMap(performanceRepository.findValuesOn(baseDate)) : Map.of();
+        Map<Long, BigDecimal> periodFlows = baseDate != null
+                ? toMap(tradeRepository.sumNetFlowsByPortfolioSince(baseDate.plusDays(1).atStartOfDay()))
+                : Map.of();
+
+        // Для портфелей без базовой оценки доходность считается с момента создания
+        Map<Long, BigDecimal> flows = new ConcurrentHashMap<>();
+        for (Long portfolioId : portfolioIds) {
+            BigDecimal flow = baseValues.containsKey(portfolioId)
+                    ? periodFlows.getOrDefault(portfolioId, BigDecimal.ZERO)
+                    : lifetimeFlows.getOrDefault(portfolioId, BigDecimal.ZERO);
+            flows.put(portfolioId, flow);
+        }
+
+        Board board = new Board(baseValues, flows);
+        for (Long portfolioId : portfolioIds) {
+            rescore(board, portfolioId);
+        }
+        return board;
+    }
+
+    /**
+     * Применяет изменение к текущим рейтингам, а во время перестроения запоминает его
+     * для перестраиваемых
+     */
+    private void update(Consumer<Board> update) {
+        synchronized (updateLock) {
+            if (updatesDuringRebuild != null) {
+                updatesDuringRebuild.add(update);
+            }
+            boards.values().forEach(update);
+        }
+    }
+
+    private void onValueChanged(Long portfolioId) {
+        if (rebuilding) {
+            changedDuringRebuild.add(portfolioId);
+        }
+        for (Board board : boards.values()) {
+            rescore(board, portfolioId);
+        }
+    }
+
+    /**
+     * Пересчитывает доходность портфеля и его место в рейтинге.
+     * Стоимость читается из книги позиций под блокировкой рейтинга, поэтому запоздавшее
+     * уведомление не может записать устаревшую доходность поверх актуальной
+     */
+    private void rescore(Board board, Long portfolioId) {
+        synchronized (board) {
+            BigDecimal flow = board.flows.get(portfolioId);
+            if (flow == null) {
+                // Портфель удален или еще не известен рейтингу
+                return;
+            }
+
+            BigDecimal value = positionBook.getTotalValue(portfolioId);
+            double current = value != null ? value.doubleValue() : 0;
+            double base = board.baseValues.getOrDefault(portfolioId, BigDecimal.ZERO).doubleValue();
+            double invested = base + flow.doubleValue();
+
+            if (invested <= 0) {
+                board.ranking.remove(portfolioId);
+            } else {
+                board.ranking.put(portfolioId, (current - invested) / invested);
+            }
+        }
+    }
+
+    private static Map<Long, BigDecimal> toMap(List<Object[]> rows) {
+        Map<Long, BigDecimal> values = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            values.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        return values;
+    }
+
+    /**
+     * Позиция портфеля в рейтинге
+     */
+    public static final class Entry {
+        private final Long portfolioId;
+        private final int rank;
+        private final double returnFraction;
+
+        private Entry(Long portfolioId, int rank, double returnFraction) {
+            this.portfolioId = portfolioId;
+            this.rank = rank;
+            this.returnFraction = returnFraction;
+        }
+
+        public Long getPortfolioId() {
+            return portfolioId;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        /**
+         * Доходность за период (доля, 0.05 = 5%)
+         */
+        public double getReturnFraction() {
+            return returnFraction;
+        }
+    }
+
+    /**
+     * Рейтинг одного периода: базовые оценки, потоки после базовой даты и упорядоченный список
+     */
+    private static final class Board {
+        private final Map<Long, BigDecimal> baseValues;
+        private final Map<Long, BigDecimal> flows;
+        private final RankedSkipList ranking = new RankedSkipList();
+
+        private Board(Map<Long, BigDecimal> baseValues, Map<Long, BigDecimal> flows) {
+            this.baseValues = baseValues;
+            this.flows = flows;
+        }
+    }
+}
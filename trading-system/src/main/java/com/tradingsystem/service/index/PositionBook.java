@@ -0,0 +1,363 @@
+package com.tradingsystem.service.index;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Книга позиций в памяти: количество и себестоимость по каждому портфелю,
+ * обратный индекс акция -> портфели и инкрементальная оценка стоимости.
+ * При изменении цены переоцениваются только портфели, содержащие акцию (Δцены × количество),
+ * измененные итоги помечаются и периодически сохраняются пакетом
+ */
+@Component
+public class PositionBook {
+
+    private static final Logger logger = LoggerFactory.getLogger(PositionBook.class);
+
+    private final HoldingRepository holdingRepository;
+
+    private final Map<Long, PortfolioPositions> portfolios = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> portfoliosByStock = new ConcurrentHashMap<>();
+    private final Map<Long, BigDecimal> lastPrices = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyPortfolios = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<Long>> valueListeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public PositionBook(HoldingRepository holdingRepository) {
+        this.holdingRepository = holdingRepository;
+    }
+
+    /**
+     * Загружает позиции из базы данных после старта приложения.
+     * Итоги всех портфелей помечаются к сохранению, чтобы исправить устаревшие значения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void load() {
+        for (Object[] row : holdingRepository.findAllPositionStates()) {
+            Long portfolioId = (Long) row[0];
+            Long stockId = (Long) row[1];
+            int quantity = (Integer) row[2];
+            BigDecimal averagePrice = (BigDecimal) row[3];
+            BigDecimal currentPrice = (BigDecimal) row[4];
+
+            if (currentPrice != null) {
+                lastPrices.putIfAbsent(stockId, currentPrice);
+            }
+            applyPosition(portfolioId, stockId, quantity, averagePrice);
+        }
+        logger.info("Position book loaded: {} portfolios, {} stocks", portfolios.size(), portfoliosByStock.size());
+    }
+
+    /**
+     * Подписывает на изменения стоимости портфелей. Слушатель получает ID портфеля
+     * и должен сам прочитать актуальную стоимость (уведомления могут приходить не по порядку)
+     * @param listener Слушатель
+     */
+    public void addValueListener(Consumer<Long> listener) {
+        valueListeners.add(listener);
+    }
+
+    /**
+     * Применяет новую цену акции после фиксации текущей транзакции
+     * @param stockId ID акции
+     * @param price Новая цена
+     */
+    public void onPriceUpdate(Long stockId, BigDecimal price) {
+        if (price == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> applyPrice(stockId, price));
+    }
+
+    /**
+     * Устанавливает состояние позиции после фиксации текущей транзакции
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @param quantity Новое количество (0 - позиция закрыта)
+     * @param averagePrice Новая средняя цена покупки
+     * @param price Текущая цена акции (используется, если цена еще неизвестна книге)
+     */
+    public void onPositionChanged(Long portfolioId, Long stockId, int quantity, BigDecimal averagePrice, BigDecimal price) {
+        TransactionHooks.afterCommit(() -> {
+            if (price != null) {
+                lastPrices.putIfAbsent(stockId, price);
+            }
+            applyPositionAndNotify(portfolioId, stockId, quantity, averagePrice);
+        });
+    }
+
+    /**
+     * Удаляет портфель из книги после фиксации текущей транзакции
+     * @param portfolioId ID портфеля
+     */
+    public void onPortfolioRemoved(Long portfolioId) {
+        TransactionHooks.afterCommit(() -> {
+            PortfolioPositions book = portfolios.remove(portfolioId);
+            if (book != null) {
+                synchronized (book) {
+                    book.positions.keySet().forEach(stockId -> unlink(stockId, portfolioId));
+                }
+            }
+            dirtyPortfolios.remove(portfolioId);
+            notifyValueChanged(portfolioId);
+        });
+    }
+
+    /**
+     * Получает текущую оценку стоимости портфеля
+     * @param portfolioId ID портфеля
+     * @return Стоимость или null, если портфеля нет в книге
+     */
+    public BigDecimal getTotalValue(Long portfolioId) {
+        PortfolioPositions book = portfolios.get(portfolioId);
+        if (book == null) {
+            return null;
+        }
+        synchronized (book) {
+            return book.totalValue;
+        }
+    }
+
+    /**
+     * Получает себестоимость позиций портфеля (сумма количество × средняя цена)
+     * @param portfolioId ID портфеля
+     * @return Себестоимость или ноль, если портфеля нет в книге
+     */
+    public BigDecimal getCostBasis(Long portfolioId) {
+        PortfolioPositions book = portfolios.get(portfolioId);
+        if (book == null) {
+            return BigDecimal.ZERO;
+        }
+        synchronized (book) {
+            return book.costBasis;
+        }
+    }
+
+    /**
+     * Получает номер версии портфеля, который увеличивается при каждом изменении позиций
+     * или цен входящих в него акций (для инвалидации производных расчетов)
+     * @param portfolioId ID портфеля
+     * @return Номер версии или 0, если портфеля нет в книге
+     */
+    public long getVersion(Long portfolioId) {
+        PortfolioPositions book = portfolios.get(portfolioId);
+        if (book == null) {
+            return 0;
+        }
+        synchronized (book) {
+            return book.version;
+        }
+    }
+
+    /**
+     * Получает номер версии состава портфеля, который увеличивается только при изменении
+     * позиций, но не цен (для расчетов, зависящих от состава сильнее, чем от текущей оценки)
+     * @param portfolioId ID портфеля
+     * @return Номер версии или 0, если портфеля нет в книге
+     */
+    public long getPositionsVersion(Long portfolioId) {
+        PortfolioPositions book = portfolios.get(portfolioId);
+        if (book == null) {
+            return 0;
+        }
+        synchronized (book) {
+            return book.positionsVersion;
+        }
+    }
+
+    /**
+     * Получает ID портфелей, содержащих акцию
+     * @param stockId ID акции
+     * @return Множество ID портфелей
+     */
+    public Set<Long> getPortfoliosHolding(Long stockId) {
+        Set<Long> holders = portfoliosByStock.get(stockId);
+        return holders == null ? Collections.emptySet() : Collections.unmodifiableSet(holders);
+    }
+
+    /**
+     * Забирает итоги портфелей, измененные с момента предыдущего вызова
+     * @param limit Максимальное количество портфелей
+     * @return Карта ID портфеля -> стоимость
+     */
+    public Map<Long, BigDecimal> drainDirty(int limit) {
+        Map<Long, BigDecimal> result = new LinkedHashMap<>();
+        Iterator<Long> iterator = dirtyPortfolios.iterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            Long portfolioId = iterator.next();
+            // Снимаем отметку до чтения итога: изменение после чтения снова пометит портфель
+            iterator.remove();
+            BigDecimal totalValue = getTotalValue(portfolioId);
+            if (totalValue != null) {
+                result.put(portfolioId, totalValue);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает итоги в очередь на сохранение (например, после ошибки записи)
+     * @param portfolioIds ID портфелей
+     */
+    public void markDirty(Iterable<Long> portfolioIds) {
+        portfolioIds.forEach(dirtyPortfolios::add);
+    }
+
+    /**
+     * Количество портфелей, ожидающих сохранения
+     * @return Количество портфелей
+     */
+    public int getDirtyCount() {
+        return dirtyPortfolios.size();
+    }
+
+    private void applyPrice(Long stockId, BigDecimal price) {
+        lastPrices.put(stockId, price);
+
+        Set<Long> holders = portfoliosByStock.get(stockId);
+        if (holders == null) {
+            return;
+        }
+
+        for (Long portfolioId : holders) {
+            PortfolioPositions book = portfolios.get(portfolioId);
+            if (book == null) {
+                continue;
+            }
+            synchronized (book) {
+                Position position = book.positions.get(stockId);
+                if (position == null || position.markPrice.compareTo(price) == 0) {
+                    continue;
+                }
+                // Позиция хранит цену последней оценки, поэтому повторное или
+                // запоздавшее обновление не приводит к двойному учету
+                book.totalValue = book.totalValue.add(position.revalue(price));
+                book.version++;
+                dirtyPortfolios.add(portfolioId);
+            }
+            notifyValueChanged(portfolioId);
+        }
+    }
+
+    private void applyPosition(Long portfolioId, Long stockId, int quantity, BigDecimal averagePrice) {
+        PortfolioPositions book = portfolios.computeIfAbsent(portfolioId, id -> new PortfolioPositions());
+
+        // Портфель попадает в обратный индекс до чтения цены: параллельное обновление цены
+        // либо будет прочитано здесь, либо переоценит эту позицию после нас
+        if (quantity > 0) {
+            portfoliosByStock.computeIfAbsent(stockId, id -> ConcurrentHashMap.newKeySet()).add(portfolioId);
+        }
+
+        synchronized (book) {
+            BigDecimal price = lastPrices.getOrDefault(stockId, BigDecimal.ZERO);
+            Position previous = quantity > 0
+                    ? book.positions.put(stockId, new Position(quantity, averagePrice, price))
+                    : book.positions.remove(stockId);
+
+            BigDecimal previousValue = previous == null ? BigDecimal.ZERO : previous.marketValue();
+            BigDecimal previousCost = previous == null ? BigDecimal.ZERO : previous.cost();
+            BigDecimal newValue = quantity > 0 ? price.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO;
+            BigDecimal newCost = quantity > 0 ? averagePrice.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO;
+
+            book.totalValue = book.totalValue.subtract(previousValue).add(newValue);
+            book.costBasis = book.costBasis.subtract(previousCost).add(newCost);
+            book.version++;
+            book.positionsVersion++;
+        }
+
+        if (quantity <= 0) {
+            unlink(stockId, portfolioId);
+        }
+        dirtyPortfolios.add(portfolioId);
+    }
+
+    /**
+     * Применяет изменение позиции и уведомляет слушателей об изменении стоимости
+     */
+    private void applyPositionAndNotify(Long portfolioId, Long stockId, int quantity, BigDecimal averagePrice) {
+        applyPosition(portfolioId, stockId, quantity, averagePrice);
+        notifyValueChanged(portfolioId);
+    }
+
+    private void notifyValueChanged(Long portfolioId) {
+        for (Consumer<Long> listener : valueListeners) {
+            try {
+                listener.accept(portfolioId);
+            } catch (RuntimeException e) {
+                logger.warn("Portfolio value listener failed for portfolio {}", portfolioId, e);
+            }
+        }
+    }
+
+    private void unlink(Long stockId, Long portfolioId) {
+        portfoliosByStock.computeIfPresent(stockId, (id, holders) -> {
+            holders.remove(portfolioId);
+            return holders.isEmpty() ? null : holders;
+        });
+    }
+
+    /**
+     * Позиции и итоги одного портфеля (изменяются под блокировкой объекта)
+     */
+    private static final class PortfolioPositions {
+        private final Map<Long, Position> positions = new HashMap<>();
+        private BigDecimal totalValue = BigDecimal.ZERO;
+        private BigDecimal costBasis = BigDecimal.ZERO;
+        private long version;
+        private long positionsVersion;
+    }
+
+    /**
+     * Состояние позиции: количество, средняя цена покупки и цена последней оценки
+     */
+    private static final class Position {
+        private final int quantity;
+        private final BigDecimal averagePrice;
+        private BigDecimal markPrice;
+
+        private Position(int quantity, BigDecimal averagePrice, BigDecimal markPrice) {
+            this.quantity = quantity;
+            this.averagePrice = averagePrice;
+            this.markPrice = markPrice;
+        }
+
+        private BigDecimal cost() {
+            return averagePrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        private BigDecimal marketValue() {
+            return markPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        /**
+         * Переоценивает позицию по новой цене
+         * @return Изменение стоимости позиции (Δцены × количество)
+         */
+        private BigDecimal revalue(BigDecimal price) {
+            BigDecimal delta = price.subtract(markPrice).multiply(BigDecimal.valueOf(quantity));
+            markPrice = price;
+            return delta;
+        }
+    }
+}
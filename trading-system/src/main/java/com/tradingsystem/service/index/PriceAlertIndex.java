@@ -0,0 +1,213 @@
+package com.tradingsystem.service.index;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tradingsystem.model.enums.AlertDirection;
+import com.tradingsystem.repository.WatchlistItemRepository;
+import com.tradingsystem.util.FixedPoint;
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Индекс активных ценовых оповещений списка отслеживания по акциям.
+ * Для каждой акции целевые цены хранятся в двух упорядоченных примитивных массивах:
+ * оповещения на падение по возрастанию цены и оповещения на рост по возрастанию отрицательной цены.
+ * В обоих массивах первыми пересекаются пороги в конце, поэтому новая цена снимает их
+ * бинарным поиском и усечением массива - O(log n + k) без просмотра всех оповещений
+ */
+@Component
+public class PriceAlertIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceAlertIndex.class);
+
+    private final WatchlistItemRepository watchlistItemRepository;
+
+    private final Map<Long, StockAlerts> alertsByStock = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final List<AlertListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public PriceAlertIndex(WatchlistItemRepository watchlistItemRepository) {
+        this.watchlistItemRepository = watchlistItemRepository;
+    }
+
+    /**
+     * Загружает активные оповещения после старта приложения. Строки читаются потоком
+     * в порядке массивов индекса, поэтому каждая вставка - добавление в конец
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    @Transactional(readOnly = true)
+    public void load() {
+        try (Stream<Object[]> rows = watchlistItemRepository.streamActiveAboveAlerts()) {
+            rows.forEach(row -> register((Long) row[0], (Long) row[1], AlertDirection.ABOVE, toPrice((Double) row[2])));
+        }
+        try (Stream<Object[]> rows = watchlistItemRepository.streamActiveBelowAlerts()) {
+            rows.forEach(row -> register((Long) row[0], (Long) row[1], AlertDirection.BELOW, toPrice((Double) row[2])));
+        }
+        logger.info("Price alert index loaded: {} active alerts for {} stocks", size.get(), alertsByStock.size());
+    }
+
+    /**
+     * Подписывает на срабатывания. Слушатель вызывается в потоке, применившем цену,
+     * поэтому должен передавать обработку в другой поток
+     * @param listener Слушатель
+     */
+    public void addListener(AlertListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Добавляет оповещение в индекс после фиксации текущей транзакции
+     * @param alertId ID элемента списка отслеживания
+     * @param stockId ID акции
+     * @param direction Направление
+     * @param targetPrice Целевая цена
+     */
+    public void onAlertCreated(Long alertId, Long stockId, AlertDirection direction, BigDecimal targetPrice) {
+        long target = FixedPoint.of(targetPrice);
+        TransactionHooks.afterCommit(() -> register(alertId, stockId, direction, target));
+    }
+
+    /**
+     * Удаляет оповещение из индекса после фиксации текущей транзакции
+     * @param alertId ID элемента списка отслеживания
+     * @param stockId ID акции
+     * @param direction Направление
+     * @param targetPrice Целевая цена, с которой оповещение было добавлено
+     */
+    public void onAlertRemoved(Long alertId, Long stockId, AlertDirection direction, BigDecimal targetPrice) {
+        long target = FixedPoint.of(targetPrice);
+        TransactionHooks.afterCommit(() -> unregister(alertId, stockId, direction, target));
+    }
+
+    /**
+     * Применяет новую цену акции после фиксации текущей транзакции:
+     * снимает пересеченные оповещения и передает их слушателям (каждое - один раз)
+     * @param stockId ID акции
+     * @param price Новая цена
+     */
+    public void onPriceUpdate(Long stockId, BigDecimal price) {
+        if (price == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> {
+            List<FiredAlert> fired = pollCrossed(stockId, FixedPoint.of(price));
+            if (!fired.isEmpty()) {
+                logger.debug("{} price alerts fired for stock {} at {}", fired.size(), stockId, price);
+                listeners.forEach(listener -> listener.onAlertsFired(stockId, price, fired));
+            }
+        });
+    }
+
+    /**
+     * Количество активных оповещений в индексе
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void register(Long alertId, Long stockId, AlertDirection direction, long target) {
+        StockAlerts alerts = alertsByStock.computeIfAbsent(stockId, id -> new StockAlerts());
+        boolean added;
+        synchronized (alerts) {
+            added = direction == AlertDirection.ABOVE
+                    ? alerts.above.add(-target, alertId)
+                    : alerts.below.add(target, alertId);
+        }
+        if (added) {
+            size.incrementAndGet();
+        }
+    }
+
+    private void unregister(Long alertId, Long stockId, AlertDirection direction, long target) {
+        StockAlerts alerts = alertsByStock.get(stockId);
+        if (alerts == null) {
+            return;
+        }
+        boolean removed;
+        synchronized (alerts) {
+            removed = direction == AlertDirection.ABOVE
+                    ? alerts.above.remove(-target, alertId)
+                    : alerts.below.remove(target, alertId);
+        }
+        if (removed) {
+            size.decrementAndGet();
+        }
+    }
+
+    private List<FiredAlert> pollCrossed(Long stockId, long price) {
+        StockAlerts alerts = alertsByStock.get(stockId);
+        if (alerts == null) {
+            return List.of();
+        }
+
+        long[] above;
+        long[] below;
+        synchronized (alerts) {
+            // Рост: целевая цена не выше цены, то есть -цель >= -цена
+            above = alerts.above.pollAtLeast(-price);
+            // Падение: целевая цена не ниже цены
+            below = alerts.below.pollAtLeast(price);
+        }
+        if (above.length == 0 && below.length == 0) {
+            return List.of();
+        }
+
+        List<FiredAlert> fired = new ArrayList<>((above.length + below.length) / 2);
+        for (int i = 0; i < above.length; i += 2) {
+            fired.add(new FiredAlert(above[i + 1], AlertDirection.ABOVE, FixedPoint.toBigDecimal(-above[i])));
+        }
+        for (int i = 0; i < below.length; i += 2) {
+            fired.add(new FiredAlert(below[i + 1], AlertDirection.BELOW, FixedPoint.toBigDecimal(below[i])));
+        }
+        size.addAndGet(-fired.size());
+        return fired;
+    }
+
+    private static long toPrice(Double targetPrice) {
+        return FixedPoint.of(BigDecimal.valueOf(targetPrice));
+    }
+
+    /**
+     * Сработавшее оповещение
+     * @param alertId ID элемента списка отслеживания
+     * @param direction Направление
+     * @param targetPrice Целевая цена, с которой оповещение было в индексе
+     */
+    public record FiredAlert(long alertId, AlertDirection direction, BigDecimal targetPrice) {
+    }
+
+    /**
+     * Получатель сработавших оповещений
+     */
+    @FunctionalInterface
+    public interface AlertListener {
+        /**
+         * @param stockId ID акции
+         * @param price Цена, пересекшая целевые цены
+         * @param alerts Сработавшие оповещения
+         */
+        void onAlertsFired(Long stockId, BigDecimal price, List<FiredAlert> alerts);
+    }
+
+    private static final class StockAlerts {
+        private final ThresholdArray above = new ThresholdArray();
+        private final ThresholdArray below = new ThresholdArray();
+    }
+}
@@ -0,0 +1,188 @@
+package com.tradingsystem.service.index;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.model.enums.TriggerType;
+import com.tradingsystem.repository.PriceTriggerRepository;
+import com.tradingsystem.util.FixedPoint;
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Индекс активных ценовых триггеров по акциям.
+ * Для каждой акции пороги хранятся в двух упорядоченных множествах: тейк-профиты по возрастанию
+ * (срабатывают от наименьшего порога при росте цены) и стоп-лоссы по возрастанию (срабатывают
+ * от наибольшего порога при падении цены). Новая цена снимает только пересеченные пороги -
+ * O(k log n) вместо просмотра всех триггеров
+ */
+@Component
+public class PriceTriggerIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceTriggerIndex.class);
+
+    private final PriceTriggerRepository priceTriggerRepository;
+
+    private final Map<Long, StockTriggers> triggersByStock = new ConcurrentHashMap<>();
+    private final Map<Long, Registration> registrations = new ConcurrentHashMap<>();
+    private final List<TriggerListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public PriceTriggerIndex(PriceTriggerRepository priceTriggerRepository) {
+        this.priceTriggerRepository = priceTriggerRepository;
+    }
+
+    /**
+     * Загружает активные триггеры после старта приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void load() {
+        List<Object[]> rows = priceTriggerRepository.findActiveTriggerStates();
+        for (Object[] row : rows) {
+            register((Long) row[0], (Long) row[1], (TriggerType) row[2], (BigDecimal) row[3]);
+        }
+        logger.info("Price trigger index loaded: {} active triggers for {} stocks", registrations.size(), triggersByStock.size());
+    }
+
+    /**
+     * Подписывает на срабатывания. Слушатель вызывается в потоке, применившем цену,
+     * поэтому должен передавать проведение продаж в другой поток
+     * @param listener Слушатель
+     */
+    public void addListener(TriggerListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Добавляет триггер в индекс после фиксации текущей транзакции
+     * @param triggerId ID триггера
+     * @param stockId ID акции
+     * @param type Тип триггера
+     * @param triggerPrice Пороговая цена
+     */
+    public void onTriggerCreated(Long triggerId, Long stockId, TriggerType type, BigDecimal triggerPrice) {
+        TransactionHooks.afterCommit(() -> register(triggerId, stockId, type, triggerPrice));
+    }
+
+    /**
+     * Удаляет триггер из индекса после фиксации текущей транзакции
+     * @param triggerId ID триггера
+     */
+    public void onTriggerRemoved(Long triggerId) {
+        TransactionHooks.afterCommit(() -> unregister(triggerId));
+    }
+
+    /**
+     * Применяет новую цену акции после фиксации текущей транзакции:
+     * снимает пересеченные триггеры и передает их слушателям
+     * @param stockId ID акции
+     * @param price Новая цена
+     */
+    public void onPriceUpdate(Long stockId, BigDecimal price) {
+        if (price == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> {
+            List<Long> fired = popCrossed(stockId, FixedPoint.of(price));
+            if (!fired.isEmpty()) {
+                logger.debug("{} price triggers fired for stock {} at {}", fired.size(), stockId, price);
+                listeners.forEach(listener -> listener.onTriggered(stockId, price, fired));
+            }
+        });
+    }
+
+    /**
+     * Количество активных триггеров в индексе
+     */
+    public int size() {
+        return registrations.size();
+    }
+
+    private void register(Long triggerId, Long stockId, TriggerType type, BigDecimal triggerPrice) {
+        Threshold threshold = new Threshold(FixedPoint.of(triggerPrice), triggerId);
+        StockTriggers triggers = triggersByStock.computeIfAbsent(stockId, id -> new StockTriggers());
+        synchronized (triggers) {
+            (type == TriggerType.TAKE_PROFIT ? triggers.above : triggers.below).add(threshold);
+        }
+        registrations.put(triggerId, new Registration(stockId, type, threshold));
+    }
+
+    private void unregister(Long triggerId) {
+        Registration registration = registrations.remove(triggerId);
+        if (registration == null) {
+            return;
+        }
+        StockTriggers triggers = triggersByStock.get(registration.stockId);
+        if (triggers != null) {
+            synchronized (triggers) {
+                (registration.type == TriggerType.TAKE_PROFIT ? triggers.above : triggers.below).remove(registration.threshold);
+            }
+        }
+    }
+
+    private List<Long> popCrossed(Long stockId, long price) {
+        StockTriggers triggers = triggersByStock.get(stockId);
+        if (triggers == null) {
+            return List.of();
+        }
+
+        List<Long> fired = new ArrayList<>();
+        synchronized (triggers) {
+            // Тейк-профит: порог не выше цены
+            while (!triggers.above.isEmpty() && triggers.above.first().price <= price) {
+                fired.add(triggers.above.pollFirst().triggerId);
+            }
+            // Стоп-лосс: порог не ниже цены
+            while (!triggers.below.isEmpty() && triggers.below.last().price >= price) {
+                fired.add(triggers.below.pollLast().triggerId);
+            }
+        }
+        fired.forEach(registrations::remove);
+        return fired;
+    }
+
+    /**
+     * Получатель сработавших триггеров
+     */
+    @FunctionalInterface
+    public interface TriggerListener {
+        /**
+         * @param stockId ID акции
+         * @param price Цена, пересекшая пороги
+         * @param triggerIds ID сработавших триггеров (каждый передается один раз)
+         */
+        void onTriggered(Long stockId, BigDecimal price, List<Long> triggerIds);
+    }
+
+    /**
+     * Порог триггера; равные цены упорядочены по ID
+     */
+    private record Threshold(long price, long triggerId) implements Comparable<Threshold> {
+        @Override
+        public int compareTo(Threshold other) {
+            int byPrice = Long.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(triggerId, other.triggerId);
+        }
+    }
+
+    private record Registration(Long stockId, TriggerType type, Threshold threshold) {
+    }
+
+    private static final class StockTriggers {
+        private final TreeSet<Threshold> above = new TreeSet<>();
+        private final TreeSet<Threshold> below = new TreeSet<>();
+    }
+}
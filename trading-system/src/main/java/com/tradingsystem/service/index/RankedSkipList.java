@@ -0,0 +1,225 @@
+package com.tradingsystem.service.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Упорядоченный по убыванию оценки список идентификаторов со списком пропусков,
+ * в котором каждая ссылка хранит количество пропускаемых узлов (span).
+ * Это дает вставку, удаление, место в рейтинге и выборку первых N за O(log n).
+ * ConcurrentSkipListMap не поддерживает позиционный индекс, поэтому изменения
+ * выполняются под блокировкой записи, а запросы - под блокировкой чтения
+ */
+final class RankedSkipList {
+
+    private static final int MAX_LEVEL = 32;
+    private static final double LEVEL_PROBABILITY = 0.25;
+
+    private final Node head = new Node(Long.MIN_VALUE, Double.NaN, MAX_LEVEL);
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int level = 1;
+    private int size;
+
+    /**
+     * Добавляет идентификатор или обновляет его оценку
+     */
+    void put(long id, double score) {
+        lock.writeLock().lock();
+        try {
+            Node existing = nodes.get(id);
+            if (existing != null) {
+                if (Double.compare(existing.score, score) == 0) {
+                    return;
+                }
+                delete(existing);
+            }
+            insert(id, score);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет идентификатор
+     */
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Node existing = nodes.get(id);
+            if (existing != null) {
+                delete(existing);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Место идентификатора в рейтинге (начиная с 1) или 0, если его нет
+     */
+    int rank(long id) {
+        lock.readLock().lock();
+        try {
+            Node target = nodes.get(id);
+            if (target == null) {
+                return 0;
+            }
+
+            int rank = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && (x.next[i] == target || precedes(x.next[i], target.score, target.id))) {
+                    rank += x.span[i];
+                    x = x.next[i];
+                }
+                if (x == target) {
+                    return rank;
+                }
+            }
+            return 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Оценка идентификатора или null, если его нет
+     */
+    Double score(long id) {
+        lock.readLock().lock();
+        try {
+            Node node = nodes.get(id);
+            return node == null ? null : node.score;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Первые элементы рейтинга
+     * @param limit Количество элементов
+     * @return Пары [ID, оценка] по убыванию оценки
+     */
+    List<Map.Entry<Long, Double>> top(int limit) {
+        lock.readLock().lock();
+        try {
+            List<Map.Entry<Long, Double>> result = new ArrayList<>(Math.min(limit, size));
+            for (Node x = head.next[0]; x != null && result.size() < limit; x = x.next[0]) {
+                result.add(Map.entry(x.id, x.score));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(long id, double score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && precedes(x.next[i], score, id)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(id, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+
+        nodes.put(id, node);
+        size++;
+    }
+
+    private void delete(Node target) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && precedes(x.next[i], target.score, target.id)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+
+        nodes.remove(target.id);
+        size--;
+    }
+
+    private int randomLevel() {
+        int nodeLevel = 1;
+        while (nodeLevel < MAX_LEVEL && random.nextDouble() < LEVEL_PROBABILITY) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+
+    /**
+     * Стоит ли узел раньше позиции (score, id): большая оценка выше, при равенстве - меньший ID
+     */
+    private static boolean precedes(Node node, double score, long id) {
+        return node.score > score || (node.score == score && node.id < id);
+    }
+
+    private static final class Node {
+        private final long id;
+        private final double score;
+        private final Node[] next;
+        private final int[] span;
+
+        private Node(long id, double score, int level) {
+            this.id = id;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
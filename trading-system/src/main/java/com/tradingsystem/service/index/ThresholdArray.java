@@ -0,0 +1,118 @@
+package com.tradingsystem.service.index;
+
+import java.util.Arrays;
+
+/**
+ * Упорядоченные пороги в двух параллельных массивах long (ключ порога и ID) без объектов на элемент.
+ * Пары хранятся по возрастанию (ключ, ID), поэтому пороги, пересекаемые первыми, лежат в конце:
+ * снятие всех порогов с ключом не меньше заданного - бинарный поиск и усечение массива, O(log n + k).
+ * Вставка и удаление сдвигают хвост массива; при загрузке в порядке возрастания вставка - добавление в конец.
+ * Не потокобезопасен: синхронизацию выполняет владелец
+ */
+final class ThresholdArray {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Добавляет порог
+     * @return false, если такой порог уже есть
+     */
+    boolean add(long key, long id) {
+        int index;
+        if (size == 0 || compareAt(size - 1, key, id) < 0) {
+            index = size;
+        } else {
+            int found = search(key, id);
+            if (found >= 0) {
+                return false;
+            }
+            index = -found - 1;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        keys[index] = key;
+        ids[index] = id;
+        size++;
+        return true;
+    }
+
+    /**
+     * Удаляет порог
+     * @return false, если порога нет (уже снят)
+     */
+    boolean remove(long key, long id) {
+        int index = search(key, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        if (size > INITIAL_CAPACITY && size < keys.length / 4) {
+            keys = Arrays.copyOf(keys, keys.length / 2);
+            ids = Arrays.copyOf(ids, ids.length / 2);
+        }
+        return true;
+    }
+
+    /**
+     * Снимает все пороги с ключом не меньше заданного
+     * @param key Граница
+     * @return Снятые пороги парами (ключ, ID) подряд; пустой массив, если граница не пересечена
+     */
+    long[] pollAtLeast(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        long[] polled = new long[(size - low) * 2];
+        for (int i = low, j = 0; i < size; i++, j += 2) {
+            polled[j] = keys[i];
+            polled[j + 1] = ids[i];
+        }
+        size = low;
+        return polled;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int search(long key, long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareAt(middle, key, id);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int compareAt(int index, long key, long id) {
+        int byKey = Long.compare(keys[index], key);
+        return byKey != 0 ? byKey : Long.compare(ids[index], id);
+    }
+}
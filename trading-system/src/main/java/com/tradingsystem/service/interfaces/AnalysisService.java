@@ -65,6 +65,12 @@ public interface AnalysisService {
      */
     List<Analysis> getLatestAnalyses(int limit);
 
+    /**
+     * Получает последний анализ по каждой акции (из материализованной проекции, без сортировки)
+     * @return Список анализов, по одному на акцию
+     */
+    List<Analysis> getLatestAnalysesForAllStocks();
+
     /**
      * Генерирует новый анализ для акции
      * @param symbol Символ акции
@@ -72,6 +78,13 @@ public interface AnalysisService {
      */
     Analysis generateAnalysis(String symbol);
 
+    /**
+     * Сохраняет анализ и обновляет проекцию последних анализов
+     * @param analysis Анализ для сохранения
+     * @return Сохраненный анализ
+     */
+    Analysis saveAnalysis(Analysis analysis);
+
     /**
      * Удаляет анализ
      * @param id ID анализа
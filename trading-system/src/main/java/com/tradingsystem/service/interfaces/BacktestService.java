@@ -0,0 +1,27 @@
+package com.tradingsystem.service.interfaces;
+
+import java.util.Map;
+
+import com.tradingsystem.model.dto.BacktestRequestDTO;
+import com.tradingsystem.model.dto.BacktestResultDTO;
+
+/**
+ * Интерфейс сервиса бэктестинга стратегий по сохраненным котировкам
+ */
+public interface BacktestService {
+
+    /**
+     * Получает доступные стратегии
+     * @return Имя стратегии -> параметры со значениями по умолчанию
+     */
+    Map<String, Map<String, Double>> getStrategies();
+
+    /**
+     * Прогоняет стратегию по каждой акции и каждому сочетанию параметров
+     * @param request Запрос бэктестинга
+     * @return Результаты прогонов
+     * @throws IllegalArgumentException при неизвестной стратегии, параметре или слишком большой сетке
+     * @throws IllegalStateException если по акции нет котировок за период
+     */
+    BacktestResultDTO runBacktest(BacktestRequestDTO request);
+}
@@ -0,0 +1,43 @@
+package com.tradingsystem.service.interfaces;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.tradingsystem.model.enums.ExportFormat;
+
+/**
+ * Интерфейс сервиса выгрузки данных портфеля.
+ * Данные читаются курсором базы данных и сразу пишутся в поток, не накапливаясь в памяти
+ */
+public interface ExportService {
+
+    /**
+     * Выгружает все сделки портфеля в хронологическом порядке
+     * @param portfolioId ID портфеля
+     * @param format Формат выгрузки
+     * @param output Поток ответа (не закрывается)
+     * @return Количество выгруженных строк
+     * @throws IOException при ошибке записи (например, клиент отключился)
+     */
+    long exportTrades(Long portfolioId, ExportFormat format, OutputStream output) throws IOException;
+
+    /**
+     * Выгружает текущие позиции портфеля
+     * @param portfolioId ID портфеля
+     * @param format Формат выгрузки
+     * @param output Поток ответа (не закрывается)
+     * @return Количество выгруженных строк
+     * @throws IOException при ошибке записи
+     */
+    long exportHoldings(Long portfolioId, ExportFormat format, OutputStream output) throws IOException;
+
+    /**
+     * Выгружает рассчитанную историю дневных оценок портфеля
+     * @param portfolioId ID портфеля
+     * @param format Формат выгрузки
+     * @param output Поток ответа (не закрывается)
+     * @return Количество выгруженных строк
+     * @throws IOException при ошибке записи
+     */
+    long exportPerformance(Long portfolioId, ExportFormat format, OutputStream output) throws IOException;
+}
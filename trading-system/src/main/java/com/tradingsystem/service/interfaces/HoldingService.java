@@ -46,6 +46,14 @@ public interface HoldingService {
      */
     Holding getHoldingByPortfolioAndStock(Long portfolioId, Long stockId);
 
+    /**
+     * Блокирует позицию до конца текущей транзакции и возвращает ее
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @return Позиция или null, если акций этого типа в портфеле нет
+     */
+    Holding lockHolding(Long portfolioId, Long stockId);
+
     /**
      * Создает новую позицию
      * @param holding Позиция для создания
@@ -80,6 +88,17 @@ public interface HoldingService {
      */
     Holding updateHoldingOnSell(Long portfolioId, Long stockId, int quantity);
 
+    /**
+     * Обновляет позицию при уменьшении количества акций и пересчитывает среднюю цену
+     * по себестоимости оставшихся налоговых лотов
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @param quantity Количество акций
+     * @param remainingCost Себестоимость оставшихся акций (null - средняя цена не меняется)
+     * @return Обновленная позиция или null, если позиция закрыта
+     */
+    Holding updateHoldingOnSell(Long portfolioId, Long stockId, int quantity, BigDecimal remainingCost);
+
     /**
      * Удаляет позицию
      * @param id ID позиции
@@ -0,0 +1,28 @@
+package com.tradingsystem.service.interfaces;
+
+import java.util.List;
+
+import com.tradingsystem.model.dto.LeaderboardEntryDTO;
+import com.tradingsystem.model.enums.LeaderboardPeriod;
+
+/**
+ * Интерфейс сервиса рейтинга портфелей по доходности
+ */
+public interface LeaderboardService {
+
+    /**
+     * Получает первые портфели рейтинга
+     * @param period Период
+     * @param limit Количество (от 1 до 100)
+     * @return Позиции рейтинга по убыванию доходности
+     */
+    List<LeaderboardEntryDTO> getTopPortfolios(LeaderboardPeriod period, int limit);
+
+    /**
+     * Получает место портфеля в рейтинге
+     * @param portfolioId ID портфеля
+     * @param period Период
+     * @return Позиция рейтинга (rank = null, если доходность не определена)
+     */
+    LeaderboardEntryDTO getPortfolioRank(Long portfolioId, LeaderboardPeriod period);
+}
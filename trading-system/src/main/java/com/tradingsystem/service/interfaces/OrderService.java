@@ -0,0 +1,53 @@
+package com.tradingsystem.service.interfaces;
+
+import java.util.List;
+
+import com.tradingsystem.model.dto.OrderBookDTO;
+import com.tradingsystem.model.entity.TradeOrder;
+
+/**
+ * Интерфейс сервиса заявок. Заявки сводятся в книге заявок в памяти,
+ * исполнения проводятся как сделки через сервис сделок
+ */
+public interface OrderService {
+
+    /**
+     * Принимает заявку и передает ее на сведение. Акции под заявку на продажу резервируются:
+     * сумма активных заявок на продажу не может превышать позицию
+     * @param order Заявка (портфель, акция, направление, тип, количество, предельная цена)
+     * @return Сохраненная заявка
+     * @throws IllegalArgumentException если параметры заявки некорректны
+     * @throws IllegalStateException если недостаточно акций для продажи или движок перегружен
+     */
+    TradeOrder placeOrder(TradeOrder order);
+
+    /**
+     * Снимает неисполненный остаток заявки
+     * @param id ID заявки
+     * @return Снятая заявка
+     * @throws IllegalStateException если заявка уже исполнена или снята
+     */
+    TradeOrder cancelOrder(Long id);
+
+    /**
+     * Получить заявку по ID
+     * @param id ID заявки
+     * @return Заявка
+     */
+    TradeOrder getOrderById(Long id);
+
+    /**
+     * Получить заявки портфеля от новых к старым
+     * @param portfolioId ID портфеля
+     * @return Список заявок
+     */
+    List<TradeOrder> getOrdersByPortfolioId(Long portfolioId);
+
+    /**
+     * Получить лучшие уровни книги заявок акции
+     * @param stockId ID акции
+     * @param depth Количество уровней с каждой стороны
+     * @return Книга заявок
+     */
+    OrderBookDTO getOrderBook(Long stockId, int depth);
+}
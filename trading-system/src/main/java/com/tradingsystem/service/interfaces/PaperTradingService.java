@@ -0,0 +1,91 @@
+package com.tradingsystem.service.interfaces;
+
+import java.util.List;
+
+import com.tradingsystem.model.dto.PaperOrderDTO;
+import com.tradingsystem.model.dto.PaperSessionDTO;
+import com.tradingsystem.model.dto.PaperSessionRequestDTO;
+import com.tradingsystem.model.entity.User;
+
+/**
+ * Интерфейс сервиса бумажной торговли: сделки в учебных портфелях по историческим котировкам,
+ * воспроизводимым с ускорением
+ */
+public interface PaperTradingService {
+
+    /**
+     * Открывает сессию и создает для нее учебный портфель пользователя
+     * @param user Пользователь
+     * @param request Параметры воспроизведения
+     * @return Состояние сессии
+     * @throws IllegalArgumentException при неверном периоде, ускорении или начальных средствах
+     * @throws IllegalStateException если нет котировок за период или превышен лимит сессий
+     */
+    PaperSessionDTO createSession(User user, PaperSessionRequestDTO request);
+
+    /**
+     * Получает состояние сессии на текущий момент воспроизведения
+     * @param sessionId ID сессии
+     * @return Состояние сессии
+     */
+    PaperSessionDTO getSession(Long sessionId);
+
+    /**
+     * Получает открытые сессии пользователя
+     * @param userId ID пользователя
+     * @return Список состояний сессий
+     */
+    List<PaperSessionDTO> getSessionsByUserId(Long userId);
+
+    /**
+     * Приостанавливает воспроизведение
+     * @param sessionId ID сессии
+     * @return Состояние сессии
+     */
+    PaperSessionDTO pauseSession(Long sessionId);
+
+    /**
+     * Продолжает воспроизведение
+     * @param sessionId ID сессии
+     * @return Состояние сессии
+     */
+    PaperSessionDTO resumeSession(Long sessionId);
+
+    /**
+     * Меняет ускорение воспроизведения
+     * @param sessionId ID сессии
+     * @param speed Ускорение от 10 до 1000
+     * @return Состояние сессии
+     */
+    PaperSessionDTO setSpeed(Long sessionId, double speed);
+
+    /**
+     * Проводит сделку в учебном портфеле по текущей котировке воспроизведения и с виртуальным временем
+     * @param sessionId ID сессии
+     * @param order Символ, тип и количество
+     * @return Проведенная сделка
+     * @throws IllegalArgumentException если акция не входит в сессию
+     * @throws IllegalStateException если воспроизведение закончено, нет котировки, денег или акций
+     */
+    PaperOrderDTO placeOrder(Long sessionId, PaperOrderDTO order);
+
+    /**
+     * Закрывает сессию. Учебный портфель со сделками сохраняется
+     * @param sessionId ID сессии
+     */
+    void closeSession(Long sessionId);
+
+    /**
+     * Закрывает сессии, к которым не обращались дольше таймаута простоя
+     * @return Количество закрытых сессий
+     */
+    int closeIdleSessions();
+
+    /**
+     * Проверяет, принадлежит ли сессия указанному пользователю
+     * @param sessionId ID сессии
+     * @param userId ID пользователя
+     * @return true, если сессия принадлежит пользователю
+     */
+    boolean isSessionOwnedByUser(Long sessionId, Long userId);
+}
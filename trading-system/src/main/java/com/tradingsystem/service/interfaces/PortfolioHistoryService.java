@@ -0,0 +1,34 @@
+package com.tradingsystem.service.interfaces;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.tradingsystem.model.entity.PortfolioPerformance;
+
+/**
+ * Интерфейс сервиса истории оценок портфеля (mark-to-market по ценам закрытия)
+ */
+public interface PortfolioHistoryService {
+
+    /**
+     * Получает рассчитанную историю оценок портфеля
+     * @param portfolioId ID портфеля
+     * @return Список дневных оценок в хронологическом порядке
+     */
+    List<PortfolioPerformance> getHistory(Long portfolioId);
+
+    /**
+     * Досчитывает историю оценок портфеля до последнего завершенного дня
+     * @param portfolioId ID портфеля
+     * @return Количество рассчитанных дней
+     */
+    int updateHistory(Long portfolioId);
+
+    /**
+     * Удаляет оценки начиная с указанной даты, чтобы они были пересчитаны
+     * (например, после сделки задним числом)
+     * @param portfolioId ID портфеля
+     * @param date Начальная дата (включительно)
+     */
+    void invalidateFrom(Long portfolioId, LocalDate date);
+}
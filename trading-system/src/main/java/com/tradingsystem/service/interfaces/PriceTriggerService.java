@@ -0,0 +1,43 @@
+package com.tradingsystem.service.interfaces;
+
+import java.util.List;
+
+import com.tradingsystem.model.entity.PriceTrigger;
+
+/**
+ * Интерфейс сервиса ценовых триггеров (стоп-лосс и тейк-профит).
+ * Сработавшие триггеры проводятся как сделки продажи асинхронно
+ */
+public interface PriceTriggerService {
+
+    /**
+     * Создает триггер по позиции
+     * @param trigger Триггер (портфель, акция, тип, количество, порог)
+     * @return Сохраненный триггер
+     * @throws IllegalArgumentException если порог уже пересечен текущей ценой или параметры некорректны
+     * @throws IllegalStateException если в позиции меньше акций, чем в триггере
+     */
+    PriceTrigger createTrigger(PriceTrigger trigger);
+
+    /**
+     * Снимает активный триггер
+     * @param id ID триггера
+     * @return Снятый триггер
+     * @throws IllegalStateException если триггер уже сработал или снят
+     */
+    PriceTrigger cancelTrigger(Long id);
+
+    /**
+     * Получить триггер по ID
+     * @param id ID триггера
+     * @return Триггер
+     */
+    PriceTrigger getTriggerById(Long id);
+
+    /**
+     * Получить триггеры портфеля от новых к старым
+     * @param portfolioId ID портфеля
+     * @return Список триггеров
+     */
+    List<PriceTrigger> getTriggersByPortfolioId(Long portfolioId);
+}
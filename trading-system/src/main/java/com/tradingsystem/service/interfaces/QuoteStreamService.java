@@ -0,0 +1,47 @@
+package com.tradingsystem.service.interfaces;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.tradingsystem.model.entity.Stock;
+
+/**
+ * Интерфейс сервиса рассылки котировок подписчикам по Server-Sent Events
+ */
+public interface QuoteStreamService {
+
+    /**
+     * Открывает поток котировок акций. Первым кадром отправляется снимок цен,
+     * затем - изменения цен с момента предыдущего кадра
+     * @param userId ID пользователя
+     * @param stocks Акции подписки
+     * @return Поток событий
+     * @throws IllegalStateException если превышен лимит подключений пользователя
+     */
+    SseEmitter subscribe(Long userId, List<Stock> stocks);
+
+    /**
+     * Учитывает новую цену акции после фиксации текущей транзакции
+     * @param stockId ID акции
+     * @param price Новая цена
+     */
+    void onPriceUpdate(Long stockId, BigDecimal price);
+
+    /**
+     * Отправляет накопленные изменения подписчикам
+     */
+    void flush();
+
+    /**
+     * Отправляет служебный кадр подписчикам, которым давно ничего не отправлялось:
+     * разорванные соединения обнаруживаются по ошибке записи
+     */
+    void heartbeat();
+
+    /**
+     * Количество открытых потоков
+     */
+    int getSubscriberCount();
+}
@@ -0,0 +1,30 @@
+package com.tradingsystem.service.interfaces;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import com.tradingsystem.model.dto.PortfolioRiskDTO;
+
+/**
+ * Интерфейс сервиса расчета показателей риска портфеля
+ */
+public interface RiskAnalyticsService {
+
+    /**
+     * Рассчитывает показатели риска портфеля по текущим позициям и истории цен
+     * (результат переиспользуется, пока не изменились позиции или цены)
+     * @param portfolioId ID портфеля
+     * @return Показатели риска
+     */
+    PortfolioRiskDTO calculateRisk(Long portfolioId);
+
+    /**
+     * Оценивает параметрический риск произвольного набора позиций по той же истории цен.
+     * Средние доходности и ковариации для набора акций переиспользуются в течение дня,
+     * поэтому повторные оценки с другими весами не обращаются к базе данных
+     * @param positionValues Карта ID акции -> стоимость позиции
+     * @return Показатели риска (волатильность, параметрические VaR/CVaR) или null,
+     *         если позиций нет или истории цен недостаточно
+     */
+    PortfolioRiskDTO estimateParametricRisk(Map<Long, BigDecimal> positionValues);
+}
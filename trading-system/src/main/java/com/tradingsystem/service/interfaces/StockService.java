@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.tradingsystem.model.entity.Analysis;
 import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.enums.AnalysisPriority;
 
 /**
  * Интерфейс сервиса для работы с акциями
@@ -88,6 +89,14 @@ public interface StockService {
      */
     Analysis generateAnalysis(String symbol);
 
+    /**
+     * Генерирует анализ для указанной акции с заданным приоритетом в очереди вызовов ChatGPT
+     * @param symbol Символ акции
+     * @param priority Приоритет запроса
+     * @return Созданный анализ
+     */
+    Analysis generateAnalysis(String symbol, AnalysisPriority priority);
+
     /**
      * Удаляет акцию по ID
      * @param id ID акции
@@ -0,0 +1,60 @@
+package com.tradingsystem.service.interfaces;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.tradingsystem.model.dto.ProfitLossReportDTO;
+import com.tradingsystem.model.dto.TaxLotDTO;
+import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.enums.LotMethod;
+
+/**
+ * Интерфейс сервиса учета налоговых лотов и реализованной прибыли.
+ * Методы изменения лотов вызываются в транзакции сделки до обновления позиции
+ */
+public interface TaxLotService {
+
+    /**
+     * Открывает лот по сделке покупки
+     * @param buy Сохраненная сделка покупки
+     */
+    void openLot(Trade buy);
+
+    /**
+     * Списывает лоты сделкой продажи и добавляет реализованный результат
+     * @param sell Сохраненная сделка продажи
+     * @param method Способ списания лотов
+     * @param lotIds ID лотов для способа SPECIFIC_LOT (в порядке списания)
+     * @return Себестоимость оставшихся открытых лотов позиции
+     */
+    BigDecimal consumeLots(Trade sell, LotMethod method, List<Long> lotIds);
+
+    /**
+     * Удаляет лот отменяемой покупки
+     * @param buy Отменяемая сделка покупки
+     * @return Себестоимость оставшихся открытых лотов позиции
+     * @throws IllegalStateException если акции лота уже проданы
+     */
+    BigDecimal removeLot(Trade buy);
+
+    /**
+     * Возвращает в лоты акции отменяемой продажи и вычитает ее реализованный результат
+     * @param sell Отменяемая сделка продажи
+     * @return Себестоимость возвращенных акций
+     */
+    BigDecimal reverseDisposals(Trade sell);
+
+    /**
+     * Получает открытые лоты портфеля
+     * @param portfolioId ID портфеля
+     * @return Список открытых лотов
+     */
+    List<TaxLotDTO> getOpenLots(Long portfolioId);
+
+    /**
+     * Формирует отчет о реализованной и нереализованной прибыли по позициям и накопленным результатам
+     * @param portfolioId ID портфеля
+     * @return Отчет о прибыли
+     */
+    ProfitLossReportDTO getProfitLossReport(Long portfolioId);
+}
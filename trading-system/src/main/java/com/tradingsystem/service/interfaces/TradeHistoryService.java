@@ -0,0 +1,66 @@
+package com.tradingsystem.service.interfaces;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.tradingsystem.model.dto.TradeDTO;
+import com.tradingsystem.model.dto.TradePageDTO;
+
+/**
+ * Интерфейс сервиса чтения истории сделок.
+ * История читается строками без загрузки сущностей, от новых сделок к старым
+ */
+public interface TradeHistoryService {
+
+    /**
+     * Получает всю историю сделок пользователя
+     * @param userId ID пользователя
+     * @return Список сделок
+     */
+    List<TradeDTO> getUserTrades(Long userId);
+
+    /**
+     * Получает всю историю сделок портфеля
+     * @param portfolioId ID портфеля
+     * @return Список сделок
+     */
+    List<TradeDTO> getPortfolioTrades(Long portfolioId);
+
+    /**
+     * Получает страницу истории сделок пользователя
+     * @param userId ID пользователя
+     * @param cursor Курсор из предыдущей страницы (null - первая страница)
+     * @param limit Размер страницы
+     * @return Страница сделок и курсор следующей
+     * @throws IllegalArgumentException если курсор поврежден
+     */
+    TradePageDTO getUserTradePage(Long userId, String cursor, int limit);
+
+    /**
+     * Получает страницу истории сделок портфеля
+     * @param portfolioId ID портфеля
+     * @param cursor Курсор из предыдущей страницы (null - первая страница)
+     * @param limit Размер страницы
+     * @return Страница сделок и курсор следующей
+     * @throws IllegalArgumentException если курсор поврежден
+     */
+    TradePageDTO getPortfolioTradePage(Long portfolioId, String cursor, int limit);
+
+    /**
+     * Передает всю историю сделок пользователя получателю по одной сделке,
+     * не накапливая ее в памяти
+     * @param userId ID пользователя
+     * @param consumer Получатель сделок
+     * @return Количество переданных сделок
+     */
+    long streamUserTrades(Long userId, Consumer<TradeDTO> consumer);
+
+    /**
+     * Передает всю историю сделок портфеля получателю по одной сделке,
+     * не накапливая ее в памяти
+     * @param portfolioId ID портфеля
+     * @param consumer Получатель сделок
+     * @return Количество переданных сделок
+     */
+    long streamPortfolioTrades(Long portfolioId, Consumer<TradeDTO> consumer);
+}
@@ -0,0 +1,29 @@
+package com.tradingsystem.service.interfaces;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.tradingsystem.model.dto.TradeImportResultDTO;
+import com.tradingsystem.model.enums.LotMethod;
+import com.tradingsystem.model.enums.TradeImportFormat;
+
+/**
+ * Интерфейс сервиса пакетного импорта сделок
+ */
+public interface TradeImportService {
+
+    /**
+     * Импортирует сделки из потока CSV или NDJSON. Строки проверяются по одной, ошибочные
+     * пропускаются и возвращаются в отчете; остальные сохраняются одной транзакцией
+     * @param userId ID пользователя (импорт возможен только в его портфели)
+     * @param defaultPortfolioId Портфель для строк без portfolioId (может быть null)
+     * @param input Поток с данными
+     * @param format Формат данных
+     * @param lotMethod Способ списания налоговых лотов при продажах (null - способ по умолчанию)
+     * @param dryRun Только проверить строки, ничего не сохраняя
+     * @return Результат импорта
+     * @throws IOException при ошибке чтения потока
+     */
+    TradeImportResultDTO importTrades(Long userId, Long defaultPortfolioId, InputStream input,
+                                      TradeImportFormat format, LotMethod lotMethod, boolean dryRun) throws IOException;
+}
@@ -3,7 +3,9 @@ package com.tradingsystem.service.interfaces;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.tradingsystem.model.entity.Portfolio;
 import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.enums.LotMethod;
 
 /**
  * Интерфейс сервиса для работы с торговыми операциями
@@ -59,6 +61,29 @@ public interface TradeService {
      */
     Trade createTrade(Trade trade);
 
+    /**
+     * Создает новую сделку с указанным способом списания налоговых лотов при продаже
+     * @param trade Сделка для создания
+     * @param lotMethod Способ списания лотов (null - способ по умолчанию)
+     * @param lotIds ID лотов для способа SPECIFIC_LOT
+     * @return Созданная сделка
+     */
+    Trade createTrade(Trade trade, LotMethod lotMethod, List<Long> lotIds);
+
+    /**
+     * Создает сделку сессии бумажной торговли в ее учебном портфеле
+     * @param trade Сделка для создания
+     * @return Созданная сделка
+     */
+    Trade createSandboxTrade(Trade trade);
+
+    /**
+     * Проверяет, что портфель принимает сделки, заявки и триггеры через общие API
+     * @param portfolio Портфель
+     * @throws IllegalArgumentException если портфель учебный: он торгует только в своей сессии бумажной торговли
+     */
+    void checkTradable(Portfolio portfolio);
+
     /**
      * Удаляет сделку
      * @param id ID сделки
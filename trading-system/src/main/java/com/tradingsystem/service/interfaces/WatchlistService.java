@@ -56,11 +56,12 @@ public interface WatchlistService {
     WatchlistItem addToWatchlist(Long userId, Long stockId);
 
     /**
-     * Обновляет элемент отслеживания
+     * Обновляет элемент отслеживания. Новая целевая цена заново включает ценовое оповещение:
+     * направление определяется по текущей цене акции
      * @param userId ID пользователя
      * @param stockId ID акции
      * @param notes Заметки
-     * @param priceTarget Целевая цена
+     * @param priceTarget Целевая цена (null - без оповещения)
      * @return Обновленный элемент отслеживания
      */
     WatchlistItem updateWatchlistItem(Long userId, Long stockId, String notes, Double priceTarget);
@@ -101,4 +102,11 @@ public interface WatchlistService {
      * @return Список элементов отслеживания
      */
     List<WatchlistItem> getTopLosersInWatchlist(Long userId, int limit);
+
+    /**
+     * Получает сработавшие ценовые оповещения пользователя
+     * @param userId ID пользователя
+     * @return Элементы отслеживания от последних сработавших
+     */
+    List<WatchlistItem> getTriggeredAlerts(Long userId);
 }
@@ -0,0 +1,19 @@
+package com.tradingsystem.service.interfaces;
+
+import com.tradingsystem.model.dto.WhatIfResultDTO;
+import com.tradingsystem.model.dto.WhatIfScenarioDTO;
+
+/**
+ * Интерфейс сервиса моделирования сделок "что если"
+ */
+public interface WhatIfService {
+
+    /**
+     * Применяет гипотетические сделки к копии позиций портфеля, ничего не сохраняя
+     * @param portfolioId ID портфеля
+     * @param scenario Сценарий
+     * @return Распределение, прибыль/убыток и изменение риска после сценария
+     * @throws IllegalArgumentException если сценарий некорректен (например, продажа больше позиции)
+     */
+    WhatIfResultDTO simulate(Long portfolioId, WhatIfScenarioDTO scenario);
+}
@@ -0,0 +1,131 @@
+package com.tradingsystem.service.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Снимки состояния позиций рядом с сегментами журнала. Формат файла (little-endian):
+ * заголовок (int магическое число, int версия, long номер последней учтенной записи, int число позиций),
+ * затем позиции по 28 байт (long портфель, long акция, int количество, long средняя цена),
+ * в конце CRC32C всего предшествующего содержимого. Снимок пишется во временный файл
+ * и переименовывается, поэтому поврежденный файл видно только после сбоя диска
+ */
+final class HoldingSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldingSnapshotStore.class);
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d{20})\\.bin");
+    private static final int MAGIC = 0x48534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int ENTRY_SIZE = 28;
+
+    private final Path directory;
+    private final int kept;
+
+    HoldingSnapshotStore(Path directory, int kept) {
+        this.directory = directory;
+        this.kept = Math.max(1, kept);
+    }
+
+    /**
+     * Сохраняет открытые позиции таблицы как снимок на указанный номер записи и удаляет старые снимки
+     */
+    void write(long sequence, PositionTable table) throws IOException {
+        int count = table.openCount();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * ENTRY_SIZE + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(sequence).putInt(count);
+        table.forEachOpen((portfolioId, stockId, quantity, averagePrice) ->
+                buffer.putLong(portfolioId).putLong(stockId).putInt(quantity).putLong(averagePrice));
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path target = directory.resolve(String.format("snapshot-%020d.bin", sequence));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> snapshots = list();
+        for (int i = 0; i < snapshots.size() - kept; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    /**
+     * Загружает последний целый снимок в таблицу
+     * @return Номер последней учтенной снимком записи (0, если снимков нет)
+     */
+    long loadLatest(PositionTable table) throws IOException {
+        List<Path> snapshots = list();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            if (!isIntact(buffer)) {
+                logger.warn("Skipping damaged journal snapshot {}", path.getFileName());
+                continue;
+            }
+
+            long sequence = buffer.getLong(8);
+            int count = buffer.getInt(16);
+            int offset = HEADER_SIZE;
+            for (int n = 0; n < count; n++, offset += ENTRY_SIZE) {
+                table.put(buffer.getLong(offset), buffer.getLong(offset + 8),
+                        buffer.getInt(offset + 16), buffer.getLong(offset + 20));
+            }
+            return sequence;
+        }
+        return 0;
+    }
+
+    /**
+     * Есть ли хотя бы один снимок (в том числе базовый)
+     */
+    boolean hasSnapshot() throws IOException {
+        return !list().isEmpty();
+    }
+
+    private boolean isIntact(ByteBuffer buffer) {
+        int length = buffer.capacity();
+        if (length < HEADER_SIZE + 4 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return false;
+        }
+        int count = buffer.getInt(16);
+        if (count < 0 || length != HEADER_SIZE + (long) count * ENTRY_SIZE + 4) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, length - 4);
+        return buffer.getInt(length - 4) == (int) crc.getValue();
+    }
+
+    private List<Path> list() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> SNAPSHOT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
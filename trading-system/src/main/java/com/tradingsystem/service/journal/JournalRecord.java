@@ -0,0 +1,140 @@
+package com.tradingsystem.service.journal;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.util.FixedPoint;
+
+/**
+ * Запись журнала сделок фиксированного формата (72 байта, little-endian):
+ * <pre>
+ *  0  long  номер записи (с 1, без пропусков)
+ *  8  long  время сделки (мс эпохи, локальное время как UTC)
+ * 16  long  ID сделки
+ * 24  long  ID портфеля
+ * 32  long  ID акции
+ * 40  long  цена сделки (фиксированная точка, 4 знака)
+ * 48  long  средняя цена позиции после события (фиксированная точка, 4 знака)
+ * 56  int   количество в сделке
+ * 60  int   количество в позиции после события
+ * 64  byte  событие (1 - сделка проведена, 2 - сделка отменена)
+ * 65  byte  сторона (0 - покупка, 1 - продажа)
+ * 66  short резерв
+ * 68  int   CRC32C байтов 0..67
+ * </pre>
+ * Состояние позиции после события делает восстановление независимым от способа списания лотов:
+ * для позиции достаточно последней записи
+ */
+public final class JournalRecord {
+
+    public static final int SIZE = 72;
+    public static final byte TRADE_BOOKED = 1;
+    public static final byte TRADE_REVERSED = 2;
+
+    private static final int CRC_OFFSET = 68;
+
+    private long sequence;
+    private final long timestamp;
+    private final long tradeId;
+    private final long portfolioId;
+    private final long stockId;
+    private final long price;
+    private final long averagePriceAfter;
+    private final int quantity;
+    private final int quantityAfter;
+    private final byte event;
+    private final byte side;
+
+    private JournalRecord(long sequence, long timestamp, long tradeId, long portfolioId, long stockId,
+                          long price, long averagePriceAfter, int quantity, int quantityAfter, byte event, byte side) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.tradeId = tradeId;
+        this.portfolioId = portfolioId;
+        this.stockId = stockId;
+        this.price = price;
+        this.averagePriceAfter = averagePriceAfter;
+        this.quantity = quantity;
+        this.quantityAfter = quantityAfter;
+        this.event = event;
+        this.side = side;
+    }
+
+    /**
+     * Создает запись о проведенной или отмененной сделке (номер назначается журналом)
+     * @param event TRADE_BOOKED или TRADE_REVERSED
+     * @param quantityAfter Количество в позиции после события
+     * @param averagePriceAfter Средняя цена позиции после события (null или 0, если позиция закрыта)
+     */
+    public static JournalRecord of(byte event, Long tradeId, Long portfolioId, Long stockId, TradeType side,
+                                   int quantity, BigDecimal price, LocalDateTime timestamp,
+                                   int quantityAfter, BigDecimal averagePriceAfter) {
+        return new JournalRecord(0, timestamp.toInstant(ZoneOffset.UTC).toEpochMilli(), tradeId, portfolioId, stockId,
+                FixedPoint.of(price), averagePriceAfter != null ? FixedPoint.of(averagePriceAfter) : 0,
+                quantity, quantityAfter, event, side == TradeType.BUY ? (byte) 0 : (byte) 1);
+    }
+
+    /**
+     * Записывает запись в буфер с указанного смещения (позиция буфера не меняется)
+     */
+    void writeTo(ByteBuffer buffer, int offset) {
+        buffer.putLong(offset, sequence);
+        buffer.putLong(offset + 8, timestamp);
+        buffer.putLong(offset + 16, tradeId);
+        buffer.putLong(offset + 24, portfolioId);
+        buffer.putLong(offset + 32, stockId);
+        buffer.putLong(offset + 40, price);
+        buffer.putLong(offset + 48, averagePriceAfter);
+        buffer.putInt(offset + 56, quantity);
+        buffer.putInt(offset + 60, quantityAfter);
+        buffer.put(offset + 64, event);
+        buffer.put(offset + 65, side);
+        buffer.putShort(offset + 66, (short) 0);
+        buffer.putInt(offset + CRC_OFFSET, checksum(buffer, offset));
+    }
+
+    /**
+     * Проверяет контрольную сумму записи без ее разбора
+     */
+    static boolean isValid(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset) != 0 && buffer.getInt(offset + CRC_OFFSET) == checksum(buffer, offset);
+    }
+
+    static long sequenceAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset);
+    }
+
+    static long portfolioIdAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + 24);
+    }
+
+    static long stockIdAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + 32);
+    }
+
+    static long averagePriceAfterAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + 48);
+    }
+
+    static int quantityAfterAt(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + 60);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,129 @@
+package com.tradingsystem.service.journal;
+
+/**
+ * Таблица состояний позиций с открытой адресацией по паре (портфель, акция).
+ * Массивы примитивов вместо HashMap с составным ключом: при восстановлении на каждую
+ * запись журнала приходится одно обновление без выделения памяти
+ */
+final class PositionTable {
+
+    private long[] portfolioIds;
+    private long[] stockIds;
+    private int[] quantities;
+    private long[] averagePrices;
+    private int size;
+
+    PositionTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Устанавливает состояние позиции (количество 0 - позиция закрыта)
+     */
+    void put(long portfolioId, long stockId, int quantity, long averagePrice) {
+        int mask = portfolioIds.length - 1;
+        int slot = hash(portfolioId, stockId) & mask;
+        while (portfolioIds[slot] != 0) {
+            if (portfolioIds[slot] == portfolioId && stockIds[slot] == stockId) {
+                quantities[slot] = quantity;
+                averagePrices[slot] = averagePrice;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        portfolioIds[slot] = portfolioId;
+        stockIds[slot] = stockId;
+        quantities[slot] = quantity;
+        averagePrices[slot] = averagePrice;
+        if (++size * 2 > portfolioIds.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Количество в позиции или 0, если позиции нет
+     */
+    int quantity(long portfolioId, long stockId) {
+        int slot = find(portfolioId, stockId);
+        return slot < 0 ? 0 : quantities[slot];
+    }
+
+    /**
+     * Средняя цена позиции (фиксированная точка) или 0, если позиции нет
+     */
+    long averagePrice(long portfolioId, long stockId) {
+        int slot = find(portfolioId, stockId);
+        return slot < 0 ? 0 : averagePrices[slot];
+    }
+
+    /**
+     * Обходит открытые позиции (с ненулевым количеством)
+     */
+    void forEachOpen(PositionVisitor visitor) {
+        for (int slot = 0; slot < portfolioIds.length; slot++) {
+            if (portfolioIds[slot] != 0 && quantities[slot] != 0) {
+                visitor.visit(portfolioIds[slot], stockIds[slot], quantities[slot], averagePrices[slot]);
+            }
+        }
+    }
+
+    /**
+     * Количество открытых позиций
+     */
+    int openCount() {
+        int count = 0;
+        for (int slot = 0; slot < portfolioIds.length; slot++) {
+            if (portfolioIds[slot] != 0 && quantities[slot] != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int find(long portfolioId, long stockId) {
+        int mask = portfolioIds.length - 1;
+        int slot = hash(portfolioId, stockId) & mask;
+        while (portfolioIds[slot] != 0) {
+            if (portfolioIds[slot] == portfolioId && stockIds[slot] == stockId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize() {
+        long[] oldPortfolios = portfolioIds;
+        long[] oldStocks = stockIds;
+        int[] oldQuantities = quantities;
+        long[] oldPrices = averagePrices;
+
+        allocate(oldPortfolios.length * 2);
+        size = 0;
+        for (int slot = 0; slot < oldPortfolios.length; slot++) {
+            if (oldPortfolios[slot] != 0) {
+                put(oldPortfolios[slot], oldStocks[slot], oldQuantities[slot], oldPrices[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        portfolioIds = new long[capacity];
+        stockIds = new long[capacity];
+        quantities = new int[capacity];
+        averagePrices = new long[capacity];
+    }
+
+    private static int hash(long portfolioId, long stockId) {
+        long h = portfolioId * 0x9E3779B97F4A7C15L + stockId;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    interface PositionVisitor {
+        void visit(long portfolioId, long stockId, int quantity, long averagePrice);
+    }
+}
@@ -0,0 +1,291 @@
+package com.tradingsystem.service.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.util.TransactionHooks;
+
+/**
+ * Журнал сделок только на дозапись: последовательность отображаемых в память сегментов
+ * фиксированного размера с записями {@link JournalRecord}. Сегмент называется по номеру
+ * своей первой записи. При старте хвост последнего сегмента проверяется по контрольным
+ * суммам и номерам, запись продолжается с первой недействительной записи.
+ * События добавляются после фиксации транзакции сделки; сброс на диск выполняется
+ * периодически и при смене сегмента. Если событие зафиксированной сделки дописать не удалось,
+ * в каталоге журнала остается отметка о пропуске: по такому журналу позиции не восстанавливаются,
+ * пока при следующем старте не будет записан новый базовый снимок из базы данных
+ */
+@Component
+public class TradeJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeJournal.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("trades-(\\d{20})\\.log");
+    private static final String GAP_MARKER = "journal-gap";
+
+    @Value("${app.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.journal.dir:data/journal}")
+    private String directory;
+
+    @Value("${app.journal.segment-size:67108864}")
+    private int segmentSize;
+
+    private Path journalDir;
+    private int recordsPerSegment;
+    private MappedByteBuffer active;
+    private int position;
+    private long nextSequence = 1;
+    private volatile long lastSequence;
+    private boolean dirty;
+    private volatile boolean gap;
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!enabled) {
+            logger.info("Trade journal is disabled");
+            return;
+        }
+
+        journalDir = Paths.get(directory);
+        Files.createDirectories(journalDir);
+        recordsPerSegment = segmentSize / JournalRecord.SIZE;
+
+        List<Segment> segments = listSegments();
+        if (segments.isEmpty()) {
+            mapSegment(1);
+        } else {
+            Segment last = segments.get(segments.size() - 1);
+            active = map(last.path, FileChannel.MapMode.READ_WRITE);
+            nextSequence = last.firstSequence;
+            position = 0;
+            while (position < recordsPerSegment * JournalRecord.SIZE
+                    && JournalRecord.isValid(active, position)
+                    && JournalRecord.sequenceAt(active, position) == nextSequence) {
+                position += JournalRecord.SIZE;
+                nextSequence++;
+            }
+        }
+        lastSequence = nextSequence - 1;
+        gap = Files.exists(journalDir.resolve(GAP_MARKER));
+        if (gap) {
+            logger.warn("Trade journal at {} misses committed trades: positions need a new baseline snapshot",
+                    journalDir.toAbsolutePath());
+        }
+        logger.info("Trade journal opened at {}: last sequence {}", journalDir.toAbsolutePath(), lastSequence);
+    }
+
+    /**
+     * Добавляет событие после фиксации текущей транзакции
+     * @param record Запись о сделке
+     */
+    public void record(JournalRecord record) {
+        recordAll(List.of(record));
+    }
+
+    /**
+     * Добавляет события одним блоком после фиксации текущей транзакции
+     * @param records Записи о сделках
+     */
+    public void recordAll(List<JournalRecord> records) {
+        if (!enabled || records.isEmpty()) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> {
+            try {
+                append(records);
+            } catch (RuntimeException e) {
+                // Сделки уже зафиксированы: журнал больше не годится для восстановления до нового базового снимка
+                logger.error("Failed to append {} trade events to the journal", records.size(), e);
+                markGap();
+            }
+        });
+    }
+
+    /**
+     * Сбрасывает измененные страницы активного сегмента на диск
+     */
+    public synchronized void flush() {
+        if (active != null && dirty) {
+            active.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Номер последней записи журнала (0, если журнал пуст)
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Есть ли зафиксированные сделки, не попавшие в журнал после последнего базового снимка
+     */
+    public boolean hasGap() {
+        return gap;
+    }
+
+    /**
+     * Снимает отметку о пропуске после записи базового снимка из базы данных
+     */
+    synchronized void clearGap() throws IOException {
+        Files.deleteIfExists(journalDir.resolve(GAP_MARKER));
+        gap = false;
+    }
+
+    Path getDirectory() {
+        return journalDir;
+    }
+
+    /**
+     * Обходит действительные записи с номером больше указанного, не дальше последней
+     * записанной на момент вызова. Сегменты только читаются и не мешают дозаписи
+     * @param afterSequence Номер, после которого начинается обход (0 - с начала)
+     * @param visitor Обработчик записи (буфер сегмента и смещение записи)
+     * @return Номер последней обработанной записи (afterSequence, если новых записей нет)
+     */
+    public long scan(long afterSequence, RecordVisitor visitor) {
+        if (!enabled) {
+            return afterSequence;
+        }
+
+        long limit = lastSequence;
+        long expected = afterSequence + 1;
+        try {
+            List<Segment> segments = listSegments();
+            for (int i = 0; i < segments.size() && expected <= limit; i++) {
+                Segment segment = segments.get(i);
+                boolean hasNext = i + 1 < segments.size();
+                if (hasNext && segments.get(i + 1).firstSequence <= expected) {
+                    // Весь сегмент не новее начальной записи
+                    continue;
+                }
+
+                MappedByteBuffer buffer = map(segment.path, FileChannel.MapMode.READ_ONLY);
+                int offset = (int) Math.max(0, expected - segment.firstSequence) * JournalRecord.SIZE;
+                while (offset + JournalRecord.SIZE <= buffer.capacity() && expected <= limit) {
+                    if (!JournalRecord.isValid(buffer, offset) || JournalRecord.sequenceAt(buffer, offset) != expected) {
+                        break;
+                    }
+                    visitor.visit(buffer, offset);
+                    offset += JournalRecord.SIZE;
+                    expected++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read trade journal", e);
+        }
+        return expected - 1;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        flush();
+        active = null;
+    }
+
+    private synchronized void append(List<JournalRecord> records) {
+        if (active == null) {
+            throw new IllegalStateException("Trade journal is not open");
+        }
+        for (JournalRecord record : records) {
+            if (position + JournalRecord.SIZE > recordsPerSegment * JournalRecord.SIZE) {
+                active.force();
+                mapSegment(nextSequence);
+            }
+            record.setSequence(nextSequence);
+            record.writeTo(active, position);
+            position += JournalRecord.SIZE;
+            nextSequence++;
+        }
+        dirty = true;
+        lastSequence = nextSequence - 1;
+    }
+
+    private void markGap() {
+        gap = true;
+        if (journalDir == null) {
+            return;
+        }
+        try {
+            Files.writeString(journalDir.resolve(GAP_MARKER), Long.toString(lastSequence));
+        } catch (IOException e) {
+            logger.error("Failed to write journal gap marker", e);
+        }
+    }
+
+    private void mapSegment(long firstSequence) {
+        Path path = journalDir.resolve(String.format("trades-%020d.log", firstSequence));
+        try {
+            active = map(path, FileChannel.MapMode.READ_WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create journal segment " + path, e);
+        }
+        position = 0;
+        logger.info("Trade journal segment {} started", path.getFileName());
+    }
+
+    private MappedByteBuffer map(Path path, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            long size = mode == FileChannel.MapMode.READ_ONLY
+                    ? channel.size()
+                    : (long) recordsPerSegment * JournalRecord.SIZE;
+            MappedByteBuffer buffer = channel.map(mode, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private List<Segment> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files
+                    .map(path -> {
+                        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                        return matcher.matches() ? new Segment(path, Long.parseLong(matcher.group(1))) : null;
+                    })
+                    .filter(segment -> segment != null)
+                    .sorted((a, b) -> Long.compare(a.firstSequence, b.firstSequence))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Обработчик записи журнала без создания объектов на запись
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(ByteBuffer buffer, int offset);
+    }
+
+    private record Segment(Path path, long firstSequence) {
+    }
+}
@@ -0,0 +1,274 @@
+package com.tradingsystem.service.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tradingsystem.util.FixedPoint;
+
+/**
+ * Восстановление состояния позиций по журналу сделок: последний снимок плюс хвост журнала.
+ * Для каждой позиции в журнале хранится состояние после события, поэтому восстановление -
+ * одно обновление таблицы на запись без обращения к базе данных.
+ * Режим при старте задается свойством app.journal.replay-mode: none - не выполнять,
+ * verify - сверить позиции в базе с журналом и сообщить о расхождениях,
+ * restore - заменить позиции в базе состоянием из журнала (до загрузки книги позиций).
+ * Журнал хранит только изменения, поэтому его отсчет начинается с базового снимка позиций из базы данных,
+ * записанного при первом открытии журнала (и заново - после пропуска записей в журнале).
+ * Без базового снимка восстановление не выполняется
+ */
+@Component
+public class TradeJournalReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeJournalReplayer.class);
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private final TradeJournal journal;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.journal.replay-mode:none}")
+    private String replayMode;
+
+    @Value("${app.journal.snapshots-kept:3}")
+    private int snapshotsKept;
+
+    @Value("${app.journal.max-logged:100}")
+    private int maxLogged;
+
+    @Autowired
+    public TradeJournalReplayer(TradeJournal journal, JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager) {
+        this.journal = journal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Записывает базовый снимок позиций из базы данных, если снимков еще нет или в журнале
+     * отмечен пропуск. Выполняется при создании контекста, до приема запросов и запуска заданий,
+     * поэтому позиции в базе соответствуют последней записи журнала. В режиме restore база данных
+     * считается поврежденной, и снимок из нее не пишется
+     */
+    @PostConstruct
+    public void baseline() throws IOException {
+        if (!journal.isEnabled() || "restore".equals(replayMode.trim().toLowerCase())) {
+            return;
+        }
+        HoldingSnapshotStore store = store();
+        if (store.hasSnapshot() && !journal.hasGap()) {
+            return;
+        }
+
+        PositionTable table = loadDatabase(1024);
+        long sequence = journal.getLastSequence();
+        store.write(sequence, table);
+        journal.clearGap();
+        logger.info("Journal baseline snapshot at sequence {}: {} open positions from the database",
+                sequence, table.openCount());
+    }
+
+    /**
+     * Выполняет сверку или восстановление при старте в зависимости от режима
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(-10)
+    public void onStartup() {
+        if (!journal.isEnabled()) {
+            return;
+        }
+        switch (replayMode.trim().toLowerCase()) {
+            case "none" -> { }
+            case "verify" -> verify();
+            case "restore" -> restore();
+            default -> logger.warn("Unknown journal replay mode '{}', skipping replay", replayMode);
+        }
+    }
+
+    /**
+     * Сохраняет снимок позиций на последнюю запись журнала, чтобы следующее
+     * восстановление читало только более новые записи
+     * @return Номер записи, на которую сделан снимок
+     */
+    public long snapshot() {
+        Replay replay = replay();
+        try {
+            store().write(replay.sequence(), replay.table());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write journal snapshot", e);
+        }
+        logger.info("Journal snapshot at sequence {}: {} open positions", replay.sequence(), replay.table().openCount());
+        return replay.sequence();
+    }
+
+    /**
+     * Сверяет позиции в базе данных с состоянием по журналу
+     * @return Количество позиций с расхождением
+     */
+    public int verify() {
+        Replay replay = replay();
+        PositionTable journalTable = replay.table();
+        PositionTable databaseTable = loadDatabase(journalTable.openCount());
+
+        int[] mismatches = {0};
+        journalTable.forEachOpen((portfolioId, stockId, quantity, averagePrice) -> {
+            if (databaseTable.quantity(portfolioId, stockId) != quantity
+                    || databaseTable.averagePrice(portfolioId, stockId) != averagePrice) {
+                reportMismatch(++mismatches[0], portfolioId, stockId, quantity, averagePrice,
+                        databaseTable.quantity(portfolioId, stockId), databaseTable.averagePrice(portfolioId, stockId));
+            }
+        });
+        databaseTable.forEachOpen((portfolioId, stockId, quantity, averagePrice) -> {
+            if (journalTable.quantity(portfolioId, stockId) == 0) {
+                reportMismatch(++mismatches[0], portfolioId, stockId, 0, 0, quantity, averagePrice);
+            }
+        });
+
+        if (mismatches[0] > 0) {
+            logger.warn("Journal verification: {} positions differ from the journal at sequence {}",
+                    mismatches[0], replay.sequence());
+        } else {
+            logger.info("Journal verification: {} positions match the journal at sequence {}",
+                    journalTable.openCount(), replay.sequence());
+        }
+        return mismatches[0];
+    }
+
+    /**
+     * Заменяет позиции в базе данных состоянием по журналу и пересчитывает стоимость портфелей.
+     * Позиции удаленных портфелей и акций пропускаются. Налоговые лоты не журналируются: у позиций,
+     * где открытые лоты не сходятся с восстановленным количеством, лоты закрываются и открывается
+     * один лот на все количество по средней цене (как при вводе лотов для существующих позиций)
+     * @return Количество восстановленных позиций
+     * @throws IllegalStateException если нет базового снимка или в журнале отмечен пропуск
+     */
+    public int restore() {
+        try {
+            if (!store().hasSnapshot()) {
+                throw new IllegalStateException("Journal has no baseline snapshot: positions cannot be restored");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read journal snapshots", e);
+        }
+        if (journal.hasGap()) {
+            throw new IllegalStateException("Journal misses committed trades: positions cannot be restored from it");
+        }
+
+        Replay replay = replay();
+        List<Object[]> rows = new ArrayList<>(replay.table().openCount());
+        replay.table().forEachOpen((portfolioId, stockId, quantity, averagePrice) ->
+                rows.add(new Object[]{portfolioId, stockId, quantity, FixedPoint.toBigDecimal(averagePrice)}));
+
+        Integer restored = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM holdings");
+            int inserted = 0;
+            for (int from = 0; from < rows.size(); from += INSERT_BATCH_SIZE) {
+                int[] counts = jdbcTemplate.batchUpdate(
+                        "INSERT INTO holdings (portfolio_id, stock_id, quantity, average_price, version) " +
+                        "SELECT ?, ?, ?, ?, 0 " +
+                        "WHERE EXISTS (SELECT 1 FROM portfolios WHERE id = ?) AND EXISTS (SELECT 1 FROM stocks WHERE id = ?)",
+                        rows.subList(from, Math.min(rows.size(), from + INSERT_BATCH_SIZE)).stream()
+                                .map(row -> new Object[]{row[0], row[1], row[2], row[3], row[0], row[1]})
+                                .toList());
+                for (int count : counts) {
+                    inserted += Math.max(count, 0);
+                }
+            }
+            reconcileTaxLots();
+            jdbcTemplate.update(
+                    "UPDATE portfolios p SET total_value = COALESCE((" +
+                    "  SELECT SUM(h.quantity * s.current_price) FROM holdings h JOIN stocks s ON s.id = h.stock_id " +
+                    "  WHERE h.portfolio_id = p.id), 0)");
+            return inserted;
+        });
+
+        logger.info("Restored {} of {} positions from the journal at sequence {}",
+                restored, rows.size(), replay.sequence());
+        return restored != null ? restored : 0;
+    }
+
+    /**
+     * Строит состояние позиций: последний снимок плюс записи журнала после него
+     */
+    Replay replay() {
+        long started = System.nanoTime();
+        PositionTable table = new PositionTable(1024);
+        long fromSequence;
+        try {
+            fromSequence = store().loadLatest(table);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read journal snapshot", e);
+        }
+
+        long[] applied = {0};
+        long sequence = journal.scan(fromSequence, (buffer, offset) -> {
+            table.put(JournalRecord.portfolioIdAt(buffer, offset), JournalRecord.stockIdAt(buffer, offset),
+                    JournalRecord.quantityAfterAt(buffer, offset), JournalRecord.averagePriceAfterAt(buffer, offset));
+            applied[0]++;
+        });
+
+        logger.info("Journal replayed: snapshot at {}, {} records applied up to {} in {} ms",
+                fromSequence, applied[0], sequence, (System.nanoTime() - started) / 1_000_000);
+        return new Replay(table, sequence);
+    }
+
+    /**
+     * Приводит открытые налоговые лоты в соответствие с восстановленными позициями.
+     * Лоты сходящихся позиций сохраняются вместе с порядком списания
+     */
+    private void reconcileTaxLots() {
+        jdbcTemplate.update(
+                "WITH lot_totals AS (" +
+                "  SELECT portfolio_id, stock_id, SUM(remaining_quantity) AS remaining FROM tax_lots " +
+                "  WHERE remaining_quantity > 0 GROUP BY portfolio_id, stock_id) " +
+                "UPDATE tax_lots l SET remaining_quantity = 0 FROM lot_totals t " +
+                "WHERE l.portfolio_id = t.portfolio_id AND l.stock_id = t.stock_id AND l.remaining_quantity > 0 " +
+                "  AND t.remaining <> COALESCE((SELECT h.quantity FROM holdings h " +
+                "    WHERE h.portfolio_id = t.portfolio_id AND h.stock_id = t.stock_id), 0)");
+        int opened = jdbcTemplate.update(
+                "INSERT INTO tax_lots (portfolio_id, stock_id, trade_id, open_date, quantity, remaining_quantity, cost_price) " +
+                "SELECT h.portfolio_id, h.stock_id, NULL, CURRENT_TIMESTAMP, h.quantity, h.quantity, h.average_price " +
+                "FROM holdings h WHERE h.quantity > 0 AND NOT EXISTS (SELECT 1 FROM tax_lots l " +
+                "  WHERE l.portfolio_id = h.portfolio_id AND l.stock_id = h.stock_id AND l.remaining_quantity > 0)");
+        logger.info("Tax lots reconciled with restored positions: {} positions reopened as a single lot", opened);
+    }
+
+    private PositionTable loadDatabase(int expectedSize) {
+        PositionTable table = new PositionTable(expectedSize);
+        jdbcTemplate.query("SELECT portfolio_id, stock_id, quantity, average_price FROM holdings", rs -> {
+            table.put(rs.getLong(1), rs.getLong(2), rs.getInt(3), FixedPoint.of(rs.getBigDecimal(4)));
+        });
+        return table;
+    }
+
+    private HoldingSnapshotStore store() {
+        return new HoldingSnapshotStore(journal.getDirectory(), snapshotsKept);
+    }
+
+    private void reportMismatch(int number, long portfolioId, long stockId, int journalQuantity, long journalPrice,
+                                int databaseQuantity, long databasePrice) {
+        if (number <= maxLogged) {
+            logger.warn("Journal mismatch: portfolio {}, stock {}: journal {} @ {}, database {} @ {}",
+                    portfolioId, stockId, journalQuantity, FixedPoint.toBigDecimal(journalPrice),
+                    databaseQuantity, FixedPoint.toBigDecimal(databasePrice));
+        }
+    }
+
+    record Replay(PositionTable table, long sequence) {
+    }
+}
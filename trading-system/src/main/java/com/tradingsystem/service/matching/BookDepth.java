@@ -0,0 +1,20 @@
+package com.tradingsystem.service.matching;
+
+import java.util.List;
+
+/**
+ * Снимок лучших уровней книги заявок акции
+ * @param bids Уровни покупки от лучшей (высшей) цены
+ * @param asks Уровни продажи от лучшей (низшей) цены
+ */
+public record BookDepth(long stockId, List<Level> bids, List<Level> asks) {
+
+    /**
+     * Уровень цены
+     * @param price Цена (фиксированная точка, 4 знака)
+     * @param quantity Суммарный остаток заявок
+     * @param orders Количество заявок
+     */
+    public record Level(long price, long quantity, int orders) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.tradingsystem.service.matching;
+
+import java.math.BigDecimal;
+
+import com.tradingsystem.model.enums.OrderType;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.util.FixedPoint;
+
+/**
+ * Заявка в книге заявок. Изменяется только потоком сегмента, которому принадлежит акция
+ */
+public final class EngineOrder {
+
+    final long orderId;
+    final long portfolioId;
+    final long stockId;
+    final boolean buy;
+    final boolean market;
+    /** Предельная цена (фиксированная точка, 4 знака); 0 для рыночной заявки */
+    final long price;
+    int remaining;
+    long enqueuedNanos;
+
+    /**
+     * @param orderId ID заявки
+     * @param portfolioId ID портфеля
+     * @param stockId ID акции
+     * @param side Направление
+     * @param type Тип заявки
+     * @param quantity Неисполненный остаток
+     * @param limitPrice Предельная цена (null для рыночной заявки)
+     */
+    public EngineOrder(long orderId, long portfolioId, long stockId, TradeType side, OrderType type,
+                       int quantity, BigDecimal limitPrice) {
+        this.orderId = orderId;
+        this.portfolioId = portfolioId;
+        this.stockId = stockId;
+        this.buy = side == TradeType.BUY;
+        this.market = type == OrderType.MARKET;
+        this.price = market ? 0 : FixedPoint.of(limitPrice);
+        this.remaining = quantity;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getStockId() {
+        return stockId;
+    }
+}
@@ -0,0 +1,24 @@
+package com.tradingsystem.service.matching;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие книги заявок, передаваемое на проведение
+ */
+public sealed interface MatchEvent {
+
+    /**
+     * Исполнение: встречные заявки сведены по цене заявки, стоявшей в книге
+     * @param price Цена исполнения (фиксированная точка, 4 знака)
+     */
+    record Fill(long buyOrderId, long buyPortfolioId, long sellOrderId, long sellPortfolioId,
+                long stockId, long price, int quantity, LocalDateTime timestamp) implements MatchEvent {
+    }
+
+    /**
+     * Снятие неисполненного остатка заявки
+     * @param reason Причина (для журнала)
+     */
+    record Cancelled(long orderId, int remainingQuantity, String reason) implements MatchEvent {
+    }
+}
@@ -0,0 +1,306 @@
+package com.tradingsystem.service.matching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Движок сведения заявок. Акции распределены по сегментам; у каждого сегмента свой поток,
+ * владеющий книгами заявок его акций, и свой кольцевой буфер команд без блокировок.
+ * Поток сегмента - единственный, кто меняет книги, поэтому сведение идет без синхронизации.
+ * Исполнения и снятия передаются слушателям пакетами в отдельном потоке проведения сегмента:
+ * проведение сделок в базе данных не задерживает сведение, а события одной акции
+ * проводятся в порядке сведения. Очередь проведения ограничена: если проведение отстает,
+ * поток сведения ждет места в ней, команды копятся в кольцевом буфере, и при его заполнении
+ * новые заявки отклоняются
+ */
+@Component
+public class MatchingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchingEngine.class);
+    private static final int MAX_EVENT_BATCH = 256;
+    private static final int IDLE_SPINS = 200;
+
+    private final int shardCount;
+    private final int ringCapacity;
+    private final int settlementBacklog;
+    private final Timer matchLatency;
+    private final Counter processedOrders;
+    private final Counter settlementStalls;
+    private final List<Consumer<List<MatchEvent>>> listeners = new CopyOnWriteArrayList<>();
+    private Shard[] shards;
+
+    @Autowired
+    public MatchingEngine(
+            @Value("${app.matching.shards:4}") int shardCount,
+            @Value("${app.matching.ring-capacity:65536}") int ringCapacity,
+            @Value("${app.matching.settlement-backlog:1024}") int settlementBacklog,
+            MeterRegistry meterRegistry) {
+        this.shardCount = Math.max(1, shardCount);
+        this.ringCapacity = ringCapacity;
+        this.settlementBacklog = Math.max(1, settlementBacklog);
+        this.matchLatency = Timer.builder("trading.matching.latency")
+                .description("Time from order submission to the end of matching")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        this.processedOrders = Counter.builder("trading.matching.orders")
+                .description("Orders processed by the matching engine")
+                .register(meterRegistry);
+        this.settlementStalls = Counter.builder("trading.matching.settlement.stalls")
+                .description("Times matching waited for room in a full settlement queue")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            shards[i].thread.start();
+            shards[i].settlementThread.start();
+        }
+        logger.info("Matching engine started with {} shards", shardCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(TimeUnit.SECONDS.toMillis(5));
+                // Поток проведения завершается, проведя события, опубликованные до остановки
+                shard.settlementThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Подписывает на события сведения. Слушатель вызывается в потоке проведения сегмента
+     * и получает события одной или нескольких акций сегмента в порядке сведения
+     * @param listener Слушатель
+     */
+    public void addListener(Consumer<List<MatchEvent>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Передает заявку на сведение
+     * @param order Заявка
+     * @throws IllegalStateException если очередь сегмента заполнена
+     */
+    public void submit(EngineOrder order) {
+        order.enqueuedNanos = System.nanoTime();
+        enqueue(order.stockId, new Command(order, 0, 0, null));
+    }
+
+    /**
+     * Снимает заявку из книги
+     * @param stockId ID акции
+     * @param orderId ID заявки
+     * @return Снятый остаток (0, если заявка уже исполнена или отсутствует в книге)
+     */
+    public CompletableFuture<Integer> cancel(long stockId, long orderId) {
+        CompletableFuture<Object> reply = new CompletableFuture<>();
+        enqueue(stockId, new Command(null, orderId, 0, reply));
+        return reply.thenApply(Integer.class::cast);
+    }
+
+    /**
+     * Возвращает лучшие уровни книги заявок акции
+     * @param stockId ID акции
+     * @param levels Количество уровней с каждой стороны
+     */
+    public CompletableFuture<BookDepth> depth(long stockId, int levels) {
+        CompletableFuture<Object> reply = new CompletableFuture<>();
+        enqueue(stockId, new Command(null, 0, Math.max(1, levels), reply));
+        return reply.thenApply(BookDepth.class::cast);
+    }
+
+    private void enqueue(long stockId, Command command) {
+        command.stockId = stockId;
+        Shard shard = shards[shardIndex(stockId)];
+        if (!shard.inbox.offer(command)) {
+            throw new IllegalStateException("Matching engine is overloaded, please retry");
+        }
+        if (shard.idle) {
+            LockSupport.unpark(shard.thread);
+        }
+    }
+
+    private int shardIndex(long stockId) {
+        long h = stockId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) shardCount);
+    }
+
+    /**
+     * Команда сегменту: заявка, снятие (orderId) или запрос глубины (levels)
+     */
+    private static final class Command {
+        private final EngineOrder order;
+        private final long orderId;
+        private final int levels;
+        private final CompletableFuture<Object> reply;
+        private long stockId;
+
+        private Command(EngineOrder order, long orderId, int levels, CompletableFuture<Object> reply) {
+            this.order = order;
+            this.orderId = orderId;
+            this.levels = levels;
+            this.reply = reply;
+        }
+    }
+
+    /**
+     * Сегмент: поток сведения, его книги заявок и поток проведения событий
+     */
+    private final class Shard implements Runnable {
+        private final MpscRingBuffer<Command> inbox = new MpscRingBuffer<>(ringCapacity);
+        private final Map<Long, OrderBook> books = new HashMap<>();
+        private final BlockingQueue<List<MatchEvent>> settlementQueue = new ArrayBlockingQueue<>(settlementBacklog);
+        private final Thread thread;
+        private final Thread settlementThread;
+        private List<MatchEvent> events = new ArrayList<>();
+        private volatile boolean running = true;
+        private volatile boolean idle;
+
+        private Shard(int index) {
+            this.thread = new Thread(this, "matching-" + index);
+            this.thread.setDaemon(true);
+            this.settlementThread = new Thread(this::settle, "matching-settlement-" + index);
+            this.settlementThread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int spins = 0;
+            while (running) {
+                Command command = inbox.poll();
+                if (command == null) {
+                    publish();
+                    if (++spins < IDLE_SPINS) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    // Производитель будит поток после добавления команды; повторная проверка
+                    // после установки флага не дает пропустить команду, добавленную в этот момент
+                    idle = true;
+                    if (inbox.size() == 0 && running) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                    }
+                    idle = false;
+                    spins = 0;
+                    continue;
+                }
+
+                spins = 0;
+                try {
+                    process(command);
+                } catch (RuntimeException e) {
+                    logger.error("Matching command failed for stock {}", command.stockId, e);
+                    if (command.reply != null) {
+                        command.reply.completeExceptionally(e);
+                    }
+                }
+                if (events.size() >= MAX_EVENT_BATCH) {
+                    publish();
+                }
+            }
+            publish();
+        }
+
+        private void process(Command command) {
+            if (command.order != null) {
+                EngineOrder order = command.order;
+                books.computeIfAbsent(order.stockId, OrderBook::new).submit(order, events::add);
+                processedOrders.increment();
+                matchLatency.record(System.nanoTime() - order.enqueuedNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            OrderBook book = books.get(command.stockId);
+            if (command.levels > 0) {
+                command.reply.complete(book != null
+                        ? book.depth(command.levels)
+                        : new BookDepth(command.stockId, List.of(), List.of()));
+                return;
+            }
+
+            int cancelled = book != null ? book.cancel(command.orderId) : 0;
+            if (book != null && book.isEmpty()) {
+                books.remove(command.stockId);
+            }
+            command.reply.complete(cancelled);
+        }
+
+        private void publish() {
+            if (events.isEmpty()) {
+                return;
+            }
+            List<MatchEvent> batch = events;
+            events = new ArrayList<>();
+            if (settlementQueue.offer(batch)) {
+                return;
+            }
+
+            // Проведение отстает: сведение ждет, пока в очереди проведения освободится место
+            settlementStalls.increment();
+            try {
+                settlementQueue.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while waiting for settlement, {} match events were not settled", batch.size());
+            }
+        }
+
+        /**
+         * Цикл потока проведения: передает пакеты событий слушателям в порядке публикации
+         */
+        private void settle() {
+            while (thread.isAlive() || !settlementQueue.isEmpty()) {
+                List<MatchEvent> batch;
+                try {
+                    batch = settlementQueue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (batch == null) {
+                    continue;
+                }
+                for (Consumer<List<MatchEvent>> listener : listeners) {
+                    try {
+                        listener.accept(batch);
+                    } catch (RuntimeException e) {
+                        logger.error("Match event listener failed for {} events", batch.size(), e);
+                    }
+                }
+            }
+        }
+    }
+}
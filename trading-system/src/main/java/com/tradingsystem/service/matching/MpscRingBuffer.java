@@ -0,0 +1,73 @@
+package com.tradingsystem.service.matching;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченный кольцевой буфер без блокировок: много производителей, один потребитель.
+ * Производитель занимает номер ячейки сравнением с обменом и публикует элемент
+ * упорядоченной записью; потребитель читает ячейки по порядку и освобождает их.
+ * Пустая ячейка при занятом номере означает, что производитель еще не успел опубликовать элемент
+ */
+final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    MpscRingBuffer(int capacity) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Добавляет элемент (из любого потока)
+     * @return false, если буфер заполнен
+     */
+    boolean offer(E element) {
+        long capacity = mask + 1L;
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        slots.lazySet((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * Извлекает следующий элемент (только из потока-потребителя)
+     * @return Элемент или null, если буфер пуст
+     */
+    E poll() {
+        long index = consumerIndex.get();
+        int slot = (int) index & mask;
+        E element = slots.get(slot);
+        if (element == null) {
+            if (index == producerIndex.get()) {
+                return null;
+            }
+            // Номер занят, но элемент еще не опубликован: публикация следует сразу за захватом номера
+            do {
+                Thread.onSpinWait();
+                element = slots.get(slot);
+            } while (element == null);
+        }
+
+        slots.lazySet(slot, null);
+        consumerIndex.lazySet(index + 1);
+        return element;
+    }
+
+    /**
+     * Примерное количество элементов в буфере
+     */
+    int size() {
+        return (int) Math.max(0, producerIndex.get() - consumerIndex.get());
+    }
+}
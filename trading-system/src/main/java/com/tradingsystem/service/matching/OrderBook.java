@@ -0,0 +1,169 @@
+package com.tradingsystem.service.matching;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Книга заявок одной акции с приоритетом цены и времени.
+ * Уровни цен упорядочены (покупки по убыванию, продажи по возрастанию), внутри уровня -
+ * очередь заявок в порядке поступления. Снятая заявка не удаляется из очереди сразу:
+ * ее остаток обнуляется, и она пропускается при сведении. Не потокобезопасна -
+ * принадлежит одному потоку сегмента
+ */
+final class OrderBook {
+
+    private final long stockId;
+    private final TreeMap<Long, PriceLevel> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final TreeMap<Long, PriceLevel> asks = new TreeMap<>();
+    private final Map<Long, EngineOrder> restingOrders = new HashMap<>();
+
+    OrderBook(long stockId) {
+        this.stockId = stockId;
+    }
+
+    /**
+     * Сводит заявку со встречными заявками книги и ставит неисполненный остаток лимитной заявки в книгу.
+     * Встречная заявка того же портфеля снимается, чтобы портфель не торговал сам с собой
+     * @param order Входящая заявка
+     * @param events Получатель исполнений и снятий
+     */
+    void submit(EngineOrder order, Consumer<MatchEvent> events) {
+        TreeMap<Long, PriceLevel> opposite = order.buy ? asks : bids;
+        LocalDateTime now = null;
+
+        while (order.remaining > 0 && !opposite.isEmpty()) {
+            PriceLevel level = opposite.firstEntry().getValue();
+            if (!order.market && (order.buy ? level.price > order.price : level.price < order.price)) {
+                break;
+            }
+
+            while (order.remaining > 0 && !level.orders.isEmpty()) {
+                EngineOrder resting = level.orders.peekFirst();
+                if (resting.remaining == 0) {
+                    level.orders.pollFirst();
+                    continue;
+                }
+                if (resting.portfolioId == order.portfolioId) {
+                    events.accept(new MatchEvent.Cancelled(resting.orderId, resting.remaining, "self-trade prevention"));
+                    removeResting(level, resting);
+                    continue;
+                }
+
+                int quantity = Math.min(order.remaining, resting.remaining);
+                if (now == null) {
+                    now = LocalDateTime.now();
+                }
+                events.accept(order.buy
+                        ? new MatchEvent.Fill(order.orderId, order.portfolioId, resting.orderId, resting.portfolioId,
+                                stockId, level.price, quantity, now)
+                        : new MatchEvent.Fill(resting.orderId, resting.portfolioId, order.orderId, order.portfolioId,
+                                stockId, level.price, quantity, now));
+
+                order.remaining -= quantity;
+                resting.remaining -= quantity;
+                level.quantity -= quantity;
+                if (resting.remaining == 0) {
+                    level.orders.pollFirst();
+                    level.count--;
+                    restingOrders.remove(resting.orderId);
+                }
+            }
+
+            if (level.count == 0) {
+                opposite.pollFirstEntry();
+            }
+        }
+
+        if (order.remaining > 0) {
+            if (order.market) {
+                events.accept(new MatchEvent.Cancelled(order.orderId, order.remaining, "no liquidity for market order"));
+            } else {
+                rest(order);
+            }
+        }
+    }
+
+    /**
+     * Снимает заявку из книги
+     * @return Снятый остаток или 0, если заявки нет в книге (исполнена или неизвестна)
+     */
+    int cancel(long orderId) {
+        EngineOrder order = restingOrders.get(orderId);
+        if (order == null) {
+            return 0;
+        }
+        int remaining = order.remaining;
+        PriceLevel level = (order.buy ? bids : asks).get(order.price);
+        removeResting(level, order);
+        if (level.count == 0) {
+            (order.buy ? bids : asks).remove(order.price);
+        }
+        return remaining;
+    }
+
+    /**
+     * Лучшие уровни цен с каждой стороны
+     */
+    BookDepth depth(int levels) {
+        return new BookDepth(stockId, levels(bids, levels), levels(asks, levels));
+    }
+
+    boolean isEmpty() {
+        return restingOrders.isEmpty();
+    }
+
+    private void rest(EngineOrder order) {
+        TreeMap<Long, PriceLevel> side = order.buy ? bids : asks;
+        PriceLevel level = side.computeIfAbsent(order.price, PriceLevel::new);
+        level.orders.addLast(order);
+        level.quantity += order.remaining;
+        level.count++;
+        restingOrders.put(order.orderId, order);
+    }
+
+    /**
+     * Исключает заявку из уровня; сама запись в очереди пропускается при следующем сведении.
+     * Если снятых записей в очереди стало больше, чем живых, очередь уплотняется
+     */
+    private void removeResting(PriceLevel level, EngineOrder order) {
+        level.quantity -= order.remaining;
+        level.count--;
+        order.remaining = 0;
+        restingOrders.remove(order.orderId);
+        if (level.orders.size() > 2 * level.count + 16) {
+            level.orders.removeIf(queued -> queued.remaining == 0);
+        }
+    }
+
+    private static List<BookDepth.Level> levels(TreeMap<Long, PriceLevel> side, int limit) {
+        List<BookDepth.Level> result = new ArrayList<>(Math.min(limit, side.size()));
+        for (PriceLevel level : side.values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(new BookDepth.Level(level.price, level.quantity, level.count));
+        }
+        return result;
+    }
+
+    /**
+     * Уровень цены: очередь заявок и их суммарный остаток
+     */
+    private static final class PriceLevel {
+        private final long price;
+        private final ArrayDeque<EngineOrder> orders = new ArrayDeque<>();
+        private long quantity;
+        private int count;
+
+        private PriceLevel(long price) {
+            this.price = price;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.tradingsystem.service.paper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tradingsystem.model.enums.PaperSessionStatus;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.service.backtest.BarSeries;
+
+/**
+ * Сессия бумажной торговли: воспроизведение исторических торговых дней под виртуальными часами
+ * и учебный портфель пользователя.
+ * Торговые дни идут подряд, без ночных перерывов: каждый занимает основную сессию биржи (09:30-16:00).
+ * Котировка внутри дня вычисляется по дневному бару общей ленты как ломаная через экстремумы:
+ * открытие - минимум - максимум - закрытие для растущего дня и открытие - максимум - минимум - закрытие
+ * для падающего. Сессия не копирует бары и не хранит тики: котировка на момент виртуального времени
+ * считается по запросу
+ */
+public final class PaperSession {
+
+    /**
+     * Открытие основной торговой сессии
+     */
+    public static final LocalTime MARKET_OPEN = LocalTime.of(9, 30);
+
+    /**
+     * Длительность торгового дня в виртуальных миллисекундах (6,5 часа)
+     */
+    public static final long TRADING_DAY_MILLIS = 390L * 60 * 1000;
+
+    private final Long id;
+    private final Long userId;
+    private final Long portfolioId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final BigDecimal initialCash;
+    private final Map<String, BarSeries> tapes;
+    private final int[] tradingDays;
+    private final VirtualClock clock;
+
+    private BigDecimal cash;
+    private final Map<Long, Integer> positions = new HashMap<>();
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    /**
+     * @param tapes Ленты по символам акций (общие для сессий, только для чтения)
+     * @param tradingDays Торговые дни воспроизведения (дни от 1970-01-01 по возрастанию)
+     * @param speed Начальное ускорение
+     */
+    public PaperSession(Long id, Long userId, Long portfolioId, LocalDate startDate, LocalDate endDate,
+                        BigDecimal initialCash, Map<String, BarSeries> tapes, int[] tradingDays, double speed) {
+        this.id = id;
+        this.userId = userId;
+        this.portfolioId = portfolioId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.initialCash = initialCash;
+        this.tapes = tapes;
+        this.tradingDays = tradingDays;
+        this.clock = new VirtualClock(tradingDays.length * TRADING_DAY_MILLIS, speed);
+        this.cash = initialCash;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public BigDecimal getInitialCash() {
+        return initialCash;
+    }
+
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    public Collection<BarSeries> getTapes() {
+        return tapes.values();
+    }
+
+    /**
+     * Лента акции сессии по символу
+     * @return Лента или null, если акция не входит в сессию
+     */
+    public BarSeries getTape(String symbol) {
+        return tapes.get(symbol);
+    }
+
+    /**
+     * Количество воспроизводимых торговых дней
+     */
+    public int getTradingDayCount() {
+        return tradingDays.length;
+    }
+
+    public PaperSessionStatus getStatus() {
+        if (clock.isFinished()) {
+            return PaperSessionStatus.FINISHED;
+        }
+        return clock.isPaused() ? PaperSessionStatus.PAUSED : PaperSessionStatus.RUNNING;
+    }
+
+    /**
+     * Виртуальная дата и время, соответствующие моменту воспроизведения
+     * @param elapsedMillis Виртуальное время от начала воспроизведения
+     */
+    public LocalDateTime virtualTime(long elapsedMillis) {
+        int day = dayIndex(elapsedMillis);
+        long offset = Math.min(elapsedMillis - day * TRADING_DAY_MILLIS, TRADING_DAY_MILLIS);
+        return LocalDate.ofEpochDay(tradingDays[day]).atTime(MARKET_OPEN).plusNanos(offset * 1_000_000);
+    }
+
+    /**
+     * Котировка акции в момент воспроизведения
+     * @param tape Лента акции
+     * @param elapsedMillis Виртуальное время от начала воспроизведения
+     * @return Цена или NaN, если акция еще не торговалась
+     */
+    public double quote(BarSeries tape, long elapsedMillis) {
+        int day = dayIndex(elapsedMillis);
+        int bar = tape.floorIndex(tradingDays[day]);
+        if (bar < 0) {
+            return Double.NaN;
+        }
+        if (tape.date(bar).toEpochDay() != tradingDays[day]) {
+            // В этот день акция не торговалась: держится последнее закрытие
+            return tape.close(bar);
+        }
+        double fraction = Math.min(1.0, (double) (elapsedMillis - day * TRADING_DAY_MILLIS) / TRADING_DAY_MILLIS);
+        return intradayPrice(tape.open(bar), tape.high(bar), tape.low(bar), tape.close(bar), fraction);
+    }
+
+    /**
+     * Цена внутри дня по дневному бару: ломаная через экстремумы в 1/3 и 2/3 дня
+     * @param fraction Доля прошедшего торгового дня (0 - открытие, 1 - закрытие)
+     */
+    public static double intradayPrice(double open, double high, double low, double close, double fraction) {
+        boolean rising = close >= open;
+        double first = rising ? low : high;
+        double second = rising ? high : low;
+        double position = fraction * 3;
+        if (position <= 1) {
+            return open + (first - open) * position;
+        }
+        if (position <= 2) {
+            return first + (second - first) * (position - 1);
+        }
+        return second + (close - second) * Math.min(1.0, position - 2);
+    }
+
+    /**
+     * Учитывает проведенную сделку в деньгах и позициях сессии (вызывается под блокировкой сессии)
+     */
+    public void applyTrade(Long stockId, TradeType type, int quantity, BigDecimal amount) {
+        if (type == TradeType.BUY) {
+            cash = cash.subtract(amount);
+            positions.merge(stockId, quantity, Integer::sum);
+        } else {
+            cash = cash.add(amount);
+            positions.merge(stockId, -quantity, (held, sold) -> held + sold == 0 ? null : held + sold);
+        }
+    }
+
+    public BigDecimal getCash() {
+        return cash;
+    }
+
+    public int getPosition(Long stockId) {
+        return positions.getOrDefault(stockId, 0);
+    }
+
+    /**
+     * Отмечает обращение к сессии: простаивающие сессии закрываются по таймауту
+     */
+    public void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    public long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    private int dayIndex(long elapsedMillis) {
+        return (int) Math.min(elapsedMillis / TRADING_DAY_MILLIS, tradingDays.length - 1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.tradingsystem.service.paper;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.repository.StockHistoricalDataRepository;
+import com.tradingsystem.service.backtest.BarSeries;
+
+/**
+ * Общие ленты воспроизведения: дневные бары акции за период, разложенные в примитивные массивы.
+ * Сессии с одинаковыми акцией и периодом получают один и тот же ряд только для чтения;
+ * ряд хранится, пока его использует хотя бы одна сессия
+ */
+@Component
+public class ReplayTapeCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayTapeCache.class);
+
+    private final StockHistoricalDataRepository historicalDataRepository;
+    private final Map<TapeKey, Tape> tapes = new HashMap<>();
+
+    @Autowired
+    public ReplayTapeCache(StockHistoricalDataRepository historicalDataRepository) {
+        this.historicalDataRepository = historicalDataRepository;
+    }
+
+    /**
+     * Выдает ленту акции за период, загружая ее при первом обращении.
+     * Каждому вызову должен соответствовать вызов {@link #release}
+     * @param stock Акция
+     * @param startDate Начальная дата (включительно)
+     * @param endDate Конечная дата (включительно)
+     * @throws IllegalStateException если за период нет котировок
+     */
+    public synchronized BarSeries acquire(Stock stock, LocalDate startDate, LocalDate endDate) {
+        TapeKey key = new TapeKey(stock.getId(), startDate, endDate);
+        Tape tape = tapes.get(key);
+        if (tape == null) {
+            // Ленты охватывают несколько дней, поэтому загрузка под блокировкой короткая
+            List<Object[]> rows = historicalDataRepository.findBars(stock.getId(), startDate, endDate);
+            if (rows.isEmpty()) {
+                throw new IllegalStateException("No historical bars for " + stock.getSymbol()
+                        + " between " + startDate + " and " + endDate);
+            }
+            tape = new Tape(BarSeries.fromRows(stock.getId(), stock.getSymbol(), rows));
+            tapes.put(key, tape);
+            logger.debug("Replay tape loaded: {} {}..{}, {} bars", stock.getSymbol(), startDate, endDate, rows.size());
+        }
+        tape.references++;
+        return tape.series;
+    }
+
+    /**
+     * Возвращает ленту; последняя возвращенная лента освобождается
+     * @param stockId ID акции
+     * @param startDate Начальная дата
+     * @param endDate Конечная дата
+     */
+    public synchronized void release(Long stockId, LocalDate startDate, LocalDate endDate) {
+        TapeKey key = new TapeKey(stockId, startDate, endDate);
+        Tape tape = tapes.get(key);
+        if (tape != null && --tape.references <= 0) {
+            tapes.remove(key);
+        }
+    }
+
+    /**
+     * Количество загруженных лент
+     */
+    public synchronized int size() {
+        return tapes.size();
+    }
+
+    private record TapeKey(Long stockId, LocalDate startDate, LocalDate endDate) {
+    }
+
+    private static final class Tape {
+        private final BarSeries series;
+        private int references;
+
+        private Tape(BarSeries series) {
+            this.series = series;
+        }
+    }
+}
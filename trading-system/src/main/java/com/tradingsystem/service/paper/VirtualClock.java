@@ -0,0 +1,72 @@
+package com.tradingsystem.service.paper;
+
+/**
+ * Виртуальные часы воспроизведения: отсчитывают торговое время с заданным ускорением.
+ * Время не хранится тиками - оно вычисляется из точки привязки (реальное время, виртуальное время)
+ * и скорости; пауза и смена скорости переносят точку привязки, поэтому часам не нужен свой поток
+ */
+public final class VirtualClock {
+
+    private final long durationMillis;
+    private double speed;
+    private long anchorNanos;
+    private long anchorMillis;
+    private boolean paused;
+
+    /**
+     * @param durationMillis Длительность воспроизведения в виртуальных миллисекундах
+     * @param speed Ускорение относительно реального времени
+     */
+    public VirtualClock(long durationMillis, double speed) {
+        this.durationMillis = durationMillis;
+        this.speed = speed;
+        this.anchorNanos = System.nanoTime();
+    }
+
+    /**
+     * Виртуальное время от начала воспроизведения (не больше длительности)
+     */
+    public synchronized long elapsedMillis() {
+        if (paused) {
+            return anchorMillis;
+        }
+        long advanced = (long) ((System.nanoTime() - anchorNanos) / 1_000_000.0 * speed);
+        return Math.min(durationMillis, anchorMillis + advanced);
+    }
+
+    public synchronized void pause() {
+        if (!paused) {
+            anchorMillis = elapsedMillis();
+            paused = true;
+        }
+    }
+
+    public synchronized void resume() {
+        if (paused) {
+            anchorNanos = System.nanoTime();
+            paused = false;
+        }
+    }
+
+    public synchronized void setSpeed(double speed) {
+        anchorMillis = elapsedMillis();
+        anchorNanos = System.nanoTime();
+        this.speed = speed;
+    }
+
+    public synchronized double getSpeed() {
+        return speed;
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean isFinished() {
+        return elapsedMillis() >= durationMillis;
+    }
+}
@@ -0,0 +1,106 @@
+package com.tradingsystem.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежные величины и цены в виде long с фиксированной точностью (4 знака после запятой,
+ * как у колонок цен в базе данных). Используется во внутренних расчетах оценки позиций;
+ * в BigDecimal значения переводятся только при заполнении DTO
+ */
+public final class FixedPoint {
+
+    /**
+     * Количество знаков после запятой
+     */
+    public static final int SCALE = 4;
+
+    /**
+     * Единица в представлении с фиксированной точностью
+     */
+    public static final long ONE = 10_000L;
+
+    /**
+     * Множитель для процентов с двумя знаками после запятой (доля * 100%, точность 0.01)
+     */
+    private static final long PERCENT_UNITS = 10_000L;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Переводит BigDecimal в представление с фиксированной точностью (округление HALF_UP)
+     * @param value Значение (null считается нулем)
+     * @return Значение в единицах 10^-4
+     * @throws ArithmeticException если значение не помещается в long
+     */
+    public static long of(BigDecimal value) {
+        if (value == null) {
+            return 0;
+        }
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Переводит значение в BigDecimal с точностью SCALE
+     */
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    /**
+     * Переводит значение в BigDecimal с заданной точностью (округление HALF_UP)
+     */
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, SCALE).setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Стоимость позиции: цена * количество
+     * @throws ArithmeticException при переполнении
+     */
+    public static long multiply(long price, long quantity) {
+        return Math.multiplyExact(price, quantity);
+    }
+
+    /**
+     * Целочисленное деление с округлением HALF_UP
+     */
+    public static long divide(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder >= Math.abs(divisor) - remainder) {
+            quotient += ((dividend ^ divisor) < 0) ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * Доля part в total в процентах с точностью 0.01 (в сотых долях процента).
+     * Совпадает с part.divide(total, 4, HALF_UP).multiply(100)
+     * @return Процент в единицах 10^-2 или 0, если total не положителен
+     */
+    public static long percentOf(long part, long total) {
+        if (total <= 0) {
+            return 0;
+        }
+        long scaled;
+        try {
+            scaled = Math.multiplyExact(part, PERCENT_UNITS);
+        } catch (ArithmeticException e) {
+            // Для очень больших сумм (более ~9*10^10) считаем через BigDecimal
+            return BigDecimal.valueOf(part)
+                    .multiply(BigDecimal.valueOf(PERCENT_UNITS))
+                    .divide(BigDecimal.valueOf(total), 0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+        return divide(scaled, total);
+    }
+
+    /**
+     * Переводит процент в сотых долях в BigDecimal с двумя знаками после запятой
+     */
+    public static BigDecimal percentToBigDecimal(long percentHundredths) {
+        return BigDecimal.valueOf(percentHundredths, 2);
+    }
+}
@@ -0,0 +1,57 @@
+package com.tradingsystem.util;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Суммирование стоимостей с фиксированной точностью по ключам (сектор, символ акции)
+ * и расчет долей в процентах. Сумма по ключу хранится в массиве из одного long,
+ * поэтому добавление позиции не создает объектов
+ */
+public final class FixedPointAllocation {
+
+    private final Map<String, long[]> values;
+    private long total;
+
+    public FixedPointAllocation() {
+        this.values = new HashMap<>();
+    }
+
+    public FixedPointAllocation(int expectedKeys) {
+        this.values = new HashMap<>(Math.max(16, (int) (expectedKeys / 0.75f) + 1));
+    }
+
+    /**
+     * Добавляет стоимость к ключу
+     * @param key Ключ
+     * @param value Стоимость в представлении FixedPoint
+     */
+    public void add(String key, long value) {
+        values.computeIfAbsent(key, k -> new long[1])[0] += value;
+        total += value;
+    }
+
+    /**
+     * Общая сумма по всем ключам
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Доли ключей в общей сумме
+     * @return Карта ключ -> процент с двумя знаками после запятой (пустая, если сумма не положительна)
+     */
+    public Map<String, BigDecimal> toPercentages() {
+        Map<String, BigDecimal> percentages = new HashMap<>();
+        if (total <= 0) {
+            return percentages;
+        }
+        for (Map.Entry<String, long[]> entry : values.entrySet()) {
+            percentages.put(entry.getKey(),
+                    FixedPoint.percentToBigDecimal(FixedPoint.percentOf(entry.getValue()[0], total)));
+        }
+        return percentages;
+    }
+}
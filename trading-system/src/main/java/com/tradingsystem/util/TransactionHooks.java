@@ -0,0 +1,33 @@
+package com.tradingsystem.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Действия, привязанные к завершению текущей транзакции. Используется индексами и кэшами в памяти:
+ * состояние в памяти меняется только после фиксации изменений в базе данных
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Выполняет действие после фиксации текущей транзакции (сразу, если транзакции нет).
+     * При откате транзакции действие не выполняется
+     * @param action Действие
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,7 @@
+-- Покрывающий индекс для постраничной выдачи истории сделок по курсору
+-- Версия: 1.8
+
+-- Страница (timestamp, id) после курсора читается одним проходом по индексу без сортировки;
+-- остальные поля строки истории берутся из индекса (index-only scan)
+CREATE INDEX IF NOT EXISTS idx_trade_portfolio_timeline ON trades(portfolio_id, timestamp DESC, id DESC)
+    INCLUDE (stock_id, type, quantity, price);
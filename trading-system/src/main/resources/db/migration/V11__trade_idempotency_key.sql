@@ -0,0 +1,7 @@
+-- Ключ идемпотентности для повторно отправленных запросов на создание сделки
+-- Версия: 1.9
+
+ALTER TABLE trades ADD COLUMN IF NOT EXISTS idempotency_key VARCHAR(100);
+
+-- Повтор запроса с тем же ключом не может создать вторую сделку (NULL не участвует в уникальности)
+CREATE UNIQUE INDEX IF NOT EXISTS uk_trade_portfolio_idempotency_key ON trades(portfolio_id, idempotency_key);
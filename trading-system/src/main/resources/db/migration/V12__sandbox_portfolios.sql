@@ -0,0 +1,4 @@
+-- Учебные портфели сессий бумажной торговли
+-- Версия: 2.0
+
+ALTER TABLE portfolios ADD COLUMN IF NOT EXISTS sandbox BOOLEAN NOT NULL DEFAULT FALSE;
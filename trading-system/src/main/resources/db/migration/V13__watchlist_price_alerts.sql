@@ -0,0 +1,19 @@
+-- Ценовые оповещения по целевым ценам списка отслеживания
+-- Версия: 2.1
+
+ALTER TABLE watchlist_items ADD COLUMN IF NOT EXISTS price_target DOUBLE PRECISION;
+ALTER TABLE watchlist_items ADD COLUMN IF NOT EXISTS alert_direction VARCHAR(10);
+ALTER TABLE watchlist_items ADD COLUMN IF NOT EXISTS alert_triggered_at TIMESTAMP;
+ALTER TABLE watchlist_items ADD COLUMN IF NOT EXISTS alert_triggered_price DECIMAL(19, 4);
+
+-- Пороги из исходной колонки alert_price становятся целевыми ценами; направление
+-- определяется по текущей цене акции
+UPDATE watchlist_items SET price_target = alert_price WHERE price_target IS NULL AND alert_price IS NOT NULL;
+UPDATE watchlist_items w
+SET alert_direction = CASE WHEN w.price_target > COALESCE(s.current_price, 0) THEN 'ABOVE' ELSE 'BELOW' END
+FROM stocks s
+WHERE s.id = w.stock_id AND w.price_target IS NOT NULL AND w.alert_direction IS NULL;
+
+-- Загрузка активных оповещений в индекс при старте читает только этот индекс
+CREATE INDEX IF NOT EXISTS idx_watchlist_active_alerts ON watchlist_items(stock_id, price_target, id)
+    WHERE price_target IS NOT NULL AND alert_triggered_at IS NULL;
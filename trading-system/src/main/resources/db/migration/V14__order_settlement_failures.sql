@@ -0,0 +1,4 @@
+-- Причина неудачного проведения исполнения заявки
+-- Версия: 2.2
+
+ALTER TABLE trade_orders ADD COLUMN IF NOT EXISTS message VARCHAR(255);
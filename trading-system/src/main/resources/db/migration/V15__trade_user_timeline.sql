@@ -0,0 +1,16 @@
+-- Владелец сделки и индекс для постраничной истории всех портфелей пользователя
+-- Версия: 2.3
+
+-- Портфель сделки и владелец портфеля не меняются, поэтому копия user_id не расходится с портфелем
+ALTER TABLE trades ADD COLUMN IF NOT EXISTS user_id BIGINT;
+
+UPDATE trades t SET user_id = p.user_id
+FROM portfolios p
+WHERE p.id = t.portfolio_id AND t.user_id IS NULL;
+
+ALTER TABLE trades ALTER COLUMN user_id SET NOT NULL;
+
+-- Страница истории пользователя после курсора (timestamp, id) читается одним проходом по индексу,
+-- без выборки и сортировки сделок всех его портфелей (portfolio_id IN (...))
+CREATE INDEX IF NOT EXISTS idx_trade_user_timeline ON trades(user_id, timestamp DESC, id DESC)
+    INCLUDE (portfolio_id, stock_id, type, quantity, price);
@@ -0,0 +1,21 @@
+-- Проекция "последний анализ по акции"
+-- Версия: 1.1
+
+-- Таблица последних анализов (одна строка на акцию)
+CREATE TABLE IF NOT EXISTS latest_analyses (
+    stock_id BIGINT PRIMARY KEY,
+    analysis_id BIGINT NOT NULL,
+    analysis_date TIMESTAMP NOT NULL,
+    FOREIGN KEY (stock_id) REFERENCES stocks(id) ON DELETE CASCADE,
+    FOREIGN KEY (analysis_id) REFERENCES analyses(id) ON DELETE CASCADE
+);
+
+-- Индекс для выборки последнего анализа по акции без сортировки всей таблицы
+CREATE INDEX IF NOT EXISTS idx_analysis_stock_date ON analyses(stock_id, analysis_date DESC);
+
+-- Заполнение проекции по уже существующим анализам
+INSERT INTO latest_analyses (stock_id, analysis_id, analysis_date)
+SELECT DISTINCT ON (stock_id) stock_id, id, analysis_date
+FROM analyses
+ORDER BY stock_id, analysis_date DESC, id DESC
+ON CONFLICT (stock_id) DO NOTHING;
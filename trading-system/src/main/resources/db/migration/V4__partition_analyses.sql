@@ -0,0 +1,50 @@
+-- Помесячное секционирование таблицы анализов
+-- Версия: 1.2
+
+-- Первичный ключ секционированной таблицы должен включать ключ секционирования,
+-- поэтому внешний ключ на analyses(id) из проекции последних анализов снимается
+ALTER TABLE latest_analyses DROP CONSTRAINT IF EXISTS latest_analyses_analysis_id_fkey;
+
+ALTER TABLE analyses RENAME TO analyses_legacy;
+
+-- Новая таблица с той же структурой, секционированная по дате анализа
+CREATE TABLE analyses (
+    LIKE analyses_legacy INCLUDING DEFAULTS,
+    PRIMARY KEY (id, analysis_date),
+    FOREIGN KEY (stock_id) REFERENCES stocks(id) ON DELETE CASCADE
+) PARTITION BY RANGE (analysis_date);
+
+-- Последовательность идентификаторов переходит к новой таблице
+ALTER SEQUENCE analyses_id_seq OWNED BY analyses.id;
+
+-- Секция по умолчанию для дат за пределами созданных месяцев
+CREATE TABLE IF NOT EXISTS analyses_default PARTITION OF analyses DEFAULT;
+
+-- Помесячные секции: от самого раннего анализа до трех месяцев вперед
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(analysis_date))::DATE, date_trunc('month', CURRENT_DATE)::DATE)
+    INTO month_start
+    FROM analyses_legacy;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF analyses FOR VALUES FROM (%L) TO (%L)',
+                       'analyses_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM'),
+                       month_start,
+                       (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO analyses SELECT * FROM analyses_legacy;
+
+DROP TABLE analyses_legacy;
+
+-- Индексы создаются на родительской таблице и наследуются всеми секциями
+CREATE INDEX IF NOT EXISTS idx_analysis_stock_id ON analyses(stock_id);
+CREATE INDEX IF NOT EXISTS idx_analysis_date ON analyses(analysis_date);
+CREATE INDEX IF NOT EXISTS idx_analysis_type ON analyses(analysis_type);
+CREATE INDEX IF NOT EXISTS idx_analysis_stock_date ON analyses(stock_id, analysis_date DESC);
@@ -0,0 +1,5 @@
+-- Индексы для агрегированного расчета эффективности портфеля
+-- Версия: 1.3
+
+-- Суммы покупок и продаж по портфелю считаются только по индексу (index-only scan)
+CREATE INDEX IF NOT EXISTS idx_trade_portfolio_type ON trades(portfolio_id, type) INCLUDE (price, quantity);
@@ -0,0 +1,61 @@
+-- Налоговые лоты и накопленный реализованный результат
+-- Версия: 1.4
+
+-- Открытые и закрытые лоты покупок
+CREATE TABLE IF NOT EXISTS tax_lots (
+    id BIGSERIAL PRIMARY KEY,
+    portfolio_id BIGINT NOT NULL,
+    stock_id BIGINT NOT NULL,
+    trade_id BIGINT,
+    open_date TIMESTAMP NOT NULL,
+    quantity INTEGER NOT NULL,
+    remaining_quantity INTEGER NOT NULL,
+    cost_price DECIMAL(19, 4) NOT NULL,
+    FOREIGN KEY (portfolio_id) REFERENCES portfolios(id) ON DELETE CASCADE,
+    FOREIGN KEY (stock_id) REFERENCES stocks(id),
+    FOREIGN KEY (trade_id) REFERENCES trades(id) ON DELETE CASCADE,
+    CONSTRAINT chk_tax_lot_remaining CHECK (remaining_quantity >= 0 AND remaining_quantity <= quantity)
+);
+
+-- Открытые лоты позиции выбираются по дате открытия
+CREATE INDEX IF NOT EXISTS idx_tax_lot_open ON tax_lots(portfolio_id, stock_id, open_date, id)
+    WHERE remaining_quantity > 0;
+CREATE INDEX IF NOT EXISTS idx_tax_lot_trade_id ON tax_lots(trade_id);
+
+-- Списания лотов продажами (нужны для отмены продажи)
+CREATE TABLE IF NOT EXISTS lot_disposals (
+    id BIGSERIAL PRIMARY KEY,
+    lot_id BIGINT NOT NULL,
+    trade_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    cost_price DECIMAL(19, 4) NOT NULL,
+    sale_price DECIMAL(19, 4) NOT NULL,
+    realized_profit_loss DECIMAL(19, 4) NOT NULL,
+    FOREIGN KEY (lot_id) REFERENCES tax_lots(id) ON DELETE CASCADE,
+    FOREIGN KEY (trade_id) REFERENCES trades(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_lot_disposal_trade_id ON lot_disposals(trade_id);
+
+-- Накопленный реализованный результат по акции в портфеле (сохраняется после закрытия позиции)
+CREATE TABLE IF NOT EXISTS realized_gains (
+    id BIGSERIAL PRIMARY KEY,
+    portfolio_id BIGINT NOT NULL,
+    stock_id BIGINT NOT NULL,
+    quantity_sold BIGINT NOT NULL DEFAULT 0,
+    proceeds DECIMAL(19, 4) NOT NULL DEFAULT 0,
+    cost_basis DECIMAL(19, 4) NOT NULL DEFAULT 0,
+    realized_profit_loss DECIMAL(19, 4) NOT NULL DEFAULT 0,
+    updated_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (portfolio_id) REFERENCES portfolios(id) ON DELETE CASCADE,
+    FOREIGN KEY (stock_id) REFERENCES stocks(id),
+    CONSTRAINT unique_realized_gain_per_stock UNIQUE (portfolio_id, stock_id)
+);
+
+-- Для существующих позиций история лотов неизвестна: открываем по одному лоту
+-- на текущее количество по средней цене (он старше всех будущих лотов)
+INSERT INTO tax_lots (portfolio_id, stock_id, trade_id, open_date, quantity, remaining_quantity, cost_price)
+SELECT h.portfolio_id, h.stock_id, NULL, CURRENT_TIMESTAMP, h.quantity, h.quantity, h.average_price
+FROM holdings h
+WHERE h.quantity > 0
+  AND NOT EXISTS (SELECT 1 FROM tax_lots l WHERE l.portfolio_id = h.portfolio_id AND l.stock_id = h.stock_id);
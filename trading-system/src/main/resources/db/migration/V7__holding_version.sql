@@ -0,0 +1,4 @@
+-- Версия позиций для оптимистической блокировки
+-- Версия: 1.5
+
+ALTER TABLE holdings ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
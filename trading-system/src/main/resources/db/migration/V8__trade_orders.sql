@@ -0,0 +1,27 @@
+-- Заявки на покупку и продажу для книги заявок
+-- Версия: 1.6
+
+CREATE TABLE IF NOT EXISTS trade_orders (
+    id BIGSERIAL PRIMARY KEY,
+    portfolio_id BIGINT NOT NULL,
+    stock_id BIGINT NOT NULL,
+    side VARCHAR(10) NOT NULL,
+    order_type VARCHAR(10) NOT NULL,
+    quantity INTEGER NOT NULL,
+    filled_quantity INTEGER NOT NULL DEFAULT 0,
+    limit_price DECIMAL(19, 4),
+    average_fill_price DECIMAL(19, 4),
+    status VARCHAR(20) NOT NULL,
+    created_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (portfolio_id) REFERENCES portfolios(id) ON DELETE CASCADE,
+    FOREIGN KEY (stock_id) REFERENCES stocks(id),
+    CONSTRAINT chk_trade_order_filled CHECK (filled_quantity >= 0 AND filled_quantity <= quantity)
+);
+
+-- Заявки портфеля от новых к старым
+CREATE INDEX IF NOT EXISTS idx_trade_order_portfolio ON trade_orders(portfolio_id, created_date DESC);
+
+-- Активные заявки: загрузка книги при старте и резерв акций под продажи
+CREATE INDEX IF NOT EXISTS idx_trade_order_open ON trade_orders(portfolio_id, stock_id, side)
+    WHERE status IN ('NEW', 'PARTIALLY_FILLED');
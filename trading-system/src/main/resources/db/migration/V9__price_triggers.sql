@@ -0,0 +1,25 @@
+-- Ценовые триггеры (стоп-лосс и тейк-профит) по позициям
+-- Версия: 1.7
+
+CREATE TABLE IF NOT EXISTS price_triggers (
+    id BIGSERIAL PRIMARY KEY,
+    portfolio_id BIGINT NOT NULL,
+    stock_id BIGINT NOT NULL,
+    trigger_type VARCHAR(20) NOT NULL,
+    quantity INTEGER NOT NULL,
+    trigger_price DECIMAL(19, 4) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    trade_id BIGINT,
+    execution_price DECIMAL(19, 4),
+    message VARCHAR(255),
+    created_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    triggered_date TIMESTAMP,
+    FOREIGN KEY (portfolio_id) REFERENCES portfolios(id) ON DELETE CASCADE,
+    FOREIGN KEY (stock_id) REFERENCES stocks(id),
+    CONSTRAINT chk_price_trigger_quantity CHECK (quantity > 0)
+);
+
+CREATE INDEX IF NOT EXISTS idx_price_trigger_portfolio ON price_triggers(portfolio_id, created_date DESC);
+
+-- Активные триггеры загружаются в индекс при старте
+CREATE INDEX IF NOT EXISTS idx_price_trigger_active ON price_triggers(stock_id) WHERE status = 'ACTIVE';
@@ -0,0 +1,69 @@
+package com.tradingsystem.scheduler;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tradingsystem.exception.CallRejectedException;
+import com.tradingsystem.exception.ExternalServiceException;
+import com.tradingsystem.model.enums.AnalysisPriority;
+import com.tradingsystem.repository.StockRepository;
+import com.tradingsystem.service.interfaces.StockService;
+
+class NightlyAnalysisJobTest {
+
+	private StockService stockService;
+	private NightlyAnalysisJob job;
+
+	@BeforeEach
+	void setUp() {
+		StockRepository stockRepository = mock(StockRepository.class);
+		stockService = mock(StockService.class);
+		job = new NightlyAnalysisJob(stockRepository, stockService);
+		ReflectionTestUtils.setField(job, "batchSize", 50);
+		ReflectionTestUtils.setField(job, "minAgeHours", 20);
+
+		when(stockRepository.findTrackedSymbolsWithoutAnalysisSince(any(), any())).thenReturn(List.of("AAA", "BBB", "CCC"));
+	}
+
+	@Test
+	void externalServiceFailureSkipsOnlyThatStock() {
+		when(stockService.generateAnalysis("AAA", AnalysisPriority.NIGHTLY_BATCH))
+				.thenThrow(new ExternalServiceException("AlphaVantage API error: invalid symbol"));
+
+		job.generateAnalyses();
+
+		verify(stockService).generateAnalysis("BBB", AnalysisPriority.NIGHTLY_BATCH);
+		verify(stockService).generateAnalysis("CCC", AnalysisPriority.NIGHTLY_BATCH);
+	}
+
+	@Test
+	void unexpectedFailureSkipsOnlyThatStock() {
+		when(stockService.generateAnalysis("BBB", AnalysisPriority.NIGHTLY_BATCH))
+				.thenThrow(new RuntimeException("Failed to generate analysis"));
+
+		job.generateAnalyses();
+
+		verify(stockService).generateAnalysis("CCC", AnalysisPriority.NIGHTLY_BATCH);
+	}
+
+	@Test
+	void schedulerRejectionStopsBatch() {
+		when(stockService.generateAnalysis("BBB", AnalysisPriority.NIGHTLY_BATCH))
+				.thenThrow(new CallRejectedException("ChatGPT call rejected (NIGHTLY_BATCH): queue is full"));
+
+		job.generateAnalyses();
+
+		verify(stockService).generateAnalysis("AAA", AnalysisPriority.NIGHTLY_BATCH);
+		verify(stockService, never()).generateAnalysis(eq("CCC"), any());
+	}
+}
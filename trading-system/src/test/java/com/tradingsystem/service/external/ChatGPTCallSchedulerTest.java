@@ -0,0 +1,123 @@
+package com.tradingsystem.service.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.exception.CallRejectedException;
+import com.tradingsystem.model.enums.AnalysisPriority;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChatGPTCallSchedulerTest {
+
+	@Test
+	void nightlyBatchCannotSpendReservedHalfOfBudget() {
+		ChatGPTCallScheduler scheduler = scheduler(1000, 4, 10, 1000);
+		ChatGPTCallScheduler.Lease interactive = scheduler.acquire(AnalysisPriority.INTERACTIVE, 400);
+
+		// Остается 600: ночной запрос на 200 опустил бы остаток ниже половины бюджета
+		assertThatThrownBy(() -> scheduler.acquire(AnalysisPriority.NIGHTLY_BATCH, 200))
+				.isInstanceOf(CallRejectedException.class)
+				.hasMessageContaining("reserved");
+		scheduler.acquire(AnalysisPriority.NIGHTLY_BATCH, 50).close();
+		interactive.close();
+	}
+
+	@Test
+	void significantMoveKeepsFifthOfBudgetForInteractiveCalls() {
+		ChatGPTCallScheduler scheduler = scheduler(1000, 4, 10, 1000);
+
+		assertThatThrownBy(() -> scheduler.acquire(AnalysisPriority.SIGNIFICANT_MOVE, 900))
+				.isInstanceOf(CallRejectedException.class);
+		scheduler.acquire(AnalysisPriority.SIGNIFICANT_MOVE, 800).close();
+		// Оставшуюся пятую часть может израсходовать только интерактивный запрос
+		assertThatThrownBy(() -> scheduler.acquire(AnalysisPriority.SIGNIFICANT_MOVE, 10))
+				.isInstanceOf(CallRejectedException.class);
+		scheduler.acquire(AnalysisPriority.INTERACTIVE, 190).close();
+	}
+
+	@Test
+	void unusedReservationIsReturnedOnClose() {
+		ChatGPTCallScheduler scheduler = scheduler(1000, 4, 10, 1000);
+
+		try (ChatGPTCallScheduler.Lease lease = scheduler.acquire(AnalysisPriority.INTERACTIVE, 500)) {
+			assertThat(scheduler.getAvailableTokens()).isCloseTo(500, within(5.0));
+			lease.recordUsage(100);
+		}
+
+		assertThat(scheduler.getAvailableTokens()).isCloseTo(900, within(5.0));
+		assertThat(scheduler.getInFlight()).isZero();
+	}
+
+	@Test
+	void fullLaneRejectsImmediately() {
+		ChatGPTCallScheduler scheduler = scheduler(1000, 4, 0, 1000);
+
+		assertThatThrownBy(() -> scheduler.acquire(AnalysisPriority.INTERACTIVE, 10))
+				.isInstanceOf(CallRejectedException.class)
+				.hasMessageContaining("queue is full");
+	}
+
+	@Test
+	void waitLongerThanLimitIsRejected() {
+		ChatGPTCallScheduler scheduler = scheduler(100_000, 1, 10, 50);
+
+		try (ChatGPTCallScheduler.Lease busy = scheduler.acquire(AnalysisPriority.INTERACTIVE, 10)) {
+			assertThatThrownBy(() -> scheduler.acquire(AnalysisPriority.INTERACTIVE, 10))
+					.isInstanceOf(CallRejectedException.class)
+					.hasMessageContaining("timeout");
+		}
+	}
+
+	@Test
+	void higherPriorityLaneIsServedFirst() throws InterruptedException {
+		ChatGPTCallScheduler scheduler = scheduler(100_000, 1, 10, 5000);
+		List<AnalysisPriority> admitted = new CopyOnWriteArrayList<>();
+		ChatGPTCallScheduler.Lease busy = scheduler.acquire(AnalysisPriority.INTERACTIVE, 10);
+
+		// Ночной запрос встает в очередь раньше интерактивного, но обслуживается после него
+		Thread nightly = caller(scheduler, AnalysisPriority.NIGHTLY_BATCH, admitted);
+		awaitQueued(scheduler, AnalysisPriority.NIGHTLY_BATCH);
+		Thread interactive = caller(scheduler, AnalysisPriority.INTERACTIVE, admitted);
+		awaitQueued(scheduler, AnalysisPriority.INTERACTIVE);
+
+		busy.close();
+		nightly.join(TimeUnit.SECONDS.toMillis(5));
+		interactive.join(TimeUnit.SECONDS.toMillis(5));
+
+		assertThat(admitted).containsExactly(AnalysisPriority.INTERACTIVE, AnalysisPriority.NIGHTLY_BATCH);
+	}
+
+	private static ChatGPTCallScheduler scheduler(int tokensPerMinute, int maxConcurrentCalls, int queueCapacity,
+												  long maxQueueWaitMillis) {
+		return new ChatGPTCallScheduler(new SimpleMeterRegistry(), tokensPerMinute, maxConcurrentCalls, queueCapacity,
+				maxQueueWaitMillis, 0.03);
+	}
+
+	private static Thread caller(ChatGPTCallScheduler scheduler, AnalysisPriority priority, List<AnalysisPriority> admitted) {
+		Thread thread = new Thread(() -> {
+			try (ChatGPTCallScheduler.Lease lease = scheduler.acquire(priority, 10)) {
+				admitted.add(priority);
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private static void awaitQueued(ChatGPTCallScheduler scheduler, AnalysisPriority priority) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (scheduler.getQueueSize(priority) == 0) {
+			if (System.nanoTime() - deadline > 0) {
+				throw new AssertionError("Call was not queued within 5 seconds");
+			}
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tradingsystem.model.dto.PaperSessionDTO;
+import com.tradingsystem.model.dto.PaperSessionRequestDTO;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.entity.User;
+import com.tradingsystem.service.backtest.BarSeries;
+import com.tradingsystem.service.interfaces.PortfolioService;
+import com.tradingsystem.service.interfaces.StockService;
+import com.tradingsystem.service.interfaces.TradeService;
+import com.tradingsystem.service.paper.ReplayTapeCache;
+
+class PaperTradingServiceImplTest {
+
+	private static final LocalDate MONDAY = LocalDate.of(2024, 5, 6);
+
+	private PaperTradingServiceImpl paperTradingService;
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		PortfolioService portfolioService = mock(PortfolioService.class);
+		StockService stockService = mock(StockService.class);
+		ReplayTapeCache replayTapeCache = mock(ReplayTapeCache.class);
+		paperTradingService = new PaperTradingServiceImpl(portfolioService, stockService, mock(TradeService.class),
+				replayTapeCache);
+		ReflectionTestUtils.setField(paperTradingService, "maxSessions", 100);
+		ReflectionTestUtils.setField(paperTradingService, "maxSessionsPerUser", 3);
+		ReflectionTestUtils.setField(paperTradingService, "maxSymbols", 20);
+		ReflectionTestUtils.setField(paperTradingService, "maxDays", 10);
+		ReflectionTestUtils.setField(paperTradingService, "defaultSpeed", 100.0);
+		ReflectionTestUtils.setField(paperTradingService, "defaultInitialCash", BigDecimal.valueOf(100_000));
+
+		Stock stock = new Stock();
+		stock.setId(1L);
+		stock.setSymbol("AAA");
+		when(stockService.getStockBySymbol("AAA")).thenReturn(stock);
+		BarSeries tape = new BarSeries(1L, "AAA", new int[] {(int) MONDAY.toEpochDay()},
+				new double[] {10}, new double[] {14}, new double[] {8}, new double[] {12}, new long[] {1});
+		when(replayTapeCache.acquire(any(), any(), any())).thenReturn(tape);
+		AtomicLong portfolioIds = new AtomicLong();
+		when(portfolioService.createPortfolio(any())).thenAnswer(invocation -> {
+			Portfolio portfolio = invocation.getArgument(0);
+			portfolio.setId(portfolioIds.incrementAndGet());
+			return portfolio;
+		});
+
+		user = new User();
+		user.setId(7L);
+	}
+
+	@Test
+	void perUserLimitHoldsUnderConcurrentRequests() throws InterruptedException {
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger opened = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+
+		for (int i = 0; i < 8; i++) {
+			clients.execute(() -> {
+				try {
+					start.await();
+					paperTradingService.createSession(user, request());
+					opened.incrementAndGet();
+				} catch (IllegalStateException e) {
+					rejected.incrementAndGet();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		start.countDown();
+		clients.shutdown();
+		assertThat(clients.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(opened.get()).isEqualTo(3);
+		assertThat(rejected.get()).isEqualTo(5);
+		assertThat(paperTradingService.getSessionsByUserId(user.getId())).hasSize(3);
+	}
+
+	@Test
+	void closedSessionReleasesUserSlot() {
+		ReflectionTestUtils.setField(paperTradingService, "maxSessionsPerUser", 1);
+		PaperSessionDTO session = paperTradingService.createSession(user, request());
+		assertThatThrownBy(() -> paperTradingService.createSession(user, request()))
+				.isInstanceOf(IllegalStateException.class);
+
+		paperTradingService.closeSession(session.getId());
+
+		assertThat(paperTradingService.createSession(user, request())).isNotNull();
+	}
+
+	private static PaperSessionRequestDTO request() {
+		PaperSessionRequestDTO request = new PaperSessionRequestDTO();
+		request.setSymbols(List.of("AAA"));
+		request.setStartDate(MONDAY);
+		return request;
+	}
+}
@@ -0,0 +1,147 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.model.entity.PortfolioPerformance;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.PortfolioPerformanceRepository;
+import com.tradingsystem.repository.StockHistoricalDataRepository;
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.repository.projection.TradeHistoryRow;
+
+class PortfolioHistoryServiceImplTest {
+
+	private static final Long PORTFOLIO_ID = 1L;
+
+	private PortfolioPerformanceRepository performanceRepository;
+	private StockHistoricalDataRepository historicalDataRepository;
+	private TradeRepository tradeRepository;
+	private PortfolioHistoryServiceImpl historyService;
+
+	// Среда, после которой до вчерашнего дня есть не меньше недели
+	private LocalDate wednesday;
+
+	@BeforeEach
+	void setUp() {
+		performanceRepository = mock(PortfolioPerformanceRepository.class);
+		historicalDataRepository = mock(StockHistoricalDataRepository.class);
+		tradeRepository = mock(TradeRepository.class);
+		historyService = new PortfolioHistoryServiceImpl(performanceRepository, historicalDataRepository, tradeRepository);
+
+		wednesday = LocalDate.now().minusDays(1).with(TemporalAdjusters.previous(DayOfWeek.WEDNESDAY)).minusWeeks(1);
+	}
+
+	@Test
+	void incrementalUpdateSeedsPositionsFromAggregateAndReadsOnlyPeriodTrades() {
+		LocalDate lastDate = wednesday.minusDays(1);
+		when(tradeRepository.findFirstTradeTimestamp(PORTFOLIO_ID)).thenReturn(lastDate.minusMonths(6).atTime(10, 0));
+		when(performanceRepository.findTopByPortfolioIdOrderByDateDesc(PORTFOLIO_ID))
+				.thenReturn(Optional.of(valuation(lastDate, "1000")));
+		// До периода: 10 акций 1 на 1000, последняя сделка по 100
+		when(tradeRepository.sumPositionsBefore(PORTFOLIO_ID, wednesday.atStartOfDay())).thenReturn(rows(
+				new Object[] {1L, 10L, new BigDecimal("1000"), new BigDecimal("100")}));
+		TradeHistoryRow purchase = trade(2L, TradeType.BUY, 5, "50", wednesday);
+		when(tradeRepository.streamChronologicalHistorySince(List.of(PORTFOLIO_ID), wednesday.atStartOfDay()))
+				.thenReturn(Stream.of(purchase));
+		givenCloses(1L, rows(new Object[] {1L, wednesday, new BigDecimal("110")}));
+		givenCloses(2L, rows(new Object[] {2L, wednesday, new BigDecimal("55")}));
+
+		int written = historyService.updateHistory(PORTFOLIO_ID);
+
+		assertThat(written).isEqualTo(weekdaysThroughYesterday(wednesday));
+		verify(tradeRepository, never()).findByPortfolioIdOrderByTimestampAsc(anyLong());
+		// 10 * 110 + 5 * 55; поток 250 исключается из дневной доходности, вложено всего 1250
+		verify(performanceRepository).upsert(eq(PORTFOLIO_ID), eq(wednesday), eq(new BigDecimal("1375.00")),
+				eq(new BigDecimal("12.5000")), isNull(), isNull(), isNull(), eq(new BigDecimal("10.0000")));
+		verify(performanceRepository).upsert(eq(PORTFOLIO_ID), eq(wednesday.plusDays(1)), eq(new BigDecimal("1375.00")),
+				eq(new BigDecimal("0.0000")), isNull(), isNull(), isNull(), eq(new BigDecimal("10.0000")));
+	}
+
+	@Test
+	void firstUpdateStartsAtFirstTradeAndCarriesWeekendFlowToMonday() {
+		LocalDate friday = wednesday.plusDays(2);
+		when(tradeRepository.findFirstTradeTimestamp(PORTFOLIO_ID)).thenReturn(wednesday.atTime(10, 0));
+		List<TradeHistoryRow> trades = List.of(
+				trade(1L, TradeType.BUY, 10, "100", wednesday),
+				trade(1L, TradeType.SELL, 4, "100", friday.plusDays(1)));
+		when(tradeRepository.streamChronologicalHistorySince(List.of(PORTFOLIO_ID), wednesday.atStartOfDay()))
+				.thenReturn(trades.stream());
+		givenCloses(1L, rows());
+
+		historyService.updateHistory(PORTFOLIO_ID);
+
+		verify(tradeRepository).sumPositionsBefore(PORTFOLIO_ID, wednesday.atStartOfDay());
+		// Без цен закрытия позиция оценивается по цене последней сделки
+		verify(performanceRepository).upsert(eq(PORTFOLIO_ID), eq(wednesday), eq(new BigDecimal("1000.00")),
+				isNull(), isNull(), isNull(), isNull(), eq(new BigDecimal("0.0000")));
+		verify(performanceRepository).upsert(eq(PORTFOLIO_ID), eq(friday.plusDays(3)), eq(new BigDecimal("600.00")),
+				eq(new BigDecimal("0.0000")), isNull(), isNull(), isNull(), eq(new BigDecimal("0.0000")));
+		verify(performanceRepository, never()).upsert(eq(PORTFOLIO_ID), eq(friday.plusDays(1)),
+				any(), any(), any(), any(), any(), any());
+	}
+
+	@Test
+	void portfolioWithoutTradesIsSkipped() {
+		assertThat(historyService.updateHistory(PORTFOLIO_ID)).isZero();
+
+		verify(tradeRepository, never()).streamChronologicalHistorySince(any(), any());
+		verify(performanceRepository, times(0)).upsert(any(), any(), any(), any(), any(), any(), any(), any());
+	}
+
+	private void givenCloses(Long stockId, List<Object[]> rows) {
+		when(historicalDataRepository.findClosePrices(eq(Set.of(stockId)), any(), any())).thenReturn(rows);
+	}
+
+	private static int weekdaysThroughYesterday(LocalDate from) {
+		int days = 0;
+		for (LocalDate day = from; day.isBefore(LocalDate.now()); day = day.plusDays(1)) {
+			if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+				days++;
+			}
+		}
+		return days;
+	}
+
+	private static PortfolioPerformance valuation(LocalDate date, String value) {
+		PortfolioPerformance valuation = new PortfolioPerformance();
+		valuation.setDate(date);
+		valuation.setValue(new BigDecimal(value));
+		return valuation;
+	}
+
+	private static TradeHistoryRow trade(Long stockId, TradeType type, int quantity, String price, LocalDate date) {
+		TradeHistoryRow row = mock(TradeHistoryRow.class);
+		when(row.getStockId()).thenReturn(stockId);
+		when(row.getType()).thenReturn(type);
+		when(row.getQuantity()).thenReturn(quantity);
+		when(row.getPrice()).thenReturn(new BigDecimal(price));
+		when(row.getTimestamp()).thenReturn(date.atTime(12, 0));
+		return row;
+	}
+
+	private static List<Object[]> rows(Object[]... rows) {
+		return new ArrayList<>(List.of(rows));
+	}
+}
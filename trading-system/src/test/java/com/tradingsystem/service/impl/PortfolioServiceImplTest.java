@@ -0,0 +1,137 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.exception.ResourceNotFoundException;
+import com.tradingsystem.model.dto.PortfolioPerformanceDTO;
+import com.tradingsystem.model.dto.PortfolioPerformanceDTO.HoldingPerformanceDTO;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.repository.projection.PortfolioPerformanceRow;
+import com.tradingsystem.service.index.PerformanceCache;
+import com.tradingsystem.service.index.PortfolioLeaderboard;
+import com.tradingsystem.service.index.PositionBook;
+import com.tradingsystem.service.interfaces.HoldingService;
+import com.tradingsystem.service.interfaces.PortfolioHistoryService;
+
+class PortfolioServiceImplTest {
+
+	private static final Long PORTFOLIO_ID = 1L;
+
+	private PortfolioRepository portfolioRepository;
+	private HoldingRepository holdingRepository;
+	private PositionBook positionBook;
+	private PortfolioServiceImpl portfolioService;
+
+	@BeforeEach
+	void setUp() {
+		portfolioRepository = mock(PortfolioRepository.class);
+		positionBook = mock(PositionBook.class);
+		holdingRepository = mock(HoldingRepository.class);
+		portfolioService = new PortfolioServiceImpl(portfolioRepository, holdingRepository,
+				mock(HoldingService.class), positionBook, mock(PortfolioHistoryService.class),
+				new PerformanceCache(positionBook, Runnable::run, 100), mock(PortfolioLeaderboard.class));
+	}
+
+	@Test
+	void totalsAndAllocationsComeFromPerformanceRows() {
+		// Итоги сделок повторяются в каждой строке позиции
+		List<PortfolioPerformanceRow> rows = List.of(
+				position("AAA", "Technology", 10, "100", "150", 1, 3),
+				position("BBB", "Technology", 5, "200", "180", 3, 1),
+				position("CCC", "Energy", 20, "25", "30", 2, 2));
+		when(portfolioRepository.findPerformanceRows(PORTFOLIO_ID)).thenReturn(rows);
+		when(positionBook.getTotalValue(PORTFOLIO_ID)).thenReturn(new BigDecimal("3000"));
+
+		PortfolioPerformanceDTO performance = portfolioService.calculatePerformance(PORTFOLIO_ID);
+
+		assertThat(performance.getCurrentValue()).isEqualByComparingTo("3000");
+		assertThat(performance.getTotalInvested()).isEqualByComparingTo("2500");
+		assertThat(performance.getProfitLoss()).isEqualByComparingTo("500");
+		assertThat(performance.getProfitLossPercent()).isEqualByComparingTo("20.00");
+		assertThat(performance.getSectorAllocation().get("Technology")).isEqualByComparingTo("80.00");
+		assertThat(performance.getSectorAllocation().get("Energy")).isEqualByComparingTo("20.00");
+		assertThat(performance.getStockAllocation().get("BBB")).isEqualByComparingTo("30.00");
+		assertThat(performance.getTopGainers()).extracting(HoldingPerformanceDTO::getSymbol)
+				.containsExactly("AAA", "CCC", "BBB");
+		assertThat(performance.getTopLosers()).extracting(HoldingPerformanceDTO::getSymbol)
+				.containsExactly("BBB", "CCC", "AAA");
+		assertThat(performance.getTopLosers().get(0).getProfitLoss()).isEqualByComparingTo("-100");
+	}
+
+	@Test
+	void portfolioWithoutPositionsUsesStoredValueFromTotalsRow() {
+		PortfolioPerformanceRow totals = mock(PortfolioPerformanceRow.class);
+		when(totals.getPortfolioValue()).thenReturn(new BigDecimal("0"));
+		when(totals.getTotalBuy()).thenReturn(new BigDecimal("500"));
+		when(totals.getTotalSell()).thenReturn(new BigDecimal("600"));
+		when(portfolioRepository.findPerformanceRows(PORTFOLIO_ID)).thenReturn(List.of(totals));
+
+		PortfolioPerformanceDTO performance = portfolioService.calculatePerformance(PORTFOLIO_ID);
+
+		assertThat(performance.getCurrentValue()).isEqualByComparingTo("0");
+		assertThat(performance.getTotalInvested()).isEqualByComparingTo("-100");
+		assertThat(performance.getProfitLossPercent()).isEqualByComparingTo("0");
+		assertThat(performance.getStockAllocation()).isEmpty();
+		assertThat(performance.getTopGainers()).isEmpty();
+	}
+
+	@Test
+	void missingPortfolioIsNotFound() {
+		when(portfolioRepository.findPerformanceRows(PORTFOLIO_ID)).thenReturn(List.of());
+
+		assertThatThrownBy(() -> portfolioService.calculatePerformance(PORTFOLIO_ID))
+				.isInstanceOf(ResourceNotFoundException.class);
+	}
+
+	@Test
+	void recalculatedValueIsWrittenByDedicatedUpdate() {
+		Portfolio portfolio = new Portfolio();
+		portfolio.setId(PORTFOLIO_ID);
+		when(portfolioRepository.findById(PORTFOLIO_ID)).thenReturn(Optional.of(portfolio));
+		when(holdingRepository.calculateTotalHoldingsValue(PORTFOLIO_ID)).thenReturn(new BigDecimal("1250"));
+
+		Portfolio updated = portfolioService.updatePortfolioValue(PORTFOLIO_ID);
+
+		// total_value не обновляется при сохранении сущности
+		assertThat(updated.getTotalValue()).isEqualByComparingTo("1250");
+		verify(portfolioRepository).updateTotalValue(PORTFOLIO_ID, new BigDecimal("1250"));
+		verify(portfolioRepository, never()).save(any());
+	}
+
+	/**
+	 * Строка позиции; итоги сделок: покупки на 3000, продажи на 500
+	 */
+	private static PortfolioPerformanceRow position(String symbol, String sector, int quantity,
+			String averagePrice, String currentPrice, long gainRank, long lossRank) {
+		BigDecimal price = new BigDecimal(currentPrice);
+		PortfolioPerformanceRow row = mock(PortfolioPerformanceRow.class);
+		when(row.getPortfolioValue()).thenReturn(new BigDecimal("2900"));
+		when(row.getTotalBuy()).thenReturn(new BigDecimal("3000"));
+		when(row.getTotalSell()).thenReturn(new BigDecimal("500"));
+		when(row.getSymbol()).thenReturn(symbol);
+		when(row.getName()).thenReturn(symbol + " Inc.");
+		when(row.getSector()).thenReturn(sector);
+		when(row.getQuantity()).thenReturn(quantity);
+		when(row.getAveragePrice()).thenReturn(new BigDecimal(averagePrice));
+		when(row.getCurrentPrice()).thenReturn(price);
+		when(row.getCurrentValue()).thenReturn(price.multiply(BigDecimal.valueOf(quantity)));
+		when(row.getGainRank()).thenReturn(gainRank);
+		when(row.getLossRank()).thenReturn(lossRank);
+		return row;
+	}
+}
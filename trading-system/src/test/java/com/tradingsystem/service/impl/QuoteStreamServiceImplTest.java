@@ -0,0 +1,240 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.tradingsystem.model.dto.QuoteSnapshotDTO;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.service.alert.PriceAlertDispatcher;
+
+class QuoteStreamServiceImplTest {
+
+	private static final Long USER_ID = 7L;
+
+	private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+	private QuoteStreamServiceImpl quoteStream;
+
+	@BeforeEach
+	void setUp() {
+		quoteStream = new QuoteStreamServiceImpl(mock(PriceAlertDispatcher.class), 1) {
+			@Override
+			SseEmitter createEmitter() {
+				RecordingEmitter emitter = new RecordingEmitter();
+				emitters.add(emitter);
+				return emitter;
+			}
+		};
+		ReflectionTestUtils.setField(quoteStream, "maxConnectionsPerUser", 5);
+		ReflectionTestUtils.setField(quoteStream, "timeout", 60_000L);
+		ReflectionTestUtils.setField(quoteStream, "heartbeatInterval", 60_000L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		quoteStream.shutdown();
+	}
+
+	@Test
+	void snapshotCarriesKnownPricesInSlotOrder() {
+		RecordingEmitter emitter = subscribe(stock(1L, "AAA", "10"), stock(2L, "BBB", null));
+
+		assertThat(emitter.events).hasSize(1);
+		Event snapshot = emitter.events.get(0);
+		assertThat(snapshot.name).isEqualTo("snapshot");
+		QuoteSnapshotDTO dto = (QuoteSnapshotDTO) snapshot.data;
+		assertThat(dto.getStockIds()).containsExactly(1L, 2L);
+		assertThat(dto.getPrices()).containsExactly(100_000L, null);
+	}
+
+	@Test
+	void deltaFrameSendsChangeSinceLastSentPrice() throws InterruptedException {
+		RecordingEmitter emitter = subscribe(stock(1L, "AAA", "10"), stock(2L, "BBB", null));
+
+		quoteStream.onPriceUpdate(1L, new BigDecimal("10.25"));
+		assertThat(flushAndAwaitFrame(emitter)).isEqualTo("0:2500");
+
+		quoteStream.onPriceUpdate(1L, new BigDecimal("10.20"));
+		quoteStream.onPriceUpdate(2L, new BigDecimal("5"));
+		// Первая известная цена слота передается целиком
+		assertThat(flushAndAwaitFrame(emitter)).isEqualTo("0:-500,1=50000");
+	}
+
+	@Test
+	void ticksBetweenFlushesAreConflatedToLatestPrice() throws InterruptedException {
+		RecordingEmitter emitter = subscribe(stock(1L, "AAA", "10"));
+
+		quoteStream.onPriceUpdate(1L, new BigDecimal("10.10"));
+		quoteStream.onPriceUpdate(1L, new BigDecimal("10.70"));
+		quoteStream.onPriceUpdate(1L, new BigDecimal("10.30"));
+
+		assertThat(flushAndAwaitFrame(emitter)).isEqualTo("0:3000");
+		assertThat(emitter.frames()).hasSize(1);
+
+		// Изменение считается от цены, отправленной в прошлом кадре, а не от промежуточных тиков
+		quoteStream.onPriceUpdate(1L, new BigDecimal("10.90"));
+		quoteStream.onPriceUpdate(1L, new BigDecimal("10.30"));
+		quoteStream.onPriceUpdate(1L, new BigDecimal("10.31"));
+		assertThat(flushAndAwaitFrame(emitter)).isEqualTo("0:100");
+		assertThat(emitter.frames()).hasSize(2);
+	}
+
+	@Test
+	void duplicateWatchlistStockGetsOneSlot() throws InterruptedException {
+		RecordingEmitter emitter = subscribe(stock(1L, "AAA", "10"), stock(2L, "BBB", "20"), stock(1L, "AAA", "10"));
+
+		assertThat(((QuoteSnapshotDTO) emitter.events.get(0).data).getStockIds()).containsExactly(1L, 2L);
+
+		quoteStream.onPriceUpdate(1L, new BigDecimal("11"));
+		assertThat(flushAndAwaitFrame(emitter)).isEqualTo("0:10000");
+	}
+
+	@Test
+	void connectionLimitHoldsUnderConcurrentSubscribes() throws InterruptedException {
+		ReflectionTestUtils.setField(quoteStream, "maxConnectionsPerUser", 3);
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger opened = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+
+		for (int i = 0; i < 8; i++) {
+			clients.execute(() -> {
+				try {
+					start.await();
+					quoteStream.subscribe(USER_ID, List.of(stock(1L, "AAA", "10")));
+					opened.incrementAndGet();
+				} catch (IllegalStateException e) {
+					rejected.incrementAndGet();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		start.countDown();
+		clients.shutdown();
+		assertThat(clients.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(opened.get()).isEqualTo(3);
+		assertThat(rejected.get()).isEqualTo(5);
+		assertThat(quoteStream.getSubscriberCount()).isEqualTo(3);
+	}
+
+	@Test
+	void closedStreamReleasesConnectionSlot() throws InterruptedException {
+		ReflectionTestUtils.setField(quoteStream, "maxConnectionsPerUser", 1);
+		RecordingEmitter emitter = subscribe(stock(1L, "AAA", "10"));
+		assertThatThrownBy(() -> quoteStream.subscribe(USER_ID, List.of(stock(1L, "AAA", "10"))))
+				.isInstanceOf(IllegalStateException.class);
+
+		// Клиент отключился: следующая отправка завершается ошибкой и снимает подписчика
+		emitter.disconnected = true;
+		quoteStream.onPriceUpdate(1L, new BigDecimal("11"));
+		flushUntil(() -> quoteStream.getSubscriberCount() == 0);
+
+		subscribe(stock(1L, "AAA", "11"));
+		assertThat(quoteStream.getSubscriberCount()).isEqualTo(1);
+	}
+
+	private RecordingEmitter subscribe(Stock... stocks) {
+		int before = emitters.size();
+		quoteStream.subscribe(USER_ID, Arrays.asList(stocks));
+		return emitters.get(before);
+	}
+
+	private String flushAndAwaitFrame(RecordingEmitter emitter) throws InterruptedException {
+		int before = emitter.frames().size();
+		flushUntil(() -> emitter.frames().size() > before);
+		List<String> frames = emitter.frames();
+		return frames.get(frames.size() - 1);
+	}
+
+	/**
+	 * Повторяет рассылку, пока не выполнится условие: изменение, пришедшее во время отправки,
+	 * ставится в очередь уже после нее и уходит при следующей рассылке
+	 */
+	private void flushUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			quoteStream.flush();
+			if (System.nanoTime() - deadline > 0) {
+				throw new AssertionError("Condition not met within 5 seconds");
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	private static Stock stock(Long id, String symbol, String price) {
+		Stock stock = new Stock();
+		stock.setId(id);
+		stock.setSymbol(symbol);
+		stock.setCurrentPrice(price != null ? new BigDecimal(price) : null);
+		return stock;
+	}
+
+	private record Event(String name, Object data) {
+	}
+
+	/**
+	 * Поток событий без HTTP-ответа: запоминает имя и данные каждого отправленного события
+	 */
+	private static final class RecordingEmitter extends SseEmitter {
+
+		private final List<Event> events = new CopyOnWriteArrayList<>();
+		private volatile boolean disconnected;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (disconnected) {
+				throw new IOException("Broken pipe");
+			}
+			// Служебный текст события заканчивается на "data:", следующая часть - данные
+			String name = null;
+			Object data = null;
+			boolean dataFollows = false;
+			for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+				Object value = part.getData();
+				if (dataFollows) {
+					data = value;
+					dataFollows = false;
+				} else if (value instanceof String text) {
+					int eventLine = text.indexOf("event:");
+					if (eventLine >= 0) {
+						name = text.substring(eventLine + 6, text.indexOf('\n', eventLine));
+					}
+					dataFollows = text.endsWith("data:");
+				}
+			}
+			events.add(new Event(name, data));
+		}
+
+		private List<String> frames() {
+			List<String> frames = new ArrayList<>();
+			for (Event event : events) {
+				if ("q".equals(event.name)) {
+					frames.add((String) event.data);
+				}
+			}
+			return frames;
+		}
+	}
+}
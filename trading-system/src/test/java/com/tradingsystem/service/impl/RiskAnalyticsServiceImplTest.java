@@ -0,0 +1,177 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.tradingsystem.model.dto.PortfolioRiskDTO;
+import com.tradingsystem.model.entity.Holding;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.repository.StockHistoricalDataRepository;
+import com.tradingsystem.repository.StockRepository;
+import com.tradingsystem.service.index.PositionBook;
+
+class RiskAnalyticsServiceImplTest {
+
+	private static final Long PORTFOLIO_ID = 1L;
+	private static final int DAYS = 253;
+
+	private HoldingRepository holdingRepository;
+	private StockHistoricalDataRepository historicalDataRepository;
+	private PositionBook positionBook;
+	private RiskAnalyticsServiceImpl riskService;
+
+	@BeforeEach
+	void setUp() {
+		holdingRepository = mock(HoldingRepository.class);
+		historicalDataRepository = mock(StockHistoricalDataRepository.class);
+		positionBook = new PositionBook(mock(HoldingRepository.class));
+		riskService = new RiskAnalyticsServiceImpl(holdingRepository, mock(StockRepository.class),
+				historicalDataRepository, positionBook, mock(PlatformTransactionManager.class), 2);
+		ReflectionTestUtils.setField(riskService, "lookbackDays", 252);
+		ReflectionTestUtils.setField(riskService, "confidenceLevel", 0.95);
+		ReflectionTestUtils.setField(riskService, "riskFreeRate", 0.04);
+		ReflectionTestUtils.setField(riskService, "benchmarkSymbol", "SPY");
+		ReflectionTestUtils.setField(riskService, "simulations", 100_000);
+		ReflectionTestUtils.setField(riskService, "cacheTtlSeconds", 3600L);
+
+		when(holdingRepository.findByPortfolioId(PORTFOLIO_ID)).thenReturn(List.of(holding(10L, 50), holding(11L, 50)));
+	}
+
+	@AfterEach
+	void tearDown() {
+		riskService.shutdown();
+	}
+
+	@Test
+	void monteCarloMatchesParametricRiskForNormalReturns() {
+		givenPrices(new Random(2), false);
+
+		PortfolioRiskDTO risk = riskService.calculateRisk(PORTFOLIO_ID);
+
+		// Сценарии моделируются заново, а не выбираются из 252 дней истории
+		double parametric = risk.getParametricVar().doubleValue();
+		assertThat(risk.getMonteCarloVar().doubleValue()).isCloseTo(parametric, within(parametric * 0.25));
+		assertThat(risk.getMonteCarloCvar()).isGreaterThan(risk.getMonteCarloVar());
+		assertThat(tailRatio(risk)).isLessThan(1.3);
+	}
+
+	@Test
+	void fatTailedReturnsWidenMonteCarloTail() {
+		givenPrices(new Random(2), true);
+
+		PortfolioRiskDTO risk = riskService.calculateRisk(PORTFOLIO_ID);
+
+		// Для нормального распределения CVaR/VaR на уровне 95% равно 1.25
+		assertThat(tailRatio(risk)).isGreaterThan(1.3);
+	}
+
+	@Test
+	void priceTicksDoNotInvalidateCachedRisk() {
+		givenPrices(new Random(2), false);
+		positionBook.onPositionChanged(PORTFOLIO_ID, 10L, 50, BigDecimal.TEN, BigDecimal.TEN);
+
+		PortfolioRiskDTO first = riskService.calculateRisk(PORTFOLIO_ID);
+		positionBook.onPriceUpdate(10L, new BigDecimal("10.5"));
+		positionBook.onPriceUpdate(10L, new BigDecimal("10.4"));
+
+		assertThat(riskService.calculateRisk(PORTFOLIO_ID)).isSameAs(first);
+		verify(holdingRepository, times(1)).findByPortfolioId(PORTFOLIO_ID);
+	}
+
+	@Test
+	void positionChangeInvalidatesCachedRisk() {
+		givenPrices(new Random(2), false);
+		positionBook.onPositionChanged(PORTFOLIO_ID, 10L, 50, BigDecimal.TEN, BigDecimal.TEN);
+		PortfolioRiskDTO first = riskService.calculateRisk(PORTFOLIO_ID);
+
+		positionBook.onPositionChanged(PORTFOLIO_ID, 10L, 60, BigDecimal.TEN, BigDecimal.TEN);
+
+		assertThat(riskService.calculateRisk(PORTFOLIO_ID)).isNotSameAs(first);
+		verify(holdingRepository, times(2)).findByPortfolioId(PORTFOLIO_ID);
+	}
+
+	@Test
+	void expiredCacheIntervalRecalculates() {
+		givenPrices(new Random(2), false);
+		ReflectionTestUtils.setField(riskService, "cacheTtlSeconds", 0L);
+
+		riskService.calculateRisk(PORTFOLIO_ID);
+		sleepPastMillisecond();
+		riskService.calculateRisk(PORTFOLIO_ID);
+
+		verify(holdingRepository, times(2)).findByPortfolioId(PORTFOLIO_ID);
+	}
+
+	/**
+	 * Дневные ряды двух акций с волатильностью 1% и корреляцией 0.5;
+	 * с тяжелыми хвостами инновации делятся на √(χ²₃/3)
+	 */
+	private void givenPrices(Random random, boolean fatTails) {
+		List<Object[]> rows = new ArrayList<>();
+		LocalDate start = LocalDate.now().minusDays(DAYS);
+		double first = 100;
+		double second = 50;
+		for (int t = 0; t < DAYS; t++) {
+			LocalDate date = start.plusDays(t);
+			rows.add(new Object[] {10L, date, BigDecimal.valueOf(first)});
+			rows.add(new Object[] {11L, date, BigDecimal.valueOf(second)});
+
+			double common = random.nextGaussian();
+			double own = random.nextGaussian();
+			double mixing = fatTails ? Math.sqrt(3 / chiSquare3(random)) / Math.sqrt(3) : 1;
+			first *= 1 + 0.01 * mixing * common;
+			second *= 1 + 0.01 * mixing * (0.5 * common + Math.sqrt(0.75) * own);
+		}
+		when(historicalDataRepository.findAdjustedClosePrices(any(), any())).thenReturn(rows);
+	}
+
+	private static double chiSquare3(Random random) {
+		double sum = 0;
+		for (int i = 0; i < 3; i++) {
+			double x = random.nextGaussian();
+			sum += x * x;
+		}
+		return sum;
+	}
+
+	private static double tailRatio(PortfolioRiskDTO risk) {
+		return risk.getMonteCarloCvar().doubleValue() / risk.getMonteCarloVar().doubleValue();
+	}
+
+	private static void sleepPastMillisecond() {
+		try {
+			Thread.sleep(2);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Holding holding(Long stockId, int quantity) {
+		Stock stock = new Stock();
+		stock.setId(stockId);
+		stock.setCurrentPrice(BigDecimal.TEN);
+		Holding holding = new Holding();
+		holding.setStock(stock);
+		holding.setQuantity(quantity);
+		holding.setAveragePrice(BigDecimal.TEN);
+		return holding;
+	}
+}
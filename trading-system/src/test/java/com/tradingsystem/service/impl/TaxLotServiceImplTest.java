@@ -0,0 +1,302 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.tradingsystem.model.entity.Holding;
+import com.tradingsystem.model.entity.LotDisposal;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.entity.RealizedGain;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.entity.TaxLot;
+import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.enums.LotMethod;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.repository.LotDisposalRepository;
+import com.tradingsystem.repository.RealizedGainRepository;
+import com.tradingsystem.repository.TaxLotRepository;
+import com.tradingsystem.repository.TradeRepository;
+
+class TaxLotServiceImplTest {
+
+	private static final LocalDateTime START = LocalDateTime.of(2024, 1, 2, 10, 0);
+
+	private TaxLotRepository taxLotRepository;
+	private LotDisposalRepository lotDisposalRepository;
+	private RealizedGainRepository realizedGainRepository;
+	private HoldingRepository holdingRepository;
+	private TradeRepository tradeRepository;
+	private TaxLotServiceImpl taxLotService;
+
+	private Portfolio portfolio;
+	private Stock stock;
+
+	@BeforeEach
+	void setUp() {
+		taxLotRepository = mock(TaxLotRepository.class);
+		lotDisposalRepository = mock(LotDisposalRepository.class);
+		realizedGainRepository = mock(RealizedGainRepository.class);
+		holdingRepository = mock(HoldingRepository.class);
+		tradeRepository = mock(TradeRepository.class);
+		taxLotService = new TaxLotServiceImpl(taxLotRepository, lotDisposalRepository, realizedGainRepository,
+				holdingRepository, tradeRepository);
+
+		portfolio = new Portfolio();
+		portfolio.setId(1L);
+		stock = new Stock();
+		stock.setId(2L);
+		stock.setSymbol("ACME");
+
+		when(taxLotRepository.save(any(TaxLot.class))).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@Test
+	void fifoConsumesOldestLotsFirstAndSplitsBoundaryLot() {
+		TaxLot oldest = lot(11L, 0, 10, "100");
+		TaxLot middle = lot(12L, 1, 10, "110");
+		TaxLot newest = lot(13L, 2, 10, "130");
+		givenOpenLots(holding(30, "113.3333"), oldest, middle, newest);
+
+		BigDecimal remainingCost = taxLotService.consumeLots(sell(15, "120"), LotMethod.FIFO, null);
+
+		assertThat(oldest.getRemainingQuantity()).isZero();
+		assertThat(middle.getRemainingQuantity()).isEqualTo(5);
+		assertThat(newest.getRemainingQuantity()).isEqualTo(10);
+		// 5 * 110 + 10 * 130
+		assertThat(remainingCost).isEqualByComparingTo("1850");
+
+		List<LotDisposal> disposals = savedDisposals();
+		assertThat(disposals).extracting(disposal -> disposal.getLot().getId()).containsExactly(11L, 12L);
+		assertThat(disposals).extracting(LotDisposal::getQuantity).containsExactly(10, 5);
+		assertThat(disposals.get(0).getRealizedProfitLoss()).isEqualByComparingTo("200");
+		assertThat(disposals.get(1).getRealizedProfitLoss()).isEqualByComparingTo("50");
+
+		RealizedGain gain = savedGain();
+		assertThat(gain.getQuantitySold()).isEqualTo(15L);
+		assertThat(gain.getProceeds()).isEqualByComparingTo("1800");
+		assertThat(gain.getCostBasis()).isEqualByComparingTo("1550");
+		assertThat(gain.getRealizedProfitLoss()).isEqualByComparingTo("250");
+	}
+
+	@Test
+	void fifoSkipsAlreadyConsumedPartOfLot() {
+		TaxLot partlySold = lot(11L, 0, 10, "100");
+		partlySold.setRemainingQuantity(4);
+		TaxLot next = lot(12L, 1, 10, "90");
+		givenOpenLots(holding(14, "94.2857"), partlySold, next);
+
+		taxLotService.consumeLots(sell(6, "95"), LotMethod.FIFO, null);
+
+		assertThat(partlySold.getRemainingQuantity()).isZero();
+		assertThat(next.getRemainingQuantity()).isEqualTo(8);
+		// 4 * (95 - 100) + 2 * (95 - 90)
+		assertThat(savedGain().getRealizedProfitLoss()).isEqualByComparingTo("-10");
+	}
+
+	@Test
+	void lifoConsumesNewestLotsFirst() {
+		TaxLot oldest = lot(11L, 0, 10, "100");
+		TaxLot newest = lot(12L, 1, 10, "130");
+		givenOpenLots(holding(20, "115"), oldest, newest);
+
+		taxLotService.consumeLots(sell(12, "120"), LotMethod.LIFO, null);
+
+		assertThat(newest.getRemainingQuantity()).isZero();
+		assertThat(oldest.getRemainingQuantity()).isEqualTo(8);
+	}
+
+	@Test
+	void positionWithoutLotsIsConsumedFromCatchUpLotFirst() {
+		// Позиция 15 акций, лотами покрыто только 10: недостающие 5 открываются лотом по средней цене
+		TaxLot tracked = lot(11L, 3, 10, "100");
+		givenOpenLots(holding(15, "96"), tracked);
+
+		BigDecimal remainingCost = taxLotService.consumeLots(sell(7, "110"), LotMethod.FIFO, null);
+
+		List<LotDisposal> disposals = savedDisposals();
+		assertThat(disposals).extracting(LotDisposal::getQuantity).containsExactly(5, 2);
+		assertThat(disposals.get(0).getCostPrice()).isEqualByComparingTo("96");
+		assertThat(disposals.get(0).getLot().getOpenDate()).isEqualTo(tracked.getOpenDate());
+		assertThat(tracked.getRemainingQuantity()).isEqualTo(8);
+		assertThat(remainingCost).isEqualByComparingTo("800");
+	}
+
+	@Test
+	void sellingMoreThanOpenLotsIsRejected() {
+		givenOpenLots(holding(10, "100"), lot(11L, 0, 10, "100"));
+
+		assertThatThrownBy(() -> taxLotService.consumeLots(sell(11, "120"), LotMethod.FIFO, null))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("Available: 10");
+		verify(lotDisposalRepository, never()).saveAll(any());
+		verify(realizedGainRepository, never()).save(any());
+	}
+
+	@Test
+	void catchUpLotOpensAtFirstTradeOfStock() {
+		givenOpenLots(holding(10, "80"));
+		when(tradeRepository.findFirstTradeTimestamp(portfolio.getId(), stock.getId())).thenReturn(START.minusDays(30));
+
+		taxLotService.consumeLots(sell(3, "90"), LotMethod.FIFO, null);
+
+		LotDisposal disposal = savedDisposals().get(0);
+		assertThat(disposal.getLot().getOpenDate()).isEqualTo(START.minusDays(30));
+		assertThat(disposal.getLot().getTrade()).isNull();
+		assertThat(disposal.getRealizedProfitLoss()).isEqualByComparingTo("30");
+	}
+
+	@Test
+	void catchUpLotWithoutTradesOpensAtPortfolioCreation() {
+		portfolio.setCreationDate(START.minusYears(2));
+		givenOpenLots(holding(10, "80"));
+
+		taxLotService.consumeLots(sell(3, "90"), LotMethod.FIFO, null);
+
+		assertThat(savedDisposals().get(0).getLot().getOpenDate()).isEqualTo(START.minusYears(2));
+	}
+
+	@Test
+	void reversedLegacySaleReturnsSharesToCatchUpLotAtAverageCost() {
+		// Продажа 4 акций до учета лотов: в позиции осталось 6 по средней цене 96
+		givenOpenLots(holding(6, "96"));
+		when(tradeRepository.findFirstTradeTimestamp(portfolio.getId(), stock.getId())).thenReturn(START.minusDays(30));
+
+		BigDecimal restoredCost = taxLotService.reverseDisposals(sell(4, "120"));
+
+		assertThat(restoredCost).isEqualByComparingTo("384");
+		TaxLot catchUp = savedLots().get(0);
+		assertThat(catchUp.getQuantity()).isEqualTo(10);
+		assertThat(catchUp.getRemainingQuantity()).isEqualTo(10);
+		assertThat(catchUp.getCostPrice()).isEqualByComparingTo("96");
+		assertThat(catchUp.getOpenDate()).isEqualTo(START.minusDays(30));
+		verify(realizedGainRepository, never()).save(any());
+	}
+
+	@Test
+	void reversedLegacySaleOfClosedPositionOpensLotAtOldestDate() {
+		TaxLot tracked = trackedLot(11L, 5, 10, "100");
+		givenOpenLots(null, tracked);
+
+		BigDecimal restoredCost = taxLotService.reverseDisposals(sell(4, "120"));
+
+		// Себестоимость закрытой позиции неизвестна: акции возвращаются по цене продажи
+		assertThat(restoredCost).isEqualByComparingTo("480");
+		TaxLot restored = savedLots().get(0);
+		assertThat(restored.getTrade()).isNull();
+		assertThat(restored.getQuantity()).isEqualTo(4);
+		assertThat(restored.getOpenDate()).isEqualTo(tracked.getOpenDate());
+	}
+
+	@Test
+	void removedLegacyBuyReducesOnlyCatchUpLots() {
+		TaxLot tracked = trackedLot(11L, 5, 10, "100");
+		givenOpenLots(holding(15, "96"), tracked);
+
+		BigDecimal remainingCost = taxLotService.removeLot(buy(200L, 5));
+
+		assertThat(tracked.getQuantity()).isEqualTo(10);
+		assertThat(tracked.getRemainingQuantity()).isEqualTo(10);
+		assertThat(remainingCost).isEqualByComparingTo("1000");
+		ArgumentCaptor<TaxLot> deleted = ArgumentCaptor.forClass(TaxLot.class);
+		verify(taxLotRepository).delete(deleted.capture());
+		assertThat(deleted.getValue().getTrade()).isNull();
+	}
+
+	@Test
+	void removingLegacyBuyWhoseSharesWereSoldIsRejected() {
+		// Догоняющий лот на 2 акции: остальные акции покупки уже проданы
+		givenOpenLots(holding(12, "96"), trackedLot(11L, 5, 10, "100"));
+
+		assertThatThrownBy(() -> taxLotService.removeLot(buy(200L, 5)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("already been sold");
+	}
+
+	private void givenOpenLots(Holding holding, TaxLot... lots) {
+		when(taxLotRepository.findOpenLotsForUpdate(portfolio.getId(), stock.getId()))
+				.thenReturn(new ArrayList<>(List.of(lots)));
+		when(holdingRepository.findByPortfolioIdAndStockId(portfolio.getId(), stock.getId()))
+				.thenReturn(Optional.ofNullable(holding));
+	}
+
+	private TaxLot lot(Long id, int dayOffset, int quantity, String costPrice) {
+		return new TaxLot(id, portfolio, stock, null, START.plusDays(dayOffset), quantity, quantity, new BigDecimal(costPrice));
+	}
+
+	private TaxLot trackedLot(Long id, int dayOffset, int quantity, String costPrice) {
+		TaxLot lot = lot(id, dayOffset, quantity, costPrice);
+		lot.setTrade(buy(id + 1000, quantity));
+		return lot;
+	}
+
+	private Trade buy(Long id, int quantity) {
+		Trade trade = new Trade();
+		trade.setId(id);
+		trade.setPortfolio(portfolio);
+		trade.setStock(stock);
+		trade.setType(TradeType.BUY);
+		trade.setQuantity(quantity);
+		trade.setPrice(new BigDecimal("100"));
+		trade.setTimestamp(START);
+		return trade;
+	}
+
+	private Holding holding(int quantity, String averagePrice) {
+		Holding holding = new Holding();
+		holding.setPortfolio(portfolio);
+		holding.setStock(stock);
+		holding.setQuantity(quantity);
+		holding.setAveragePrice(new BigDecimal(averagePrice));
+		return holding;
+	}
+
+	private Trade sell(int quantity, String price) {
+		Trade trade = new Trade();
+		trade.setId(100L);
+		trade.setPortfolio(portfolio);
+		trade.setStock(stock);
+		trade.setType(TradeType.SELL);
+		trade.setQuantity(quantity);
+		trade.setPrice(new BigDecimal(price));
+		trade.setTimestamp(START.plusDays(10));
+		return trade;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<LotDisposal> savedDisposals() {
+		ArgumentCaptor<Iterable<LotDisposal>> captor = ArgumentCaptor.forClass(Iterable.class);
+		verify(lotDisposalRepository).saveAll(captor.capture());
+		List<LotDisposal> disposals = new ArrayList<>();
+		captor.getValue().forEach(disposals::add);
+		return disposals;
+	}
+
+	private List<TaxLot> savedLots() {
+		ArgumentCaptor<TaxLot> captor = ArgumentCaptor.forClass(TaxLot.class);
+		verify(taxLotRepository, atLeastOnce()).save(captor.capture());
+		return captor.getAllValues();
+	}
+
+	private RealizedGain savedGain() {
+		ArgumentCaptor<RealizedGain> captor = ArgumentCaptor.forClass(RealizedGain.class);
+		verify(realizedGainRepository).save(captor.capture());
+		return captor.getValue();
+	}
+}
@@ -0,0 +1,119 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import com.tradingsystem.model.dto.TradePageDTO;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.repository.projection.TradeHistoryRow;
+
+class TradeHistoryServiceImplTest {
+
+	private static final Long USER_ID = 7L;
+	private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 6, 12, 0);
+
+	private TradeRepository tradeRepository;
+	private TradeHistoryServiceImpl historyService;
+	private List<TradeHistoryRow> history;
+
+	@BeforeEach
+	void setUp() {
+		tradeRepository = mock(TradeRepository.class);
+		historyService = new TradeHistoryServiceImpl(tradeRepository);
+
+		// Пять сделок в полдень из разных портфелей и по одной до и после
+		history = new ArrayList<>();
+		history.add(row(1L, 10L, NOON.minusMinutes(1)));
+		for (long id = 2; id <= 6; id++) {
+			history.add(row(id, 10L + id % 2, NOON));
+		}
+		history.add(row(7L, 11L, NOON.plusMinutes(1)));
+
+		when(tradeRepository.findUserHistoryPage(eq(USER_ID), any()))
+				.thenAnswer(invocation -> keyset(null, null, invocation.getArgument(1)));
+		when(tradeRepository.findUserHistoryPageAfter(eq(USER_ID), any(), any(), any()))
+				.thenAnswer(invocation -> keyset(invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+	}
+
+	@Test
+	void pagesSplitTiedTimestampsWithoutGapsOrDuplicates() {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			TradePageDTO page = historyService.getUserTradePage(USER_ID, cursor, 2);
+			page.getItems().forEach(trade -> ids.add(trade.getId()));
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		// Граница страниц проходит внутри группы сделок с одинаковым временем
+		assertThat(ids).containsExactly(7L, 6L, 5L, 4L, 3L, 2L, 1L);
+		assertThat(pages).isEqualTo(4);
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		TradePageDTO page = historyService.getUserTradePage(USER_ID, null, 7);
+
+		assertThat(page.getItems()).hasSize(7);
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void userHistoryIsReadByOwnerNotByPortfolioList() {
+		historyService.getUserTradePage(USER_ID, null, 2);
+
+		verify(tradeRepository, never()).findHistoryPage(any(), any(Pageable.class));
+	}
+
+	@Test
+	void malformedCursorIsRejected() {
+		assertThatThrownBy(() -> historyService.getUserTradePage(USER_ID, "bm90LWEtY3Vyc29y", 2))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("cursor");
+	}
+
+	/**
+	 * Условие и порядок запроса по курсору: (timestamp, id) строго меньше позиции курсора
+	 */
+	private List<TradeHistoryRow> keyset(LocalDateTime timestamp, Long id, Pageable pageable) {
+		return history.stream()
+				.filter(row -> timestamp == null || !row.getTimestamp().isAfter(timestamp)
+						&& (row.getTimestamp().isBefore(timestamp) || row.getId() < id))
+				.sorted(Comparator.comparing(TradeHistoryRow::getTimestamp).thenComparing(TradeHistoryRow::getId).reversed())
+				.limit(pageable.getPageSize())
+				.collect(Collectors.toList());
+	}
+
+	private static TradeHistoryRow row(Long id, Long portfolioId, LocalDateTime timestamp) {
+		TradeHistoryRow row = mock(TradeHistoryRow.class);
+		when(row.getId()).thenReturn(id);
+		when(row.getPortfolioId()).thenReturn(portfolioId);
+		when(row.getStockId()).thenReturn(1L);
+		when(row.getStockSymbol()).thenReturn("AAA");
+		when(row.getType()).thenReturn(TradeType.BUY);
+		when(row.getQuantity()).thenReturn(1);
+		when(row.getPrice()).thenReturn(BigDecimal.TEN);
+		when(row.getTimestamp()).thenReturn(timestamp);
+		return row;
+	}
+}
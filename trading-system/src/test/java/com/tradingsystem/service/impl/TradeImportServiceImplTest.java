@@ -0,0 +1,283 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradingsystem.model.dto.TradeImportResultDTO;
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.enums.LotMethod;
+import com.tradingsystem.model.enums.TradeImportFormat;
+import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.service.index.PerformanceCache;
+import com.tradingsystem.service.index.PortfolioExecutionLane;
+import com.tradingsystem.service.index.PortfolioLeaderboard;
+import com.tradingsystem.service.index.PositionBook;
+import com.tradingsystem.service.interfaces.PortfolioHistoryService;
+import com.tradingsystem.service.journal.TradeJournal;
+
+/**
+ * Импорт сделок над заглушкой JDBC: запросы различаются по тексту SQL, строки результата
+ * задаются позициями, лотами и резервом заявок
+ */
+class TradeImportServiceImplTest {
+
+	private static final Long USER_ID = 7L;
+	private static final String HEADER = "portfolio_id,symbol,type,quantity,price,timestamp\n";
+
+	private JdbcTemplate jdbcTemplate;
+	private PositionBook positionBook;
+	private PortfolioLeaderboard portfolioLeaderboard;
+	private PortfolioExecutionLane executionLane;
+	private TradeImportServiceImpl importService;
+
+	/** Существующие позиции: [portfolioId, stockId, holdingId, quantity, averagePrice] */
+	private final List<Object[]> holdings = new ArrayList<>();
+	/** Резерв активных заявок на продажу: [portfolioId, stockId, reserved] */
+	private final List<Object[]> reserves = new ArrayList<>();
+	private final AtomicBoolean insideLane = new AtomicBoolean();
+	private final List<String> lockedOutsideLane = new ArrayList<>();
+	private long nextId = 1000;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() throws SQLException {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		positionBook = mock(PositionBook.class);
+		portfolioLeaderboard = mock(PortfolioLeaderboard.class);
+		executionLane = mock(PortfolioExecutionLane.class);
+		PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+
+		importService = new TradeImportServiceImpl(jdbcTemplate, new ObjectMapper(), portfolioRepository, positionBook,
+				mock(PortfolioHistoryService.class), mock(PerformanceCache.class), portfolioLeaderboard, executionLane,
+				mock(PlatformTransactionManager.class), mock(TradeJournal.class));
+		ReflectionTestUtils.setField(importService, "maxRows", 1000);
+		ReflectionTestUtils.setField(importService, "batchSize", 100);
+		ReflectionTestUtils.setField(importService, "defaultLotMethod", LotMethod.FIFO);
+
+		when(portfolioRepository.findByUserId(USER_ID)).thenReturn(List.of(portfolio(1L, false), portfolio(2L, false),
+				portfolio(3L, true)));
+		when(executionLane.execute(any(Collection.class), any(Supplier.class))).thenAnswer(invocation -> {
+			insideLane.set(true);
+			try {
+				return ((Supplier<?>) invocation.getArgument(1)).get();
+			} finally {
+				insideLane.set(false);
+			}
+		});
+
+		givenStocks();
+		givenLockingQueries();
+		givenGeneratedKeys();
+	}
+
+	@Test
+	void rowsAreGroupedByPortfolioAndStock() throws IOException {
+		TradeImportResultDTO result = importCsv(true,
+				"1,AAA,BUY,10,100,2024-05-06 10:00:00",
+				"1,BBB,BUY,5,50,2024-05-06 10:01:00",
+				"2,AAA,BUY,3,100,2024-05-06 10:02:00",
+				"1,AAA,BUY,2,110,2024-05-06 10:03:00");
+
+		assertThat(result.getImportedRows()).isEqualTo(4);
+		assertThat(result.getPortfoliosUpdated()).isEqualTo(2);
+		assertThat(result.getPositionsUpdated()).isEqualTo(3);
+		verify(executionLane).execute(eq(Set.of(1L, 2L)), any());
+		// Пробный импорт ничего не записывает и не публикует
+		verify(jdbcTemplate, never()).batchUpdate(any(PreparedStatementCreator.class),
+				any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+		verify(positionBook, never()).onPositionChanged(any(), any(), anyInt(), any(), any());
+	}
+
+	@Test
+	void oversellIsRejectedWithLineAndReserve() throws IOException {
+		holdings.add(new Object[] {1L, 100L, 50L, 10, new BigDecimal("90")});
+		reserves.add(new Object[] {1L, 100L, 3L});
+
+		TradeImportResultDTO result = importCsv(true,
+				"1,AAA,SELL,8,120,2024-05-06 10:00:00",
+				"1,AAA,SELL,7,120,2024-05-06 10:01:00",
+				"1,AAA,SELL,1,120,2024-05-06 10:02:00");
+
+		// Доступно 10 - 3 в резерве: вторая продажа проходит, после нее остается 0
+		assertThat(result.getImportedRows()).isEqualTo(1);
+		assertThat(result.getFailedRows()).isEqualTo(2);
+		assertThat(result.getErrors()).extracting(TradeImportResultDTO.RowError::getLine).containsExactly(2L, 4L);
+		assertThat(result.getErrors().get(0).getMessage())
+				.isEqualTo("Not enough stocks to sell. Available: 7 (3 reserved by open orders), requested: 8");
+	}
+
+	@Test
+	void positionRowsAreAppliedChronologicallyNotInFileOrder() throws IOException {
+		TradeImportResultDTO result = importCsv(false,
+				"1,AAA,SELL,4,120,2024-05-07 10:00:00",
+				"1,AAA,BUY,10,100,2024-05-06 10:00:00",
+				"1,AAA,SELL,20,120,2024-05-05 10:00:00");
+
+		// Продажа 7 мая видит покупку 6 мая; продажа 5 мая раньше покупки и отклоняется
+		assertThat(result.getImportedRows()).isEqualTo(2);
+		assertThat(result.getErrors()).extracting(TradeImportResultDTO.RowError::getLine).containsExactly(4L);
+
+		ArgumentCaptor<BigDecimal> averagePrice = ArgumentCaptor.forClass(BigDecimal.class);
+		verify(positionBook, times(1)).onPositionChanged(eq(1L), eq(100L), eq(6), averagePrice.capture(), any());
+		assertThat(averagePrice.getValue()).isEqualByComparingTo("100");
+		ArgumentCaptor<BigDecimal> netFlow = ArgumentCaptor.forClass(BigDecimal.class);
+		verify(portfolioLeaderboard).onTrade(eq(1L), netFlow.capture());
+		assertThat(netFlow.getValue()).isEqualByComparingTo("520");
+	}
+
+	@Test
+	void positionsAreLockedInsidePortfolioLane() throws IOException {
+		importCsv(false,
+				"1,AAA,BUY,10,100,2024-05-06 10:00:00",
+				"2,BBB,BUY,5,50,2024-05-06 10:01:00");
+
+		verify(executionLane, times(1)).execute(eq(Set.of(1L, 2L)), any());
+		assertThat(lockedOutsideLane).isEmpty();
+	}
+
+	@Test
+	void sandboxAndUnknownStockRowsAreRejected() throws IOException {
+		TradeImportResultDTO result = importCsv(true,
+				"3,AAA,BUY,10,100,2024-05-06 10:00:00",
+				"1,ZZZ,BUY,10,100,2024-05-06 10:00:00",
+				"1,AAA,HOLD,10,100,2024-05-06 10:00:00");
+
+		assertThat(result.getImportedRows()).isZero();
+		assertThat(result.getErrors()).extracting(TradeImportResultDTO.RowError::getMessage)
+				.containsExactly("type must be BUY or SELL", "Portfolio not found: 3", "Unknown stock symbol: ZZZ");
+		verify(executionLane).execute(eq(Set.of()), any());
+	}
+
+	private TradeImportResultDTO importCsv(boolean dryRun, String... lines) throws IOException {
+		String csv = HEADER + String.join("\n", lines);
+		return importService.importTrades(USER_ID, null, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+				TradeImportFormat.CSV, null, dryRun);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void givenStocks() throws SQLException {
+		Map<String, Object[]> stocks = new HashMap<>();
+		stocks.put("AAA", new Object[] {100L, new BigDecimal("105")});
+		stocks.put("BBB", new Object[] {200L, new BigDecimal("55")});
+		when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(invocation -> {
+			RowMapper<Object> mapper = invocation.getArgument(1);
+			List<Object> mapped = new ArrayList<>();
+			for (Map.Entry<String, Object[]> stock : stocks.entrySet()) {
+				ResultSet rs = mock(ResultSet.class);
+				when(rs.getLong("id")).thenReturn((Long) stock.getValue()[0]);
+				when(rs.getString("symbol")).thenReturn(stock.getKey());
+				when(rs.getBigDecimal("current_price")).thenReturn((BigDecimal) stock.getValue()[1]);
+				mapped.add(mapper.mapRow(rs, mapped.size()));
+			}
+			return mapped;
+		});
+	}
+
+	/**
+	 * Позиции, лоты и резерв читаются с обработчиком строк; запрос определяется по тексту SQL
+	 */
+	private void givenLockingQueries() throws SQLException {
+		doAnswer(invocation -> {
+			String sql = sqlOf(invocation.getArgument(0));
+			RowCallbackHandler handler = invocation.getArgument(1);
+			if (sql.contains("FOR UPDATE") && !insideLane.get()) {
+				lockedOutsideLane.add(sql);
+			}
+			if (sql.contains("FROM holdings")) {
+				for (Object[] holding : holdings) {
+					ResultSet rs = mock(ResultSet.class);
+					when(rs.getLong("portfolio_id")).thenReturn((Long) holding[0]);
+					when(rs.getLong("stock_id")).thenReturn((Long) holding[1]);
+					when(rs.getLong("id")).thenReturn((Long) holding[2]);
+					when(rs.getInt("quantity")).thenReturn((Integer) holding[3]);
+					when(rs.getBigDecimal("average_price")).thenReturn((BigDecimal) holding[4]);
+					handler.processRow(rs);
+				}
+			} else if (sql.contains("FROM trade_orders")) {
+				for (Object[] reserve : reserves) {
+					ResultSet rs = mock(ResultSet.class);
+					when(rs.getLong("portfolio_id")).thenReturn((Long) reserve[0]);
+					when(rs.getLong("stock_id")).thenReturn((Long) reserve[1]);
+					when(rs.getLong("reserved")).thenReturn((Long) reserve[2]);
+					handler.processRow(rs);
+				}
+			}
+			return null;
+		}).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+	}
+
+	/**
+	 * Пакетная вставка с возвратом ключей выдает последовательные ID
+	 */
+	private void givenGeneratedKeys() {
+		when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+				any(KeyHolder.class))).thenAnswer(invocation -> {
+					BatchPreparedStatementSetter setter = invocation.getArgument(1);
+					KeyHolder keyHolder = invocation.getArgument(2);
+					int[] counts = new int[setter.getBatchSize()];
+					for (int i = 0; i < counts.length; i++) {
+						setter.setValues(mock(PreparedStatement.class), i);
+						keyHolder.getKeyList().add(Map.of("id", nextId++));
+						counts[i] = 1;
+					}
+					return counts;
+				});
+	}
+
+	private static String sqlOf(PreparedStatementCreator creator) throws SQLException {
+		Connection connection = mock(Connection.class);
+		List<String> statements = new ArrayList<>();
+		when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+			statements.add(invocation.getArgument(0));
+			return mock(PreparedStatement.class);
+		});
+		creator.createPreparedStatement(connection);
+		return statements.get(0);
+	}
+
+	private static Portfolio portfolio(Long id, boolean sandbox) {
+		Portfolio portfolio = new Portfolio();
+		portfolio.setId(id);
+		portfolio.setSandbox(sandbox);
+		return portfolio;
+	}
+}
@@ -0,0 +1,162 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.tradingsystem.model.entity.Portfolio;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.model.entity.Trade;
+import com.tradingsystem.model.entity.User;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.repository.TradeOrderRepository;
+import com.tradingsystem.repository.TradeRepository;
+import com.tradingsystem.service.index.IdempotencyKeyCache;
+import com.tradingsystem.service.index.PerformanceCache;
+import com.tradingsystem.service.index.PortfolioExecutionLane;
+import com.tradingsystem.service.index.PortfolioLeaderboard;
+import com.tradingsystem.service.index.PositionBook;
+import com.tradingsystem.service.interfaces.HoldingService;
+import com.tradingsystem.service.interfaces.PortfolioHistoryService;
+import com.tradingsystem.service.interfaces.TaxLotService;
+import com.tradingsystem.service.journal.TradeJournal;
+
+/**
+ * Повтор сделки с ключом идемпотентности: тот же запрос возвращает исходную сделку,
+ * другой запрос с тем же ключом отклоняется
+ */
+class TradeServiceImplTest {
+
+	private static final Long PORTFOLIO_ID = 1L;
+	private static final String KEY = "9f1c2a7e-3b4d";
+
+	private TradeRepository tradeRepository;
+	private TaxLotService taxLotService;
+	private PlatformTransactionManager transactionManager;
+	private IdempotencyKeyCache idempotencyKeyCache;
+	private TradeServiceImpl tradeService;
+
+	private Portfolio portfolio;
+	private Stock stock;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		tradeRepository = mock(TradeRepository.class);
+		taxLotService = mock(TaxLotService.class);
+		transactionManager = mock(PlatformTransactionManager.class);
+		idempotencyKeyCache = new IdempotencyKeyCache(tradeRepository, 60, 100);
+
+		PortfolioExecutionLane executionLane = mock(PortfolioExecutionLane.class);
+		when(executionLane.execute(anyLong(), any(Supplier.class)))
+				.thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+
+		tradeService = new TradeServiceImpl(tradeRepository, mock(PortfolioRepository.class), mock(HoldingService.class),
+				mock(PositionBook.class), mock(PortfolioHistoryService.class), mock(PerformanceCache.class),
+				mock(PortfolioLeaderboard.class), taxLotService, executionLane, transactionManager,
+				mock(TradeJournal.class), mock(TradeOrderRepository.class), idempotencyKeyCache);
+
+		User owner = new User();
+		owner.setId(7L);
+		portfolio = new Portfolio();
+		portfolio.setId(PORTFOLIO_ID);
+		portfolio.setUser(owner);
+		stock = new Stock();
+		stock.setId(2L);
+		stock.setSymbol("ACME");
+	}
+
+	@Test
+	void replayWithSameRequestReturnsOriginalTrade() {
+		Trade original = givenCommittedTrade(10L, 5, "100.00");
+
+		Trade result = tradeService.createTrade(request(5, "100"));
+
+		assertThat(result).isSameAs(original);
+		verify(tradeRepository, never()).save(any());
+		verify(transactionManager, never()).getTransaction(any());
+	}
+
+	@Test
+	void sameKeyForDifferentTradeIsRejected() {
+		givenCommittedTrade(10L, 5, "100");
+
+		assertThatThrownBy(() -> tradeService.createTrade(request(6, "100")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("already used for a different trade");
+		assertThatThrownBy(() -> tradeService.createTrade(request(5, "101")))
+				.isInstanceOf(IllegalArgumentException.class);
+		verify(tradeRepository, never()).save(any());
+	}
+
+	@Test
+	void keyMissingFromCacheIsResolvedByUniqueIndex() {
+		// Ключ вытеснен из кэша: вставка нарушает уникальный индекс, и исходная сделка читается из базы
+		Trade original = trade(10L, 5, "100");
+		when(tradeRepository.save(any(Trade.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+		when(tradeRepository.findByPortfolioIdAndIdempotencyKey(PORTFOLIO_ID, KEY)).thenReturn(Optional.of(original));
+
+		assertThat(tradeService.createTrade(request(5, "100"))).isSameAs(original);
+		assertThatThrownBy(() -> tradeService.createTrade(request(7, "100")))
+				.isInstanceOf(IllegalArgumentException.class);
+		verify(taxLotService, never()).openLot(any());
+	}
+
+	@Test
+	void sandboxPortfolioRejectsTradesFromGeneralApi() {
+		portfolio.setSandbox(true);
+
+		assertThatThrownBy(() -> tradeService.createTrade(request(5, "100")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("paper-trading session");
+		verify(tradeRepository, never()).save(any());
+	}
+
+	@Test
+	void sandboxTradeRequiresSandboxPortfolio() {
+		assertThatThrownBy(() -> tradeService.createSandboxTrade(request(5, "100")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("not a sandbox portfolio");
+		verify(tradeRepository, never()).save(any());
+	}
+
+	private Trade givenCommittedTrade(Long id, int quantity, String price) {
+		Trade original = trade(id, quantity, price);
+		idempotencyKeyCache.onTradeCreated(PORTFOLIO_ID, KEY, id);
+		when(tradeRepository.findById(id)).thenReturn(Optional.of(original));
+		return original;
+	}
+
+	private Trade request(int quantity, String price) {
+		return trade(null, quantity, price);
+	}
+
+	private Trade trade(Long id, int quantity, String price) {
+		Trade trade = new Trade();
+		trade.setId(id);
+		trade.setPortfolio(portfolio);
+		trade.setStock(stock);
+		trade.setType(TradeType.BUY);
+		trade.setQuantity(quantity);
+		trade.setPrice(new BigDecimal(price));
+		trade.setTimestamp(LocalDateTime.of(2024, 5, 6, 10, 0));
+		trade.setIdempotencyKey(KEY);
+		return trade;
+	}
+}
@@ -0,0 +1,143 @@
+package com.tradingsystem.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.model.dto.WhatIfResultDTO;
+import com.tradingsystem.model.dto.WhatIfScenarioDTO;
+import com.tradingsystem.model.dto.WhatIfScenarioDTO.HypotheticalTrade;
+import com.tradingsystem.model.entity.Holding;
+import com.tradingsystem.model.entity.Stock;
+import com.tradingsystem.repository.HoldingRepository;
+import com.tradingsystem.service.index.PositionBook;
+import com.tradingsystem.service.interfaces.RiskAnalyticsService;
+import com.tradingsystem.service.interfaces.StockService;
+
+class WhatIfServiceImplTest {
+
+	private static final Long PORTFOLIO_ID = 1L;
+
+	private HoldingRepository holdingRepository;
+	private StockService stockService;
+	private PositionBook positionBook;
+	private WhatIfServiceImpl whatIfService;
+
+	@BeforeEach
+	void setUp() {
+		holdingRepository = mock(HoldingRepository.class);
+		stockService = mock(StockService.class);
+		positionBook = mock(PositionBook.class);
+		whatIfService = new WhatIfServiceImpl(holdingRepository, stockService, positionBook,
+				mock(RiskAnalyticsService.class));
+
+		Holding holding = new Holding();
+		holding.setStock(stock(10L, "AAA", "100"));
+		holding.setQuantity(10);
+		holding.setAveragePrice(new BigDecimal("80"));
+		when(holdingRepository.findByPortfolioId(PORTFOLIO_ID)).thenReturn(List.of(holding));
+		when(positionBook.getVersion(PORTFOLIO_ID)).thenReturn(1L);
+	}
+
+	@Test
+	void sellByPercentRealizesProfitAgainstAveragePrice() {
+		WhatIfResultDTO result = whatIfService.simulate(PORTFOLIO_ID, scenario(trade("AAA", "SELL", null, "50", null)));
+
+		assertThat(result.getValueBefore()).isEqualByComparingTo("1000");
+		assertThat(result.getValueAfter()).isEqualByComparingTo("500");
+		assertThat(result.getCashFlow()).isEqualByComparingTo("500");
+		assertThat(result.getRealizedProfitLoss()).isEqualByComparingTo("100");
+		assertThat(result.getPositions().get(0).getQuantityAfter()).isEqualTo(5);
+	}
+
+	@Test
+	void snapshotIsReusedUntilPositionBookVersionChanges() {
+		WhatIfScenarioDTO scenario = scenario(trade("AAA", "BUY", 1, null, null));
+
+		whatIfService.simulate(PORTFOLIO_ID, scenario);
+		whatIfService.simulate(PORTFOLIO_ID, scenario);
+		verify(holdingRepository, times(1)).findByPortfolioId(PORTFOLIO_ID);
+
+		when(positionBook.getVersion(PORTFOLIO_ID)).thenReturn(2L);
+		whatIfService.simulate(PORTFOLIO_ID, scenario);
+		verify(holdingRepository, times(2)).findByPortfolioId(PORTFOLIO_ID);
+	}
+
+	@Test
+	void amountBeyondIntRangeIsRejected() {
+		WhatIfScenarioDTO scenario = scenario(trade("AAA", "BUY", null, null, "1e20"));
+
+		assertThatThrownBy(() -> whatIfService.simulate(PORTFOLIO_ID, scenario))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("AAA");
+	}
+
+	@Test
+	void hugeNegativeAmountIsRejected() {
+		WhatIfScenarioDTO scenario = scenario(trade("AAA", "BUY", null, null, "-1e20"));
+
+		assertThatThrownBy(() -> whatIfService.simulate(PORTFOLIO_ID, scenario))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("must not be negative");
+	}
+
+	@Test
+	void percentBeyondIntRangeIsRejected() {
+		WhatIfScenarioDTO scenario = scenario(trade("AAA", "BUY", null, "1e12", null));
+
+		assertThatThrownBy(() -> whatIfService.simulate(PORTFOLIO_ID, scenario))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void buyOverflowingPositionQuantityIsRejected() {
+		WhatIfScenarioDTO scenario = scenario(trade("AAA", "BUY", Integer.MAX_VALUE, null, null));
+
+		assertThatThrownBy(() -> whatIfService.simulate(PORTFOLIO_ID, scenario))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("exceeds");
+	}
+
+	@Test
+	void rebalanceIntoPennyStockBeyondIntRangeIsRejected() {
+		when(stockService.getStockBySymbol("PNY")).thenReturn(stock(11L, "PNY", "0.0000001"));
+		WhatIfScenarioDTO scenario = new WhatIfScenarioDTO();
+		scenario.setTargetWeights(Map.of("PNY", new BigDecimal("100")));
+
+		assertThatThrownBy(() -> whatIfService.simulate(PORTFOLIO_ID, scenario))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("PNY");
+	}
+
+	private static WhatIfScenarioDTO scenario(HypotheticalTrade trade) {
+		WhatIfScenarioDTO scenario = new WhatIfScenarioDTO();
+		scenario.setTrades(List.of(trade));
+		return scenario;
+	}
+
+	private static HypotheticalTrade trade(String symbol, String type, Integer quantity, String percent, String amount) {
+		return new HypotheticalTrade(symbol, type, quantity,
+				percent != null ? new BigDecimal(percent) : null,
+				amount != null ? new BigDecimal(amount) : null,
+				null);
+	}
+
+	private static Stock stock(Long id, String symbol, String price) {
+		Stock stock = new Stock();
+		stock.setId(id);
+		stock.setSymbol(symbol);
+		stock.setSector("Technology");
+		stock.setCurrentPrice(new BigDecimal(price));
+		return stock;
+	}
+}
@@ -0,0 +1,84 @@
+package com.tradingsystem.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.repository.TradeRepository;
+
+class IdempotencyKeyCacheTest {
+
+	private TradeRepository tradeRepository;
+
+	@BeforeEach
+	void setUp() {
+		tradeRepository = mock(TradeRepository.class);
+	}
+
+	@Test
+	void findsTradeByPortfolioAndKey() {
+		IdempotencyKeyCache cache = new IdempotencyKeyCache(tradeRepository, 60, 100);
+
+		cache.onTradeCreated(1L, "key-1", 10L);
+
+		assertThat(cache.find(1L, "key-1")).isEqualTo(10L);
+		assertThat(cache.find(2L, "key-1")).isNull();
+		assertThat(cache.find(1L, "key-2")).isNull();
+	}
+
+	@Test
+	void deletedTradeKeyIsForgotten() {
+		IdempotencyKeyCache cache = new IdempotencyKeyCache(tradeRepository, 60, 100);
+		cache.onTradeCreated(1L, "key-1", 10L);
+
+		cache.onTradeDeleted(1L, "key-1");
+		assertThat(cache.find(1L, "key-1")).isNull();
+
+		// Ключ можно использовать снова для новой сделки
+		cache.onTradeCreated(1L, "key-1", 11L);
+		assertThat(cache.find(1L, "key-1")).isEqualTo(11L);
+	}
+
+	@Test
+	void oldestKeysAreEvictedOverLimit() {
+		IdempotencyKeyCache cache = new IdempotencyKeyCache(tradeRepository, 60, 2);
+
+		cache.onTradeCreated(1L, "a", 1L);
+		cache.onTradeCreated(1L, "b", 2L);
+		cache.onTradeCreated(1L, "c", 3L);
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.find(1L, "a")).isNull();
+		assertThat(cache.find(1L, "b")).isEqualTo(2L);
+		assertThat(cache.find(1L, "c")).isEqualTo(3L);
+	}
+
+	@Test
+	void expiredKeysAreNotReturned() {
+		IdempotencyKeyCache cache = new IdempotencyKeyCache(tradeRepository, 0, 100);
+
+		cache.onTradeCreated(1L, "key-1", 10L);
+
+		assertThat(cache.find(1L, "key-1")).isNull();
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void loadRestoresRecentKeys() {
+		when(tradeRepository.findIdempotencyKeysSince(any())).thenReturn(List.of(
+				new Object[] {1L, "key-1", 10L},
+				new Object[] {2L, "key-1", 20L}));
+		IdempotencyKeyCache cache = new IdempotencyKeyCache(tradeRepository, 60, 100);
+
+		cache.load();
+
+		assertThat(cache.find(1L, "key-1")).isEqualTo(10L);
+		assertThat(cache.find(2L, "key-1")).isEqualTo(20L);
+	}
+}
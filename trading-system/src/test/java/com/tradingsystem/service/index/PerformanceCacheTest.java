@@ -0,0 +1,168 @@
+package com.tradingsystem.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.model.dto.PortfolioPerformanceDTO;
+
+class PerformanceCacheTest {
+
+	private static final Long PORTFOLIO_ID = 1L;
+	private static final Long STOCK_ID = 10L;
+
+	private PositionBook positionBook;
+	private List<Runnable> backgroundTasks;
+	private PerformanceCache cache;
+
+	@BeforeEach
+	void setUp() {
+		positionBook = mock(PositionBook.class);
+		when(positionBook.getPortfoliosHolding(STOCK_ID)).thenReturn(Set.of(PORTFOLIO_ID));
+		backgroundTasks = new ArrayList<>();
+		Executor executor = backgroundTasks::add;
+		cache = new PerformanceCache(positionBook, executor, 100);
+	}
+
+	@Test
+	void storedEntryIsServedWithoutRecalculation() {
+		CountingLoader loader = new CountingLoader();
+
+		assertThat(cache.get(PORTFOLIO_ID, loader).getCurrentValue()).isEqualByComparingTo("1");
+		assertThat(cache.get(PORTFOLIO_ID, loader).getCurrentValue()).isEqualByComparingTo("1");
+		assertThat(loader.calls.get()).isEqualTo(1);
+	}
+
+	@Test
+	void invalidateRemovesEntry() {
+		CountingLoader loader = new CountingLoader();
+		cache.get(PORTFOLIO_ID, loader);
+
+		cache.invalidate(PORTFOLIO_ID);
+
+		assertThat(cache.get(PORTFOLIO_ID, loader).getCurrentValue()).isEqualByComparingTo("2");
+		assertThat(backgroundTasks).isEmpty();
+	}
+
+	@Test
+	void staleEntryIsServedWhileRefreshRunsInBackground() {
+		CountingLoader loader = new CountingLoader();
+		cache.get(PORTFOLIO_ID, loader);
+
+		cache.markStale(STOCK_ID);
+
+		// Устаревшее значение отдается сразу, пересчет ставится в фон один раз
+		assertThat(cache.get(PORTFOLIO_ID, loader).getCurrentValue()).isEqualByComparingTo("1");
+		assertThat(cache.get(PORTFOLIO_ID, loader).getCurrentValue()).isEqualByComparingTo("1");
+		assertThat(backgroundTasks).hasSize(1);
+
+		backgroundTasks.remove(0).run();
+
+		assertThat(cache.get(PORTFOLIO_ID, loader).getCurrentValue()).isEqualByComparingTo("2");
+		assertThat(loader.calls.get()).isEqualTo(2);
+		assertThat(backgroundTasks).isEmpty();
+	}
+
+	@Test
+	void priceChangeOfOtherStockDoesNotMarkEntryStale() {
+		CountingLoader loader = new CountingLoader();
+		cache.get(PORTFOLIO_ID, loader);
+
+		cache.markStale(STOCK_ID + 1);
+		cache.get(PORTFOLIO_ID, loader);
+
+		assertThat(backgroundTasks).isEmpty();
+		assertThat(loader.calls.get()).isEqualTo(1);
+	}
+
+	@Test
+	void loadOverlappingPriceChangeIsStoredStale() {
+		CountingLoader loader = new CountingLoader(() -> cache.markStale(STOCK_ID));
+
+		cache.get(PORTFOLIO_ID, loader);
+		cache.get(PORTFOLIO_ID, loader);
+
+		assertThat(backgroundTasks).hasSize(1);
+	}
+
+	@Test
+	void refreshOverlappingPriceChangeStaysStale() {
+		CountingLoader loader = new CountingLoader();
+		cache.get(PORTFOLIO_ID, loader);
+		cache.markStale(STOCK_ID);
+		cache.get(PORTFOLIO_ID, loader);
+
+		loader.duringLoad = () -> cache.markStale(STOCK_ID);
+		backgroundTasks.remove(0).run();
+		loader.duringLoad = () -> { };
+
+		// Пересчет видел старую цену: следующий запрос запускает новый пересчет
+		assertThat(cache.get(PORTFOLIO_ID, loader).getCurrentValue()).isEqualByComparingTo("2");
+		assertThat(backgroundTasks).hasSize(1);
+	}
+
+	@Test
+	void loadOverlappingInvalidationIsNotCached() {
+		CountingLoader loader = new CountingLoader(() -> cache.invalidate(PORTFOLIO_ID));
+
+		cache.get(PORTFOLIO_ID, loader);
+		cache.get(PORTFOLIO_ID, loader);
+
+		assertThat(loader.calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	void fullCacheDropsStaleEntriesFirst() {
+		PerformanceCache small = new PerformanceCache(positionBook, backgroundTasks::add, 2);
+		when(positionBook.getPortfoliosHolding(STOCK_ID)).thenReturn(Set.of(1L));
+		CountingLoader loader = new CountingLoader();
+		small.get(1L, loader);
+		small.get(2L, loader);
+		small.markStale(STOCK_ID);
+
+		small.get(3L, loader);
+		int calls = loader.calls.get();
+		small.get(2L, loader);
+		small.get(3L, loader);
+
+		assertThat(loader.calls.get()).isEqualTo(calls);
+		small.get(1L, loader);
+		assertThat(loader.calls.get()).isEqualTo(calls + 1);
+	}
+
+	/**
+	 * Расчет, возвращающий стоимость, равную номеру вызова
+	 */
+	private static final class CountingLoader implements Supplier<PortfolioPerformanceDTO> {
+		private final AtomicInteger calls = new AtomicInteger();
+		private Runnable duringLoad;
+
+		private CountingLoader() {
+			this(() -> { });
+		}
+
+		private CountingLoader(Runnable duringLoad) {
+			this.duringLoad = duringLoad;
+		}
+
+		@Override
+		public PortfolioPerformanceDTO get() {
+			duringLoad.run();
+			PortfolioPerformanceDTO performance = new PortfolioPerformanceDTO();
+			performance.setPortfolioId(PORTFOLIO_ID);
+			performance.setCurrentValue(BigDecimal.valueOf(calls.incrementAndGet()));
+			return performance;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.tradingsystem.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.model.enums.LeaderboardPeriod;
+import com.tradingsystem.repository.PortfolioPerformanceRepository;
+import com.tradingsystem.repository.PortfolioRepository;
+import com.tradingsystem.repository.TradeRepository;
+
+class PortfolioLeaderboardTest {
+
+	private PositionBook positionBook;
+	private PortfolioRepository portfolioRepository;
+	private TradeRepository tradeRepository;
+	private PortfolioLeaderboard leaderboard;
+
+	@BeforeEach
+	void setUp() {
+		positionBook = mock(PositionBook.class);
+		portfolioRepository = mock(PortfolioRepository.class);
+		tradeRepository = mock(TradeRepository.class);
+		leaderboard = new PortfolioLeaderboard(positionBook, portfolioRepository,
+				mock(PortfolioPerformanceRepository.class), tradeRepository);
+
+		// Базовых оценок нет: доходность считается от всех вложений
+		when(portfolioRepository.findAllIds()).thenReturn(List.of(1L, 2L));
+		when(tradeRepository.sumNetFlowsByPortfolioSince(any())).thenReturn(rows(1L, "100", 2L, "200"));
+		when(positionBook.getTotalValue(1L)).thenReturn(new BigDecimal("165"));
+		when(positionBook.getTotalValue(2L)).thenReturn(new BigDecimal("210"));
+	}
+
+	@Test
+	void ranksBySimpleReturnOnInvestedAmount() {
+		leaderboard.rebuild();
+
+		assertThat(leaderboard.getTop(LeaderboardPeriod.DAY, 10))
+				.extracting(PortfolioLeaderboard.Entry::getPortfolioId).containsExactly(1L, 2L);
+		assertThat(leaderboard.getRank(LeaderboardPeriod.YTD, 2L).getReturnFraction()).isCloseTo(0.05, within(1e-9));
+	}
+
+	@Test
+	void tradeAfterRebuildChangesReturn() {
+		leaderboard.rebuild();
+
+		leaderboard.onTrade(1L, new BigDecimal("50"));
+
+		assertThat(leaderboard.getRank(LeaderboardPeriod.DAY, 1L).getReturnFraction()).isCloseTo(0.1, within(1e-9));
+		assertThat(leaderboard.getRank(LeaderboardPeriod.DAY, 1L).getRank()).isEqualTo(1);
+	}
+
+	@Test
+	void tradeDuringRebuildIsCarriedIntoRebuiltBoards() {
+		leaderboard.rebuild();
+		// Сделка фиксируется после того, как перестроение прочитало суммы вложений
+		AtomicBoolean traded = new AtomicBoolean();
+		when(positionBook.getTotalValue(2L)).thenAnswer(invocation -> {
+			if (traded.compareAndSet(false, true)) {
+				leaderboard.onTrade(2L, new BigDecimal("100"));
+			}
+			return new BigDecimal("330");
+		});
+
+		leaderboard.rebuild();
+
+		for (LeaderboardPeriod period : LeaderboardPeriod.values()) {
+			assertThat(leaderboard.getRank(period, 2L).getReturnFraction()).isCloseTo(0.1, within(1e-9));
+		}
+	}
+
+	@Test
+	void portfolioRemovedDuringRebuildStaysRemoved() {
+		leaderboard.rebuild();
+		AtomicBoolean removed = new AtomicBoolean();
+		when(positionBook.getTotalValue(2L)).thenAnswer(invocation -> {
+			if (removed.compareAndSet(false, true)) {
+				leaderboard.onPortfolioRemoved(2L);
+			}
+			return new BigDecimal("210");
+		});
+
+		leaderboard.rebuild();
+
+		assertThat(leaderboard.getRank(LeaderboardPeriod.DAY, 2L)).isNull();
+		assertThat(leaderboard.size(LeaderboardPeriod.DAY)).isEqualTo(1);
+	}
+
+	private static List<Object[]> rows(Object... values) {
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = 0; i < values.length; i += 2) {
+			rows.add(new Object[] {values[i], new BigDecimal((String) values[i + 1])});
+		}
+		return rows;
+	}
+}
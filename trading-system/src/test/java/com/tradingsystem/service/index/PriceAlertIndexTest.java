@@ -0,0 +1,93 @@
+package com.tradingsystem.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.model.enums.AlertDirection;
+import com.tradingsystem.repository.WatchlistItemRepository;
+import com.tradingsystem.service.index.PriceAlertIndex.FiredAlert;
+
+class PriceAlertIndexTest {
+
+	private static final Long STOCK_ID = 10L;
+
+	private PriceAlertIndex index;
+	private List<FiredAlert> fired;
+
+	@BeforeEach
+	void setUp() {
+		index = new PriceAlertIndex(mock(WatchlistItemRepository.class));
+		fired = new ArrayList<>();
+		index.addListener((stockId, price, alerts) -> fired.addAll(alerts));
+	}
+
+	@Test
+	void aboveAlertFiresWhenPriceReachesTarget() {
+		index.onAlertCreated(1L, STOCK_ID, AlertDirection.ABOVE, new BigDecimal("150.00"));
+
+		index.onPriceUpdate(STOCK_ID, new BigDecimal("149.9999"));
+		assertThat(fired).isEmpty();
+
+		index.onPriceUpdate(STOCK_ID, new BigDecimal("150.00"));
+		assertThat(fired).containsExactly(new FiredAlert(1L, AlertDirection.ABOVE, new BigDecimal("150.0000")));
+		assertThat(index.size()).isZero();
+	}
+
+	@Test
+	void belowAlertFiresWhenPriceFallsToTarget() {
+		index.onAlertCreated(1L, STOCK_ID, AlertDirection.BELOW, new BigDecimal("90"));
+
+		index.onPriceUpdate(STOCK_ID, new BigDecimal("90.0001"));
+		assertThat(fired).isEmpty();
+
+		index.onPriceUpdate(STOCK_ID, new BigDecimal("85"));
+		assertThat(fired).extracting(FiredAlert::alertId).containsExactly(1L);
+	}
+
+	@Test
+	void priceJumpFiresEveryCrossedTargetOnlyOnce() {
+		index.onAlertCreated(1L, STOCK_ID, AlertDirection.ABOVE, new BigDecimal("110"));
+		index.onAlertCreated(2L, STOCK_ID, AlertDirection.ABOVE, new BigDecimal("120"));
+		index.onAlertCreated(3L, STOCK_ID, AlertDirection.ABOVE, new BigDecimal("130"));
+		index.onAlertCreated(4L, STOCK_ID, AlertDirection.BELOW, new BigDecimal("90"));
+
+		index.onPriceUpdate(STOCK_ID, new BigDecimal("125"));
+		assertThat(fired).extracting(FiredAlert::alertId).containsExactlyInAnyOrder(1L, 2L);
+
+		fired.clear();
+		index.onPriceUpdate(STOCK_ID, new BigDecimal("126"));
+		assertThat(fired).isEmpty();
+
+		index.onPriceUpdate(STOCK_ID, new BigDecimal("80"));
+		assertThat(fired).extracting(FiredAlert::alertId).containsExactly(4L);
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	void removedAlertDoesNotFire() {
+		index.onAlertCreated(1L, STOCK_ID, AlertDirection.BELOW, new BigDecimal("90"));
+		index.onAlertRemoved(1L, STOCK_ID, AlertDirection.BELOW, new BigDecimal("90"));
+
+		index.onPriceUpdate(STOCK_ID, new BigDecimal("50"));
+
+		assertThat(fired).isEmpty();
+		assertThat(index.size()).isZero();
+	}
+
+	@Test
+	void alertsOfOtherStocksAreNotAffected() {
+		index.onAlertCreated(1L, STOCK_ID, AlertDirection.ABOVE, new BigDecimal("100"));
+
+		index.onPriceUpdate(STOCK_ID + 1, new BigDecimal("500"));
+
+		assertThat(fired).isEmpty();
+		assertThat(index.size()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,106 @@
+package com.tradingsystem.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class RankedSkipListTest {
+
+	@Test
+	void ranksByDescendingScoreAndAscendingIdOnTies() {
+		RankedSkipList ranking = new RankedSkipList();
+		ranking.put(3, 0.10);
+		ranking.put(1, 0.25);
+		ranking.put(7, 0.10);
+		ranking.put(2, -0.05);
+
+		assertThat(ranking.size()).isEqualTo(4);
+		assertThat(ranking.rank(1)).isEqualTo(1);
+		assertThat(ranking.rank(3)).isEqualTo(2);
+		assertThat(ranking.rank(7)).isEqualTo(3);
+		assertThat(ranking.rank(2)).isEqualTo(4);
+		assertThat(ranking.top(10)).extracting(Map.Entry::getKey).containsExactly(1L, 3L, 7L, 2L);
+	}
+
+	@Test
+	void putMovesExistingIdInsteadOfDuplicatingIt() {
+		RankedSkipList ranking = new RankedSkipList();
+		ranking.put(1, 0.10);
+		ranking.put(2, 0.20);
+		ranking.put(1, 0.30);
+
+		assertThat(ranking.size()).isEqualTo(2);
+		assertThat(ranking.score(1)).isEqualTo(0.30);
+		assertThat(ranking.rank(1)).isEqualTo(1);
+		assertThat(ranking.rank(2)).isEqualTo(2);
+	}
+
+	@Test
+	void removeDropsIdAndShiftsRanks() {
+		RankedSkipList ranking = new RankedSkipList();
+		ranking.put(1, 0.30);
+		ranking.put(2, 0.20);
+		ranking.put(3, 0.10);
+
+		ranking.remove(2);
+		ranking.remove(42);
+
+		assertThat(ranking.size()).isEqualTo(2);
+		assertThat(ranking.rank(2)).isZero();
+		assertThat(ranking.score(2)).isNull();
+		assertThat(ranking.rank(3)).isEqualTo(2);
+	}
+
+	@Test
+	void topIsLimitedAndEmptyListIsSafe() {
+		RankedSkipList ranking = new RankedSkipList();
+		assertThat(ranking.top(5)).isEmpty();
+		assertThat(ranking.rank(1)).isZero();
+
+		for (long id = 1; id <= 20; id++) {
+			ranking.put(id, id);
+		}
+		assertThat(ranking.top(3)).extracting(Map.Entry::getKey).containsExactly(20L, 19L, 18L);
+	}
+
+	@Test
+	void matchesSortedModelUnderRandomUpdates() {
+		Random random = new Random(20240611L);
+		RankedSkipList ranking = new RankedSkipList();
+		Map<Long, Double> scores = new HashMap<>();
+		Comparator<Long> order = Comparator.<Long>comparingDouble(scores::get).reversed().thenComparing(id -> id);
+
+		for (int step = 0; step < 20_000; step++) {
+			long id = random.nextInt(500);
+			if (random.nextInt(4) == 0) {
+				ranking.remove(id);
+				scores.remove(id);
+			} else {
+				// Оценки из небольшого набора, чтобы чаще встречались равные
+				double score = random.nextInt(50) / 10.0 - 2.0;
+				ranking.put(id, score);
+				scores.put(id, score);
+			}
+
+			if (step % 1000 == 999) {
+				TreeSet<Long> model = new TreeSet<>(order);
+				model.addAll(scores.keySet());
+				List<Long> expected = new ArrayList<>(model);
+
+				assertThat(ranking.size()).isEqualTo(expected.size());
+				assertThat(ranking.top(expected.size())).extracting(Map.Entry::getKey).containsExactlyElementsOf(expected);
+				for (int i = 0; i < expected.size(); i++) {
+					assertThat(ranking.rank(expected.get(i))).isEqualTo(i + 1);
+				}
+			}
+		}
+	}
+}
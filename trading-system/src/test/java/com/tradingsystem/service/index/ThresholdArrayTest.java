@@ -0,0 +1,93 @@
+package com.tradingsystem.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class ThresholdArrayTest {
+
+	@Test
+	void pollAtLeastTakesKeysFromBoundaryInclusive() {
+		ThresholdArray thresholds = new ThresholdArray();
+		thresholds.add(100, 1);
+		thresholds.add(300, 3);
+		thresholds.add(200, 2);
+		thresholds.add(200, 4);
+
+		assertThat(thresholds.pollAtLeast(201)).containsExactly(300, 3);
+		assertThat(thresholds.pollAtLeast(200)).containsExactly(200, 2, 200, 4);
+		assertThat(thresholds.size()).isEqualTo(1);
+		assertThat(thresholds.pollAtLeast(101)).isEmpty();
+		assertThat(thresholds.size()).isEqualTo(1);
+	}
+
+	@Test
+	void addRejectsDuplicatePair() {
+		ThresholdArray thresholds = new ThresholdArray();
+
+		assertThat(thresholds.add(100, 1)).isTrue();
+		assertThat(thresholds.add(100, 1)).isFalse();
+		assertThat(thresholds.add(100, 2)).isTrue();
+		assertThat(thresholds.size()).isEqualTo(2);
+	}
+
+	@Test
+	void removeDeletesOnlyMatchingPair() {
+		ThresholdArray thresholds = new ThresholdArray();
+		thresholds.add(100, 1);
+		thresholds.add(100, 2);
+
+		assertThat(thresholds.remove(100, 3)).isFalse();
+		assertThat(thresholds.remove(101, 1)).isFalse();
+		assertThat(thresholds.remove(100, 1)).isTrue();
+		assertThat(thresholds.remove(100, 1)).isFalse();
+		assertThat(thresholds.pollAtLeast(Long.MIN_VALUE)).containsExactly(100, 2);
+	}
+
+	@Test
+	void handlesNegativeKeysUsedForRisingThresholds() {
+		ThresholdArray thresholds = new ThresholdArray();
+		thresholds.add(-150, 1);
+		thresholds.add(-120, 2);
+		thresholds.add(-180, 3);
+
+		// Цена 150: сработали цели 120 и 150, цель 180 осталась
+		assertThat(thresholds.pollAtLeast(-150)).containsExactly(-150, 1, -120, 2);
+		assertThat(thresholds.pollAtLeast(Long.MIN_VALUE)).containsExactly(-180, 3);
+	}
+
+	@Test
+	void growsAndShrinksAgainstSortedModel() {
+		Random random = new Random(7L);
+		ThresholdArray thresholds = new ThresholdArray();
+		TreeSet<long[]> model = new TreeSet<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+		for (int step = 0; step < 10_000; step++) {
+			long key = random.nextInt(200);
+			long id = random.nextInt(50);
+			if (random.nextBoolean()) {
+				assertThat(thresholds.add(key, id)).isEqualTo(model.add(new long[] {key, id}));
+			} else {
+				assertThat(thresholds.remove(key, id)).isEqualTo(model.remove(new long[] {key, id}));
+			}
+			assertThat(thresholds.size()).isEqualTo(model.size());
+
+			if (step % 2000 == 1999) {
+				long boundary = random.nextInt(200);
+				List<Long> expected = new ArrayList<>();
+				for (long[] pair : model.tailSet(new long[] {boundary, Long.MIN_VALUE})) {
+					expected.add(pair[0]);
+					expected.add(pair[1]);
+				}
+				model.tailSet(new long[] {boundary, Long.MIN_VALUE}).clear();
+
+				assertThat(thresholds.pollAtLeast(boundary)).containsExactly(expected.stream().mapToLong(Long::longValue).toArray());
+			}
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.tradingsystem.service.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.tradingsystem.model.enums.TradeType;
+
+class TradeJournalTest {
+
+	private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+	@TempDir
+	Path directory;
+
+	private final List<TradeJournal> opened = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		opened.forEach(TradeJournal::close);
+	}
+
+	@Test
+	void reopenContinuesAfterLastRecord() throws IOException {
+		TradeJournal journal = open(1024);
+		append(journal, 3);
+		journal.close();
+
+		TradeJournal reopened = open(1024);
+
+		assertThat(reopened.getLastSequence()).isEqualTo(3);
+		assertThat(scannedSequences(reopened, 0)).containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	void tornTailRecordIsDiscardedAndOverwritten() throws IOException {
+		TradeJournal journal = open(1024);
+		append(journal, 3);
+		journal.close();
+
+		// Запись 3 дописана не полностью: байт внутри нее не совпадает с контрольной суммой
+		corrupt(onlySegment(), 2 * JournalRecord.SIZE + 30);
+
+		TradeJournal reopened = open(1024);
+		assertThat(reopened.getLastSequence()).isEqualTo(2);
+		assertThat(scannedSequences(reopened, 0)).containsExactly(1L, 2L);
+
+		append(reopened, 1);
+		assertThat(reopened.getLastSequence()).isEqualTo(3);
+		assertThat(scannedSequences(reopened, 0)).containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	void recordsAfterTornRecordAreNotReplayed() throws IOException {
+		TradeJournal journal = open(1024);
+		append(journal, 4);
+		journal.close();
+
+		corrupt(onlySegment(), JournalRecord.SIZE + 68);
+
+		TradeJournal reopened = open(1024);
+		assertThat(reopened.getLastSequence()).isEqualTo(1);
+		assertThat(scannedSequences(reopened, 0)).containsExactly(1L);
+	}
+
+	@Test
+	void recordsContinueAcrossSegments() throws IOException {
+		// Сегмент на две записи
+		TradeJournal journal = open(2 * JournalRecord.SIZE);
+		append(journal, 5);
+		journal.close();
+
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files.filter(path -> path.getFileName().toString().startsWith("trades-"))).hasSize(3);
+		}
+
+		TradeJournal reopened = open(2 * JournalRecord.SIZE);
+		assertThat(reopened.getLastSequence()).isEqualTo(5);
+		assertThat(scannedSequences(reopened, 2)).containsExactly(3L, 4L, 5L);
+	}
+
+	@Test
+	void scanReadsRecordFields() throws IOException {
+		TradeJournal journal = open(1024);
+		journal.record(JournalRecord.of(JournalRecord.TRADE_BOOKED, 77L, 5L, 9L, TradeType.BUY,
+				10, new BigDecimal("12.5"), TIMESTAMP, 30, new BigDecimal("11.25")));
+
+		List<long[]> positions = new ArrayList<>();
+		journal.scan(0, (buffer, offset) -> positions.add(new long[] {
+				JournalRecord.portfolioIdAt(buffer, offset),
+				JournalRecord.stockIdAt(buffer, offset),
+				JournalRecord.quantityAfterAt(buffer, offset),
+				JournalRecord.averagePriceAfterAt(buffer, offset)}));
+
+		assertThat(positions).hasSize(1);
+		assertThat(positions.get(0)).containsExactly(5L, 9L, 30L, 112_500L);
+	}
+
+	private TradeJournal open(int segmentSize) throws IOException {
+		TradeJournal journal = new TradeJournal();
+		ReflectionTestUtils.setField(journal, "enabled", true);
+		ReflectionTestUtils.setField(journal, "directory", directory.toString());
+		ReflectionTestUtils.setField(journal, "segmentSize", segmentSize);
+		journal.open();
+		opened.add(journal);
+		return journal;
+	}
+
+	private static void append(TradeJournal journal, int count) {
+		for (int i = 0; i < count; i++) {
+			journal.record(JournalRecord.of(JournalRecord.TRADE_BOOKED, 100L + i, 1L, 2L, TradeType.BUY,
+					1, BigDecimal.TEN, TIMESTAMP, i + 1, BigDecimal.TEN));
+		}
+		journal.flush();
+	}
+
+	private static List<Long> scannedSequences(TradeJournal journal, long afterSequence) {
+		List<Long> sequences = new ArrayList<>();
+		journal.scan(afterSequence, (buffer, offset) -> sequences.add(JournalRecord.sequenceAt(buffer, offset)));
+		return sequences;
+	}
+
+	private Path onlySegment() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().startsWith("trades-")).findFirst().orElseThrow();
+		}
+	}
+
+	private static void corrupt(Path segment, int offset) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer current = ByteBuffer.allocate(1);
+			channel.read(current, offset);
+			current.flip();
+			channel.write(ByteBuffer.wrap(new byte[] {(byte) (current.get() ^ 0x5A)}), offset);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.tradingsystem.service.matching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.api.ListAssert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.model.enums.OrderType;
+import com.tradingsystem.model.enums.TradeType;
+import com.tradingsystem.util.FixedPoint;
+
+class OrderBookTest {
+
+	private static final long STOCK_ID = 5L;
+
+	private OrderBook book;
+	private List<MatchEvent> events;
+	private long nextOrderId;
+
+	@BeforeEach
+	void setUp() {
+		book = new OrderBook(STOCK_ID);
+		events = new ArrayList<>();
+		nextOrderId = 1;
+	}
+
+	@Test
+	void crossingLimitOrderFillsAtRestingPrice() {
+		long sell = submit(limit(10, TradeType.SELL, 100, "101.50"));
+		long buy = submit(limit(20, TradeType.BUY, 100, "102.00"));
+
+		assertThatEvents().containsExactly(fill(buy, 20, sell, 10, "101.50", 100));
+		assertThat(book.isEmpty()).isTrue();
+	}
+
+	@Test
+	void nonCrossingOrdersRestOnBothSides() {
+		submit(limit(10, TradeType.SELL, 100, "101"));
+		submit(limit(20, TradeType.BUY, 50, "100"));
+
+		assertThat(events).isEmpty();
+		BookDepth depth = book.depth(5);
+		assertThat(depth.bids()).containsExactly(new BookDepth.Level(FixedPoint.of(new BigDecimal("100")), 50, 1));
+		assertThat(depth.asks()).containsExactly(new BookDepth.Level(FixedPoint.of(new BigDecimal("101")), 100, 1));
+	}
+
+	@Test
+	void betterPriceMatchesFirstThenEarlierOrderAtSamePrice() {
+		long first = submit(limit(10, TradeType.SELL, 30, "100.10"));
+		long second = submit(limit(11, TradeType.SELL, 30, "100.10"));
+		long best = submit(limit(12, TradeType.SELL, 30, "100.05"));
+
+		long buy = submit(limit(20, TradeType.BUY, 70, "100.10"));
+
+		assertThatEvents().containsExactly(
+				fill(buy, 20, best, 12, "100.05", 30),
+				fill(buy, 20, first, 10, "100.10", 30),
+				fill(buy, 20, second, 11, "100.10", 10));
+		assertThat(book.depth(5).asks()).containsExactly(new BookDepth.Level(FixedPoint.of(new BigDecimal("100.10")), 20, 1));
+	}
+
+	@Test
+	void partiallyFilledIncomingLimitRestsRemainder() {
+		long sell = submit(limit(10, TradeType.SELL, 40, "50"));
+		long buy = submit(limit(20, TradeType.BUY, 100, "51"));
+
+		assertThatEvents().containsExactly(fill(buy, 20, sell, 10, "50", 40));
+		assertThat(book.depth(5).asks()).isEmpty();
+		assertThat(book.depth(5).bids()).containsExactly(new BookDepth.Level(FixedPoint.of(new BigDecimal("51")), 60, 1));
+
+		// Остаток стоит в книге и исполняется следующей встречной заявкой по своей цене
+		events.clear();
+		long nextSell = submit(limit(11, TradeType.SELL, 60, "49"));
+		assertThatEvents().containsExactly(fill(buy, 20, nextSell, 11, "51", 60));
+		assertThat(book.isEmpty()).isTrue();
+	}
+
+	@Test
+	void partiallyFilledRestingOrderKeepsQueuePosition() {
+		long first = submit(limit(10, TradeType.BUY, 100, "20"));
+		long second = submit(limit(11, TradeType.BUY, 100, "20"));
+
+		long sell1 = submit(limit(30, TradeType.SELL, 60, "20"));
+		long sell2 = submit(limit(31, TradeType.SELL, 60, "20"));
+
+		assertThatEvents().containsExactly(
+				fill(first, 10, sell1, 30, "20", 60),
+				fill(first, 10, sell2, 31, "20", 40),
+				fill(second, 11, sell2, 31, "20", 20));
+		assertThat(book.depth(1).bids()).containsExactly(new BookDepth.Level(FixedPoint.of(new BigDecimal("20")), 80, 1));
+	}
+
+	@Test
+	void marketOrderSweepsLevelsAndCancelsUnfilledRemainder() {
+		long ask1 = submit(limit(10, TradeType.SELL, 10, "10"));
+		long ask2 = submit(limit(11, TradeType.SELL, 10, "11"));
+
+		long market = submit(new EngineOrder(nextOrderId++, 20, STOCK_ID, TradeType.BUY, OrderType.MARKET, 25, null));
+
+		assertThatEvents().containsExactly(
+				fill(market, 20, ask1, 10, "10", 10),
+				fill(market, 20, ask2, 11, "11", 10),
+				new MatchEvent.Cancelled(market, 5, "no liquidity for market order"));
+		assertThat(book.isEmpty()).isTrue();
+	}
+
+	@Test
+	void cancelRemovesRestingOrderFromMatching() {
+		long cancelled = submit(limit(10, TradeType.SELL, 50, "10"));
+		long kept = submit(limit(11, TradeType.SELL, 50, "10"));
+
+		assertThat(book.cancel(cancelled)).isEqualTo(50);
+		assertThat(book.cancel(cancelled)).isZero();
+
+		long buy = submit(limit(20, TradeType.BUY, 50, "10"));
+		assertThatEvents().containsExactly(fill(buy, 20, kept, 11, "10", 50));
+		assertThat(book.isEmpty()).isTrue();
+	}
+
+	@Test
+	void selfTradeCancelsRestingOrderOfSamePortfolio() {
+		long own = submit(limit(10, TradeType.SELL, 50, "10"));
+		long other = submit(limit(11, TradeType.SELL, 50, "10"));
+
+		long buy = submit(limit(10, TradeType.BUY, 30, "10"));
+
+		assertThatEvents().containsExactly(
+				new MatchEvent.Cancelled(own, 50, "self-trade prevention"),
+				fill(buy, 10, other, 11, "10", 30));
+		assertThat(book.cancel(own)).isZero();
+	}
+
+	private EngineOrder limit(long portfolioId, TradeType side, int quantity, String price) {
+		return new EngineOrder(nextOrderId++, portfolioId, STOCK_ID, side, OrderType.LIMIT, quantity, new BigDecimal(price));
+	}
+
+	private long submit(EngineOrder order) {
+		book.submit(order, events::add);
+		return order.getOrderId();
+	}
+
+	/**
+	 * События сравниваются по полям без времени исполнения
+	 */
+	private ListAssert<MatchEvent> assertThatEvents() {
+		return assertThat(events).usingRecursiveFieldByFieldElementComparatorIgnoringFields("timestamp");
+	}
+
+	private static MatchEvent fill(long buyOrderId, long buyPortfolioId, long sellOrderId, long sellPortfolioId, String price, int quantity) {
+		return new MatchEvent.Fill(buyOrderId, buyPortfolioId, sellOrderId, sellPortfolioId, STOCK_ID,
+				FixedPoint.of(new BigDecimal(price)), quantity, null);
+	}
+}
@@ -0,0 +1,102 @@
+package com.tradingsystem.service.paper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.tradingsystem.service.backtest.BarSeries;
+
+class PaperSessionTest {
+
+	private static final LocalDate MONDAY = LocalDate.of(2024, 5, 6);
+	private static final long DAY = PaperSession.TRADING_DAY_MILLIS;
+
+	@Test
+	void risingDayPassesLowThenHigh() {
+		assertThat(PaperSession.intradayPrice(10, 14, 8, 12, 0)).isCloseTo(10, within(1e-9));
+		assertThat(PaperSession.intradayPrice(10, 14, 8, 12, 1.0 / 6)).isCloseTo(9, within(1e-9));
+		assertThat(PaperSession.intradayPrice(10, 14, 8, 12, 1.0 / 3)).isCloseTo(8, within(1e-9));
+		assertThat(PaperSession.intradayPrice(10, 14, 8, 12, 0.5)).isCloseTo(11, within(1e-9));
+		assertThat(PaperSession.intradayPrice(10, 14, 8, 12, 2.0 / 3)).isCloseTo(14, within(1e-9));
+		assertThat(PaperSession.intradayPrice(10, 14, 8, 12, 1)).isCloseTo(12, within(1e-9));
+	}
+
+	@Test
+	void fallingDayPassesHighThenLow() {
+		assertThat(PaperSession.intradayPrice(12, 14, 8, 10, 1.0 / 3)).isCloseTo(14, within(1e-9));
+		assertThat(PaperSession.intradayPrice(12, 14, 8, 10, 2.0 / 3)).isCloseTo(8, within(1e-9));
+		assertThat(PaperSession.intradayPrice(12, 14, 8, 10, 5.0 / 6)).isCloseTo(9, within(1e-9));
+		assertThat(PaperSession.intradayPrice(12, 14, 8, 10, 1)).isCloseTo(10, within(1e-9));
+	}
+
+	@Test
+	void tradingDaysFollowEachOtherWithoutOvernightGap() {
+		// Пятница и следующий понедельник воспроизводятся подряд
+		PaperSession session = session(tape(MONDAY.plusDays(4), MONDAY.plusDays(7)),
+				MONDAY.plusDays(4), MONDAY.plusDays(7));
+
+		assertThat(session.virtualTime(0)).isEqualTo(LocalDateTime.of(2024, 5, 10, 9, 30));
+		assertThat(session.virtualTime(DAY / 2)).isEqualTo(LocalDateTime.of(2024, 5, 10, 12, 45));
+		assertThat(session.virtualTime(DAY)).isEqualTo(LocalDateTime.of(2024, 5, 13, 9, 30));
+		assertThat(session.virtualTime(2 * DAY)).isEqualTo(LocalDateTime.of(2024, 5, 13, 16, 0));
+		assertThat(session.getClock().getDurationMillis()).isEqualTo(2 * DAY);
+	}
+
+	@Test
+	void quoteFollowsDailyBarAndHoldsCloseOnDaysWithoutTrading() {
+		BarSeries first = tape(MONDAY, MONDAY.plusDays(1));
+		BarSeries second = new BarSeries(2L, "BBB", new int[] {(int) MONDAY.toEpochDay()},
+				new double[] {50}, new double[] {55}, new double[] {45}, new double[] {52}, new long[] {1});
+		PaperSession session = new PaperSession(1L, 7L, 3L, MONDAY, MONDAY.plusDays(1), BigDecimal.valueOf(1000),
+				Map.of("AAA", first, "BBB", second), new int[] {(int) MONDAY.toEpochDay(), (int) MONDAY.plusDays(1).toEpochDay()}, 100);
+
+		assertThat(session.quote(first, 0)).isCloseTo(10, within(1e-9));
+		assertThat(session.quote(first, DAY / 2)).isCloseTo(11, within(1e-9));
+		assertThat(session.quote(second, DAY)).isCloseTo(52, within(1e-9));
+		assertThat(session.quote(second, DAY + DAY / 2)).isCloseTo(52, within(1e-9));
+	}
+
+	@Test
+	void stockIsNotQuotedBeforeItsFirstBar() {
+		BarSeries late = tape(MONDAY.plusDays(1));
+		PaperSession session = session(late, MONDAY, MONDAY.plusDays(1));
+
+		assertThat(session.quote(late, 0)).isNaN();
+		assertThat(session.quote(late, DAY)).isCloseTo(10, within(1e-9));
+	}
+
+	private static PaperSession session(BarSeries tape, LocalDate... days) {
+		int[] tradingDays = new int[days.length];
+		for (int i = 0; i < days.length; i++) {
+			tradingDays[i] = (int) days[i].toEpochDay();
+		}
+		return new PaperSession(1L, 7L, 3L, days[0], days[days.length - 1], BigDecimal.valueOf(1000),
+				Map.of(tape.getSymbol(), tape), tradingDays, 100);
+	}
+
+	/**
+	 * Лента с одинаковыми растущими барами: открытие 10, минимум 8, максимум 14, закрытие 12
+	 */
+	private static BarSeries tape(LocalDate... days) {
+		int n = days.length;
+		int[] epochDays = new int[n];
+		double[] open = new double[n];
+		double[] high = new double[n];
+		double[] low = new double[n];
+		double[] close = new double[n];
+		for (int i = 0; i < n; i++) {
+			epochDays[i] = (int) days[i].toEpochDay();
+			open[i] = 10;
+			high[i] = 14;
+			low[i] = 8;
+			close[i] = 12;
+		}
+		return new BarSeries(1L, "AAA", epochDays, open, high, low, close, new long[n]);
+	}
+}
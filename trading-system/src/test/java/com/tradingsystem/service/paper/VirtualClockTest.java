@@ -0,0 +1,64 @@
+package com.tradingsystem.service.paper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class VirtualClockTest {
+
+	@Test
+	void virtualTimeAdvancesWithSpeed() {
+		VirtualClock clock = new VirtualClock(Long.MAX_VALUE / 2, 1000);
+
+		sleep(20);
+
+		// 20 мс реального времени при ускорении 1000 - не меньше 20 виртуальных секунд
+		assertThat(clock.elapsedMillis()).isGreaterThanOrEqualTo(20_000);
+	}
+
+	@Test
+	void pausedClockStandsStillAndResumesFromPausePoint() {
+		VirtualClock clock = new VirtualClock(Long.MAX_VALUE / 2, 1000);
+		clock.pause();
+		long paused = clock.elapsedMillis();
+
+		sleep(200);
+		assertThat(clock.elapsedMillis()).isEqualTo(paused);
+		assertThat(clock.isPaused()).isTrue();
+
+		clock.resume();
+		sleep(5);
+		// Время паузы не засчитывается: после возобновления прошло около 5 мс, а не 205
+		assertThat(clock.elapsedMillis()).isBetween(paused + 5_000, paused + 150_000);
+	}
+
+	@Test
+	void speedChangeKeepsElapsedTimeContinuous() {
+		VirtualClock clock = new VirtualClock(Long.MAX_VALUE / 2, 1000);
+		clock.pause();
+		long before = clock.elapsedMillis();
+
+		clock.setSpeed(10);
+
+		assertThat(clock.elapsedMillis()).isEqualTo(before);
+		assertThat(clock.getSpeed()).isEqualTo(10);
+	}
+
+	@Test
+	void elapsedTimeStopsAtDuration() {
+		VirtualClock clock = new VirtualClock(1000, 1000);
+
+		sleep(5);
+
+		assertThat(clock.elapsedMillis()).isEqualTo(1000);
+		assertThat(clock.isFinished()).isTrue();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.tradingsystem.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.jupiter.api.Test;
+
+class FixedPointTest {
+
+	@Test
+	void ofRoundsHalfUpToFourDecimals() {
+		assertThat(FixedPoint.of(new BigDecimal("12.34565"))).isEqualTo(123_457L);
+		assertThat(FixedPoint.of(new BigDecimal("12.34564"))).isEqualTo(123_456L);
+		assertThat(FixedPoint.of(new BigDecimal("-0.00005"))).isEqualTo(-1L);
+		assertThat(FixedPoint.of(new BigDecimal("7"))).isEqualTo(7 * FixedPoint.ONE);
+		assertThat(FixedPoint.of(null)).isZero();
+	}
+
+	@Test
+	void ofRejectsValuesOutsideLong() {
+		assertThatThrownBy(() -> FixedPoint.of(new BigDecimal("1e20")))
+				.isInstanceOf(ArithmeticException.class);
+	}
+
+	@Test
+	void toBigDecimalRoundTrips() {
+		BigDecimal price = new BigDecimal("187.4321");
+		assertThat(FixedPoint.toBigDecimal(FixedPoint.of(price))).isEqualTo(price);
+		assertThat(FixedPoint.toBigDecimal(123_455L, 2)).isEqualTo(new BigDecimal("12.35"));
+		assertThat(FixedPoint.toBigDecimal(-123_500L, 1)).isEqualTo(new BigDecimal("-12.4"));
+	}
+
+	@Test
+	void multiplyDetectsOverflow() {
+		assertThat(FixedPoint.multiply(FixedPoint.of(new BigDecimal("10.5")), 3)).isEqualTo(315_000L);
+		assertThatThrownBy(() -> FixedPoint.multiply(Long.MAX_VALUE / 2, 3))
+				.isInstanceOf(ArithmeticException.class);
+	}
+
+	@Test
+	void divideRoundsHalfAwayFromZero() {
+		assertThat(FixedPoint.divide(5, 2)).isEqualTo(3);
+		assertThat(FixedPoint.divide(-5, 2)).isEqualTo(-3);
+		assertThat(FixedPoint.divide(5, -2)).isEqualTo(-3);
+		assertThat(FixedPoint.divide(-5, -2)).isEqualTo(3);
+		assertThat(FixedPoint.divide(7, 3)).isEqualTo(2);
+		assertThat(FixedPoint.divide(8, 3)).isEqualTo(3);
+		assertThat(FixedPoint.divide(6, 3)).isEqualTo(2);
+	}
+
+	@Test
+	void divideMatchesBigDecimalHalfUp() {
+		long[][] cases = {{1, 3}, {2, 3}, {10, 4}, {-10, 4}, {999_999, 1000}, {-1_000_500, 1000}, {15, -10}};
+		for (long[] pair : cases) {
+			long expected = BigDecimal.valueOf(pair[0])
+					.divide(BigDecimal.valueOf(pair[1]), 0, RoundingMode.HALF_UP)
+					.longValueExact();
+			assertThat(FixedPoint.divide(pair[0], pair[1])).as("%d / %d", pair[0], pair[1]).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void percentOfMatchesBigDecimalCalculation() {
+		long part = FixedPoint.of(new BigDecimal("1234.5678"));
+		long total = FixedPoint.of(new BigDecimal("9876.5432"));
+		BigDecimal expected = new BigDecimal("1234.5678")
+				.divide(new BigDecimal("9876.5432"), 4, RoundingMode.HALF_UP)
+				.multiply(BigDecimal.valueOf(100));
+
+		assertThat(FixedPoint.percentToBigDecimal(FixedPoint.percentOf(part, total)))
+				.isEqualByComparingTo(expected);
+	}
+
+	@Test
+	void percentOfHandlesEmptyTotalAndLargeAmounts() {
+		assertThat(FixedPoint.percentOf(100, 0)).isZero();
+		assertThat(FixedPoint.percentOf(100, -5)).isZero();
+
+		long huge = Long.MAX_VALUE / 4;
+		assertThat(FixedPoint.percentOf(huge, huge * 2)).isEqualTo(5_000L);
+	}
+}